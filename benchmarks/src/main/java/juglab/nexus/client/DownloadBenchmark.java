@@ -0,0 +1,114 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Checksum;
+
+/**
+ * Download throughput from an in-process HTTP server over loopback,
+ * including writing the file and verifying its SHA-1. The {@code bytes}
+ * counter reports the throughput in bytes per second.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class DownloadBenchmark {
+
+	@Param( { "1048576", "67108864" } )
+	public int size;
+
+	private HttpServer server;
+	private NexusRestClient client;
+	private List< Asset > assets;
+	private Path downloadDir;
+
+	@AuxCounters( AuxCounters.Type.OPERATIONS )
+	@State( Scope.Thread )
+	public static class Bytes {
+
+		public long bytes;
+
+		@Setup( Level.Iteration )
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException, NoSuchAlgorithmException {
+		byte[] content = new byte[ size ];
+		new Random( 42 ).nextBytes( content );
+		server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+		server.createContext( "/repository/", exchange -> {
+			exchange.getResponseHeaders().add( "Content-Type", "application/octet-stream" );
+			exchange.sendResponseHeaders( 200, content.length );
+			try ( OutputStream out = exchange.getResponseBody() ) {
+				out.write( content );
+			}
+		} );
+		server.start();
+		String baseURL = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		StringBuilder sha1 = new StringBuilder();
+		for ( byte b : MessageDigest.getInstance( "SHA-1" ).digest( content ) )
+			sha1.append( String.format( "%02x", b ) );
+		Checksum checksum = new Checksum();
+		checksum.setSHA1( sha1.toString() );
+		Asset asset = new Asset();
+		asset.setDownloadUrl( baseURL + "/repository/" + Payloads.REPOSITORY + "/blob.bin" );
+		asset.setChecksum( checksum );
+		assets = Collections.singletonList( asset );
+
+		client = new NexusRestClient( baseURL );
+		downloadDir = Files.createTempDirectory( "nexus-client-benchmark" );
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+		server.stop( 0 );
+		try ( Stream< Path > files = Files.walk( downloadDir ) ) {
+			files.sorted( Comparator.reverseOrder() ).forEach( path -> path.toFile().delete() );
+		}
+	}
+
+	@Benchmark
+	public List< ? > download( Bytes counter ) throws NexusRestClientException {
+		List< ? > files = client.downloadAssets( assets, downloadDir.toString() );
+		counter.bytes += size;
+		return files;
+	}
+}
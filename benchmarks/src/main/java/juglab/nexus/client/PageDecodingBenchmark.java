@@ -0,0 +1,72 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+
+/**
+ * Decoding of one page of a listing: the single-pass {@link PageDecoder}
+ * against the original approach of reading the page into a {@link Map} and
+ * converting its items with {@code convertValue}. The original also created an
+ * {@link ObjectMapper} per listing; that cost is left out here.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class PageDecodingBenchmark {
+
+	private static final TypeReference< List< Asset > > ASSETS = new TypeReference< List< Asset > >() {};
+	private static final TypeReference< List< Component > > COMPONENTS = new TypeReference< List< Component > >() {};
+
+	@Param( { "ASSETS", "COMPONENTS" } )
+	public String kind;
+
+	@Param( { "100", "1000" } )
+	public int items;
+
+	private String page;
+	private ObjectMapper legacyMapper;
+
+	@Setup
+	public void setup() {
+		page = "ASSETS".equals( kind ) ? Payloads.assetPage( items, false ) : Payloads.componentPage( items, false );
+		legacyMapper = new ObjectMapper();
+		legacyMapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
+	}
+
+	@Benchmark
+	public Page< ? > singlePassDecoder() throws IOException {
+		return "ASSETS".equals( kind ) ? PageDecoder.ASSETS.decode( page ) : PageDecoder.COMPONENTS.decode( page );
+	}
+
+	@Benchmark
+	@SuppressWarnings( "unchecked" )
+	public Object[] mapAndConvertValue() throws IOException {
+		Map< String, Object > map = legacyMapper.readValue( page, Map.class );
+		List< ? > result = legacyMapper.convertValue( map.get( "items" ), "ASSETS".equals( kind ) ? ASSETS : COMPONENTS );
+		return new Object[] { result, map.get( "continuationToken" ) };
+	}
+}
@@ -0,0 +1,96 @@
+package juglab.nexus.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Generates list and search responses shaped like those of a Nexus 3 server
+ * hosting maven2 repositories: base64 ids, deep group paths, full download
+ * URLs and SHA-1/MD5 checksums. Seeded, so every run decodes the same bytes.
+ */
+final class Payloads {
+
+	static final String BASE_URL = "https://nexus.example.org";
+	static final String REPOSITORY = "maven-releases";
+
+	private static final String[] GROUPS = { "org.apache.commons", "com.fasterxml.jackson.core", "org.jboss.resteasy", "net.imglib2", "sc.fiji", "de.mpicbg.scicomp.labs" };
+	private static final String[] EXTENSIONS = { "jar", "pom", "jar.sha1", "sources.jar" };
+
+	private Payloads() {}
+
+	static String assetPage( int items, boolean lastPage ) {
+		Random random = new Random( 42 );
+		StringBuilder json = new StringBuilder( items * 400 ).append( "{\n  \"items\" : [ " );
+		for ( int i = 0; i < items; i++ ) {
+			if ( i > 0 )
+				json.append( ", " );
+			appendAsset( json, random, i );
+		}
+		return appendToken( json, random, lastPage );
+	}
+
+	static String componentPage( int items, boolean lastPage ) {
+		Random random = new Random( 42 );
+		StringBuilder json = new StringBuilder( items * 1400 ).append( "{\n  \"items\" : [ " );
+		for ( int i = 0; i < items; i++ ) {
+			if ( i > 0 )
+				json.append( ", " );
+			String group = GROUPS[ i % GROUPS.length ];
+			String name = "artifact-" + ( i / 7 );
+			String version = ( i % 7 ) + "." + random.nextInt( 20 ) + "." + random.nextInt( 10 );
+			json.append( "{\n    \"id\" : \"" ).append( id( random ) )
+					.append( "\",\n    \"repository\" : \"" ).append( REPOSITORY )
+					.append( "\",\n    \"format\" : \"maven2\",\n    \"group\" : \"" ).append( group )
+					.append( "\",\n    \"name\" : \"" ).append( name )
+					.append( "\",\n    \"version\" : \"" ).append( version )
+					.append( "\",\n    \"assets\" : [ " );
+			for ( int a = 0; a < EXTENSIONS.length; a++ ) {
+				if ( a > 0 )
+					json.append( ", " );
+				appendAsset( json, random, group, name, version, EXTENSIONS[ a ] );
+			}
+			json.append( " ]\n  }" );
+		}
+		return appendToken( json, random, lastPage );
+	}
+
+	private static void appendAsset( StringBuilder json, Random random, int i ) {
+		String version = ( i % 7 ) + "." + random.nextInt( 20 ) + "." + random.nextInt( 10 );
+		appendAsset( json, random, GROUPS[ i % GROUPS.length ], "artifact-" + ( i / 7 ), version, EXTENSIONS[ i % EXTENSIONS.length ] );
+	}
+
+	private static void appendAsset( StringBuilder json, Random random, String group, String name, String version, String extension ) {
+		String path = group.replace( '.', '/' ) + "/" + name + "/" + version + "/" + name + "-" + version + "." + extension;
+		json.append( "{\n    \"downloadUrl\" : \"" ).append( BASE_URL ).append( "/repository/" ).append( REPOSITORY ).append( '/' ).append( path )
+				.append( "\",\n    \"path\" : \"" ).append( path )
+				.append( "\",\n    \"id\" : \"" ).append( id( random ) )
+				.append( "\",\n    \"repository\" : \"" ).append( REPOSITORY )
+				.append( "\",\n    \"format\" : \"maven2\",\n    \"checksum\" : {\n      \"sha1\" : \"" ).append( hex( random, 20 ) )
+				.append( "\",\n      \"md5\" : \"" ).append( hex( random, 16 ) )
+				.append( "\"\n    }\n  }" );
+	}
+
+	private static String appendToken( StringBuilder json, Random random, boolean lastPage ) {
+		json.append( " ],\n  \"continuationToken\" : " );
+		if ( lastPage )
+			json.append( "null" );
+		else
+			json.append( '"' ).append( hex( random, 16 ) ).append( '"' );
+		return json.append( "\n}" ).toString();
+	}
+
+	/**
+	 * Nexus ids are the base64 of the repository name and a hash
+	 */
+	private static String id( Random random ) {
+		return Base64.getEncoder().withoutPadding().encodeToString( ( REPOSITORY + ":" + hex( random, 16 ) ).getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	private static String hex( Random random, int bytes ) {
+		StringBuilder hex = new StringBuilder( bytes * 2 );
+		for ( int i = 0; i < bytes; i++ )
+			hex.append( String.format( "%02x", random.nextInt( 256 ) ) );
+		return hex.toString();
+	}
+}
@@ -0,0 +1,70 @@
+package juglab.nexus.client;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Query;
+
+/**
+ * The client-side cost of a search: turning a {@link Query} into a request
+ * through the proxy, instrumentation and coalescing, and decoding an empty
+ * result. A request filter answers every request without touching the
+ * network.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class QueryRequestBenchmark {
+
+	private static final String EMPTY_PAGE = "{ \"items\" : [ ], \"continuationToken\" : null }";
+
+	@Param( { "true", "false" } )
+	public boolean coalesce;
+
+	private NexusRestClient client;
+	private Query query;
+
+	@Setup
+	public void setup() {
+		ClientRequestFilter stub = request -> request.abortWith( Response.ok( EMPTY_PAGE, MediaType.APPLICATION_JSON_TYPE ).build() );
+		ResteasyClient transport = ( ResteasyClient ) ClientBuilder.newBuilder().register( stub ).build();
+		client = new NexusRestClient( Payloads.BASE_URL, transport, () -> {
+			throw new UnsupportedOperationException();
+		}, "admin", "admin123" );
+		client.setSearchCoalescing( coalesce );
+		query = new Query( "commons", Payloads.REPOSITORY, "maven2", null, null, "1.2.*", "org.apache.commons", "commons-lang3", Query.Sort.VERSION, Query.Order.DESC );
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public List< Asset > searchAssets() throws NexusRestClientException {
+		return client.searchAssets( query );
+	}
+}
@@ -0,0 +1,20 @@
+package juglab.nexus.client.load;
+
+import java.io.IOException;
+
+/**
+ * Runs a {@link FakeNexusServer} until the process is stopped, e.g.
+ * {@code --port 8081 --components 10000 --latency-ms 20}; see
+ * {@link LoadHarness} for the options
+ */
+public final class FakeNexusLauncher {
+
+	private FakeNexusLauncher() {}
+
+	public static void main( String[] args ) throws IOException, InterruptedException {
+		Options options = new Options( args );
+		FakeNexusServer server = options.server( FakeNexusServer.builder() ).start();
+		System.out.println( "Fake Nexus serving " + server.getRepositories() + " at " + server.getBaseURL() );
+		Thread.currentThread().join();
+	}
+}
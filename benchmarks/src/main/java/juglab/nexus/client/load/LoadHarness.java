@@ -0,0 +1,210 @@
+package juglab.nexus.client.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import juglab.nexus.client.NexusRestClient;
+import juglab.nexus.client.NexusRestClientBuilder;
+import juglab.nexus.client.NexusRestClientException;
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+import juglab.nexus.client.domain.Query;
+import juglab.nexus.client.metrics.LatencyHistogram;
+import juglab.nexus.client.metrics.NexusClientMetrics;
+
+/**
+ * Drives a {@link NexusRestClient} with concurrent workers and reports the
+ * throughput and latency percentiles of each operation. Without
+ * {@code --url} it starts a {@link FakeNexusServer} and accepts its options
+ * too:
+ *
+ * <pre>
+ * --url              server to load instead of an embedded fake
+ * --user, --password credentials for the server
+ * --repository       repository to load (default: the first)
+ * --scenario         list, search, download or mix (default)
+ * --workers          concurrent workers (default 8)
+ * --requests         operations per worker (default 100)
+ * --prefetch-depth   pages fetched ahead while listing (default 0)
+ * --coalesce         coalesce identical searches (default false)
+ * --metrics          also print the client's metrics (default false)
+ *
+ * --port, --repositories, --components, --page-size, --latency-ms,
+ * --error-rate, --bandwidth, --asset-size, --seed, --server-threads
+ * </pre>
+ *
+ * The mix is 10% listings, 50% searches and 40% downloads. Only successful
+ * operations are timed; failures are counted.
+ */
+public final class LoadHarness {
+
+	private enum Operation {
+		LIST, SEARCH, DOWNLOAD
+	}
+
+	private final NexusRestClient client;
+	private final String repository;
+	private final List< Operation > scenario;
+	private final List< Component > components;
+	private final LatencyHistogram[] latency = new LatencyHistogram[ Operation.values().length ];
+	private final AtomicLong[] errors = new AtomicLong[ Operation.values().length ];
+
+	LoadHarness( NexusRestClient client, String repository, String scenario ) throws NexusRestClientException {
+		this.client = client;
+		this.repository = repository;
+		this.scenario = scenario( scenario );
+		try ( Stream< Component > listed = client.listComponentsStream( repository ) ) {
+			this.components = listed.limit( 10_000 ).filter( c -> c.getAssets() != null && !c.getAssets().isEmpty() ).collect( Collectors.toList() );
+		}
+		if ( components.isEmpty() )
+			throw new NexusRestClientException( "No components with assets in " + repository );
+		for ( Operation operation : Operation.values() ) {
+			latency[ operation.ordinal() ] = new LatencyHistogram();
+			errors[ operation.ordinal() ] = new AtomicLong();
+		}
+	}
+
+	private static List< Operation > scenario( String name ) {
+		switch ( name ) {
+		case "list":
+			return Collections.singletonList( Operation.LIST );
+		case "search":
+			return Collections.singletonList( Operation.SEARCH );
+		case "download":
+			return Collections.singletonList( Operation.DOWNLOAD );
+		case "mix":
+			List< Operation > mix = new ArrayList< Operation >();
+			mix.add( Operation.LIST );
+			mix.addAll( Collections.nCopies( 5, Operation.SEARCH ) );
+			mix.addAll( Collections.nCopies( 4, Operation.DOWNLOAD ) );
+			return mix;
+		default:
+			throw new IllegalArgumentException( "Unknown scenario " + name );
+		}
+	}
+
+	/**
+	 * Runs {@code requests} operations on each of {@code workers} threads
+	 *
+	 * @return the wall-clock time in nanoseconds
+	 */
+	long run( int workers, int requests ) throws IOException, InterruptedException {
+		Path downloads = Files.createTempDirectory( "nexus-load" );
+		ExecutorService executor = Executors.newFixedThreadPool( workers );
+		CountDownLatch start = new CountDownLatch( 1 );
+		CountDownLatch done = new CountDownLatch( workers );
+		for ( int w = 0; w < workers; w++ ) {
+			Path dir = Files.createDirectory( downloads.resolve( "worker-" + w ) );
+			Random random = new Random( w );
+			executor.execute( () -> {
+				try {
+					start.await();
+					for ( int i = 0; i < requests; i++ )
+						execute( scenario.get( random.nextInt( scenario.size() ) ), random, dir );
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				} finally {
+					done.countDown();
+				}
+			} );
+		}
+		long started = System.nanoTime();
+		start.countDown();
+		done.await();
+		long elapsed = System.nanoTime() - started;
+		executor.shutdown();
+		try ( Stream< Path > files = Files.walk( downloads ) ) {
+			files.sorted( Comparator.reverseOrder() ).forEach( path -> path.toFile().delete() );
+		}
+		return elapsed;
+	}
+
+	private void execute( Operation operation, Random random, Path dir ) {
+		Component component = components.get( random.nextInt( components.size() ) );
+		long start = System.nanoTime();
+		try {
+			switch ( operation ) {
+			case LIST:
+				client.listAssets( repository );
+				break;
+			case SEARCH:
+				client.searchComponents( new Query( null, repository, null, component.getGroup(), component.getName(), null, null, null, null, null ) );
+				break;
+			case DOWNLOAD:
+				Asset asset = component.getAssets().get( random.nextInt( component.getAssets().size() ) );
+				client.downloadAssets( Collections.singletonList( asset ), dir.toString() );
+				break;
+			}
+			latency[ operation.ordinal() ].record( System.nanoTime() - start );
+		} catch ( NexusRestClientException | RuntimeException e ) {
+			errors[ operation.ordinal() ].incrementAndGet();
+		}
+	}
+
+	String report( long elapsedNanos ) {
+		StringBuilder report = new StringBuilder();
+		long total = 0;
+		report.append( String.format( "%-10s %8s %8s %10s %10s %10s %10s %10s%n", "operation", "ok", "errors", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms" ) );
+		for ( Operation operation : Operation.values() ) {
+			LatencyHistogram histogram = latency[ operation.ordinal() ];
+			long failed = errors[ operation.ordinal() ].get();
+			if ( histogram.getCount() + failed == 0 )
+				continue;
+			total += histogram.getCount();
+			report.append( String.format( "%-10s %8d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+					operation.name().toLowerCase(), histogram.getCount(), failed, histogram.getCount() * 1e9 / elapsedNanos,
+					millis( histogram.getValueAtPercentile( 50 ) ), millis( histogram.getValueAtPercentile( 99 ) ),
+					millis( histogram.getValueAtPercentile( 99.9 ) ), millis( histogram.getMax() ) ) );
+		}
+		report.append( String.format( "%d operations in %.2f s, %.1f ops/s%n", total, elapsedNanos / 1e9, total * 1e9 / elapsedNanos ) );
+		return report.toString();
+	}
+
+	private static double millis( long nanos ) {
+		return nanos / 1e6;
+	}
+
+	public static void main( String[] args ) throws IOException, InterruptedException, NexusRestClientException {
+		Options options = new Options( args );
+		String url = options.get( "url", null );
+		FakeNexusServer server = url == null ? options.server( FakeNexusServer.builder() ).start() : null;
+		int workers = options.get( "workers", 8 );
+		NexusClientMetrics metrics = new NexusClientMetrics();
+		NexusRestClientBuilder builder = NexusRestClient.builder( server != null ? server.getBaseURL() : url )
+				.maxConnections( 2 * workers )
+				.maxConnectionsPerRoute( 2 * workers )
+				.prefetchDepth( options.get( "prefetch-depth", 0 ) )
+				.searchCoalescing( options.get( "coalesce", false ) )
+				.listener( metrics );
+		if ( options.get( "user", null ) != null )
+			builder.credentials( options.get( "user", null ), options.get( "password", null ) );
+		try ( NexusRestClient client = builder.build() ) {
+			String repository = options.get( "repository", server != null ? server.getRepositories().get( 0 ) : null );
+			if ( repository == null )
+				throw new IllegalArgumentException( "--repository is required with --url" );
+			LoadHarness harness = new LoadHarness( client, repository, options.get( "scenario", "mix" ) );
+			long elapsed = harness.run( workers, options.get( "requests", 100 ) );
+			System.out.print( harness.report( elapsed ) );
+			if ( server != null )
+				System.out.printf( "server: %d requests, %d injected failures%n", server.getRequestCount(), server.getInjectedErrorCount() );
+			if ( options.get( "metrics", false ) )
+				System.out.println( metrics );
+		} finally {
+			if ( server != null )
+				server.close();
+		}
+	}
+}
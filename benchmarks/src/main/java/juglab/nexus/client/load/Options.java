@@ -0,0 +1,58 @@
+package juglab.nexus.client.load;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code --name value} command line options shared by {@link LoadHarness} and
+ * {@link FakeNexusLauncher}
+ */
+final class Options {
+
+	private final Map< String, String > values = new HashMap< String, String >();
+
+	Options( String[] args ) {
+		for ( int i = 0; i < args.length; i++ ) {
+			if ( !args[ i ].startsWith( "--" ) || i + 1 == args.length )
+				throw new IllegalArgumentException( "Expected --name value pairs, got " + args[ i ] );
+			values.put( args[ i ].substring( 2 ), args[ ++i ] );
+		}
+	}
+
+	String get( String name, String defaultValue ) {
+		return values.getOrDefault( name, defaultValue );
+	}
+
+	int get( String name, int defaultValue ) {
+		return values.containsKey( name ) ? Integer.parseInt( values.get( name ) ) : defaultValue;
+	}
+
+	long get( String name, long defaultValue ) {
+		return values.containsKey( name ) ? Long.parseLong( values.get( name ) ) : defaultValue;
+	}
+
+	double get( String name, double defaultValue ) {
+		return values.containsKey( name ) ? Double.parseDouble( values.get( name ) ) : defaultValue;
+	}
+
+	boolean get( String name, boolean defaultValue ) {
+		return values.containsKey( name ) ? Boolean.parseBoolean( values.get( name ) ) : defaultValue;
+	}
+
+	/**
+	 * Applies the server options to a builder
+	 */
+	FakeNexusServer.Builder server( FakeNexusServer.Builder builder ) {
+		return builder.port( get( "port", 0 ) )
+				.repositories( get( "repositories", "maven-releases" ).split( "," ) )
+				.components( get( "components", 1000 ) )
+				.pageSize( get( "page-size", 100 ) )
+				.latency( get( "latency-ms", 0L ), TimeUnit.MILLISECONDS )
+				.errorRate( get( "error-rate", 0.0 ) )
+				.bandwidth( get( "bandwidth", 0L ) )
+				.assetSize( get( "asset-size", 64 << 10 ) )
+				.seed( get( "seed", 42L ) )
+				.threads( get( "server-threads", 64 ) );
+	}
+}
@@ -0,0 +1,250 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Content-addressable store of downloaded artifacts, keyed by their SHA-1.
+ * Entries live in {@code <dir>/<first two hex digits>/<sha1>} and are hard
+ * linked (or copied, where links are not supported) into download
+ * directories. The total size is bounded by evicting the least recently used
+ * entries. Recency is tracked in memory and survives restarts through the
+ * modification time of an empty marker file next to each entry; the entries
+ * themselves are never touched, as they share their inode with the files
+ * linked from them. Concurrent requests for an artifact that is not cached
+ * yet share a single download.
+ * <p>
+ * Keys come from the server, so anything but 40 hex digits is rejected
+ * before it is used in a path.
+ * </p>
+ * <p>
+ * Because files are hard linked, modifying a downloaded file in place also
+ * modifies the cached entry.
+ * </p>
+ */
+final class ArtifactCache {
+
+	/**
+	 * Writes the content of a missing entry to the given path
+	 */
+	interface Loader {
+
+		void load( Path entry ) throws IOException;
+	}
+
+	private static final int KEY_LENGTH = 40;
+	private static final String MARKER_SUFFIX = ".used";
+
+	private final Path dir;
+	private final long maxBytes;
+	private final LinkedHashMap< String, Long > entries = new LinkedHashMap< String, Long >( 16, 0.75f, true );
+	private final ConcurrentMap< String, CompletableFuture< Void > > loading = new ConcurrentHashMap< String, CompletableFuture< Void > >();
+	private long totalBytes;
+
+	ArtifactCache( Path dir, long maxBytes ) throws IOException {
+		if ( maxBytes <= 0 )
+			throw new IllegalArgumentException( "cache size must be positive: " + maxBytes );
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		Files.createDirectories( dir );
+		scan();
+	}
+
+	/**
+	 * Places the artifact with the given SHA-1 at {@code target}, loading it
+	 * into the cache first if needed
+	 * 
+	 * @return false if the entry could not be placed, e.g. because it was
+	 *         evicted concurrently; the caller should then download directly
+	 * @throws IllegalArgumentException
+	 *             if {@code sha1} is not a SHA-1, see {@link #isKey(String)}
+	 */
+	boolean install( String sha1, Path target, Loader loader ) throws IOException {
+		if ( !isKey( sha1 ) )
+			throw new IllegalArgumentException( "not a SHA-1: " + sha1 );
+		String key = sha1.toLowerCase();
+		Path entry = entry( key );
+		if ( !contains( key ) )
+			loadShared( key, entry, loader );
+		if ( !place( entry, target ) ) {
+			remove( key );
+			return false;
+		}
+		used( key );
+		return true;
+	}
+
+	/**
+	 * @return true if {@code sha1} can key an entry: exactly 40 hex digits
+	 *         of either case
+	 */
+	static boolean isKey( String sha1 ) {
+		if ( sha1 == null || sha1.length() != KEY_LENGTH )
+			return false;
+		for ( int i = 0; i < KEY_LENGTH; i++ )
+			if ( Character.digit( sha1.charAt( i ), 16 ) < 0 )
+				return false;
+		return true;
+	}
+
+	private void loadShared( String key, Path entry, Loader loader ) throws IOException {
+		CompletableFuture< Void > mine = new CompletableFuture< Void >();
+		CompletableFuture< Void > inFlight = loading.putIfAbsent( key, mine );
+		if ( inFlight != null ) {
+			try {
+				inFlight.join();
+				return;
+			} catch ( CompletionException e ) {
+				if ( e.getCause() instanceof IOException )
+					throw ( IOException ) e.getCause();
+				throw e;
+			}
+		}
+		try {
+			if ( !contains( key ) ) {
+				Files.createDirectories( entry.getParent() );
+				loader.load( entry );
+				admit( key, Files.size( entry ) );
+			}
+			mine.complete( null );
+		} catch ( IOException | RuntimeException e ) {
+			mine.completeExceptionally( e );
+			throw e;
+		} finally {
+			loading.remove( key, mine );
+		}
+	}
+
+	private static boolean place( Path entry, Path target ) throws IOException {
+		Files.createDirectories( target.toAbsolutePath().getParent() );
+		Path part = FileDownloader.partFile( target );
+		try {
+			try {
+				Files.createLink( part, entry );
+			} catch ( NoSuchFileException e ) {
+				return false;
+			} catch ( UnsupportedOperationException | IOException e ) {
+				Files.copy( entry, part );
+			}
+			FileDownloader.publish( part, target );
+			return true;
+		} catch ( NoSuchFileException e ) {
+			Files.deleteIfExists( part );
+			return false;
+		} catch ( IOException | RuntimeException e ) {
+			Files.deleteIfExists( part );
+			throw e;
+		}
+	}
+
+	private Path entry( String key ) {
+		return dir.resolve( key.substring( 0, 2 ) ).resolve( key );
+	}
+
+	private Path marker( String key ) {
+		return dir.resolve( key.substring( 0, 2 ) ).resolve( "." + key + MARKER_SUFFIX );
+	}
+
+	private synchronized boolean contains( String key ) {
+		return entries.get( key ) != null;
+	}
+
+	private synchronized void remove( String key ) {
+		Long size = entries.remove( key );
+		if ( size != null )
+			totalBytes -= size;
+	}
+
+	private synchronized void admit( String key, long size ) {
+		Long previous = entries.put( key, size );
+		totalBytes += size - ( previous == null ? 0 : previous );
+		Iterator< Map.Entry< String, Long > > eldest = entries.entrySet().iterator();
+		while ( totalBytes > maxBytes && entries.size() > 1 ) {
+			Map.Entry< String, Long > evicted = eldest.next();
+			if ( evicted.getKey().equals( key ) )
+				continue;
+			eldest.remove();
+			totalBytes -= evicted.getValue();
+			try {
+				Files.deleteIfExists( entry( evicted.getKey() ) );
+				Files.deleteIfExists( marker( evicted.getKey() ) );
+			} catch ( IOException e ) {
+				// an undeletable entry only costs disk space; it is rescanned on restart
+			}
+		}
+	}
+
+	/**
+	 * Marks the entry as the most recently used, in memory and in its marker
+	 */
+	private void used( String key ) {
+		synchronized ( this ) {
+			entries.get( key );
+		}
+		Path marker = marker( key );
+		try {
+			try {
+				Files.setLastModifiedTime( marker, FileTime.fromMillis( System.currentTimeMillis() ) );
+			} catch ( NoSuchFileException e ) {
+				Files.createFile( marker );
+			}
+		} catch ( IOException e ) {
+			// recency is only a hint for eviction after a restart
+		}
+	}
+
+	/**
+	 * Admits the entries found on disk in the order they were last used,
+	 * according to their markers, or else to their own modification times
+	 */
+	private void scan() throws IOException {
+		List< Path > found = new ArrayList< Path >();
+		List< BasicFileAttributes > attributes = new ArrayList< BasicFileAttributes >();
+		List< FileTime > lastUsed = new ArrayList< FileTime >();
+		try ( DirectoryStream< Path > prefixes = Files.newDirectoryStream( dir, Files::isDirectory ) ) {
+			for ( Path prefix : prefixes ) {
+				try ( DirectoryStream< Path > files = Files.newDirectoryStream( prefix ) ) {
+					for ( Path file : files ) {
+						BasicFileAttributes attrs = Files.readAttributes( file, BasicFileAttributes.class );
+						String key = file.getFileName().toString();
+						if ( attrs.isRegularFile() && isKey( key ) && key.equals( key.toLowerCase() ) ) {
+							found.add( file );
+							attributes.add( attrs );
+							lastUsed.add( lastUsed( key, attrs ) );
+						}
+					}
+				}
+			}
+		}
+		Integer[] order = new Integer[ found.size() ];
+		for ( int i = 0; i < order.length; i++ )
+			order[ i ] = i;
+		Arrays.sort( order, Comparator.comparing( lastUsed::get ) );
+		for ( int i : order )
+			admit( found.get( i ).getFileName().toString(), attributes.get( i ).size() );
+	}
+
+	private FileTime lastUsed( String key, BasicFileAttributes entry ) {
+		try {
+			return Files.getLastModifiedTime( marker( key ) );
+		} catch ( IOException e ) {
+			return entry.lastModifiedTime();
+		}
+	}
+}
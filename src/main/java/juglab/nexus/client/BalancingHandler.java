@@ -0,0 +1,245 @@
+package juglab.nexus.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import juglab.nexus.client.metrics.LatencyHistogram;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Sends the calls of a {@link NexusRestClientProxy} to the nodes of a
+ * {@link NodePool}: {@link GET} calls to the node chosen by the pool, all
+ * others to the primary, and reports the outcome of each call to the pool.
+ * <p>
+ * The pages of a listing or search are sent to the node that served the
+ * first page, see {@link #pinned(NodePool.Pin, Supplier)}.
+ * </p>
+ * <p>
+ * With hedging enabled, a read of a single resource that has not been
+ * answered within the 95th percentile of the recent latency of its endpoint
+ * is sent to a second node, and the first successful answer is returned.
+ * Pages are not hedged, as their continuation token is only valid on one
+ * node. Hedges are limited to a tenth of the reads so that a slow cluster
+ * does not receive twice the load. The first request runs on a pool thread
+ * while the caller waits, and a losing request runs to completion in the
+ * background.
+ * </p>
+ */
+final class BalancingHandler implements InvocationHandler {
+
+	/** the idempotent reads of a single resource */
+	private static final Set< String > HEDGED = new HashSet< String >( Arrays.asList(
+			"listRepositories", "listRepositoriesIfChanged",
+			"getAsset", "getAssetIfChanged",
+			"getComponent", "getComponentIfChanged" ) );
+	private static final double HEDGE_PERCENTILE = 95;
+	private static final int HEDGE_PERCENT = 10;
+	private static final int MIN_SAMPLES = 20;
+	private static final int WINDOW = 1000;
+	/** samples between two computations of the hedging delay */
+	private static final int REFRESH = 100;
+
+	private final NodePool pool;
+	private final List< NexusRestClientProxy > proxies;
+	private final Supplier< NexusClientListener > listener;
+	private final ConcurrentHashMap< Method, Latency > latencies = new ConcurrentHashMap< Method, Latency >();
+	private final AtomicLong reads = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final ThreadLocal< NodePool.Pin > pins = new ThreadLocal< NodePool.Pin >();
+	private volatile boolean hedging;
+	private ExecutorService executor;
+
+	/**
+	 * Recent latencies of an endpoint: the last complete window of
+	 * {@link #WINDOW} requests, or the current one until the first is
+	 * complete. The percentile walks all buckets of the histogram, so it is
+	 * computed after the first {@link #MIN_SAMPLES} and then every
+	 * {@link #REFRESH} samples rather than on every request.
+	 */
+	private static final class Latency {
+
+		private volatile LatencyHistogram current = new LatencyHistogram();
+		private volatile LatencyHistogram previous;
+		private final AtomicLong samples = new AtomicLong();
+		private volatile long hedgeDelay = -1;
+
+		void record( long nanos ) {
+			LatencyHistogram histogram = current;
+			histogram.record( nanos );
+			if ( histogram.getCount() >= WINDOW ) {
+				synchronized ( this ) {
+					if ( current == histogram ) {
+						previous = histogram;
+						current = new LatencyHistogram();
+					}
+				}
+			}
+			long n = samples.incrementAndGet();
+			if ( n == MIN_SAMPLES || n % REFRESH == 0 ) {
+				histogram = previous != null ? previous : current;
+				hedgeDelay = histogram.getValueAtPercentile( HEDGE_PERCENTILE );
+			}
+		}
+
+		/**
+		 * @return the hedging delay, or -1 while there are too few samples
+		 */
+		long hedgeDelay() {
+			return hedgeDelay;
+		}
+	}
+
+	/**
+	 * @param proxies
+	 *            - a proxy for each node of the pool, in the same order
+	 */
+	BalancingHandler( NodePool pool, List< NexusRestClientProxy > proxies, Supplier< NexusClientListener > listener ) {
+		this.pool = pool;
+		this.proxies = proxies;
+		this.listener = listener;
+	}
+
+	NexusRestClientProxy proxy() {
+		return ( NexusRestClientProxy ) Proxy.newProxyInstance( NexusRestClientProxy.class.getClassLoader(),
+				new Class< ? >[] { NexusRestClientProxy.class }, this );
+	}
+
+	void setHedging( boolean hedging ) {
+		this.hedging = hedging;
+	}
+
+	synchronized void shutdown() {
+		if ( executor != null )
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Sends the reads that {@code call} makes on the current thread to the
+	 * node of {@code pin}, e.g. to fetch a page of a listing
+	 */
+	< T > T pinned( NodePool.Pin pin, Supplier< T > call ) {
+		NodePool.Pin outer = pins.get();
+		pins.set( pin );
+		try {
+			return call.get();
+		} finally {
+			if ( outer != null )
+				pins.set( outer );
+			else
+				pins.remove();
+		}
+	}
+
+	@Override
+	public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+		if ( method.getDeclaringClass() == Object.class )
+			return method.invoke( this, args );
+		if ( !method.isAnnotationPresent( GET.class ) )
+			return call( pool.acquirePrimary(), method, args, null );
+		NodePool.Pin pin = pins.get();
+		if ( pin != null )
+			return call( pool.acquirePinned( pin ), method, args, null );
+		if ( !HEDGED.contains( method.getName() ) )
+			return call( pool.acquire( null ), method, args, null );
+		Latency latency = latencies.get( method );
+		if ( latency == null )
+			latency = latencies.computeIfAbsent( method, m -> new Latency() );
+		long delay = hedging ? latency.hedgeDelay() : -1;
+		if ( delay < 0 )
+			return call( pool.acquire( null ), method, args, latency );
+		reads.incrementAndGet();
+		return hedged( method, args, latency, delay );
+	}
+
+	/**
+	 * Calls a node and reports the outcome to the pool
+	 *
+	 * @param latency
+	 *            - records the latency of a successful call; may be null
+	 */
+	private Object call( NodePool.Node node, Method method, Object[] args, Latency latency ) throws Throwable {
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			Object result = method.invoke( proxies.get( node.index ), args );
+			failed = result instanceof Response && NodePool.isNodeFailure( ( ( Response ) result ).getStatus() );
+			if ( !failed && latency != null )
+				latency.record( System.nanoTime() - start );
+			return result;
+		} catch ( InvocationTargetException e ) {
+			failed = NodePool.isNodeFailure( e.getCause() );
+			throw e.getCause();
+		} finally {
+			pool.release( node, failed );
+		}
+	}
+
+	private Object hedged( Method method, Object[] args, Latency latency, long delay ) throws Throwable {
+		CompletableFuture< Object > result = new CompletableFuture< Object >();
+		AtomicInteger pending = new AtomicInteger( 1 );
+		NodePool.Node first = pool.acquire( null );
+		executor().execute( () -> race( first, method, args, latency, result, pending ) );
+		try {
+			try {
+				return result.get( delay, TimeUnit.NANOSECONDS );
+			} catch ( TimeoutException e ) {
+				// slower than usual
+			}
+			if ( !result.isDone() && hedges.get() * 100 < reads.get() * HEDGE_PERCENT ) {
+				hedges.incrementAndGet();
+				pending.incrementAndGet();
+				NodePool.Node second = pool.acquire( first );
+				listener.get().requestHedged( method.getName(), delay );
+				executor().execute( () -> race( second, method, args, latency, result, pending ) );
+			}
+			return result.get();
+		} catch ( ExecutionException e ) {
+			throw e.getCause();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ProcessingException( "interrupted while waiting for " + method.getName(), e );
+		}
+	}
+
+	/**
+	 * Completes {@code result} with the first success, or with the failure
+	 * of the last of the {@code pending} requests. Responses that lose are
+	 * closed.
+	 */
+	private void race( NodePool.Node node, Method method, Object[] args, Latency latency, CompletableFuture< Object > result, AtomicInteger pending ) {
+		try {
+			Object value = call( node, method, args, latency );
+			if ( !result.complete( value ) && value instanceof Response )
+				( ( Response ) value ).close();
+		} catch ( Throwable e ) {
+			if ( pending.decrementAndGet() == 0 )
+				result.completeExceptionally( e );
+		}
+	}
+
+	private synchronized ExecutorService executor() {
+		if ( executor == null )
+			executor = Executors.newCachedThreadPool( NexusRestClient.daemonThreads( "nexus-hedge" ) );
+		return executor;
+	}
+}
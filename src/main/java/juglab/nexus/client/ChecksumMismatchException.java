@@ -0,0 +1,35 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+
+/**
+ * Signals that downloaded content does not match the checksum Nexus reported
+ * for the asset. The corrupt download is discarded before this is thrown.
+ */
+public class ChecksumMismatchException extends IOException {
+
+	private static final long serialVersionUID = 2286019599347155812L;
+
+	private final String algorithm;
+	private final String expected;
+	private final String actual;
+
+	public ChecksumMismatchException( String source, String algorithm, String expected, String actual ) {
+		super( algorithm + " mismatch for " + source + ": expected " + expected + " but was " + actual );
+		this.algorithm = algorithm;
+		this.expected = expected;
+		this.actual = actual;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public String getExpected() {
+		return expected;
+	}
+
+	public String getActual() {
+		return actual;
+	}
+}
@@ -0,0 +1,131 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import juglab.nexus.client.domain.Checksum;
+
+/**
+ * Verifies content against the checksum Nexus reports for an asset. SHA-1 is
+ * used when available, MD5 otherwise; only one digest is computed per
+ * transfer. Digests are compared in binary; hex is only written for a
+ * mismatch.
+ */
+final class ChecksumVerifier {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String algorithm;
+	private final Checksum expected;
+
+	private ChecksumVerifier( String algorithm, Checksum expected ) {
+		this.algorithm = algorithm;
+		this.expected = expected;
+	}
+
+	/**
+	 * @return a verifier for the strongest digest in {@code checksum}, or null
+	 *         if there is nothing to verify against
+	 */
+	static ChecksumVerifier of( Checksum checksum ) {
+		if ( checksum == null )
+			return null;
+		if ( checksum.hasSHA1() )
+			return new ChecksumVerifier( "SHA-1", checksum );
+		if ( checksum.hasMD5() )
+			return new ChecksumVerifier( "MD5", checksum );
+		return null;
+	}
+
+	MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( algorithm );
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * @return {@code in}, updating {@code digest} with every byte read through
+	 *         it
+	 */
+	static ReadableByteChannel digesting( ReadableByteChannel in, MessageDigest digest ) {
+		return new ReadableByteChannel() {
+
+			@Override
+			public int read( ByteBuffer dst ) throws IOException {
+				int start = dst.position();
+				int read = in.read( dst );
+				if ( read > 0 ) {
+					ByteBuffer view = dst.duplicate();
+					view.flip();
+					view.position( start );
+					digest.update( view );
+				}
+				return read;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return in.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		};
+	}
+
+	/**
+	 * @throws ChecksumMismatchException
+	 *             unless {@code digest} matches the expected value
+	 */
+	void verify( MessageDigest digest, Object source ) throws ChecksumMismatchException {
+		byte[] actual = digest.digest();
+		if ( !matches( actual ) )
+			throw new ChecksumMismatchException( String.valueOf( source ), algorithm,
+					expected.hasSHA1() ? expected.getSHA1() : expected.getMD5(), hex( actual ) );
+	}
+
+	/**
+	 * @return true if {@code file} exists and its content matches the expected
+	 *         value
+	 */
+	boolean matches( Path file ) throws IOException {
+		if ( !file.toFile().isFile() )
+			return false;
+		MessageDigest digest = newDigest();
+		ByteBuffer buffer = ByteBuffer.allocate( 64 << 10 );
+		try ( FileChannel in = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			while ( in.read( buffer ) >= 0 ) {
+				buffer.flip();
+				digest.update( buffer );
+				buffer.clear();
+			}
+		}
+		return matches( digest.digest() );
+	}
+
+	/**
+	 * @return false also for an expected value that is not a hex digest
+	 */
+	private boolean matches( byte[] actual ) {
+		return expected.hasSHA1() ? expected.sha1Matches( actual ) : expected.md5Matches( actual );
+	}
+
+	static String hex( byte[] bytes ) {
+		char[] chars = new char[ bytes.length * 2 ];
+		for ( int i = 0; i < bytes.length; i++ ) {
+			chars[ 2 * i ] = HEX[ ( bytes[ i ] >> 4 ) & 0xf ];
+			chars[ 2 * i + 1 ] = HEX[ bytes[ i ] & 0xf ];
+		}
+		return new String( chars );
+	}
+}
@@ -0,0 +1,151 @@
+package juglab.nexus.client;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A component to upload with {@link NexusRestClient#uploadComponent}: the
+ * target repository, the form fields describing the component and the files
+ * of its assets. Field names follow the Nexus upload form, prefixed with the
+ * repository format, e.g. {@code maven2.groupId} or {@code raw.asset1}; the
+ * factories and asset methods for maven2 and raw fill them in. The files are
+ * read when the upload is sent, not before.
+ */
+public class ComponentUpload {
+
+	public static final String MAVEN2 = "maven2";
+	public static final String RAW = "raw";
+
+	private final String repository;
+	private final String format;
+	private final Map< String, String > fields = new LinkedHashMap< String, String >();
+	private final Map< String, File > files = new LinkedHashMap< String, File >();
+
+	/**
+	 * An upload of any format, to be described with
+	 * {@link #field(String, String)} and {@link #file(String, File)}
+	 *
+	 * @param repository
+	 *            - name of a hosted repository
+	 * @param format
+	 *            - format of the repository, e.g. {@value #MAVEN2}
+	 */
+	public ComponentUpload( String repository, String format ) {
+		if ( repository == null || format == null )
+			throw new IllegalArgumentException( "repository and format are required" );
+		this.repository = repository;
+		this.format = format;
+	}
+
+	/**
+	 * A maven2 component; add its files with
+	 * {@link #mavenAsset(File, String, String)}
+	 */
+	public static ComponentUpload maven2( String repository, String groupId, String artifactId, String version ) {
+		return new ComponentUpload( repository, MAVEN2 )
+				.field( "maven2.groupId", groupId )
+				.field( "maven2.artifactId", artifactId )
+				.field( "maven2.version", version );
+	}
+
+	/**
+	 * A raw component; add its files with {@link #rawAsset(File, String)}
+	 *
+	 * @param directory
+	 *            - the directory of the repository the files are stored in
+	 */
+	public static ComponentUpload raw( String repository, String directory ) {
+		return new ComponentUpload( repository, RAW ).field( "raw.directory", directory );
+	}
+
+	/**
+	 * Adds a file to a maven2 upload
+	 *
+	 * @param extension
+	 *            - e.g. {@code jar} or {@code pom}
+	 * @param classifier
+	 *            - e.g. {@code sources}, or null
+	 */
+	public ComponentUpload mavenAsset( File file, String extension, String classifier ) {
+		String asset = nextAsset( MAVEN2 );
+		file( asset, file );
+		field( asset + ".extension", extension );
+		return field( asset + ".classifier", classifier );
+	}
+
+	/**
+	 * Has Nexus generate a pom for a maven2 upload that does not include one
+	 */
+	public ComponentUpload generatePom( String packaging ) {
+		requireFormat( MAVEN2 );
+		field( "maven2.generate-pom", "true" );
+		return field( "maven2.packaging", packaging );
+	}
+
+	/**
+	 * Adds a file to a raw upload
+	 *
+	 * @param filename
+	 *            - name of the file in the repository, or null for the name
+	 *            of {@code file}
+	 */
+	public ComponentUpload rawAsset( File file, String filename ) {
+		String asset = nextAsset( RAW );
+		file( asset, file );
+		return field( asset + ".filename", filename != null ? filename : file.getName() );
+	}
+
+	/**
+	 * Sets a form field; null values are left out
+	 */
+	public ComponentUpload field( String name, String value ) {
+		if ( value == null )
+			fields.remove( name );
+		else
+			fields.put( name, value );
+		return this;
+	}
+
+	/**
+	 * Adds a file under a form field
+	 */
+	public ComponentUpload file( String name, File file ) {
+		if ( file == null )
+			throw new IllegalArgumentException( "no file for " + name );
+		files.put( name, file );
+		return this;
+	}
+
+	public String getRepository() {
+		return repository;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public Map< String, String > getFields() {
+		return Collections.unmodifiableMap( fields );
+	}
+
+	public Map< String, File > getFiles() {
+		return Collections.unmodifiableMap( files );
+	}
+
+	private String nextAsset( String format ) {
+		requireFormat( format );
+		return format + ".asset" + ( files.size() + 1 );
+	}
+
+	private void requireFormat( String format ) {
+		if ( !format.equals( this.format ) )
+			throw new IllegalStateException( "not a " + format + " upload: " + this.format );
+	}
+
+	@Override
+	public String toString() {
+		return "ComponentUpload [repository=" + repository + ", fields=" + fields + ", files=" + files.values() + "]";
+	}
+}
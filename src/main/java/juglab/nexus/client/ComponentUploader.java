@@ -0,0 +1,137 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Sends component uploads to the primary node through the client's pooled
+ * HTTP connections. The REST proxy cannot be used for them: the RESTEasy
+ * engine copies every request body into memory or a temporary file before
+ * sending it, which for artifacts of hundreds of megabytes costs a second
+ * write of the whole file. Here the multipart body is written from the
+ * files straight to the socket, after the server has accepted the request
+ * headers with {@code 100 Continue}, so a rejected upload does not transfer
+ * the files at all.
+ * <p>
+ * Uploads are not repeated after a failure, as the server may have stored
+ * the component already; they wait for the client's rate limiter.
+ * </p>
+ */
+final class ComponentUploader {
+
+	private static final String PATH = "/service/rest/v1/components?repository=";
+	private static final int MAX_ERROR_LENGTH = 4096;
+
+	private final HttpClient http;
+	private final RequestConfig config;
+	private final NodePool nodes;
+	private final String authorization;
+	private final Supplier< RateLimiter > limiter;
+	private final Supplier< NexusClientListener > listener;
+
+	/**
+	 * @param http
+	 *            - the transport of the client's REST proxy
+	 * @param authorization
+	 *            - value of the {@code Authorization} header, or null
+	 * @param limiter
+	 *            - looked up before every upload; may supply null for no
+	 *            limit
+	 */
+	ComponentUploader( HttpClient http, NodePool nodes, String authorization, Supplier< RateLimiter > limiter, Supplier< NexusClientListener > listener ) {
+		this.http = http;
+		RequestConfig defaults = http instanceof Configurable ? ( ( Configurable ) http ).getConfig() : null;
+		this.config = RequestConfig.copy( defaults != null ? defaults : RequestConfig.DEFAULT ).setExpectContinueEnabled( true ).build();
+		this.nodes = nodes;
+		this.authorization = authorization;
+		this.limiter = limiter;
+		this.listener = listener;
+	}
+
+	/**
+	 * @throws javax.ws.rs.WebApplicationException
+	 *             if the server rejects the upload, as thrown by the REST
+	 *             proxy; its response carries the server's explanation
+	 */
+	void upload( ComponentUpload upload ) throws IOException {
+		MultipartEntity entity = new MultipartEntity( upload );
+		acquire( upload );
+		NodePool.Node node = nodes.acquirePrimary();
+		HttpPost post = new HttpPost( node.baseURL + PATH + URLEncoder.encode( upload.getRepository(), StandardCharsets.UTF_8.name() ) );
+		post.setConfig( config );
+		if ( authorization != null )
+			post.setHeader( HttpHeaders.AUTHORIZATION, authorization );
+		post.setEntity( entity );
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			http.execute( post, response -> {
+				int status = response.getStatusLine().getStatusCode();
+				if ( status / 100 == 2 ) {
+					EntityUtils.consume( response.getEntity() );
+					return null;
+				}
+				throw ErrorStatus.exception( Response.status( status )
+						.entity( message( response.getEntity() ) ).type( MediaType.TEXT_PLAIN_TYPE ).build() );
+			} );
+			listener.get().uploadCompleted( upload.getRepository(), entity.getContentLength(), System.nanoTime() - start, null );
+		} catch ( IOException | RuntimeException e ) {
+			failed = NodePool.isNodeFailure( e );
+			listener.get().uploadCompleted( upload.getRepository(), entity.getContentLength(), System.nanoTime() - start, e );
+			throw e;
+		} finally {
+			nodes.release( node, failed );
+		}
+	}
+
+	/**
+	 * Reads the beginning of an error response. The rest is not read: the
+	 * connection is closed instead of being returned to the pool.
+	 *
+	 * @return at most {@link #MAX_ERROR_LENGTH} characters
+	 */
+	private static String message( HttpEntity entity ) throws IOException {
+		if ( entity == null )
+			return "";
+		ContentType type = ContentType.get( entity );
+		Charset charset = type != null && type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
+		Reader reader = new InputStreamReader( entity.getContent(), charset );
+		char[] message = new char[ MAX_ERROR_LENGTH ];
+		int length = 0;
+		for ( int read; length < message.length && ( read = reader.read( message, length, message.length - length ) ) >= 0; )
+			length += read;
+		return new String( message, 0, length );
+	}
+
+	private void acquire( ComponentUpload upload ) throws InterruptedIOException {
+		RateLimiter limiter = this.limiter.get();
+		if ( limiter == null )
+			return;
+		try {
+			limiter.acquire();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "upload to " + upload.getRepository() + " interrupted" );
+		}
+	}
+}
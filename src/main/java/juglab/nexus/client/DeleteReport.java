@@ -0,0 +1,104 @@
+package juglab.nexus.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link NexusRestClient#deleteAssets(Collection)} or
+ * {@link NexusRestClient#deleteComponents(Collection)}: the outcome for every
+ * requested id, in request order. A failing id does not stop the others
+ * from being deleted.
+ */
+public class DeleteReport {
+
+	public enum Outcome {
+		DELETED,
+		/** 404: the id does not exist (any more) */
+		NOT_FOUND,
+		/** 403: the user may not delete it */
+		FORBIDDEN,
+		/** any other error, see {@link DeleteReport#getFailure(String)} */
+		FAILED
+	}
+
+	private final Map< String, Outcome > outcomes = new LinkedHashMap< String, Outcome >();
+	private final Map< String, NexusRestClientException > failures = new HashMap< String, NexusRestClientException >();
+
+	DeleteReport( Collection< String > ids ) {
+		for ( String id : ids )
+			outcomes.put( id, null );
+	}
+
+	synchronized void record( String id, NexusRestClientException failure ) {
+		if ( failure == null ) {
+			outcomes.put( id, Outcome.DELETED );
+			return;
+		}
+		failures.put( id, failure );
+		switch ( failure.getHttpErrorCode() ) {
+		case 404:
+			outcomes.put( id, Outcome.NOT_FOUND );
+			break;
+		case 403:
+			outcomes.put( id, Outcome.FORBIDDEN );
+			break;
+		default:
+			outcomes.put( id, Outcome.FAILED );
+		}
+	}
+
+	/**
+	 * @return the outcome for {@code id}, or null if it was not part of the
+	 *         batch
+	 */
+	public synchronized Outcome getOutcome( String id ) {
+		return outcomes.get( id );
+	}
+
+	/**
+	 * @return the error for an id that was not deleted, or null
+	 */
+	public synchronized NexusRestClientException getFailure( String id ) {
+		return failures.get( id );
+	}
+
+	/**
+	 * @return the ids with the given outcome, in request order
+	 */
+	public synchronized List< String > getIds( Outcome outcome ) {
+		List< String > ids = new ArrayList< String >();
+		for ( Map.Entry< String, Outcome > entry : outcomes.entrySet() )
+			if ( entry.getValue() == outcome )
+				ids.add( entry.getKey() );
+		return ids;
+	}
+
+	/**
+	 * @return the outcome of every id, in request order
+	 */
+	public synchronized Map< String, Outcome > getOutcomes() {
+		return Collections.unmodifiableMap( new LinkedHashMap< String, Outcome >( outcomes ) );
+	}
+
+	/**
+	 * @return true if every id was deleted
+	 */
+	public synchronized boolean isComplete() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		Map< Outcome, Integer > counts = new EnumMap< Outcome, Integer >( Outcome.class );
+		for ( Outcome outcome : outcomes.values() )
+			if ( outcome != null )
+				counts.merge( outcome, 1, Integer::sum );
+		return "DeleteReport" + counts;
+	}
+}
@@ -0,0 +1,63 @@
+package juglab.nexus.client;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.NotSupportedException;
+import javax.ws.rs.RedirectionException;
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * The exception the REST proxy throws for an unsuccessful response, for the
+ * requests that are sent without it. Only the public JAX-RS exception types
+ * are used, so that callers see the same exceptions either way.
+ */
+final class ErrorStatus {
+
+	private ErrorStatus() {}
+
+	/**
+	 * @param response
+	 *            - a response with a redirection or error status; its entity
+	 *            should be buffered, as the exception outlives the connection
+	 */
+	static WebApplicationException exception( Response response ) {
+		switch ( response.getStatus() ) {
+		case 400:
+			return new BadRequestException( response );
+		case 401:
+			return new NotAuthorizedException( response );
+		case 403:
+			return new ForbiddenException( response );
+		case 404:
+			return new NotFoundException( response );
+		case 406:
+			return new NotAcceptableException( response );
+		case 415:
+			return new NotSupportedException( response );
+		case 500:
+			return new InternalServerErrorException( response );
+		case 503:
+			return new ServiceUnavailableException( response );
+		default:
+			break;
+		}
+		switch ( response.getStatusInfo().getFamily() ) {
+		case REDIRECTION:
+			return new RedirectionException( response );
+		case CLIENT_ERROR:
+			return new ClientErrorException( response );
+		case SERVER_ERROR:
+			return new ServerErrorException( response );
+		default:
+			return new WebApplicationException( response );
+		}
+	}
+}
@@ -0,0 +1,655 @@
+package juglab.nexus.client;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Streams downloads through the client's pooled HTTP transport straight into
+ * a temporary file next to their destination and publishes them with an
+ * atomic move, so every byte is written to disk exactly once and readers
+ * never observe a partially written file. When the expected checksum is known
+ * it is computed on the fly while the bytes are transferred.
+ * <p>
+ * In resumable mode a failed transfer leaves its part file behind, and the
+ * next download of the same target continues from its end with an HTTP
+ * {@code Range} request.
+ * </p>
+ * <p>
+ * Transfers that fail transiently are repeated according to the retry
+ * policy, continuing from the bytes already received if the server accepts
+ * ranges, and every request waits for the client's rate limiter.
+ * </p>
+ * <p>
+ * When segmentation is enabled, fresh downloads start with a {@code HEAD}
+ * request. Content of at least the segmentation threshold from servers that
+ * accept ranges is then split into byte ranges, each fetched with its own
+ * {@code Range} request on parallel connections, so that no connection
+ * transfers more than its range. Their checksum is verified by reading the
+ * finished file once, as the ranges arrive out of order.
+ * </p>
+ */
+class FileDownloader {
+
+	private static final long TRANSFER_CHUNK = 8L << 20;
+	private static final int HTTP_PARTIAL_CONTENT = 206;
+	private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+	private static final int MAX_REDIRECTS = 5;
+	private static final String RANGE = "Range";
+	private static final String CONTENT_RANGE = "Content-Range";
+	private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+	private final Function< URI, WebTarget > targets;
+	private final Supplier< NexusClientListener > listener;
+
+	private volatile boolean skipUnchanged;
+	private volatile ArtifactCache cache;
+	private volatile boolean resumable;
+	private volatile int segments = 1;
+	private volatile long segmentThreshold;
+	private volatile RetryPolicy retries = RetryPolicy.NONE;
+	private volatile RateLimiter limiter;
+	private ExecutorService segmentExecutor;
+
+	/**
+	 * @param targets
+	 *            - creates the request targets for download URIs, so that
+	 *            downloads share the client's connection pool and
+	 *            authentication
+	 * @param listener
+	 *            - notified of every completed or failed download
+	 */
+	FileDownloader( Function< URI, WebTarget > targets, Supplier< NexusClientListener > listener ) {
+		this.targets = targets;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param skipUnchanged
+	 *            - if true, an existing target whose content matches the
+	 *            expected checksum is kept without transferring anything
+	 */
+	void setSkipUnchanged( boolean skipUnchanged ) {
+		this.skipUnchanged = skipUnchanged;
+	}
+
+	/**
+	 * @param cache
+	 *            - where to look up and keep artifacts by SHA-1, or null to
+	 *            always download
+	 */
+	void setCache( ArtifactCache cache ) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @param resumable
+	 *            - if true, keep the part file of a failed transfer and resume
+	 *            from it on the next download of the same target
+	 */
+	void setResumable( boolean resumable ) {
+		this.resumable = resumable;
+	}
+
+	/**
+	 * @param segments
+	 *            - number of parallel ranges large downloads are split into; 1
+	 *            disables segmentation
+	 * @param threshold
+	 *            - minimum size in bytes for a download to be segmented
+	 */
+	void setSegmented( int segments, long threshold ) {
+		this.segments = segments;
+		this.segmentThreshold = threshold;
+	}
+
+	/**
+	 * @param retries
+	 *            - when to repeat failed transfers
+	 */
+	void setRetries( RetryPolicy retries ) {
+		this.retries = retries;
+	}
+
+	/**
+	 * @param limiter
+	 *            - paces every request, or null for no limit
+	 */
+	void setRateLimiter( RateLimiter limiter ) {
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Stops the threads fetching segments
+	 */
+	synchronized void shutdown() {
+		if ( segmentExecutor != null )
+			segmentExecutor.shutdownNow();
+		segmentExecutor = null;
+	}
+
+	/**
+	 * @param url
+	 *            - where to download from
+	 * @param target
+	 *            - the final location of the download; its directory is
+	 *            created if needed and an existing file is replaced
+	 * @param expected
+	 *            - the checksum the content must match, or null if unknown
+	 * @return handle to the downloaded file
+	 * @throws ChecksumMismatchException
+	 *             if the downloaded content does not match {@code expected}
+	 */
+	File download( URL url, Path target, Checksum expected ) throws IOException {
+		long start = System.nanoTime();
+		AtomicLong received = new AtomicLong();
+		try {
+			downloadOrReuse( url, target, expected, received );
+			listener.get().downloadCompleted( url, received.get(), System.nanoTime() - start, null );
+			return target.toFile();
+		} catch ( IOException | RuntimeException e ) {
+			listener.get().downloadCompleted( url, received.get(), System.nanoTime() - start, e );
+			throw e;
+		}
+	}
+
+	/**
+	 * @param received
+	 *            - counts the bytes read from the network, which stays 0 if
+	 *            an unchanged or cached copy is used
+	 */
+	private void downloadOrReuse( URL url, Path target, Checksum expected, AtomicLong received ) throws IOException {
+		ChecksumVerifier verifier = ChecksumVerifier.of( expected );
+		if ( skipUnchanged && verifier != null && verifier.matches( target ) )
+			return;
+		ArtifactCache cache = this.cache;
+		String key = cache != null && expected != null ? expected.getSHA1() : null;
+		if ( ArtifactCache.isKey( key ) && cache.install( key, target, entry -> fetch( url, entry, verifier, received ) ) )
+			return;
+		fetch( url, target, verifier, received );
+	}
+
+	private void fetch( URL url, Path target, ChecksumVerifier verifier, AtomicLong received ) throws IOException {
+		Path dir = target.toAbsolutePath().getParent();
+		Files.createDirectories( dir );
+		if ( resumable ) {
+			Path part = dir.resolve( "." + target.getFileName() + ".part" );
+			FileChannel out = FileChannel.open( part, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+			FileLock lock = null;
+			try {
+				lock = out.tryLock();
+			} catch ( OverlappingFileLockException | IOException e ) {
+				// another download of the same target owns the part file
+			}
+			if ( lock != null ) {
+				fetchResumable( url, target, part, out, verifier, received );
+				return;
+			}
+			out.close();
+		}
+		Path part = null;
+		try {
+			FileChannel out = null;
+			while ( out == null ) {
+				part = partFile( target );
+				try {
+					out = FileChannel.open( part, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE );
+				} catch ( FileAlreadyExistsException e ) {
+					part = null;
+				}
+			}
+			try ( FileChannel channel = out ) {
+				transferWithRetries( url, channel, verifier, received );
+			}
+			publish( part, target );
+		} catch ( IOException | RuntimeException e ) {
+			if ( part != null )
+				Files.deleteIfExists( part );
+			throw e;
+		}
+	}
+
+	/**
+	 * Downloads into {@code channel}, continuing from its current size, and
+	 * continues again from what has been received after each transient
+	 * failure until the retry policy gives up
+	 */
+	private void transferWithRetries( URL url, FileChannel channel, ChecksumVerifier verifier, AtomicLong received ) throws IOException {
+		for ( int attempt = 1;; attempt++ ) {
+			try {
+				resume( url, channel, verifier, received );
+				return;
+			} catch ( IOException | RuntimeException e ) {
+				long delay = retries.delay( attempt, e );
+				if ( delay < 0 )
+					throw e;
+				listener.get().downloadRetried( url, attempt, delay );
+				sleep( delay, url );
+			}
+		}
+	}
+
+	/**
+	 * Requests the content after the first {@code channel.size()} bytes and
+	 * appends it, or replaces the channel's content if the server does not
+	 * honour the range. Partial content starting anywhere but at the end of
+	 * the channel is discarded and the whole content requested instead.
+	 */
+	private void resume( URL url, FileChannel channel, ChecksumVerifier verifier, AtomicLong received ) throws IOException {
+		long offset = channel.size();
+		if ( offset == 0 && segments > 1 ) {
+			long length = segmentedLength( url );
+			if ( length >= 0 ) {
+				receiveSegments( url, channel, length, verifier, received );
+				return;
+			}
+		}
+		Response response = get( url, offset > 0 ? "bytes=" + offset + "-" : null );
+		try {
+			if ( offset > 0 ) {
+				if ( response.getStatus() == HTTP_PARTIAL_CONTENT && resumesAt( response.getHeaderString( CONTENT_RANGE ), offset ) ) {
+					// append to what we have
+				} else if ( response.getStatus() == HTTP_PARTIAL_CONTENT || response.getStatus() == HTTP_RANGE_NOT_SATISFIABLE ) {
+					response.close();
+					response = get( url, null );
+					offset = 0;
+				} else {
+					// the server ignored the range and sends the whole content
+					offset = 0;
+				}
+			}
+			channel.truncate( offset );
+			try ( ReadableByteChannel source = counting( Channels.newChannel( response.readEntity( InputStream.class ) ), received ) ) {
+				receive( url, response, source, channel, offset, verifier );
+			}
+		} finally {
+			response.close();
+		}
+	}
+
+	private static void sleep( long nanos, URL url ) throws InterruptedIOException {
+		try {
+			TimeUnit.NANOSECONDS.sleep( nanos );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "download of " + url + " interrupted" );
+		}
+	}
+
+	/**
+	 * Writes the response body read from {@code source} into {@code channel}
+	 * after its first {@code offset} bytes and verifies the complete content
+	 */
+	private void receive( URL url, Response response, ReadableByteChannel source, FileChannel channel, long offset, ChecksumVerifier verifier ) throws IOException {
+		long length = response.getLength();
+		MessageDigest digest = verifier == null ? null : verifier.newDigest();
+		if ( digest != null && offset > 0 )
+			digest( channel, offset, digest );
+		ReadableByteChannel in = digest == null ? source : ChecksumVerifier.digesting( source, digest );
+		checkLength( transfer( in, channel, offset ), length < 0 ? length : offset + length, url );
+		if ( verifier != null )
+			verifier.verify( digest, url );
+	}
+
+	/**
+	 * Asks for the headers of the content without transferring it
+	 * 
+	 * @return the length of the content if it is to be segmented, otherwise
+	 *         -1
+	 */
+	private long segmentedLength( URL url ) throws IOException {
+		try ( Response response = request( url, HttpMethod.HEAD, null ) ) {
+			long length = response.getLength();
+			if ( response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL
+					&& length >= segmentThreshold && length >= segments
+					&& "bytes".equalsIgnoreCase( response.getHeaderString( ACCEPT_RANGES ) ) )
+				return length;
+			return -1;
+		}
+	}
+
+	/**
+	 * Fetches the content of the given length in segments and verifies it. A
+	 * failed transfer truncates the channel, as its holes must not be
+	 * resumed.
+	 */
+	private void receiveSegments( URL url, FileChannel channel, long length, ChecksumVerifier verifier, AtomicLong received ) throws IOException {
+		try {
+			fetchSegments( url, channel, length, received );
+		} catch ( IOException e ) {
+			channel.truncate( 0 );
+			throw e;
+		}
+		if ( verifier != null ) {
+			MessageDigest digest = verifier.newDigest();
+			digest( channel, length, digest );
+			verifier.verify( digest, url );
+		}
+	}
+
+	/**
+	 * Splits the content into {@link #segments} byte ranges written at their
+	 * offsets into a preallocated {@code channel}, each with its own range
+	 * request. The first range is fetched by the calling thread, the others
+	 * on parallel connections. After a failure the other ranges stop
+	 * retrying and are waited for rather than interrupted, since an interrupt
+	 * closes the shared channel, and a range still in flight would write
+	 * past a truncation.
+	 */
+	private void fetchSegments( URL url, FileChannel channel, long length, AtomicLong received ) throws IOException {
+		int count = segments;
+		long size = ( length + count - 1 ) / count;
+		channel.write( ByteBuffer.wrap( new byte[ 1 ] ), length - 1 );
+		AtomicBoolean failed = new AtomicBoolean();
+		List< Future< ? > > others = new ArrayList< Future< ? > >( count - 1 );
+		for ( long start = size; start < length; start += size ) {
+			long from = start;
+			long to = Math.min( length, start + size ) - 1;
+			others.add( segmentExecutor().submit( () -> {
+				try {
+					fetchRange( url, channel, from, to, failed, received );
+				} catch ( IOException | RuntimeException e ) {
+					failed.set( true );
+					throw e;
+				}
+				return null;
+			} ) );
+		}
+		IOException failure = null;
+		try {
+			fetchRange( url, channel, 0, Math.min( length, size ) - 1, failed, received );
+		} catch ( IOException | RuntimeException e ) {
+			failed.set( true );
+			failure = e instanceof IOException ? ( IOException ) e : new IOException( e );
+		}
+		boolean interrupted = false;
+		for ( Future< ? > segment : others ) {
+			for ( ;; ) {
+				try {
+					segment.get();
+				} catch ( ExecutionException e ) {
+					if ( failure == null )
+						failure = e.getCause() instanceof IOException ? ( IOException ) e.getCause() : new IOException( e.getCause() );
+				} catch ( InterruptedException e ) {
+					// stop the others, but still wait for them to leave the channel
+					interrupted = true;
+					failed.set( true );
+					continue;
+				}
+				break;
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+			if ( failure == null )
+				failure = new InterruptedIOException( "segmented download of " + url + " interrupted" );
+		}
+		if ( failure != null )
+			throw failure;
+	}
+
+	/**
+	 * @param failed
+	 *            - set once another range has failed, so that this one is
+	 *            not retried
+	 */
+	private void fetchRange( URL url, FileChannel channel, long from, long to, AtomicBoolean failed, AtomicLong received ) throws IOException {
+		for ( int attempt = 1;; attempt++ ) {
+			try {
+				fetchRangeOnce( url, channel, from, to, received );
+				return;
+			} catch ( IOException | RuntimeException e ) {
+				long delay = retries.delay( attempt, e );
+				if ( delay < 0 || failed.get() )
+					throw e;
+				listener.get().downloadRetried( url, attempt, delay );
+				sleep( delay, url );
+			}
+		}
+	}
+
+	private void fetchRangeOnce( URL url, FileChannel channel, long from, long to, AtomicLong received ) throws IOException {
+		try ( Response response = get( url, "bytes=" + from + "-" + to ) ) {
+			if ( response.getStatus() != HTTP_PARTIAL_CONTENT || !resumesAt( response.getHeaderString( CONTENT_RANGE ), from ) )
+				throw new IOException( url + " did not honour the range " + from + "-" + to );
+			try ( ReadableByteChannel in = counting( Channels.newChannel( response.readEntity( InputStream.class ) ), received ) ) {
+				transferRange( in, channel, from, to - from + 1, url );
+			}
+		}
+	}
+
+	/**
+	 * Copies exactly {@code count} bytes of {@code in} to {@code out} at
+	 * {@code position}
+	 */
+	private static void transferRange( ReadableByteChannel in, FileChannel out, long position, long count, URL url ) throws IOException {
+		long remaining = count;
+		while ( remaining > 0 ) {
+			long transferred = out.transferFrom( in, position, remaining );
+			if ( transferred <= 0 )
+				throw new EOFException( "connection to " + url + " ended " + remaining + " bytes short of a " + count + " byte range" );
+			position += transferred;
+			remaining -= transferred;
+		}
+	}
+
+	private synchronized ExecutorService segmentExecutor() {
+		if ( segmentExecutor == null )
+			segmentExecutor = Executors.newCachedThreadPool( NexusRestClient.daemonThreads( "nexus-segment" ) );
+		return segmentExecutor;
+	}
+
+	/**
+	 * Continues the download in {@code part} from its current size. The
+	 * channel is owned, locked and closed by this method. Transfer failures
+	 * the retries do not overcome keep the part file for the next download;
+	 * a checksum mismatch discards it.
+	 */
+	private void fetchResumable( URL url, Path target, Path part, FileChannel out, ChecksumVerifier verifier, AtomicLong received ) throws IOException {
+		try {
+			try ( FileChannel channel = out ) {
+				transferWithRetries( url, channel, verifier, received );
+			}
+			publish( part, target );
+		} catch ( ChecksumMismatchException e ) {
+			Files.deleteIfExists( part );
+			throw e;
+		}
+	}
+
+	/**
+	 * Issues a GET through the client's pooled transport, following
+	 * redirects
+	 * 
+	 * @param range
+	 *            - value of the {@code Range} header, or null for the whole
+	 *            content
+	 * @return the response, which the caller must close; either successful or
+	 *         a 416 answer to a range request
+	 * @throws javax.ws.rs.WebApplicationException
+	 *             for other error statuses, as thrown by the REST proxy
+	 */
+	private Response get( URL url, String range ) throws IOException {
+		Response response = request( url, HttpMethod.GET, range );
+		Response.Status.Family family = response.getStatusInfo().getFamily();
+		if ( family == Response.Status.Family.SUCCESSFUL || ( range != null && response.getStatus() == HTTP_RANGE_NOT_SATISFIABLE ) )
+			return response;
+		response.bufferEntity();
+		throw ErrorStatus.exception( response );
+	}
+
+	/**
+	 * Issues a request through the client's pooled transport, following
+	 * redirects
+	 * 
+	 * @return the response, which the caller must close, whatever its status
+	 */
+	private Response request( URL url, String method, String range ) throws IOException {
+		URI uri;
+		try {
+			uri = url.toURI();
+		} catch ( URISyntaxException e ) {
+			throw new IOException( e );
+		}
+		for ( int redirects = 0;; redirects++ ) {
+			RateLimiter limiter = this.limiter;
+			if ( limiter != null ) {
+				try {
+					limiter.acquire();
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException( "download of " + url + " interrupted" );
+				}
+			}
+			Invocation.Builder request = targets.apply( uri ).request();
+			if ( range != null )
+				request.header( RANGE, range );
+			Response response = request.method( method );
+			if ( response.getStatusInfo().getFamily() == Response.Status.Family.REDIRECTION && response.getLocation() != null && redirects < MAX_REDIRECTS ) {
+				uri = uri.resolve( response.getLocation() );
+				response.close();
+				continue;
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * Connections may end early without an error; a short transfer must not
+	 * be mistaken for a complete one
+	 * 
+	 * @param expected
+	 *            - the announced length, negative if unknown
+	 */
+	private static void checkLength( long received, long expected, URL url ) throws EOFException {
+		if ( expected >= 0 && received != expected )
+			throw new EOFException( "connection to " + url + " ended after " + received + " of " + expected + " bytes" );
+	}
+
+	/**
+	 * @return true if a {@code Content-Range} header announces content
+	 *         starting at {@code offset}
+	 */
+	private static boolean resumesAt( String contentRange, long offset ) {
+		return contentRange != null && contentRange.trim().startsWith( "bytes " + offset + "-" );
+	}
+
+	/**
+	 * @return {@code in}, adding the number of bytes read through it to
+	 *         {@code received}
+	 */
+	private static ReadableByteChannel counting( ReadableByteChannel in, AtomicLong received ) {
+		return new ReadableByteChannel() {
+
+			@Override
+			public int read( ByteBuffer dst ) throws IOException {
+				int read = in.read( dst );
+				if ( read > 0 )
+					received.addAndGet( read );
+				return read;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return in.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		};
+	}
+
+	/**
+	 * Feeds the first {@code length} bytes of {@code channel} into
+	 * {@code digest}
+	 */
+	private static void digest( FileChannel channel, long length, MessageDigest digest ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( 64 << 10 );
+		long position = 0;
+		while ( position < length ) {
+			buffer.limit( ( int ) Math.min( buffer.capacity(), length - position ) );
+			int read = channel.read( buffer, position );
+			if ( read < 0 )
+				throw new EOFException( "part file shrank while resuming" );
+			position += read;
+			buffer.flip();
+			digest.update( buffer );
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * @return a fresh hidden name next to {@code target} for staging its
+	 *         content before it is published
+	 */
+	static Path partFile( Path target ) {
+		Path dir = target.toAbsolutePath().getParent();
+		return dir.resolve( "." + target.getFileName() + "." + Long.toHexString( ThreadLocalRandom.current().nextLong() ) + ".part" );
+	}
+
+	/**
+	 * Copies {@code in} into {@code out} from {@code position} until the
+	 * source is exhausted, letting the channel avoid user-space copies where
+	 * the platform allows it
+	 * 
+	 * @return the position after the last byte written
+	 */
+	static long transfer( ReadableByteChannel in, FileChannel out, long position ) throws IOException {
+		long transferred;
+		while ( ( transferred = out.transferFrom( in, position, TRANSFER_CHUNK ) ) > 0 )
+			position += transferred;
+		return position;
+	}
+
+	/**
+	 * Atomically replaces {@code target} with {@code source}, falling back to a
+	 * plain replacing move on file systems without atomic rename
+	 */
+	static void publish( Path source, Path target ) throws IOException {
+		try {
+			Files.move( source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( source, target, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+}
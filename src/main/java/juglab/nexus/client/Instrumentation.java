@@ -0,0 +1,72 @@
+package juglab.nexus.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Reports the calls of a {@link NexusRestClientProxy} to a
+ * {@link NexusClientListener}
+ */
+final class Instrumentation implements InvocationHandler {
+
+	private static final int OK = 200;
+	private static final int NO_CONTENT = 204;
+
+	private final NexusRestClientProxy target;
+	private final Supplier< NexusClientListener > listener;
+
+	private Instrumentation( NexusRestClientProxy target, Supplier< NexusClientListener > listener ) {
+		this.target = target;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param listener
+	 *            - looked up on every call, so that the client's listener can
+	 *            be changed at any time
+	 */
+	static NexusRestClientProxy proxy( NexusRestClientProxy target, Supplier< NexusClientListener > listener ) {
+		return ( NexusRestClientProxy ) Proxy.newProxyInstance( NexusRestClientProxy.class.getClassLoader(),
+				new Class< ? >[] { NexusRestClientProxy.class }, new Instrumentation( target, listener ) );
+	}
+
+	@Override
+	public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+		if ( method.getDeclaringClass() == Object.class )
+			return method.invoke( this, args );
+		long start = System.nanoTime();
+		Object result;
+		try {
+			result = method.invoke( target, args );
+		} catch ( InvocationTargetException e ) {
+			listener.get().requestCompleted( method.getName(), System.nanoTime() - start, status( e.getCause() ) );
+			throw e.getCause();
+		}
+		int status = result instanceof Response ? ( ( Response ) result ).getStatus() : method.getReturnType() == void.class ? NO_CONTENT : OK;
+		listener.get().requestCompleted( method.getName(), System.nanoTime() - start, status );
+		return result;
+	}
+
+	/**
+	 * @return the HTTP status of a failed request, or 0 if no response was
+	 *         received
+	 */
+	static int status( Throwable failure ) {
+		if ( failure instanceof CompletionException && failure.getCause() != null )
+			failure = failure.getCause();
+		if ( failure instanceof NexusRestClientException )
+			return ( ( NexusRestClientException ) failure ).getHttpErrorCode();
+		if ( failure instanceof WebApplicationException && ( ( WebApplicationException ) failure ).getResponse() != null )
+			return ( ( WebApplicationException ) failure ).getResponse().getStatus();
+		return 0;
+	}
+}
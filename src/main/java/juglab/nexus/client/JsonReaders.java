@@ -0,0 +1,26 @@
+package juglab.nexus.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+import juglab.nexus.client.domain.Repository;
+
+/**
+ * Shared, pre-configured Jackson readers for the Nexus domain types.
+ * {@link ObjectReader}s are immutable and thread-safe, so they are built once
+ * and reuse Jackson's deserializer caches across all requests.
+ */
+final class JsonReaders {
+
+	static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+
+	static final ObjectReader ASSET = MAPPER.readerFor( Asset.class );
+	static final ObjectReader COMPONENT = MAPPER.readerFor( Component.class );
+	static final ObjectReader REPOSITORIES = MAPPER.readerFor( Repository[].class );
+
+	private JsonReaders() {}
+}
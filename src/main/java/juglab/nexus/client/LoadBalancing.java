@@ -0,0 +1,19 @@
+package juglab.nexus.client;
+
+/**
+ * How a {@link NexusRestClient} over several Nexus nodes chooses the node
+ * for a read
+ */
+public enum LoadBalancing {
+
+	/**
+	 * Each available node in turn
+	 */
+	ROUND_ROBIN,
+
+	/**
+	 * The available node with the fewest requests of this client in flight,
+	 * which steers reads away from nodes that are slow to answer
+	 */
+	LEAST_OUTSTANDING
+}
@@ -0,0 +1,228 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * In-memory cache of decoded metadata responses, enabled with
+ * {@link NexusRestClient#setMetadataCache(int)}. An entry is served without
+ * contacting the server for the time-to-live of its endpoint. After that it
+ * is revalidated with a conditional request ({@code If-None-Match} and
+ * {@code If-Modified-Since}), so that an unchanged entry costs a
+ * {@code 304} response without a body instead of a transfer and a decode.
+ * The number of entries is bounded by evicting the least recently used.
+ * <p>
+ * Cached values are shared between callers and must not be modified.
+ * </p>
+ */
+public final class MetadataCache {
+
+	/**
+	 * The cached endpoints, each with its own time-to-live
+	 */
+	public enum Endpoint {
+		/** {@link NexusRestClient#listRepositories()}, 5 minutes by default */
+		REPOSITORIES( 5, TimeUnit.MINUTES ),
+		/** the asset lookup of {@link NexusRestClient#getAsset(String, String)}, 1 minute by default */
+		ASSET( 1, TimeUnit.MINUTES ),
+		/** the component lookup of {@link NexusRestClient#getComponent(String, String)}, 1 minute by default */
+		COMPONENT( 1, TimeUnit.MINUTES );
+
+		private final long defaultTtlNanos;
+
+		private Endpoint( long ttl, TimeUnit unit ) {
+			this.defaultTtlNanos = unit.toNanos( ttl );
+		}
+	}
+
+	/**
+	 * Snapshot of the cache counters
+	 */
+	public static final class Stats {
+
+		private final long hits;
+		private final long misses;
+		private final long revalidations;
+		private final long notModified;
+		private final int size;
+
+		Stats( long hits, long misses, long revalidations, long notModified, int size ) {
+			this.hits = hits;
+			this.misses = misses;
+			this.revalidations = revalidations;
+			this.notModified = notModified;
+			this.size = size;
+		}
+
+		/**
+		 * @return lookups served from a fresh entry without a request
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return lookups without an entry, which fetched the full response
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return conditional requests sent for stale entries
+		 */
+		public long getRevalidations() {
+			return revalidations;
+		}
+
+		/**
+		 * @return revalidations answered with {@code 304 Not Modified}; the
+		 *         others transferred and decoded a changed response
+		 */
+		public long getNotModified() {
+			return notModified;
+		}
+
+		/**
+		 * @return current number of entries
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", revalidations=" + revalidations + " (" + notModified + " not modified), size=" + size;
+		}
+	}
+
+	/**
+	 * Sends the request for an entry, with the validators of the stale entry
+	 * if there is one
+	 */
+	interface Fetch {
+
+		Response fetch( String ifNoneMatch, String ifModifiedSince );
+	}
+
+	interface Decoder< T > {
+
+		T decode( String json ) throws IOException;
+	}
+
+	private static final class CachedEntry {
+
+		final Object value;
+		final String etag;
+		final String lastModified;
+		volatile long expiresAt;
+
+		CachedEntry( Object value, String etag, String lastModified, long expiresAt ) {
+			this.value = value;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static final int NOT_MODIFIED = 304;
+
+	private final int maxEntries;
+	private final Map< Endpoint, Long > ttlNanos = new EnumMap< Endpoint, Long >( Endpoint.class );
+	private final LinkedHashMap< String, CachedEntry > entries;
+	private long hits;
+	private long misses;
+	private long revalidations;
+	private long notModified;
+
+	MetadataCache( int maxEntries ) {
+		if ( maxEntries < 1 )
+			throw new IllegalArgumentException( "cache size must be positive: " + maxEntries );
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap< String, CachedEntry >( 16, 0.75f, true ) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry< String, MetadataCache.CachedEntry > eldest ) {
+				return size() > MetadataCache.this.maxEntries;
+			}
+		};
+		for ( Endpoint endpoint : Endpoint.values() )
+			ttlNanos.put( endpoint, endpoint.defaultTtlNanos );
+	}
+
+	synchronized void setTtl( Endpoint endpoint, long ttl, TimeUnit unit ) {
+		if ( ttl < 0 )
+			throw new IllegalArgumentException( "time-to-live must not be negative: " + ttl );
+		ttlNanos.put( endpoint, unit.toNanos( ttl ) );
+	}
+
+	synchronized Stats stats() {
+		return new Stats( hits, misses, revalidations, notModified, entries.size() );
+	}
+
+	synchronized void invalidate( Endpoint endpoint, String id ) {
+		entries.remove( key( endpoint, id ) );
+	}
+
+	private static String key( Endpoint endpoint, String id ) {
+		return id == null ? endpoint.name() : endpoint.name() + '/' + id;
+	}
+
+	/**
+	 * @param id
+	 *            - identifies the entry within the endpoint; null for
+	 *            endpoints without parameters
+	 * @throws javax.ws.rs.WebApplicationException
+	 *             for error statuses, like the proxy
+	 */
+	@SuppressWarnings( "unchecked" )
+	< T > T get( Endpoint endpoint, String id, Fetch fetch, Decoder< T > decoder ) throws IOException {
+		String key = key( endpoint, id );
+		CachedEntry entry;
+		long ttl;
+		synchronized ( this ) {
+			entry = entries.get( key );
+			ttl = ttlNanos.get( endpoint );
+			if ( entry != null && System.nanoTime() - entry.expiresAt < 0 ) {
+				hits++;
+				return ( T ) entry.value;
+			}
+			if ( entry == null )
+				misses++;
+			else
+				revalidations++;
+		}
+		Response response = entry == null ? fetch.fetch( null, null ) : fetch.fetch( entry.etag, entry.lastModified );
+		try {
+			if ( response.getStatus() == NOT_MODIFIED && entry != null ) {
+				entry.expiresAt = System.nanoTime() + ttl;
+				synchronized ( this ) {
+					notModified++;
+				}
+				return ( T ) entry.value;
+			}
+			if ( response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL ) {
+				if ( response.getStatus() == Response.Status.NOT_FOUND.getStatusCode() )
+					invalidate( endpoint, id );
+				response.bufferEntity();
+				throw ErrorStatus.exception( response );
+			}
+			T value = decoder.decode( response.readEntity( String.class ) );
+			CachedEntry fresh = new CachedEntry( value, response.getHeaderString( HttpHeaders.ETAG ), response.getHeaderString( HttpHeaders.LAST_MODIFIED ), System.nanoTime() + ttl );
+			synchronized ( this ) {
+				entries.put( key, fresh );
+			}
+			return value;
+		} finally {
+			response.close();
+		}
+	}
+}
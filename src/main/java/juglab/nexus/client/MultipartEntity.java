@@ -0,0 +1,132 @@
+package juglab.nexus.client;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A {@code multipart/form-data} request body that is written straight from
+ * the files to the connection. The length of every file is taken when the
+ * entity is created, so the body is sent with a {@code Content-Length}
+ * rather than chunked, and it can be sent again as long as the files do not
+ * change.
+ */
+final class MultipartEntity extends AbstractHttpEntity {
+
+	private static final int BUFFER = 64 << 10;
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private final byte[] boundary;
+	private final List< byte[] > headers = new ArrayList< byte[] >();
+	private final List< byte[] > values = new ArrayList< byte[] >();
+	private final List< Path > files = new ArrayList< Path >();
+	private final List< Long > sizes = new ArrayList< Long >();
+	private final long length;
+
+	/**
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	MultipartEntity( ComponentUpload upload ) throws IOException {
+		String boundary = "nexus-client-" + Long.toHexString( ThreadLocalRandom.current().nextLong() ) + Long.toHexString( ThreadLocalRandom.current().nextLong() );
+		this.boundary = ( "--" + boundary ).getBytes( StandardCharsets.US_ASCII );
+		setContentType( "multipart/form-data; boundary=" + boundary );
+		long length = 0;
+		for ( Map.Entry< String, String > field : upload.getFields().entrySet() ) {
+			byte[] value = field.getValue().getBytes( StandardCharsets.UTF_8 );
+			length += addPart( "Content-Disposition: form-data; name=\"" + quote( field.getKey() ) + "\"\r\n\r\n", value, null, value.length );
+		}
+		for ( Map.Entry< String, File > file : upload.getFiles().entrySet() ) {
+			Path path = file.getValue().toPath();
+			length += addPart( "Content-Disposition: form-data; name=\"" + quote( file.getKey() ) + "\"; filename=\"" + quote( path.getFileName().toString() ) + "\"\r\n"
+					+ "Content-Type: application/octet-stream\r\n\r\n", null, path, Files.size( path ) );
+		}
+		this.length = length + this.boundary.length + 4;
+	}
+
+	private long addPart( String header, byte[] value, Path file, long size ) {
+		byte[] bytes = header.getBytes( StandardCharsets.UTF_8 );
+		headers.add( bytes );
+		values.add( value );
+		files.add( file );
+		sizes.add( size );
+		return boundary.length + CRLF.length + bytes.length + size + CRLF.length;
+	}
+
+	/**
+	 * Keeps a name on its line and inside its quotes
+	 */
+	private static String quote( String name ) {
+		return name.replace( "\"", "%22" ).replace( "\r", "%0D" ).replace( "\n", "%0A" );
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	@Override
+	public InputStream getContent() {
+		throw new UnsupportedOperationException( "multipart bodies can only be written" );
+	}
+
+	@Override
+	public void writeTo( OutputStream out ) throws IOException {
+		byte[] buffer = null;
+		for ( int i = 0; i < headers.size(); i++ ) {
+			out.write( boundary );
+			out.write( CRLF );
+			out.write( headers.get( i ) );
+			if ( files.get( i ) == null ) {
+				out.write( values.get( i ) );
+			} else {
+				if ( buffer == null )
+					buffer = new byte[ BUFFER ];
+				copy( files.get( i ), sizes.get( i ), out, buffer );
+			}
+			out.write( CRLF );
+		}
+		out.write( boundary );
+		out.write( '-' );
+		out.write( '-' );
+		out.write( CRLF );
+		out.flush();
+	}
+
+	/**
+	 * Copies exactly the announced number of bytes, failing if the file
+	 * has shrunk since
+	 */
+	private static void copy( Path file, long size, OutputStream out, byte[] buffer ) throws IOException {
+		try ( InputStream in = Files.newInputStream( file ) ) {
+			for ( long remaining = size; remaining > 0; ) {
+				int read = in.read( buffer, 0, ( int ) Math.min( buffer.length, remaining ) );
+				if ( read < 0 )
+					throw new EOFException( file + " changed during the upload: expected " + size + " bytes" );
+				out.write( buffer, 0, read );
+				remaining -= read;
+			}
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package juglab.nexus.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.internal.BasicAuthentication;
+
+import juglab.nexus.client.domain.Query;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Non-blocking counterpart of {@link NexusRestClientProxy}. Requests are
+ * submitted to an asynchronous HTTP engine and complete from its I/O threads,
+ * so no thread waits for a response. The paths are taken from the proxy's
+ * annotations, and requests are reported to the listener under the names of
+ * the proxy's methods.
+ * <p>
+ * Requests wait for the client's rate limiter and GETs are repeated after
+ * transient failures like those of the proxy. Both waits are scheduled on a
+ * timer thread instead of blocking the caller or an I/O thread. GETs are
+ * sent to the node the client's {@link NodePool} chooses for each attempt,
+ * except for pages, which go to the node of their listing, and other
+ * requests to the primary; they are not hedged.
+ * </p>
+ */
+final class NexusAsyncRequests {
+
+	private static final int OK = 200;
+
+	private final NodePool nodes;
+	private final List< WebTarget > targets = new ArrayList< WebTarget >();
+	private final Supplier< NexusClientListener > listener;
+	private final Supplier< RetryPolicy > retries;
+	private final Supplier< RateLimiter > limiter;
+	private ScheduledExecutorService timer;
+
+	/**
+	 * @param retries
+	 *            - looked up on every call
+	 * @param limiter
+	 *            - looked up before every attempt; may supply null for no
+	 *            limit
+	 */
+	NexusAsyncRequests( ResteasyClient client, NodePool nodes, BasicAuthentication authentication, Supplier< NexusClientListener > listener, Supplier< RetryPolicy > retries, Supplier< RateLimiter > limiter ) {
+		this.nodes = nodes;
+		this.listener = listener;
+		this.retries = retries;
+		this.limiter = limiter;
+		for ( NodePool.Node node : nodes.getNodes() ) {
+			WebTarget target = client.target( node.baseURL );
+			if ( authentication != null )
+				target.register( authentication );
+			targets.add( target );
+		}
+	}
+
+	CompletableFuture< String > listRepositories() {
+		return get( "listRepositories", null, target -> path( target, "listRepositories" ) );
+	}
+
+	CompletableFuture< String > searchAssets( Query q, String continuationToken, NodePool.Pin pin ) {
+		return get( "searchAssets", pin, target -> query( path( target, "searchAssets" ), q ).queryParam( "continuationToken", continuationToken ) );
+	}
+
+	/**
+	 * Completes exceptionally with a {@link javax.ws.rs.RedirectionException}
+	 * carrying the download location if the search found a single asset
+	 */
+	CompletableFuture< String > searchAssetsAndDownload( Query q ) {
+		return get( "searchAssetsAndDownload", null, target -> query( path( target, "searchAssetsAndDownload" ), q ) );
+	}
+
+	CompletableFuture< String > listAssets( String repository, String continuationToken, NodePool.Pin pin ) {
+		return get( "listAssets", pin, target -> path( target, "listAssets" ).queryParam( "repository", repository ).queryParam( "continuationToken", continuationToken ) );
+	}
+
+	CompletableFuture< String > getAsset( String id ) {
+		return get( "getAsset", null, target -> path( target, "getAsset" ).resolveTemplate( "id", id ) );
+	}
+
+	CompletableFuture< Void > deleteAsset( String id ) {
+		return delete( "deleteAsset", target -> path( target, "deleteAsset" ).resolveTemplate( "id", id ) );
+	}
+
+	CompletableFuture< String > searchComponents( Query q, String continuationToken, NodePool.Pin pin ) {
+		return get( "searchComponents", pin, target -> query( path( target, "searchComponents" ), q ).queryParam( "continuationToken", continuationToken ) );
+	}
+
+	CompletableFuture< String > listComponents( String repository, String continuationToken, NodePool.Pin pin ) {
+		return get( "listComponents", pin, target -> path( target, "listComponents" ).queryParam( "repository", repository ).queryParam( "continuationToken", continuationToken ) );
+	}
+
+	CompletableFuture< String > getComponent( String id ) {
+		return get( "getComponent", null, target -> path( target, "getComponent" ).resolveTemplate( "id", id ) );
+	}
+
+	CompletableFuture< Void > deleteComponent( String id ) {
+		return delete( "deleteComponent", target -> path( target, "deleteComponent" ).resolveTemplate( "id", id ) );
+	}
+
+	private static WebTarget path( WebTarget target, String proxyMethod ) {
+		return target.path( UriBuilder.fromMethod( NexusRestClientProxy.class, proxyMethod ).toTemplate() );
+	}
+
+	/**
+	 * Adds the query parameters the proxy would send; unset parameters are
+	 * left out
+	 */
+	private static WebTarget query( WebTarget target, Query q ) {
+		return target
+				.queryParam( "sort", q.getSortBy() )
+				.queryParam( "direction", q.getOrderBy() )
+				.queryParam( "q", q.getKeyword() )
+				.queryParam( "repository", q.getRepository() )
+				.queryParam( "format", q.getFormat() )
+				.queryParam( "group", q.getGroup() )
+				.queryParam( "name", q.getName() )
+				.queryParam( "version", q.getVersion() )
+				.queryParam( "maven.groupId", q.getMavenGroupId() )
+				.queryParam( "maven.artifactId", q.getMavenArtifactId() );
+	}
+
+	/**
+	 * Stops the timer; requests waiting for it are not sent
+	 */
+	synchronized void shutdown() {
+		if ( timer != null )
+			timer.shutdownNow();
+	}
+
+	/**
+	 * @param pin
+	 *            - the node of the listing the request is a page of, or
+	 *            null to let the pool choose
+	 * @param request
+	 *            - builds the request on the base target of a node
+	 */
+	private CompletableFuture< String > get( String endpoint, NodePool.Pin pin, Function< WebTarget, WebTarget > request ) {
+		CompletableFuture< String > result = new CompletableFuture< String >();
+		paced( attempt -> get( endpoint, pin, request, attempt, result ), 1, result );
+		return result;
+	}
+
+	/**
+	 * The callbacks are anonymous classes because the engine reads the
+	 * response type from their type argument. A request that cannot even be
+	 * built or submitted, e.g. for a null id or a closed transport, fails the
+	 * result instead of throwing.
+	 */
+	private void get( String endpoint, NodePool.Pin pin, Function< WebTarget, WebTarget > request, int attempt, CompletableFuture< String > result ) {
+		NodePool.Node node = pin != null ? nodes.acquirePinned( pin ) : nodes.acquire( null );
+		long start = System.nanoTime();
+		try {
+			request.apply( targets.get( node.index ) ).request( MediaType.APPLICATION_JSON ).async().get( new InvocationCallback< String >() {
+
+				@Override
+				public void completed( String response ) {
+					nodes.release( node, false );
+					listener.get().requestCompleted( endpoint, System.nanoTime() - start, OK );
+					result.complete( response );
+				}
+
+				@Override
+				public void failed( Throwable e ) {
+					nodes.release( node, NodePool.isNodeFailure( e ) );
+					listener.get().requestCompleted( endpoint, System.nanoTime() - start, Instrumentation.status( e ) );
+					long delay = retries.get().delay( attempt, e );
+					if ( delay < 0 ) {
+						result.completeExceptionally( e );
+						return;
+					}
+					listener.get().requestRetried( endpoint, attempt, delay );
+					schedule( () -> paced( next -> get( endpoint, pin, request, next, result ), attempt + 1, result ), delay, result );
+				}
+			} );
+		} catch ( RuntimeException e ) {
+			nodes.release( node, false );
+			result.completeExceptionally( e );
+		}
+	}
+
+	private CompletableFuture< Void > delete( String endpoint, Function< WebTarget, WebTarget > request ) {
+		CompletableFuture< Void > result = new CompletableFuture< Void >();
+		paced( attempt -> delete( endpoint, request, result ), 1, result );
+		return result;
+	}
+
+	private void delete( String endpoint, Function< WebTarget, WebTarget > request, CompletableFuture< Void > result ) {
+		NodePool.Node node = nodes.acquirePrimary();
+		long start = System.nanoTime();
+		try {
+			request.apply( targets.get( node.index ) ).request().async().delete( new InvocationCallback< Response >() {
+
+				@Override
+				public void completed( Response response ) {
+					nodes.release( node, NodePool.isNodeFailure( response.getStatus() ) );
+					listener.get().requestCompleted( endpoint, System.nanoTime() - start, response.getStatus() );
+					try {
+						if ( response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL )
+							result.complete( null );
+						else
+							result.completeExceptionally( ErrorStatus.exception( response ) );
+					} finally {
+						response.close();
+					}
+				}
+
+				@Override
+				public void failed( Throwable e ) {
+					nodes.release( node, NodePool.isNodeFailure( e ) );
+					listener.get().requestCompleted( endpoint, System.nanoTime() - start, Instrumentation.status( e ) );
+					result.completeExceptionally( e );
+				}
+			} );
+		} catch ( RuntimeException e ) {
+			nodes.release( node, false );
+			result.completeExceptionally( e );
+		}
+	}
+
+	/**
+	 * Sends an attempt now, or once the rate limiter has a permit for it
+	 */
+	private void paced( Consumer< Integer > send, int attempt, CompletableFuture< ? > result ) {
+		RateLimiter limiter = this.limiter.get();
+		long wait = limiter == null ? 0 : limiter.reserve();
+		if ( wait > 0 )
+			schedule( () -> send.accept( attempt ), wait, result );
+		else
+			send.accept( attempt );
+	}
+
+	/**
+	 * @param result
+	 *            - failed if the timer has been shut down or the task throws
+	 */
+	private void schedule( Runnable task, long delayNanos, CompletableFuture< ? > result ) {
+		try {
+			timer().schedule( () -> {
+				try {
+					task.run();
+				} catch ( RuntimeException e ) {
+					result.completeExceptionally( e );
+				}
+			}, delayNanos, TimeUnit.NANOSECONDS );
+		} catch ( RejectedExecutionException e ) {
+			result.completeExceptionally( e );
+		}
+	}
+
+	private synchronized ScheduledExecutorService timer() {
+		if ( timer == null )
+			timer = Executors.newSingleThreadScheduledExecutor( NexusRestClient.daemonThreads( "nexus-async-timer" ) );
+		return timer;
+	}
+}
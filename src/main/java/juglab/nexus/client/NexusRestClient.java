@@ -1,44 +1,98 @@
 package juglab.nexus.client;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.ws.rs.RedirectionException;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
 
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.apache.http.client.HttpClient;
+
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
+import org.jboss.resteasy.client.jaxrs.engines.ManualClosingApacheHttpClient43Engine;
 import org.jboss.resteasy.client.jaxrs.internal.BasicAuthentication;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import juglab.nexus.client.domain.Asset;
 import juglab.nexus.client.domain.Component;
 import juglab.nexus.client.domain.Query;
 import juglab.nexus.client.domain.Repository;
+import juglab.nexus.client.metrics.NexusClientListener;
 
 /**
+ * Client for the Nexus Sonatype ReST API. Holds a pool of HTTP connections
+ * that is released by {@link #close()}.
+ * <p>
+ * A client built over several base URLs, e.g. a Nexus instance and its
+ * read-only replicas, spreads reads over all of them and sends writes to the
+ * first; see {@link #builder(List)}.
+ * </p>
  */
-public class NexusRestClient {
+public class NexusRestClient implements AutoCloseable {
 
-	private final static String TMPDIR = System.getProperty( "java.io.tmpdir" );
-
-	private Client client;
-	private NexusRestClientProxy restClient;
+	private final String baseURL;
+	private final NodePool nodes;
+	private final BalancingHandler balancer;
+	private final ResteasyClient client;
+	private final BasicAuthentication authentication;
+	private final NexusRestClientProxy restClient;
+	private final FileDownloader downloader;
+	private final ComponentUploader uploader;
+	private final Supplier< ResteasyClient > asyncTransport;
+	private ResteasyClient asyncClient;
+	private NexusAsyncRequests asyncRequests;
+	private int prefetchDepth;
+	private ExecutorService prefetchExecutor;
+	private int downloadThreads = 1;
+	private int maxConnectionsPerHost;
+	private ExecutorService downloadExecutor;
+	private int uploadParallelism = 4;
+	private ExecutorService uploadExecutor;
+	private final Map< String, Semaphore > hostPermits = new ConcurrentHashMap< String, Semaphore >();
+	private int deleteParallelism = 4;
+	private RateLimiter deleteLimiter;
+	private volatile MetadataCache metadataCache;
+	private volatile boolean coalesceSearches;
+	private volatile NexusClientListener listener = NexusClientListener.NONE;
+	private volatile RetryPolicy retries = RetryPolicy.DEFAULT;
+	private volatile RateLimiter requestLimiter;
+	private final SingleFlight< Query, List< Asset > > assetSearches = new SingleFlight< Query, List< Asset > >();
+	private final SingleFlight< Query, List< Component > > componentSearches = new SingleFlight< Query, List< Component > >();
 
 	/**
 	 * 
@@ -46,9 +100,7 @@ public class NexusRestClient {
 	 *            the url of the Nexus repository
 	 */
 	public NexusRestClient( String baseURL ) {
-		client = ClientBuilder.newClient();
-		ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-		restClient = webTarget.proxy( NexusRestClientProxy.class );
+		this( baseURL, null, null );
 	}
 
 	/**
@@ -61,16 +113,433 @@ public class NexusRestClient {
 	 * @param password
 	 */
 	public NexusRestClient( String baseURL, String username, String password ) {
-		client = ClientBuilder.newClient();
-		ResteasyWebTarget webTarget = ( ResteasyWebTarget ) client.target( baseURL );
-		if ( username != null && password != null )
-			webTarget.register( new BasicAuthentication( username, password ) );
-		restClient = webTarget.proxy( NexusRestClientProxy.class );
+		this( baseURL, new NexusRestClientBuilder( baseURL ).buildTransport(), new NexusRestClientBuilder( baseURL ).asyncTransport(), username, password );
+	}
+
+	NexusRestClient( String baseURL, ResteasyClient client, Supplier< ResteasyClient > asyncTransport, String username, String password ) {
+		this( Collections.singletonList( baseURL ), client, asyncTransport, username, password );
+	}
+
+	NexusRestClient( List< String > baseURLs, ResteasyClient client, Supplier< ResteasyClient > asyncTransport, String username, String password ) {
+		this.nodes = new NodePool( baseURLs );
+		this.baseURL = nodes.getPrimary().baseURL;
+		this.client = client;
+		this.asyncTransport = asyncTransport;
+		this.authentication = username != null && password != null ? new BasicAuthentication( username, password ) : null;
+		List< NexusRestClientProxy > proxies = new ArrayList< NexusRestClientProxy >();
+		for ( NodePool.Node node : nodes.getNodes() ) {
+			ResteasyWebTarget webTarget = client.target( node.baseURL );
+			if ( authentication != null )
+				webTarget.register( authentication );
+			proxies.add( Instrumentation.proxy( webTarget.proxy( NexusRestClientProxy.class ), this::getListener ) );
+		}
+		this.balancer = new BalancingHandler( nodes, proxies, this::getListener );
+		this.restClient = RetryHandler.proxy( balancer.proxy(),
+				() -> retries, () -> requestLimiter, this::getListener );
+		this.downloader = new FileDownloader( this::downloadTarget, this::getListener );
+		downloader.setRetries( retries );
+		String authorization = authentication == null ? null
+				: "Basic " + Base64.getEncoder().encodeToString( ( username + ":" + password ).getBytes( StandardCharsets.UTF_8 ) );
+		this.uploader = new ComponentUploader( httpClient( client ), nodes, authorization, () -> requestLimiter, this::getListener );
+	}
+
+	/**
+	 * Configure a client, including its connection pool, timeouts and
+	 * download behaviour
+	 * 
+	 * @param baseURL
+	 *            the url of the Nexus repository
+	 */
+	public static NexusRestClientBuilder builder( String baseURL ) {
+		return new NexusRestClientBuilder( baseURL );
+	}
+
+	/**
+	 * Configure a client over several Nexus nodes serving the same
+	 * repositories. Reads (lookups, listings, searches) are spread over the
+	 * nodes by the {@link #setLoadBalancing(LoadBalancing) load balancing
+	 * policy}, skipping nodes that are failing; writes go to the first node.
+	 * Downloads use the asset's download URL as returned by the node that
+	 * listed it.
+	 * 
+	 * @param baseURLs
+	 *            the urls of the nodes, the primary first
+	 */
+	public static NexusRestClientBuilder builder( List< String > baseURLs ) {
+		return new NexusRestClientBuilder( baseURLs );
 	}
 
-	protected void finalize() throws Throwable {
+	/**
+	 * Closes all pooled connections and stops the background threads. The
+	 * client cannot be used afterwards.
+	 */
+	@Override
+	public void close() {
+		balancer.shutdown();
+		synchronized ( this ) {
+			if ( prefetchExecutor != null )
+				prefetchExecutor.shutdownNow();
+			if ( downloadExecutor != null )
+				downloadExecutor.shutdownNow();
+			if ( uploadExecutor != null )
+				uploadExecutor.shutdownNow();
+			if ( asyncRequests != null )
+				asyncRequests.shutdown();
+			if ( asyncClient != null )
+				asyncClient.close();
+		}
+		downloader.shutdown();
 		client.close();
-		super.finalize();
+	}
+
+	private static HttpClient httpClient( ResteasyClient client ) {
+		ClientHttpEngine engine = client.httpEngine();
+		if ( !( engine instanceof ManualClosingApacheHttpClient43Engine ) )
+			throw new IllegalArgumentException( "not an Apache HttpClient transport: " + engine );
+		return ( ( ManualClosingApacheHttpClient43Engine ) engine ).getHttpClient();
+	}
+
+	/**
+	 * Downloads share the connection pool; credentials are only sent to the
+	 * Nexus nodes themselves
+	 */
+	private WebTarget downloadTarget( URI uri ) {
+		WebTarget target = client.target( uri );
+		if ( authentication != null && nodes.getNodes().stream().anyMatch( node -> sameOrigin( uri, URI.create( node.baseURL ) ) ) )
+			target.register( authentication );
+		return target;
+	}
+
+	private static boolean sameOrigin( URI a, URI b ) {
+		return a.getScheme() != null && a.getScheme().equalsIgnoreCase( b.getScheme() )
+				&& a.getHost() != null && a.getHost().equalsIgnoreCase( b.getHost() )
+				&& port( a ) == port( b );
+	}
+
+	private static int port( URI uri ) {
+		if ( uri.getPort() != -1 )
+			return uri.getPort();
+		return "https".equalsIgnoreCase( uri.getScheme() ) ? 443 : 80;
+	}
+
+	/**
+	 * Enables pipelined pagination: while one page is decoded and consumed,
+	 * up to {@code depth} following pages are requested on a background
+	 * thread. 0 (the default) fetches pages strictly one after another.
+	 * 
+	 * @param depth
+	 *            number of pages to fetch ahead of the consumer
+	 */
+	public void setPrefetchDepth( int depth ) {
+		if ( depth < 0 )
+			throw new IllegalArgumentException( "prefetch depth must not be negative: " + depth );
+		this.prefetchDepth = depth;
+	}
+
+	/**
+	 * Makes {@link #getAsset(String, String)}, {@link #getComponent(String, String)}
+	 * and {@link #downloadAssets(List, String)} keep a file that already exists
+	 * at the destination when its content matches the asset's checksum,
+	 * instead of downloading it again. Disabled by default.
+	 */
+	public void setSkipUnchangedDownloads( boolean skip ) {
+		downloader.setSkipUnchanged( skip );
+	}
+
+	/**
+	 * Makes interrupted downloads resumable: the partially downloaded content
+	 * is kept in a hidden {@code .part} file next to the destination, and the
+	 * next download of the same file requests only the remaining bytes with
+	 * an HTTP {@code Range} header. The result is verified against the asset's
+	 * checksum, and the download restarts from scratch if the server does not
+	 * honour the range. Disabled by default, in which case failed downloads
+	 * leave nothing behind.
+	 */
+	public void setResumableDownloads( boolean resumable ) {
+		downloader.setResumable( resumable );
+	}
+
+	/**
+	 * Splits large downloads into byte ranges that are fetched on parallel
+	 * connections, for links where a single connection cannot use the
+	 * available bandwidth. Only applies to servers that accept range
+	 * requests, and not to the resumption of a partial download. The
+	 * checksum of a segmented download is verified by reading the finished
+	 * file once.
+	 * 
+	 * @param segments
+	 *            - number of parallel connections per download; 1 (the
+	 *            default) disables segmentation
+	 * @param thresholdBytes
+	 *            - minimum size for a download to be segmented
+	 */
+	public void setSegmentedDownloads( int segments, long thresholdBytes ) {
+		if ( segments < 1 )
+			throw new IllegalArgumentException( "segments must be at least 1: " + segments );
+		downloader.setSegmented( segments, thresholdBytes );
+	}
+
+	/**
+	 * Keeps downloaded assets in a local content-addressable cache keyed by
+	 * their SHA-1, shared between destination directories, jobs and clients
+	 * using the same cache directory. Cached assets are hard linked (or
+	 * copied) into the download directory without contacting the server;
+	 * concurrent requests for the same asset share one download. Assets
+	 * without a SHA-1 bypass the cache.
+	 * 
+	 * @param cacheDir
+	 *            - directory of the cache, or null to disable caching
+	 * @param maxBytes
+	 *            - size limit of the cache; least recently used entries are
+	 *            evicted beyond it
+	 */
+	public void setArtifactCache( String cacheDir, long maxBytes ) throws NexusRestClientException {
+		try {
+			downloader.setCache( cacheDir == null ? null : new ArtifactCache( Paths.get( cacheDir ), maxBytes ) );
+		} catch ( IOException e ) {
+			throw new NexusRestClientException( e );
+		}
+	}
+
+	/**
+	 * Sets how many assets {@link #getComponent(String, String)} and
+	 * {@link #downloadAssets(List, String)} download concurrently. 1 (the
+	 * default) downloads them one after another on the calling thread.
+	 * 
+	 * @param threads
+	 *            size of the download pool
+	 */
+	public synchronized void setDownloadThreads( int threads ) {
+		if ( threads < 1 )
+			throw new IllegalArgumentException( "download threads must be at least 1: " + threads );
+		this.downloadThreads = threads;
+		if ( downloadExecutor != null ) {
+			downloadExecutor.shutdown();
+			downloadExecutor = null;
+		}
+	}
+
+	/**
+	 * Limits the number of concurrent downloads from any one host, regardless
+	 * of the size of the download pool. 0 (the default) means no limit.
+	 * 
+	 * @param connections
+	 *            maximum concurrent downloads per host
+	 */
+	public void setMaxConnectionsPerHost( int connections ) {
+		if ( connections < 0 )
+			throw new IllegalArgumentException( "connections per host must not be negative: " + connections );
+		this.maxConnectionsPerHost = connections;
+		hostPermits.clear();
+	}
+
+	/**
+	 * Sets how many deletions {@link #deleteAssets(Collection)} and
+	 * {@link #deleteComponents(Collection)} keep in flight at once (default
+	 * 4). The requests are asynchronous, so this does not cost threads.
+	 * 
+	 * @param parallelism
+	 *            maximum concurrent delete requests per batch
+	 */
+	public void setDeleteParallelism( int parallelism ) {
+		if ( parallelism < 1 )
+			throw new IllegalArgumentException( "delete parallelism must be at least 1: " + parallelism );
+		this.deleteParallelism = parallelism;
+	}
+
+	/**
+	 * Sets how many components {@link #uploadComponents(Collection)} uploads
+	 * concurrently (default 4), each on a thread of its own.
+	 * 
+	 * @param parallelism
+	 *            maximum concurrent uploads per client
+	 */
+	public synchronized void setUploadParallelism( int parallelism ) {
+		if ( parallelism < 1 )
+			throw new IllegalArgumentException( "upload parallelism must be at least 1: " + parallelism );
+		this.uploadParallelism = parallelism;
+		if ( uploadExecutor != null ) {
+			uploadExecutor.shutdown();
+			uploadExecutor = null;
+		}
+	}
+
+	/**
+	 * Limits the rate of delete requests sent by batch deletions, shared by
+	 * all batches of this client. 0 (the default) means no limit.
+	 * 
+	 * @param deletesPerSecond
+	 *            maximum sustained rate of delete requests
+	 */
+	public void setDeleteRateLimit( double deletesPerSecond ) {
+		if ( deletesPerSecond < 0 )
+			throw new IllegalArgumentException( "delete rate must not be negative: " + deletesPerSecond );
+		this.deleteLimiter = deletesPerSecond > 0 ? new RateLimiter( deletesPerSecond, 1 ) : null;
+	}
+
+	/**
+	 * Repeats requests that only read after transient failures: connection
+	 * errors and the statuses 408, 429, 502, 503 and 504. This covers all
+	 * lookups, every page of listings and searches, which continue at the
+	 * page that failed, and downloads, which continue at the byte where they
+	 * failed if the server accepts ranges. Deletions are not repeated.
+	 * <p>
+	 * The delay before each retry is random, up to {@code initialDelay}
+	 * doubled for every failure so far and at most {@code maxDelay}. A
+	 * server's {@code Retry-After} is honoured; when it exceeds
+	 * {@code maxDelay} the call fails instead. The default is 3 attempts
+	 * with delays from 100 milliseconds up to 30 seconds.
+	 * </p>
+	 * 
+	 * @param maxAttempts
+	 *            - attempts per request including the first; 1 disables
+	 *            retries
+	 * @param initialDelay
+	 *            - upper bound of the delay after the first failure
+	 * @param maxDelay
+	 *            - upper bound of any delay
+	 */
+	public void setRetries( int maxAttempts, long initialDelay, long maxDelay, TimeUnit unit ) {
+		RetryPolicy retries = new RetryPolicy( maxAttempts, unit.toNanos( initialDelay ), unit.toNanos( maxDelay ) );
+		this.retries = retries;
+		downloader.setRetries( retries );
+	}
+
+	/**
+	 * Limits the rate of all requests of this client, including every
+	 * attempt of retried requests, page requests and downloads, across all
+	 * threads. Callers over the limit wait their turn, so a sustained load
+	 * is paced instead of overwhelming the server. 0 (the default) means no
+	 * limit.
+	 * 
+	 * @param requestsPerSecond
+	 *            - maximum sustained rate of requests
+	 * @param burst
+	 *            - requests that may be sent at once after an idle period
+	 */
+	public void setRequestRateLimit( double requestsPerSecond, int burst ) {
+		if ( requestsPerSecond < 0 )
+			throw new IllegalArgumentException( "request rate must not be negative: " + requestsPerSecond );
+		RateLimiter limiter = requestsPerSecond > 0 ? new RateLimiter( requestsPerSecond, burst ) : null;
+		this.requestLimiter = limiter;
+		downloader.setRateLimiter( limiter );
+	}
+
+	/**
+	 * Sets how reads are spread over the nodes of a client built with
+	 * several base URLs. Round robin by default.
+	 */
+	public void setLoadBalancing( LoadBalancing policy ) {
+		if ( policy == null )
+			throw new IllegalArgumentException( "policy must not be null" );
+		nodes.setPolicy( policy );
+	}
+
+	/**
+	 * Sets when a node of a client built with several base URLs stops
+	 * receiving requests: after failing {@code consecutiveFailures} requests
+	 * in a row without a response or with a server error, for
+	 * {@code duration}. The node then receives requests again, and is
+	 * ejected for twice as long (up to 16 times {@code duration}) if the
+	 * first of them fails. The default is 5 failures and 30 seconds.
+	 * 
+	 * @param consecutiveFailures
+	 *            - 0 never ejects a node
+	 */
+	public void setNodeEjection( int consecutiveFailures, long duration, TimeUnit unit ) {
+		if ( consecutiveFailures < 0 || duration < 0 )
+			throw new IllegalArgumentException( "ejection settings must not be negative: " + consecutiveFailures + ", " + duration );
+		nodes.setEjection( consecutiveFailures, unit.toNanos( duration ) );
+	}
+
+	/**
+	 * Hedges the blocking reads of single resources, i.e. the repository
+	 * list and the metadata of an asset or component: a request not
+	 * answered within the 95th percentile of the recent latency of its
+	 * endpoint is sent again, to another node if there is one, and the first
+	 * answer is used. At most a tenth of the reads are hedged, and none
+	 * until an endpoint has answered 20 requests. Listings and searches are
+	 * not hedged, as all their pages are read from the node that served the
+	 * first one, and neither are the {@code *Async} methods. Disabled by
+	 * default.
+	 */
+	public void setHedgedReads( boolean hedge ) {
+		balancer.setHedging( hedge );
+	}
+
+	/**
+	 * Caches the results of {@link #listRepositories()} and the metadata
+	 * lookups of {@link #getAsset(String, String)} and
+	 * {@link #getComponent(String, String)} in memory. Disabled by default.
+	 * 
+	 * @param maxEntries
+	 *            - number of responses to keep; 0 disables the cache
+	 * @see MetadataCache
+	 */
+	public void setMetadataCache( int maxEntries ) {
+		if ( maxEntries < 0 )
+			throw new IllegalArgumentException( "cache size must not be negative: " + maxEntries );
+		this.metadataCache = maxEntries > 0 ? new MetadataCache( maxEntries ) : null;
+	}
+
+	/**
+	 * Sets how long a cached response of an endpoint is used before it is
+	 * revalidated with the server. 0 revalidates on every call.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the {@link #setMetadataCache(int) metadata cache} is not
+	 *             enabled
+	 */
+	public void setMetadataCacheTtl( MetadataCache.Endpoint endpoint, long ttl, TimeUnit unit ) {
+		MetadataCache cache = metadataCache;
+		if ( cache == null )
+			throw new IllegalStateException( "the metadata cache is not enabled" );
+		cache.setTtl( endpoint, ttl, unit );
+	}
+
+	/**
+	 * @return the hit, miss and revalidation counts of the metadata cache, or
+	 *         null if it is not enabled
+	 */
+	public MetadataCache.Stats getMetadataCacheStats() {
+		MetadataCache cache = metadataCache;
+		return cache == null ? null : cache.stats();
+	}
+
+	/**
+	 * Makes concurrent {@link #searchAssets(Query)} and
+	 * {@link #searchComponents(Query)} calls (and their {@code *Async}
+	 * variants) with equal queries share one pagination through the results
+	 * instead of each requesting every page. A call arriving while an equal
+	 * search is in flight receives that search's result or failure; later
+	 * calls start a new search. Each caller gets its own list, but the
+	 * assets and components in it are shared.
+	 * <p>
+	 * Disabled by default: a caller may receive the result of a search that
+	 * started before its own call, which can miss a write it made just
+	 * before, and must not modify the shared items. Enable it for read-heavy
+	 * workloads that repeat the same searches concurrently.
+	 * </p>
+	 */
+	public void setSearchCoalescing( boolean coalesce ) {
+		this.coalesceSearches = coalesce;
+	}
+
+	/**
+	 * Reports the latency and status of every REST call, the pages of
+	 * listings and searches, and downloads to a listener, e.g. a
+	 * {@link juglab.nexus.client.metrics.NexusClientMetrics}. Takes effect
+	 * immediately, also for calls in progress.
+	 * 
+	 * @param listener
+	 *            - the listener, or null to stop reporting
+	 */
+	public void setListener( NexusClientListener listener ) {
+		this.listener = listener == null ? NexusClientListener.NONE : listener;
+	}
+
+	public NexusClientListener getListener() {
+		return listener;
 	}
 
 	/**
@@ -78,10 +547,11 @@ public class NexusRestClient {
 	 */
 	public List< Repository > listRepositories() throws NexusRestClientException {
 		try {
-			String response = restClient.listRepositories();
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			return Arrays.asList( mapper.readValue( response, Repository[].class ) );
+			MetadataCache cache = metadataCache;
+			if ( cache == null )
+				return Arrays.asList( JsonReaders.REPOSITORIES.< Repository[] >readValue( restClient.listRepositories() ) );
+			return cache.get( MetadataCache.Endpoint.REPOSITORIES, null, restClient::listRepositoriesIfChanged,
+					json -> Collections.unmodifiableList( Arrays.asList( JsonReaders.REPOSITORIES.< Repository[] >readValue( json ) ) ) );
 		} catch ( RuntimeException | IOException e ) {
 			throw new NexusRestClientException( e );
 		}
@@ -96,7 +566,23 @@ public class NexusRestClient {
 	 * @see juglab.nexus.client.domain.Query
 	 */
 	public List< Asset > searchAssets( Query q ) throws NexusRestClientException {
-		return searcher( q, this::searchAssets, new TypeReference< List< Asset > >() {} );
+		if ( !coalesceSearches )
+			return collect( searchAssetsIterator( q ) );
+		Query key = new Query( q );
+		return new ArrayList< Asset >( assetSearches.run( key, () -> collect( searchAssetsIterator( key ) ) ) );
+	}
+
+	/**
+	 * Lazy variant of {@link #searchAssets(Query)}: result pages are only
+	 * requested as the stream is consumed, so short-circuiting operations
+	 * such as {@code findFirst()} stop further requests.
+	 * 
+	 * @throws UncheckedNexusRestClientException
+	 *             from the stream's terminal operation if a page cannot be
+	 *             retrieved
+	 */
+	public Stream< Asset > searchAssetsStream( Query q ) {
+		return stream( searchAssetsIterator( q ) );
 	}
 
 	/**
@@ -145,13 +631,9 @@ public class NexusRestClient {
 
 		} catch ( RuntimeException e ) {
 			if ( e instanceof RedirectionException ) {
-				URL url;
 				try {
-					url = ( ( RedirectionException ) e ).getLocation().toURL();
-					String tmpPath = TMPDIR + File.pathSeparator + fileName;
-					String finalPath =
-							downloadDir + File.pathSeparator + fileName;
-					return saveToFile(url, tmpPath, finalPath);
+					URL url = URI.create( baseURL ).resolve( ( ( RedirectionException ) e ).getLocation() ).toURL();
+					return downloader.download( url, Paths.get( downloadDir, fileName ), null );
 				} catch ( IOException e1 ) {
 					throw new NexusRestClientException( e1 );
 				}
@@ -163,17 +645,26 @@ public class NexusRestClient {
 	}
 
 	public List< Asset > listAssets( String repository ) throws NexusRestClientException {
-		return ( List< Asset > ) lister( repository, restClient::listAssets, new TypeReference< List< Asset > >() {} );
+		return collect( listAssetsIterator( repository ) );
 	};
 
+	/**
+	 * Lazy variant of {@link #listAssets(String)}, holding one page in memory
+	 * at a time
+	 * 
+	 * @throws UncheckedNexusRestClientException
+	 *             from the stream's terminal operation if a page cannot be
+	 *             retrieved
+	 */
+	public Stream< Asset > listAssetsStream( String repository ) {
+		return stream( listAssetsIterator( repository ) );
+	}
+
 	public File getAsset(
 			String assetId,
 			String downloadDir ) throws NexusRestClientException {
 		try {
-			String response = restClient.getAsset( assetId );
-			ObjectMapper mapper = new ObjectMapper();
-			Asset asset = mapper.readValue( response, Asset.class );
-			return saveAsset( asset.getDownloadUrl(), downloadDir );
+			return saveAsset( lookupAsset( assetId ), downloadDir );
 		} catch ( RuntimeException | IOException e ) {
 			throw new NexusRestClientException( e );
 		}
@@ -184,53 +675,537 @@ public class NexusRestClient {
 			restClient.deleteAsset( assetId );
 		} catch ( RuntimeException e ) {
 			throw new NexusRestClientException( e );
+		} finally {
+			invalidate( MetadataCache.Endpoint.ASSET, assetId );
 		}
 	};
 
+	/**
+	 * Delete a number of assets, keeping up to
+	 * {@link #setDeleteParallelism(int) parallelism} requests in flight at the
+	 * {@link #setDeleteRateLimit(double) configured rate}. Blocks until every
+	 * request has completed.
+	 * 
+	 * @param assetIds
+	 *            - the assets to delete; duplicates are deleted once
+	 * @return the outcome for every id; failures do not abort the batch
+	 */
+	public DeleteReport deleteAssets( Collection< String > assetIds ) throws NexusRestClientException {
+		return deleteAll( assetIds, MetadataCache.Endpoint.ASSET, id -> async().deleteAsset( id ) );
+	}
+
 	public List< Component > searchComponents( Query q ) throws NexusRestClientException {
-		return searcher( q, this::searchComponents, new TypeReference< List< Component > >() {} );
+		if ( !coalesceSearches )
+			return collect( searchComponentsIterator( q ) );
+		Query key = new Query( q );
+		return new ArrayList< Component >( componentSearches.run( key, () -> collect( searchComponentsIterator( key ) ) ) );
+	}
+
+	/**
+	 * Lazy variant of {@link #searchComponents(Query)}
+	 * 
+	 * @throws UncheckedNexusRestClientException
+	 *             from the stream's terminal operation if a page cannot be
+	 *             retrieved
+	 */
+	public Stream< Component > searchComponentsStream( Query q ) {
+		return stream( searchComponentsIterator( q ) );
 	}
 
 	public List< Component >
 			listComponents( String repository ) throws NexusRestClientException {
-		return lister( repository, restClient::listComponents, new TypeReference< List< Component > >() {} );
+		return collect( listComponentsIterator( repository ) );
 	};
 
+	/**
+	 * Lazy variant of {@link #listComponents(String)}, holding one page in
+	 * memory at a time
+	 * 
+	 * @throws UncheckedNexusRestClientException
+	 *             from the stream's terminal operation if a page cannot be
+	 *             retrieved
+	 */
+	public Stream< Component > listComponentsStream( String repository ) {
+		return stream( listComponentsIterator( repository ) );
+	}
+
 	public List< File > getComponent( String id, String downloadDir ) throws NexusRestClientException {
 		try {
-			String response = restClient.getComponent( id );
-			ObjectMapper mapper = new ObjectMapper();
-			Component component = mapper.readValue( response, Component.class );
-			return saveComponent( component, downloadDir );
-
+			return downloadAssets( lookupComponent( id ).getAssets(), downloadDir );
 		} catch ( RuntimeException | IOException e ) {
 			throw new NexusRestClientException( e );
 		}
 	};
 
-	@SuppressWarnings( "unchecked" )
-	private < T > List< T > lister( String repository, BiFunction< String, String, String > listFunction, TypeReference< List< T > > typeRef ) throws NexusRestClientException {
+	public void deleteComponent( String componentId ) throws NexusRestClientException {
 		try {
-			boolean begin = true;
-			String continuationToken = "";
-			List< T > result = new ArrayList< T >();
-			String response;
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			while ( continuationToken != null ) {
-				if ( begin ) {
-					response = ( String ) listFunction.apply( repository, null );
-					begin = false;
-				} else
-					response = ( String ) listFunction.apply( repository, continuationToken );
-				Map< String, Object > map = ( ( ObjectMapper ) mapper ).readValue( response, Map.class );
-				result.addAll( ( ( ObjectMapper ) mapper ).convertValue( map.get( "items" ), typeRef ) );
-				continuationToken = ( String ) map.get( "continuationToken" );
+			restClient.deleteComponent( componentId );
+		} catch ( RuntimeException e ) {
+			throw new NexusRestClientException( e );
+		} finally {
+			invalidate( MetadataCache.Endpoint.COMPONENT, componentId );
+		}
+	}
+
+	/**
+	 * Delete a number of components together with their assets, like
+	 * {@link #deleteAssets(Collection)}
+	 * 
+	 * @param componentIds
+	 *            - the components to delete; duplicates are deleted once
+	 * @return the outcome for every id; failures do not abort the batch
+	 */
+	public DeleteReport deleteComponents( Collection< String > componentIds ) throws NexusRestClientException {
+		return deleteAll( componentIds, MetadataCache.Endpoint.COMPONENT, id -> async().deleteComponent( id ) );
+	}
+
+	/**
+	 * Upload a component to the primary node. The files are streamed from
+	 * disk while the request is sent, so their size is not limited by the
+	 * heap. An upload is not repeated after a failure.
+	 * 
+	 * @param upload
+	 *            - the repository, the fields and the files of the component
+	 */
+	public void uploadComponent( ComponentUpload upload ) throws NexusRestClientException {
+		try {
+			uploader.upload( upload );
+		} catch ( RuntimeException | IOException e ) {
+			throw new NexusRestClientException( e );
+		}
+	}
+
+	/**
+	 * Upload a number of components, up to
+	 * {@link #setUploadParallelism(int) parallelism} at a time. Blocks until
+	 * every upload has completed.
+	 * 
+	 * @param uploads
+	 *            - the components to upload; an upload listed twice is sent
+	 *            once
+	 * @return the outcome for every upload; failures do not abort the batch
+	 */
+	public UploadReport uploadComponents( Collection< ComponentUpload > uploads ) throws NexusRestClientException {
+		Set< ComponentUpload > unique = new LinkedHashSet< ComponentUpload >( uploads );
+		UploadReport report = new UploadReport( unique );
+		ExecutorService executor = uploadExecutor();
+		List< Future< ? > > pending = new ArrayList< Future< ? > >( unique.size() );
+		for ( ComponentUpload upload : unique ) {
+			pending.add( executor.submit( () -> {
+				try {
+					uploader.upload( upload );
+					report.record( upload, null );
+				} catch ( RuntimeException | IOException e ) {
+					report.record( upload, new NexusRestClientException( e ) );
+				}
+			} ) );
+		}
+		try {
+			for ( Future< ? > upload : pending )
+				upload.get();
+		} catch ( InterruptedException e ) {
+			pending.forEach( upload -> upload.cancel( true ) );
+			Thread.currentThread().interrupt();
+			throw new NexusRestClientException( e );
+		} catch ( ExecutionException e ) {
+			throw new NexusRestClientException( e.getCause() );
+		}
+		return report;
+	}
+
+	/**
+	 * Download a number of assets, using up to
+	 * {@link #setDownloadThreads(int) download threads} connections at a time.
+	 * A failing asset does not stop the others from being downloaded.
+	 * 
+	 * @param assets
+	 *            - the assets to download
+	 * @param downloadDir
+	 *            - where to download the assets to
+	 * @return the downloaded files, in the order of {@code assets}
+	 * @throws NexusRestClientDownloadException
+	 *             if any of the assets could not be downloaded, carrying the
+	 *             individual failures and the files that were downloaded
+	 */
+	public List< File > downloadAssets( List< Asset > assets, String downloadDir ) throws NexusRestClientException {
+		List< File > files = new ArrayList< File >( assets.size() );
+		Map< Integer, NexusRestClientException > failures = new LinkedHashMap< Integer, NexusRestClientException >();
+		if ( downloadThreads <= 1 || assets.size() <= 1 ) {
+			for ( Asset asset : assets ) {
+				try {
+					files.add( saveWithHostLimit( asset, downloadDir ) );
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new NexusRestClientException( e );
+				} catch ( RuntimeException | IOException e ) {
+					failures.put( files.size(), new NexusRestClientException( e ) );
+					files.add( null );
+				}
+			}
+		} else {
+			ExecutorService executor = downloadExecutor();
+			List< Future< File > > downloads = new ArrayList< Future< File > >( assets.size() );
+			for ( Asset asset : assets )
+				downloads.add( executor.submit( () -> saveWithHostLimit( asset, downloadDir ) ) );
+			try {
+				for ( int i = 0; i < assets.size(); i++ ) {
+					try {
+						files.add( downloads.get( i ).get() );
+					} catch ( ExecutionException e ) {
+						files.add( null );
+						failures.put( i, new NexusRestClientException( e.getCause() ) );
+					}
+				}
+			} catch ( InterruptedException e ) {
+				downloads.forEach( download -> download.cancel( true ) );
+				Thread.currentThread().interrupt();
+				throw new NexusRestClientException( e );
 			}
+		}
+		if ( !failures.isEmpty() )
+			throw new NexusRestClientDownloadException( assets, files, failures );
+		return files;
+	}
+
+	/**
+	 * Non-blocking variant of {@link #listRepositories()}. Like all
+	 * {@code *Async} methods it sends the request on an asynchronous HTTP
+	 * engine and returns immediately; the future completes on one of the
+	 * engine's I/O threads, so dependent stages that block should be attached
+	 * with an executor. Failures complete the future with a
+	 * {@link NexusRestClientException}.
+	 */
+	public CompletableFuture< List< Repository > > listRepositoriesAsync() {
+		return nexusFailures( read( async().listRepositories(), JsonReaders.REPOSITORIES, Repository[].class )
+				.thenApply( Arrays::asList ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #searchAssets(Query)}; pages are
+	 * requested one after another without holding a thread in between
+	 */
+	public CompletableFuture< List< Asset > > searchAssetsAsync( Query q ) {
+		Query key = new Query( q );
+		Supplier< CompletableFuture< List< Asset > > > search = () -> nexusFailures( collectAsync( "searchAssets", ( token, pin ) -> async().searchAssets( key, token, pin ), PageDecoder.ASSETS ) );
+		if ( !coalesceSearches )
+			return search.get();
+		return nexusFailures( assetSearches.runAsync( key, search ).thenApply( ArrayList< Asset >::new ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #searchAssetsAndDownload(Query, String, String)}.
+	 * The search does not block; the file itself is written on the download
+	 * pool (see {@link #setDownloadThreads(int)}).
+	 */
+	public CompletableFuture< File > searchAssetsAndDownloadAsync( Query q, String fileName, String downloadDir ) {
+		return nexusFailures( async().searchAssetsAndDownload( q ).handle( ( response, e ) -> {
+			Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+			if ( cause instanceof RedirectionException ) {
+				URI location = URI.create( baseURL ).resolve( ( ( RedirectionException ) cause ).getLocation() );
+				return supplyDownload( () -> downloader.download( location.toURL(), Paths.get( downloadDir, fileName ), null ) );
+			}
+			CompletableFuture< File > result = new CompletableFuture< File >();
+			if ( e == null )
+				result.complete( null );
+			else
+				result.completeExceptionally( e );
 			return result;
-		} catch ( RuntimeException | IOException e ) {
+		} ).thenCompose( Function.identity() ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #listAssets(String)}
+	 */
+	public CompletableFuture< List< Asset > > listAssetsAsync( String repository ) {
+		return nexusFailures( collectAsync( "listAssets", ( token, pin ) -> async().listAssets( repository, token, pin ), PageDecoder.ASSETS ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #getAsset(String, String)}. The asset is
+	 * looked up without blocking and written on the download pool.
+	 */
+	public CompletableFuture< File > getAssetAsync( String assetId, String downloadDir ) {
+		return nexusFailures( read( async().getAsset( assetId ), JsonReaders.ASSET, Asset.class )
+				.thenCompose( asset -> supplyDownload( () -> saveWithHostLimit( asset, downloadDir ) ) ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #deleteAsset(String)}
+	 */
+	public CompletableFuture< Void > deleteAssetAsync( String assetId ) {
+		return nexusFailures( async().deleteAsset( assetId ) )
+				.whenComplete( ( done, e ) -> invalidate( MetadataCache.Endpoint.ASSET, assetId ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #deleteComponent(String)}
+	 */
+	public CompletableFuture< Void > deleteComponentAsync( String componentId ) {
+		return nexusFailures( async().deleteComponent( componentId ) )
+				.whenComplete( ( done, e ) -> invalidate( MetadataCache.Endpoint.COMPONENT, componentId ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #searchComponents(Query)}
+	 */
+	public CompletableFuture< List< Component > > searchComponentsAsync( Query q ) {
+		Query key = new Query( q );
+		Supplier< CompletableFuture< List< Component > > > search = () -> nexusFailures( collectAsync( "searchComponents", ( token, pin ) -> async().searchComponents( key, token, pin ), PageDecoder.COMPONENTS ) );
+		if ( !coalesceSearches )
+			return search.get();
+		return nexusFailures( componentSearches.runAsync( key, search ).thenApply( ArrayList< Component >::new ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #listComponents(String)}
+	 */
+	public CompletableFuture< List< Component > > listComponentsAsync( String repository ) {
+		return nexusFailures( collectAsync( "listComponents", ( token, pin ) -> async().listComponents( repository, token, pin ), PageDecoder.COMPONENTS ) );
+	}
+
+	/**
+	 * Non-blocking variant of {@link #getComponent(String, String)}. The
+	 * component is looked up without blocking and its assets are written on
+	 * the download pool; the future fails with a
+	 * {@link NexusRestClientDownloadException} if any of them could not be
+	 * downloaded.
+	 */
+	public CompletableFuture< List< File > > getComponentAsync( String id, String downloadDir ) {
+		return nexusFailures( read( async().getComponent( id ), JsonReaders.COMPONENT, Component.class ).thenCompose( component -> {
+			List< Asset > assets = component.getAssets();
+			List< CompletableFuture< File > > downloads = new ArrayList< CompletableFuture< File > >( assets.size() );
+			for ( Asset asset : assets )
+				downloads.add( supplyDownload( () -> saveWithHostLimit( asset, downloadDir ) ) );
+			return CompletableFuture.allOf( downloads.toArray( new CompletableFuture< ? >[ downloads.size() ] ) ).handle( ( done, e ) -> {
+				List< File > files = new ArrayList< File >( assets.size() );
+				Map< Integer, NexusRestClientException > failures = new LinkedHashMap< Integer, NexusRestClientException >();
+				for ( int i = 0; i < assets.size(); i++ ) {
+					try {
+						files.add( downloads.get( i ).join() );
+					} catch ( CompletionException failure ) {
+						files.add( null );
+						failures.put( i, nexusException( failure ) );
+					}
+				}
+				if ( !failures.isEmpty() )
+					throw new CompletionException( new NexusRestClientDownloadException( assets, files, failures ) );
+				return files;
+			} );
+		} ) );
+	}
+
+	/**
+	 * Issues the deletions on the asynchronous engine; the calling thread only
+	 * paces them and waits for the last one
+	 */
+	private DeleteReport deleteAll( Collection< String > ids, MetadataCache.Endpoint endpoint, Function< String, CompletableFuture< Void > > delete ) throws NexusRestClientException {
+		Set< String > unique = new LinkedHashSet< String >( ids );
+		DeleteReport report = new DeleteReport( unique );
+		int parallelism = deleteParallelism;
+		RateLimiter limiter = deleteLimiter;
+		Semaphore inFlight = new Semaphore( parallelism );
+		try {
+			for ( String id : unique ) {
+				inFlight.acquire();
+				if ( limiter != null )
+					limiter.acquire();
+				CompletableFuture< Void > deletion;
+				try {
+					deletion = delete.apply( id );
+				} catch ( RuntimeException e ) {
+					deletion = new CompletableFuture< Void >();
+					deletion.completeExceptionally( e );
+				}
+				deletion.whenComplete( ( done, e ) -> {
+					invalidate( endpoint, id );
+					report.record( id, e == null ? null : nexusException( e ) );
+					inFlight.release();
+				} );
+			}
+			inFlight.acquire( parallelism );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
 			throw new NexusRestClientException( e );
 		}
+		return report;
+	}
+
+	private Asset lookupAsset( String assetId ) throws IOException {
+		MetadataCache cache = metadataCache;
+		if ( cache == null )
+			return JsonReaders.ASSET.readValue( restClient.getAsset( assetId ) );
+		return cache.get( MetadataCache.Endpoint.ASSET, assetId,
+				( ifNoneMatch, ifModifiedSince ) -> restClient.getAssetIfChanged( assetId, ifNoneMatch, ifModifiedSince ),
+				JsonReaders.ASSET::readValue );
+	}
+
+	private Component lookupComponent( String componentId ) throws IOException {
+		MetadataCache cache = metadataCache;
+		if ( cache == null )
+			return JsonReaders.COMPONENT.readValue( restClient.getComponent( componentId ) );
+		return cache.get( MetadataCache.Endpoint.COMPONENT, componentId,
+				( ifNoneMatch, ifModifiedSince ) -> restClient.getComponentIfChanged( componentId, ifNoneMatch, ifModifiedSince ),
+				JsonReaders.COMPONENT::readValue );
+	}
+
+	private void invalidate( MetadataCache.Endpoint endpoint, String id ) {
+		MetadataCache cache = metadataCache;
+		if ( cache != null )
+			cache.invalidate( endpoint, id );
+	}
+
+	private synchronized NexusAsyncRequests async() {
+		if ( asyncRequests == null ) {
+			asyncClient = asyncTransport.get();
+			asyncRequests = new NexusAsyncRequests( asyncClient, nodes, authentication, this::getListener, () -> retries, () -> requestLimiter );
+		}
+		return asyncRequests;
+	}
+
+	/**
+	 * Requests the pages one at a time, each after the previous one has
+	 * arrived and from the same node, accumulating their items
+	 */
+	private < T > CompletableFuture< List< T > > collectAsync( String endpoint, BiFunction< String, NodePool.Pin, CompletableFuture< String > > pageRequest, PageDecoder< T > decoder ) {
+		return collectAsync( endpoint, pageRequest, decoder, new NodePool.Pin(), null, new ArrayList< T >(), 1, System.nanoTime() );
+	}
+
+	private < T > CompletableFuture< List< T > > collectAsync( String endpoint, BiFunction< String, NodePool.Pin, CompletableFuture< String > > pageRequest, PageDecoder< T > decoder, NodePool.Pin pin, String continuationToken, List< T > items, int pages, long started ) {
+		long requested = System.nanoTime();
+		return pageRequest.apply( continuationToken, pin ).thenCompose( response -> {
+			long received = System.nanoTime();
+			Page< T > page;
+			try {
+				page = decoder.decode( response );
+			} catch ( IOException e ) {
+				throw new CompletionException( e );
+			}
+			long decoded = System.nanoTime();
+			items.addAll( page.getItems() );
+			NexusClientListener listener = this.listener;
+			listener.pageDecoded( endpoint, page.getItems().size(), received - requested, decoded - received );
+			if ( page.getContinuationToken() == null ) {
+				listener.listingCompleted( endpoint, pages, items.size(), decoded - started );
+				return CompletableFuture.completedFuture( items );
+			}
+			return collectAsync( endpoint, pageRequest, decoder, pin, page.getContinuationToken(), items, pages + 1, started );
+		} );
+	}
+
+	private static < T > CompletableFuture< T > read( CompletableFuture< String > response, ObjectReader reader, Class< T > type ) {
+		return response.thenApply( json -> {
+			try {
+				return reader.< T >readValue( json );
+			} catch ( IOException e ) {
+				throw new CompletionException( e );
+			}
+		} );
+	}
+
+	private CompletableFuture< File > supplyDownload( Download download ) {
+		return CompletableFuture.supplyAsync( () -> {
+			try {
+				return download.get();
+			} catch ( IOException | InterruptedException e ) {
+				throw new CompletionException( e );
+			}
+		}, downloadExecutor() );
+	}
+
+	private interface Download {
+		File get() throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Completes with the outcome of {@code future}, with failures turned into
+	 * {@link NexusRestClientException}s
+	 */
+	private static < T > CompletableFuture< T > nexusFailures( CompletableFuture< T > future ) {
+		CompletableFuture< T > result = new CompletableFuture< T >();
+		future.whenComplete( ( value, e ) -> {
+			if ( e == null )
+				result.complete( value );
+			else
+				result.completeExceptionally( nexusException( e ) );
+		} );
+		return result;
+	}
+
+	private static NexusRestClientException nexusException( Throwable e ) {
+		if ( e instanceof CompletionException && e.getCause() != null )
+			e = e.getCause();
+		return e instanceof NexusRestClientException ? ( NexusRestClientException ) e : new NexusRestClientException( e );
+	}
+
+	private PageIterator< Asset > listAssetsIterator( String repository ) {
+		return pages( "listAssets", token -> restClient.listAssets( repository, token ), PageDecoder.ASSETS );
+	}
+
+	private PageIterator< Asset > searchAssetsIterator( Query q ) {
+		return pages( "searchAssets", token -> searchAssets( q, token ), PageDecoder.ASSETS );
+	}
+
+	private PageIterator< Component > listComponentsIterator( String repository ) {
+		return pages( "listComponents", token -> restClient.listComponents( repository, token ), PageDecoder.COMPONENTS );
+	}
+
+	private PageIterator< Component > searchComponentsIterator( Query q ) {
+		return pages( "searchComponents", token -> searchComponents( q, token ), PageDecoder.COMPONENTS );
+	}
+
+	/**
+	 * All pages are requested from the node that served the first one, which
+	 * issued the continuation tokens
+	 */
+	private < T > PageIterator< T > pages( String endpoint, Function< String, String > pageFunction, PageDecoder< T > decoder ) {
+		NodePool.Pin pin = new NodePool.Pin();
+		Function< String, String > pinned = token -> balancer.pinned( pin, () -> pageFunction.apply( token ) );
+		if ( prefetchDepth > 0 )
+			return new PrefetchingPageIterator< T >( endpoint, this::getListener, pinned, decoder, prefetchDepth, prefetchExecutor() );
+		return new PageIterator< T >( endpoint, this::getListener, pinned, decoder );
+	}
+
+	private synchronized ExecutorService prefetchExecutor() {
+		if ( prefetchExecutor == null )
+			prefetchExecutor = Executors.newCachedThreadPool( daemonThreads( "nexus-prefetch" ) );
+		return prefetchExecutor;
+	}
+
+	private synchronized ExecutorService downloadExecutor() {
+		if ( downloadExecutor == null )
+			downloadExecutor = Executors.newFixedThreadPool( downloadThreads, daemonThreads( "nexus-download" ) );
+		return downloadExecutor;
+	}
+
+	private synchronized ExecutorService uploadExecutor() {
+		if ( uploadExecutor == null )
+			uploadExecutor = Executors.newFixedThreadPool( uploadParallelism, daemonThreads( "nexus-upload" ) );
+		return uploadExecutor;
+	}
+
+	static ThreadFactory daemonThreads( String prefix ) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread( runnable, prefix + "-" + count.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		};
+	}
+
+	private static < T > List< T > collect( PageIterator< T > iterator ) throws NexusRestClientException {
+		try {
+			List< T > result = new ArrayList< T >();
+			iterator.forEachRemaining( result::add );
+			return result;
+		} catch ( UncheckedNexusRestClientException e ) {
+			throw e.getCause();
+		} finally {
+			iterator.close();
+		}
+	}
+
+	private static < T > Stream< T > stream( PageIterator< T > iterator ) {
+		return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.NONNULL ), false ).onClose( iterator::close );
 	}
 
 	private String searchAssets( Query q, String continuationToken ) {
@@ -248,31 +1223,6 @@ public class NexusRestClient {
 				continuationToken );
 	}
 
-	@SuppressWarnings( "unchecked" )
-	private < T > List< T > searcher( Query q, BiFunction< Query, String, String > searchFunction, TypeReference< List< T > > typeRef ) throws NexusRestClientException {
-		try {
-			boolean begin = true;
-			String continuationToken = "";
-			List< T > result = new ArrayList< T >();
-			String response;
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure( DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY, true );
-			while ( continuationToken != null ) {
-				if ( begin ) {
-					response = ( String ) searchFunction.apply( q, null );
-					begin = false;
-				} else
-					response = ( String ) searchFunction.apply( q, continuationToken );
-				Map< String, Object > map = ( ( ObjectMapper ) mapper ).readValue( response, Map.class );
-				result.addAll( ( ( ObjectMapper ) mapper ).convertValue( map.get( "items" ), typeRef ) );
-				continuationToken = ( String ) map.get( "continuationToken" );
-			}
-			return result;
-		} catch ( RuntimeException | IOException e ) {
-			throw new NexusRestClientException( e );
-		}
-	}
-
 	private String searchComponents( Query q, String continuationToken ) {
 		return restClient.searchComponents(
 				q.getSortBy(),
@@ -288,42 +1238,24 @@ public class NexusRestClient {
 				continuationToken );
 	}
 
-	private File saveAsset( String url, String downloadDir ) throws IOException {
-
-		String fileName = url.substring( url.lastIndexOf( '/' ) + 2 );
-		String tmpPath = TMPDIR + File.pathSeparator + fileName;
-		String finalPath =
-				downloadDir + File.pathSeparator + fileName;
-		return saveToFile(new URL( url ), tmpPath, finalPath);
+	private File saveAsset( Asset asset, String downloadDir ) throws IOException {
+		String url = asset.getDownloadUrl();
+		String fileName = url.substring( url.lastIndexOf( '/' ) + 1 );
+		return downloader.download( new URL( url ), Paths.get( downloadDir, fileName ), asset.getChecksum() );
 	}
 
-	private List< File > saveComponent( Component component, String downloadDir ) throws IOException {
-
-		List< Asset > assets = component.getAssets();
-		List< File > files = new ArrayList< File >( assets.size() );
-		for ( Asset asset : assets ) {
-			String url = asset.getDownloadUrl();
-			String fileName = url.substring( url.lastIndexOf( '/' ) + 2 );
-			String tmpPath = TMPDIR + File.pathSeparator + fileName;
-			String finalPath =
-					downloadDir + File.pathSeparator + fileName;
-			files.add( saveToFile(new URL( url ), tmpPath, finalPath) );
+	private File saveWithHostLimit( Asset asset, String downloadDir ) throws IOException, InterruptedException {
+		Semaphore permits = null;
+		if ( maxConnectionsPerHost > 0 ) {
+			URL url = new URL( asset.getDownloadUrl() );
+			permits = hostPermits.computeIfAbsent( url.getAuthority(), host -> new Semaphore( maxConnectionsPerHost ) );
+			permits.acquire();
+		}
+		try {
+			return saveAsset( asset, downloadDir );
+		} finally {
+			if ( permits != null )
+				permits.release();
 		}
-		return files;
-
-	}
-	
-	private File saveToFile(URL url, String tmpPath, String finalPath) throws IOException {
-
-		ReadableByteChannel readableByteChannel =
-				Channels.newChannel( url.openStream() );
-		FileOutputStream fileOutputStream = new FileOutputStream( tmpPath );
-		fileOutputStream.getChannel().transferFrom( readableByteChannel, 0, Long.MAX_VALUE );
-		fileOutputStream.close();
-		Files.copy(
-				Paths.get( tmpPath ),
-				Paths.get( finalPath ),
-				StandardCopyOption.REPLACE_EXISTING );
-		return new File(finalPath);
 	}
 }
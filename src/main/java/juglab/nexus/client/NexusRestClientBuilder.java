@@ -0,0 +1,446 @@
+package juglab.nexus.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.ws.rs.client.ClientBuilder;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpAsyncClient4Engine;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Configures a {@link NexusRestClient} and the pooled HTTP transport shared by
+ * its REST calls and downloads. Obtained from
+ * {@link NexusRestClient#builder(String)}.
+ *
+ * <pre>
+ * try ( NexusRestClient client = NexusRestClient.builder( "https://nexus.example.org" )
+ * 		.credentials( "user", "secret" )
+ * 		.maxConnections( 64 )
+ * 		.readTimeout( 2, TimeUnit.MINUTES )
+ * 		.build() ) {
+ * 	...
+ * }
+ * </pre>
+ */
+public class NexusRestClientBuilder {
+
+	private final List< String > baseURLs;
+	private String username;
+	private String password;
+	private int maxConnections = 50;
+	private int maxConnectionsPerRoute = 20;
+	private long keepAliveMillis = TimeUnit.SECONDS.toMillis( 30 );
+	private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis( 10 );
+	private long readTimeoutMillis = TimeUnit.SECONDS.toMillis( 60 );
+	private int socketBufferSize;
+	private int prefetchDepth;
+	private int downloadThreads = 1;
+	private int maxDownloadsPerHost;
+	private boolean skipUnchangedDownloads;
+	private boolean resumableDownloads;
+	private int downloadSegments = 1;
+	private long segmentThreshold;
+	private String artifactCacheDir;
+	private long artifactCacheBytes;
+	private int deleteParallelism = 4;
+	private double deleteRateLimit;
+	private int uploadParallelism = 4;
+	private int retryAttempts = 3;
+	private long retryInitialDelayNanos = TimeUnit.MILLISECONDS.toNanos( 100 );
+	private long retryMaxDelayNanos = TimeUnit.SECONDS.toNanos( 30 );
+	private double requestRateLimit;
+	private int requestRateBurst = 1;
+	private LoadBalancing loadBalancing = LoadBalancing.ROUND_ROBIN;
+	private int ejectionFailures = 5;
+	private long ejectionNanos = TimeUnit.SECONDS.toNanos( 30 );
+	private boolean hedgedReads;
+	private int metadataCacheEntries;
+	private boolean searchCoalescing;
+	private NexusClientListener listener;
+	private final Map< MetadataCache.Endpoint, Long > metadataCacheTtlNanos = new EnumMap< MetadataCache.Endpoint, Long >( MetadataCache.Endpoint.class );
+
+	NexusRestClientBuilder( String baseURL ) {
+		this( Collections.singletonList( baseURL ) );
+	}
+
+	NexusRestClientBuilder( List< String > baseURLs ) {
+		this.baseURLs = new ArrayList< String >( baseURLs );
+	}
+
+	/**
+	 * Authenticate all requests, needed for deleting and accessing private
+	 * repos
+	 */
+	public NexusRestClientBuilder credentials( String username, String password ) {
+		this.username = username;
+		this.password = password;
+		return this;
+	}
+
+	/**
+	 * @param connections
+	 *            - maximum number of pooled connections in total (default 50)
+	 */
+	public NexusRestClientBuilder maxConnections( int connections ) {
+		this.maxConnections = positive( connections, "connections" );
+		return this;
+	}
+
+	/**
+	 * @param connections
+	 *            - maximum number of pooled connections to a single host
+	 *            (default 20)
+	 */
+	public NexusRestClientBuilder maxConnectionsPerRoute( int connections ) {
+		this.maxConnectionsPerRoute = positive( connections, "connections per route" );
+		return this;
+	}
+
+	/**
+	 * @param duration
+	 *            - how long an idle connection is kept open for reuse when the
+	 *            server does not announce its own keep-alive timeout (default
+	 *            30 seconds)
+	 */
+	public NexusRestClientBuilder keepAlive( long duration, TimeUnit unit ) {
+		this.keepAliveMillis = unit.toMillis( duration );
+		return this;
+	}
+
+	/**
+	 * @param timeout
+	 *            - how long to wait for a connection to be established or
+	 *            leased from the pool (default 10 seconds, 0 waits forever)
+	 */
+	public NexusRestClientBuilder connectTimeout( long timeout, TimeUnit unit ) {
+		this.connectTimeoutMillis = unit.toMillis( timeout );
+		return this;
+	}
+
+	/**
+	 * @param timeout
+	 *            - how long a read may block waiting for data (default 60
+	 *            seconds, 0 waits forever)
+	 */
+	public NexusRestClientBuilder readTimeout( long timeout, TimeUnit unit ) {
+		this.readTimeoutMillis = unit.toMillis( timeout );
+		return this;
+	}
+
+	/**
+	 * @param bytes
+	 *            - size of the socket send and receive buffers and of the
+	 *            connection's I/O buffer; 0 (the default) keeps the platform
+	 *            defaults
+	 */
+	public NexusRestClientBuilder socketBufferSize( int bytes ) {
+		if ( bytes < 0 )
+			throw new IllegalArgumentException( "socket buffer size must not be negative: " + bytes );
+		this.socketBufferSize = bytes;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setPrefetchDepth(int)
+	 */
+	public NexusRestClientBuilder prefetchDepth( int depth ) {
+		this.prefetchDepth = depth;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setDownloadThreads(int)
+	 */
+	public NexusRestClientBuilder downloadThreads( int threads ) {
+		this.downloadThreads = threads;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setMaxConnectionsPerHost(int)
+	 */
+	public NexusRestClientBuilder maxDownloadsPerHost( int downloads ) {
+		this.maxDownloadsPerHost = downloads;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setSkipUnchangedDownloads(boolean)
+	 */
+	public NexusRestClientBuilder skipUnchangedDownloads( boolean skip ) {
+		this.skipUnchangedDownloads = skip;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setResumableDownloads(boolean)
+	 */
+	public NexusRestClientBuilder resumableDownloads( boolean resumable ) {
+		this.resumableDownloads = resumable;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setSegmentedDownloads(int, long)
+	 */
+	public NexusRestClientBuilder segmentedDownloads( int segments, long thresholdBytes ) {
+		this.downloadSegments = segments;
+		this.segmentThreshold = thresholdBytes;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setArtifactCache(String, long)
+	 */
+	public NexusRestClientBuilder artifactCache( String cacheDir, long maxBytes ) {
+		this.artifactCacheDir = cacheDir;
+		this.artifactCacheBytes = maxBytes;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setDeleteParallelism(int)
+	 */
+	public NexusRestClientBuilder deleteParallelism( int parallelism ) {
+		this.deleteParallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setDeleteRateLimit(double)
+	 */
+	public NexusRestClientBuilder deleteRateLimit( double deletesPerSecond ) {
+		this.deleteRateLimit = deletesPerSecond;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setUploadParallelism(int)
+	 */
+	public NexusRestClientBuilder uploadParallelism( int parallelism ) {
+		this.uploadParallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setRetries(int, long, long, TimeUnit)
+	 */
+	public NexusRestClientBuilder retries( int maxAttempts, long initialDelay, long maxDelay, TimeUnit unit ) {
+		this.retryAttempts = maxAttempts;
+		this.retryInitialDelayNanos = unit.toNanos( initialDelay );
+		this.retryMaxDelayNanos = unit.toNanos( maxDelay );
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setRequestRateLimit(double, int)
+	 */
+	public NexusRestClientBuilder requestRateLimit( double requestsPerSecond, int burst ) {
+		this.requestRateLimit = requestsPerSecond;
+		this.requestRateBurst = burst;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setLoadBalancing(LoadBalancing)
+	 */
+	public NexusRestClientBuilder loadBalancing( LoadBalancing policy ) {
+		this.loadBalancing = policy;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setNodeEjection(int, long, TimeUnit)
+	 */
+	public NexusRestClientBuilder nodeEjection( int consecutiveFailures, long duration, TimeUnit unit ) {
+		this.ejectionFailures = consecutiveFailures;
+		this.ejectionNanos = unit.toNanos( duration );
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setHedgedReads(boolean)
+	 */
+	public NexusRestClientBuilder hedgedReads( boolean hedge ) {
+		this.hedgedReads = hedge;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setMetadataCache(int)
+	 */
+	public NexusRestClientBuilder metadataCache( int maxEntries ) {
+		this.metadataCacheEntries = maxEntries;
+		return this;
+	}
+
+	/**
+	 * Only applies if the {@link #metadataCache(int) metadata cache} is
+	 * enabled
+	 * 
+	 * @see NexusRestClient#setMetadataCacheTtl(MetadataCache.Endpoint, long, TimeUnit)
+	 */
+	public NexusRestClientBuilder metadataCacheTtl( MetadataCache.Endpoint endpoint, long ttl, TimeUnit unit ) {
+		metadataCacheTtlNanos.put( endpoint, unit.toNanos( ttl ) );
+		return this;
+	}
+
+	/**
+	 * Off by default
+	 * 
+	 * @see NexusRestClient#setSearchCoalescing(boolean)
+	 */
+	public NexusRestClientBuilder searchCoalescing( boolean coalesce ) {
+		this.searchCoalescing = coalesce;
+		return this;
+	}
+
+	/**
+	 * @see NexusRestClient#setListener(NexusClientListener)
+	 */
+	public NexusRestClientBuilder listener( NexusClientListener listener ) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * @throws NexusRestClientException
+	 *             if the artifact cache cannot be opened
+	 */
+	public NexusRestClient build() throws NexusRestClientException {
+		NexusRestClient client = new NexusRestClient( baseURLs, buildTransport(), asyncTransport(), username, password );
+		try {
+			client.setPrefetchDepth( prefetchDepth );
+			client.setDownloadThreads( downloadThreads );
+			client.setMaxConnectionsPerHost( maxDownloadsPerHost );
+			client.setSkipUnchangedDownloads( skipUnchangedDownloads );
+			client.setResumableDownloads( resumableDownloads );
+			client.setSegmentedDownloads( downloadSegments, segmentThreshold );
+			client.setDeleteParallelism( deleteParallelism );
+			client.setDeleteRateLimit( deleteRateLimit );
+			client.setUploadParallelism( uploadParallelism );
+			client.setRetries( retryAttempts, retryInitialDelayNanos, retryMaxDelayNanos, TimeUnit.NANOSECONDS );
+			client.setRequestRateLimit( requestRateLimit, requestRateBurst );
+			client.setLoadBalancing( loadBalancing );
+			client.setNodeEjection( ejectionFailures, ejectionNanos, TimeUnit.NANOSECONDS );
+			client.setHedgedReads( hedgedReads );
+			client.setMetadataCache( metadataCacheEntries );
+			client.setSearchCoalescing( searchCoalescing );
+			client.setListener( listener );
+			if ( metadataCacheEntries > 0 )
+				metadataCacheTtlNanos.forEach( ( endpoint, ttl ) -> client.setMetadataCacheTtl( endpoint, ttl, TimeUnit.NANOSECONDS ) );
+			if ( artifactCacheDir != null )
+				client.setArtifactCache( artifactCacheDir, artifactCacheBytes );
+			return client;
+		} catch ( NexusRestClientException | RuntimeException e ) {
+			client.close();
+			throw e;
+		}
+	}
+
+	ResteasyClient buildTransport() {
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+		connections.setMaxTotal( maxConnections );
+		connections.setDefaultMaxPerRoute( maxConnectionsPerRoute );
+		connections.setDefaultSocketConfig( SocketConfig.custom()
+				.setSoTimeout( ( int ) readTimeoutMillis )
+				.setSoKeepAlive( true )
+				.setTcpNoDelay( true )
+				.setRcvBufSize( socketBufferSize )
+				.setSndBufSize( socketBufferSize )
+				.build() );
+		if ( socketBufferSize > 0 )
+			connections.setDefaultConnectionConfig( ConnectionConfig.custom().setBufferSize( socketBufferSize ).build() );
+		CloseableHttpClient httpClient = HttpClientBuilder.create()
+				.setConnectionManager( connections )
+				.setKeepAliveStrategy( keepAliveStrategy( keepAliveMillis ) )
+				.evictIdleConnections( keepAliveMillis, TimeUnit.MILLISECONDS )
+				.evictExpiredConnections()
+				// RetryHandler is the only retry layer, and never repeats deletions
+				.disableAutomaticRetries()
+				.setDefaultRequestConfig( RequestConfig.custom()
+						.setConnectTimeout( ( int ) connectTimeoutMillis )
+						.setConnectionRequestTimeout( ( int ) connectTimeoutMillis )
+						.setSocketTimeout( ( int ) readTimeoutMillis )
+						.build() )
+				.build();
+		ApacheHttpClient43Engine engine = new ApacheHttpClient43Engine( httpClient, true );
+		return ( ( ResteasyClientBuilder ) ClientBuilder.newBuilder() ).httpEngine( engine ).build();
+	}
+
+	/**
+	 * The asynchronous transport behind the {@code *Async} methods, created
+	 * with the current settings on first use so that clients which never
+	 * call them do not start its I/O threads. It has its own pool with the
+	 * same limits, and does not follow redirects.
+	 */
+	Supplier< ResteasyClient > asyncTransport() {
+		int maxConnections = this.maxConnections;
+		int maxConnectionsPerRoute = this.maxConnectionsPerRoute;
+		long keepAliveMillis = this.keepAliveMillis;
+		int connectTimeout = ( int ) connectTimeoutMillis;
+		int readTimeout = ( int ) readTimeoutMillis;
+		int socketBufferSize = this.socketBufferSize;
+		return () -> {
+			CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+					.setMaxConnTotal( maxConnections )
+					.setMaxConnPerRoute( maxConnectionsPerRoute )
+					.setDefaultIOReactorConfig( IOReactorConfig.custom()
+							.setConnectTimeout( connectTimeout )
+							.setSoTimeout( readTimeout )
+							.setSoKeepAlive( true )
+							.setTcpNoDelay( true )
+							.setRcvBufSize( socketBufferSize )
+							.setSndBufSize( socketBufferSize )
+							.build() )
+					.setKeepAliveStrategy( keepAliveStrategy( keepAliveMillis ) )
+					.setDefaultRequestConfig( RequestConfig.custom()
+							.setConnectTimeout( connectTimeout )
+							.setConnectionRequestTimeout( connectTimeout )
+							.setSocketTimeout( readTimeout )
+							.setRedirectsEnabled( false )
+							.build() )
+					.build();
+			ApacheHttpAsyncClient4Engine engine = new ApacheHttpAsyncClient4Engine( httpClient, true );
+			return ( ( ResteasyClientBuilder ) ClientBuilder.newBuilder() ).httpEngine( engine ).build();
+		};
+	}
+
+	/**
+	 * Keeps connections alive for as long as the server announces, but no
+	 * longer than the configured duration
+	 */
+	private static ConnectionKeepAliveStrategy keepAliveStrategy( long keepAliveMillis ) {
+		return ( response, context ) -> {
+			long announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration( response, context );
+			return announced > 0 ? Math.min( announced, keepAliveMillis ) : keepAliveMillis;
+		};
+	}
+
+	private static int positive( int value, String name ) {
+		if ( value < 1 )
+			throw new IllegalArgumentException( name + " must be positive: " + value );
+		return value;
+	}
+}
@@ -0,0 +1,73 @@
+package juglab.nexus.client;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import juglab.nexus.client.domain.Asset;
+
+/**
+ * Thrown by bulk downloads when one or more assets could not be retrieved.
+ * The remaining assets are still downloaded; their files are available from
+ * {@link #getFiles()} and the individual failures from {@link #getFailures()}.
+ */
+public class NexusRestClientDownloadException extends NexusRestClientException {
+
+	private static final long serialVersionUID = -1523541364024418235L;
+
+	private final List< File > files;
+	private final Map< Integer, NexusRestClientException > failures;
+
+	/**
+	 * @param assets
+	 *            - the requested assets, for the message
+	 * @param failures
+	 *            - keyed by the position of the asset in {@code assets}, as
+	 *            ids may be missing or repeated
+	 */
+	public NexusRestClientDownloadException( List< Asset > assets, List< File > files, Map< Integer, NexusRestClientException > failures ) {
+		super( message( assets, failures ) );
+		this.files = Collections.unmodifiableList( files );
+		this.failures = Collections.unmodifiableMap( failures );
+		for ( NexusRestClientException failure : failures.values() )
+			addSuppressed( failure );
+	}
+
+	/**
+	 * @return the downloaded files in the order of the requested assets, with
+	 *         null in place of each failed asset
+	 */
+	public List< File > getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return the failure of each asset that could not be downloaded, keyed by
+	 *         its position in the requested assets, in request order
+	 */
+	public Map< Integer, NexusRestClientException > getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the HTTP error code shared by all failures, else 0
+	 */
+	@Override
+	public int getHttpErrorCode() {
+		int code = 0;
+		for ( NexusRestClientException failure : failures.values() ) {
+			if ( code != 0 && code != failure.getHttpErrorCode() )
+				return 0;
+			code = failure.getHttpErrorCode();
+		}
+		return code;
+	}
+
+	private static String message( List< Asset > assets, Map< Integer, NexusRestClientException > failures ) {
+		StringBuilder message = new StringBuilder().append( failures.size() ).append( " of " ).append( assets.size() ).append( " downloads failed:" );
+		for ( Integer position : failures.keySet() )
+			message.append( " #" ).append( position ).append( ' ' ).append( assets.get( position ).getId() );
+		return message.toString();
+	}
+}
@@ -4,6 +4,7 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
 
 import org.jboss.resteasy.spi.HttpResponseCodes;
 
@@ -44,6 +45,8 @@ public class NexusRestClientException extends Exception {
 			return HttpResponseCodes.SC_BAD_REQUEST;
 		if ( getCause() instanceof NotFoundException)
 			return HttpResponseCodes.SC_NOT_FOUND;
+		if ( getCause() instanceof WebApplicationException && ( ( WebApplicationException ) getCause() ).getResponse() != null )
+			return ( ( WebApplicationException ) getCause() ).getResponse().getStatus();
 		else
 			return 0;
 	}
@@ -3,10 +3,12 @@ package juglab.nexus.client;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
-import javax.ws.rs.POST;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
 import org.jboss.resteasy.annotations.jaxrs.QueryParam;
@@ -31,6 +33,20 @@ public interface NexusRestClientProxy {
 	@Produces(MediaType.APPLICATION_JSON)
 	public String listRepositories();
 	
+	/**
+	 * List all repositories unless they are unchanged
+	 * 
+	 * @param ifNoneMatch
+	 *            ETag of the cached list, or null
+	 * @param ifModifiedSince
+	 *            Last-Modified date of the cached list, or null
+	 * @return the list, or 304 if it is unchanged
+	 */
+	@GET
+	@Path("/service/rest/v1/repositories")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response listRepositoriesIfChanged(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince);
+
 	/**
 	 * Search for assets
 	 */
@@ -70,6 +86,16 @@ public interface NexusRestClientProxy {
 	@Produces(MediaType.APPLICATION_JSON)
 	public String getAsset(@PathParam("id") String id);
 
+	/**
+	 * Get an asset unless it is unchanged
+	 * 
+	 * @return the asset information, or 304 if it is unchanged
+	 */
+	@GET
+	@Path("/service/rest/v1/assets/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getAssetIfChanged(@PathParam("id") String id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince);
+
 	/**
 	 * Delete an asset
 	 * 
@@ -113,6 +139,16 @@ public interface NexusRestClientProxy {
 	@Produces(MediaType.APPLICATION_JSON)
 	public String getComponent(@PathParam("id") String id);
 	
+	/**
+	 * Get a component unless it is unchanged
+	 * 
+	 * @return the component information, or 304 if it is unchanged
+	 */
+	@GET
+	@Path("/service/rest/v1/components/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getComponentIfChanged(@PathParam("id") String id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince);
+
 	/**
 	 * Delete a component
 	 * 
@@ -123,15 +159,10 @@ public interface NexusRestClientProxy {
 	@Consumes(MediaType.TEXT_PLAIN)
 	public void deleteComponent(@PathParam("id") String id);
 	
-	/**
-	 * Upload a component
-	 * 
-	 * @param id of component to be deleted
+	/*
+	 * Uploads (POST /service/rest/v1/components) do not go through the proxy,
+	 * which would copy their multipart body before sending it; see
+	 * ComponentUploader
 	 */
-	@POST
-	@Path("/service/rest/v1/components")
-	@Consumes(MediaType.MULTIPART_FORM_DATA)
-	public void uploadComponent();
 
-	
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package juglab.nexus.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Nexus nodes of a client, with the requests in flight to each and their
+ * health. The first node is the primary, which receives all writes; reads
+ * are spread over all nodes by the {@link LoadBalancing} policy. A node that
+ * fails a number of requests in a row is ejected for a while; after that it
+ * receives requests again, and a further failure ejects it for twice as
+ * long, up to 16 times the base duration. If all nodes are ejected, the one
+ * whose ejection ends first is used.
+ */
+final class NodePool {
+
+	private static final int MAX_BACKOFF_SHIFT = 4;
+
+	static final class Node {
+
+		final String baseURL;
+		final int index;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicInteger failures = new AtomicInteger();
+		private int ejections;
+		private volatile long ejectedUntil;
+		private volatile boolean ejected;
+
+		private Node( String baseURL, int index ) {
+			this.baseURL = baseURL;
+			this.index = index;
+		}
+
+		/**
+		 * @return number of requests in flight
+		 */
+		int getOutstanding() {
+			return outstanding.get();
+		}
+
+		boolean isAvailable( long now ) {
+			return !ejected || now - ejectedUntil >= 0;
+		}
+	}
+
+	/**
+	 * The node of a listing. Continuation tokens are only valid on the node
+	 * that issued them, so the first page goes to the node chosen by the
+	 * pool and every following page, including retries, to the same node.
+	 */
+	static final class Pin {
+
+		private volatile Node node;
+	}
+
+	private final List< Node > nodes;
+	private final AtomicInteger next = new AtomicInteger();
+	private volatile LoadBalancing policy = LoadBalancing.ROUND_ROBIN;
+	private volatile int ejectionThreshold = 5;
+	private volatile long ejectionNanos = TimeUnit.SECONDS.toNanos( 30 );
+
+	/**
+	 * @param baseURLs
+	 *            - the primary first
+	 */
+	NodePool( List< String > baseURLs ) {
+		if ( baseURLs.isEmpty() )
+			throw new IllegalArgumentException( "at least one base URL is required" );
+		List< Node > nodes = new ArrayList< Node >( baseURLs.size() );
+		for ( String baseURL : baseURLs )
+			nodes.add( new Node( baseURL, nodes.size() ) );
+		this.nodes = Collections.unmodifiableList( nodes );
+	}
+
+	List< Node > getNodes() {
+		return nodes;
+	}
+
+	Node getPrimary() {
+		return nodes.get( 0 );
+	}
+
+	void setPolicy( LoadBalancing policy ) {
+		this.policy = policy;
+	}
+
+	/**
+	 * @param consecutiveFailures
+	 *            - failures in a row that eject a node; 0 never ejects
+	 * @param nanos
+	 *            - duration of the first ejection
+	 */
+	void setEjection( int consecutiveFailures, long nanos ) {
+		this.ejectionThreshold = consecutiveFailures;
+		this.ejectionNanos = nanos;
+	}
+
+	/**
+	 * Chooses a node for a read, which counts as in flight until it is
+	 * {@link #release(Node, boolean) released}
+	 *
+	 * @param exclude
+	 *            - node to avoid if another one is available, e.g. the one a
+	 *            hedged request is already waiting for; may be null
+	 */
+	Node acquire( Node exclude ) {
+		Node node = choose( exclude );
+		node.outstanding.incrementAndGet();
+		return node;
+	}
+
+	/**
+	 * Like {@link #acquire(Node)} for the first page of a listing, and the
+	 * node chosen then for all further pages
+	 */
+	Node acquirePinned( Pin pin ) {
+		Node node = pin.node;
+		if ( node == null )
+			pin.node = node = choose( null );
+		node.outstanding.incrementAndGet();
+		return node;
+	}
+
+	/**
+	 * @return the primary, for a write
+	 */
+	Node acquirePrimary() {
+		Node node = getPrimary();
+		node.outstanding.incrementAndGet();
+		return node;
+	}
+
+	/**
+	 * Ends a request and records its outcome
+	 *
+	 * @param failed
+	 *            - whether the node failed to answer or answered with a
+	 *            server error
+	 */
+	void release( Node node, boolean failed ) {
+		node.outstanding.decrementAndGet();
+		if ( !failed ) {
+			if ( node.failures.get() != 0 )
+				node.failures.set( 0 );
+			if ( node.ejected ) {
+				synchronized ( node ) {
+					node.ejected = false;
+					node.ejections = 0;
+				}
+			}
+			return;
+		}
+		int threshold = ejectionThreshold;
+		if ( threshold > 0 && node.failures.incrementAndGet() >= threshold ) {
+			synchronized ( node ) {
+				long now = System.nanoTime();
+				// requests sent before the ejection may still fail
+				if ( !node.isAvailable( now ) )
+					return;
+				long duration = ejectionNanos << Math.min( node.ejections, MAX_BACKOFF_SHIFT );
+				node.ejections++;
+				node.ejectedUntil = now + duration;
+				node.ejected = true;
+				// a failure on the first request after the ejection ejects again
+				node.failures.set( threshold - 1 );
+			}
+		}
+	}
+
+	/**
+	 * @return whether a failed request counts against the node's health:
+	 *         connection failures and server errors do, client errors do
+	 *         not
+	 */
+	static boolean isNodeFailure( Throwable failure ) {
+		return RetryPolicy.isTransient( failure ) || Instrumentation.status( failure ) >= 500;
+	}
+
+	static boolean isNodeFailure( int status ) {
+		return RetryPolicy.isTransient( status ) || status >= 500;
+	}
+
+	private Node choose( Node exclude ) {
+		int size = nodes.size();
+		if ( size == 1 )
+			return nodes.get( 0 );
+		long now = System.nanoTime();
+		boolean roundRobin = policy == LoadBalancing.ROUND_ROBIN;
+		int start = Math.floorMod( next.getAndIncrement(), size );
+		Node best = null;
+		for ( int i = 0; i < size; i++ ) {
+			Node node = nodes.get( ( start + i ) % size );
+			if ( node == exclude || !node.isAvailable( now ) )
+				continue;
+			if ( roundRobin )
+				return node;
+			if ( best == null || node.outstanding.get() < best.outstanding.get() )
+				best = node;
+		}
+		if ( best != null )
+			return best;
+		if ( exclude != null && exclude.isAvailable( now ) )
+			return exclude;
+		for ( Node node : nodes )
+			if ( node != exclude && ( best == null || node.ejectedUntil - best.ejectedUntil < 0 ) )
+				best = node;
+		return best != null ? best : exclude;
+	}
+}
@@ -0,0 +1,26 @@
+package juglab.nexus.client;
+
+import java.util.List;
+
+/**
+ * One page of a paginated Nexus response: the decoded items and the token
+ * needed to request the next page (null on the last page)
+ */
+final class Page< T > {
+
+	private final List< T > items;
+	private final String continuationToken;
+
+	Page( List< T > items, String continuationToken ) {
+		this.items = items;
+		this.continuationToken = continuationToken;
+	}
+
+	List< T > getItems() {
+		return items;
+	}
+
+	String getContinuationToken() {
+		return continuationToken;
+	}
+}
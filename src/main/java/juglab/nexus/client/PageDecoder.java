@@ -0,0 +1,66 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+
+/**
+ * Single-pass decoder for paged Nexus responses of the form
+ * {@code {"items" : [...], "continuationToken" : "..."}}. Items are bound
+ * straight from the token stream into domain objects and the continuation
+ * token is picked up in the same pass, without an intermediate tree or map.
+ */
+final class PageDecoder< T > {
+
+	static final PageDecoder< Asset > ASSETS = new PageDecoder< Asset >( JsonReaders.ASSET );
+	static final PageDecoder< Component > COMPONENTS = new PageDecoder< Component >( JsonReaders.COMPONENT );
+
+	private static final JsonFactory JSON = JsonReaders.MAPPER.getFactory();
+	private static final String ITEMS = "items";
+	private static final String CONTINUATION_TOKEN = "continuationToken";
+
+	private final ObjectReader itemReader;
+
+	private PageDecoder( ObjectReader itemReader ) {
+		this.itemReader = itemReader;
+	}
+
+	Page< T > decode( String response ) throws IOException {
+		try ( JsonParser parser = JSON.createParser( response ) ) {
+			expect( parser.nextToken(), JsonToken.START_OBJECT );
+			List< T > items = Collections.emptyList();
+			String continuationToken = null;
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ( ITEMS.equals( field ) ) {
+					if ( value != JsonToken.VALUE_NULL ) {
+						expect( value, JsonToken.START_ARRAY );
+						items = new ArrayList< T >();
+						while ( parser.nextToken() != JsonToken.END_ARRAY )
+							items.add( itemReader.readValue( parser ) );
+					}
+				} else if ( CONTINUATION_TOKEN.equals( field ) ) {
+					continuationToken = value == JsonToken.VALUE_NULL ? null : parser.getText();
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return new Page< T >( items, continuationToken );
+		}
+	}
+
+	private static void expect( JsonToken actual, JsonToken expected ) throws IOException {
+		if ( actual != expected )
+			throw new IOException( "malformed page: expected " + expected + " but got " + actual );
+	}
+}
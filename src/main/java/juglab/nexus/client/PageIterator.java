@@ -0,0 +1,132 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Lazily walks a paginated Nexus listing. The next page is only requested
+ * once the consumer has exhausted the current one, so at most one page is
+ * held in memory and abandoning the iteration stops further requests.
+ */
+class PageIterator< T > implements Iterator< T >, AutoCloseable {
+
+	private final String endpoint;
+	private final Supplier< NexusClientListener > listener;
+	private final Function< String, String > pageRequest;
+	private final PageDecoder< T > decoder;
+	private Iterator< T > current = Collections.emptyIterator();
+	private String continuationToken;
+	private boolean lastPage;
+	private int pages;
+	private long items;
+	private long started;
+
+	/**
+	 * @param endpoint
+	 *            - name of the proxy method requesting the pages, for the
+	 *            listener
+	 * @param listener
+	 *            - notified of every decoded page and of the end of the
+	 *            listing
+	 * @param pageRequest
+	 *            - returns the raw response for a continuation token (null
+	 *            for the first page)
+	 * @param decoder
+	 *            - turns a raw response into a page
+	 */
+	PageIterator( String endpoint, Supplier< NexusClientListener > listener, Function< String, String > pageRequest, PageDecoder< T > decoder ) {
+		this.endpoint = endpoint;
+		this.listener = listener;
+		this.pageRequest = pageRequest;
+		this.decoder = decoder;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while ( !current.hasNext() ) {
+			if ( lastPage )
+				return false;
+			if ( pages == 0 )
+				started = System.nanoTime();
+			FetchedPage< T > fetched = nextPage( continuationToken );
+			Page< T > page = fetched.page;
+			current = page.getItems().iterator();
+			continuationToken = page.getContinuationToken();
+			lastPage = continuationToken == null;
+			pages++;
+			items += page.getItems().size();
+			NexusClientListener listener = this.listener.get();
+			listener.pageDecoded( endpoint, page.getItems().size(), fetched.waitNanos, fetched.decodeNanos );
+			if ( lastPage )
+				listener.listingCompleted( endpoint, pages, items, System.nanoTime() - started );
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if ( !hasNext() )
+			throw new NoSuchElementException();
+		return current.next();
+	}
+
+	/**
+	 * Releases resources held for pages not yet consumed
+	 */
+	@Override
+	public void close() {}
+
+	/**
+	 * @return the decoded page for the given continuation token; only called
+	 *         while more pages are available
+	 * @throws UncheckedNexusRestClientException
+	 *             if the page could not be retrieved or decoded
+	 */
+	protected FetchedPage< T > nextPage( String continuationToken ) {
+		return fetch( continuationToken );
+	}
+
+	/**
+	 * Requests and decodes the page for the given continuation token
+	 */
+	final FetchedPage< T > fetch( String continuationToken ) {
+		long start = System.nanoTime();
+		String response;
+		try {
+			response = pageRequest.apply( continuationToken );
+		} catch ( RuntimeException e ) {
+			throw new UncheckedNexusRestClientException( new NexusRestClientException( e ) );
+		}
+		long received = System.nanoTime();
+		Page< T > page;
+		try {
+			page = decoder.decode( response );
+		} catch ( RuntimeException | IOException e ) {
+			throw new UncheckedNexusRestClientException( new NexusRestClientException( e ) );
+		}
+		return new FetchedPage< T >( page, received - start, System.nanoTime() - received );
+	}
+
+	/**
+	 * A decoded page, how long the consumer waited for its response and how
+	 * long decoding it took
+	 */
+	static final class FetchedPage< T > {
+
+		final Page< T > page;
+		final long waitNanos;
+		final long decodeNanos;
+
+		FetchedPage( Page< T > page, long waitNanos, long decodeNanos ) {
+			this.page = page;
+			this.waitNanos = waitNanos;
+			this.decodeNanos = decodeNanos;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package juglab.nexus.client;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * {@link PageIterator} that requests and decodes page N+1 on a background
+ * thread as soon as page N is decoded, so the network transfer and decoding
+ * of the next page overlap with consuming the current one. Each page is
+ * decoded once, by the background thread, which takes the continuation token
+ * from the decoded page. At most {@code depth} pages are fetched ahead of the
+ * consumer.
+ */
+class PrefetchingPageIterator< T > extends PageIterator< T > {
+
+	private static final long POLL_MILLIS = 1000;
+
+	private final BlockingQueue< Object > prefetched;
+	private final Future< ? > producer;
+	private volatile boolean closed;
+
+	PrefetchingPageIterator( String endpoint, Supplier< NexusClientListener > listener, Function< String, String > pageRequest, PageDecoder< T > decoder, int depth, ExecutorService executor ) {
+		super( endpoint, listener, pageRequest, decoder );
+		this.prefetched = new ArrayBlockingQueue< Object >( depth );
+		this.producer = executor.submit( new Producer( this, prefetched ) );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	protected FetchedPage< T > nextPage( String continuationToken ) {
+		long start = System.nanoTime();
+		Object next;
+		try {
+			next = prefetched.take();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncheckedNexusRestClientException( new NexusRestClientException( e ) );
+		}
+		if ( next instanceof UncheckedNexusRestClientException )
+			throw ( UncheckedNexusRestClientException ) next;
+		FetchedPage< T > fetched = ( FetchedPage< T > ) next;
+		return new FetchedPage< T >( fetched.page, System.nanoTime() - start, fetched.decodeNanos );
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		producer.cancel( true );
+		prefetched.clear();
+	}
+
+	/**
+	 * Fetches pages into the queue until the last page, an error, or the
+	 * iterator is closed or no longer reachable. Holds the iterator weakly so
+	 * that an abandoned iteration does not pin a blocked producer forever.
+	 */
+	private static class Producer implements Runnable {
+
+		private final WeakReference< PrefetchingPageIterator< ? > > owner;
+		private final BlockingQueue< Object > prefetched;
+
+		Producer( PrefetchingPageIterator< ? > owner, BlockingQueue< Object > prefetched ) {
+			this.owner = new WeakReference< PrefetchingPageIterator< ? > >( owner );
+			this.prefetched = prefetched;
+		}
+
+		@Override
+		public void run() {
+			try {
+				String continuationToken = null;
+				do {
+					PrefetchingPageIterator< ? > iterator = owner.get();
+					if ( iterator == null || iterator.closed )
+						return;
+					FetchedPage< ? > page;
+					try {
+						page = iterator.fetch( continuationToken );
+					} catch ( UncheckedNexusRestClientException e ) {
+						put( e );
+						return;
+					} catch ( RuntimeException e ) {
+						put( new UncheckedNexusRestClientException( new NexusRestClientException( e ) ) );
+						return;
+					}
+					iterator = null;
+					continuationToken = page.page.getContinuationToken();
+					if ( !put( page ) )
+						return;
+				} while ( continuationToken != null );
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private boolean put( Object element ) throws InterruptedException {
+			while ( !prefetched.offer( element, POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+				PrefetchingPageIterator< ? > iterator = owner.get();
+				if ( iterator == null || iterator.closed )
+					return false;
+			}
+			return true;
+		}
+	}
+}
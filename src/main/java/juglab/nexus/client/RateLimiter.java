@@ -0,0 +1,70 @@
+package juglab.nexus.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket: permits are added at a fixed rate up to a burst size, and
+ * callers that find the bucket empty reserve a future permit and wait for it,
+ * so waiting callers are served in order at exactly the configured rate.
+ */
+final class RateLimiter {
+
+	private final double permitsPerNano;
+	private final double burst;
+	private double permits;
+	private long refilledAt;
+
+	/**
+	 * @param permitsPerSecond
+	 *            - sustained rate
+	 * @param burst
+	 *            - permits that may be taken at once after an idle period
+	 */
+	RateLimiter( double permitsPerSecond, int burst ) {
+		if ( !( permitsPerSecond > 0 ) )
+			throw new IllegalArgumentException( "rate must be positive: " + permitsPerSecond );
+		if ( burst < 1 )
+			throw new IllegalArgumentException( "burst must be at least 1: " + burst );
+		this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos( 1 );
+		this.burst = burst;
+		this.permits = burst;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Takes a permit, waiting until it is available
+	 */
+	void acquire() throws InterruptedException {
+		long wait = reserve();
+		if ( wait > 0 )
+			TimeUnit.NANOSECONDS.sleep( wait );
+	}
+
+	/**
+	 * Takes a permit if one is available right now
+	 */
+	synchronized boolean tryAcquire() {
+		refill();
+		if ( permits < 1 )
+			return false;
+		permits -= 1;
+		return true;
+	}
+
+	/**
+	 * Takes the next permit, which may lie in the future
+	 *
+	 * @return nanoseconds until the permit may be used
+	 */
+	synchronized long reserve() {
+		refill();
+		permits -= 1;
+		return permits >= 0 ? 0 : ( long ) Math.ceil( -permits / permitsPerNano );
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		permits = Math.min( burst, permits + ( now - refilledAt ) * permitsPerNano );
+		refilledAt = now;
+	}
+}
@@ -0,0 +1,93 @@
+package juglab.nexus.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ * Paces the calls of a {@link NexusRestClientProxy} with the client's rate
+ * limiter and repeats {@link GET} calls after transient failures. Calls
+ * returning a {@link Response} report error statuses instead of throwing;
+ * those are repeated too, and the last response is returned if all attempts
+ * fail.
+ */
+final class RetryHandler implements InvocationHandler {
+
+	private final NexusRestClientProxy target;
+	private final Supplier< RetryPolicy > retries;
+	private final Supplier< RateLimiter > limiter;
+	private final Supplier< NexusClientListener > listener;
+
+	private RetryHandler( NexusRestClientProxy target, Supplier< RetryPolicy > retries, Supplier< RateLimiter > limiter, Supplier< NexusClientListener > listener ) {
+		this.target = target;
+		this.retries = retries;
+		this.limiter = limiter;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param retries
+	 *            - looked up on every call
+	 * @param limiter
+	 *            - looked up before every attempt; may supply null for no
+	 *            limit
+	 * @param listener
+	 *            - notified of every retry
+	 */
+	static NexusRestClientProxy proxy( NexusRestClientProxy target, Supplier< RetryPolicy > retries, Supplier< RateLimiter > limiter, Supplier< NexusClientListener > listener ) {
+		return ( NexusRestClientProxy ) Proxy.newProxyInstance( NexusRestClientProxy.class.getClassLoader(),
+				new Class< ? >[] { NexusRestClientProxy.class }, new RetryHandler( target, retries, limiter, listener ) );
+	}
+
+	@Override
+	public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+		if ( method.getDeclaringClass() == Object.class )
+			return method.invoke( this, args );
+		RetryPolicy policy = method.isAnnotationPresent( GET.class ) ? retries.get() : RetryPolicy.NONE;
+		for ( int attempt = 1;; attempt++ ) {
+			acquire();
+			long delay;
+			try {
+				Object result = method.invoke( target, args );
+				if ( !( result instanceof Response ) || ( delay = policy.delay( attempt, ( Response ) result ) ) < 0 )
+					return result;
+				( ( Response ) result ).close();
+			} catch ( InvocationTargetException e ) {
+				if ( ( delay = policy.delay( attempt, e.getCause() ) ) < 0 )
+					throw e.getCause();
+			}
+			listener.get().requestRetried( method.getName(), attempt, delay );
+			sleep( delay );
+		}
+	}
+
+	private void acquire() {
+		RateLimiter limiter = this.limiter.get();
+		if ( limiter == null )
+			return;
+		try {
+			limiter.acquire();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ProcessingException( "interrupted while waiting for the rate limiter", e );
+		}
+	}
+
+	private static void sleep( long nanos ) {
+		try {
+			TimeUnit.NANOSECONDS.sleep( nanos );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ProcessingException( "interrupted while waiting to retry", e );
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package juglab.nexus.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Decides whether and when a failed idempotent request is repeated. Failures
+ * without a response and the statuses 408, 429, 502, 503 and 504 are
+ * transient; they are retried up to a number of attempts after an
+ * exponentially growing delay with full jitter, so that clients which failed
+ * together do not retry together. A {@code Retry-After} from the server
+ * takes precedence over a shorter delay; if it asks for more than the
+ * maximum delay, the failure is final.
+ */
+final class RetryPolicy {
+
+	/**
+	 * Makes a single attempt
+	 */
+	static final RetryPolicy NONE = new RetryPolicy( 1, 0, 0 );
+
+	/**
+	 * Three attempts, the second after up to 100ms
+	 */
+	static final RetryPolicy DEFAULT = new RetryPolicy( 3, TimeUnit.MILLISECONDS.toNanos( 100 ), TimeUnit.SECONDS.toNanos( 30 ) );
+
+	private static final String RETRY_AFTER = "Retry-After";
+
+	private final int maxAttempts;
+	private final long initialDelayNanos;
+	private final long maxDelayNanos;
+
+	/**
+	 * @param maxAttempts
+	 *            - attempts including the first one
+	 * @param initialDelayNanos
+	 *            - upper bound of the delay after the first failure, doubled
+	 *            after every further failure
+	 * @param maxDelayNanos
+	 *            - upper bound of any delay
+	 */
+	RetryPolicy( int maxAttempts, long initialDelayNanos, long maxDelayNanos ) {
+		if ( maxAttempts < 1 )
+			throw new IllegalArgumentException( "attempts must be at least 1: " + maxAttempts );
+		if ( initialDelayNanos < 0 || maxDelayNanos < initialDelayNanos )
+			throw new IllegalArgumentException( "invalid delays: " + initialDelayNanos + ", " + maxDelayNanos );
+		this.maxAttempts = maxAttempts;
+		this.initialDelayNanos = initialDelayNanos;
+		this.maxDelayNanos = maxDelayNanos;
+	}
+
+	/**
+	 * @param attempt
+	 *            - number of the attempt that failed, starting at 1
+	 * @return nanoseconds to wait before the next attempt, or -1 if the
+	 *         failure is final
+	 */
+	long delay( int attempt, Throwable failure ) {
+		if ( attempt >= maxAttempts || !isTransient( failure ) )
+			return -1;
+		WebApplicationException error = find( failure, WebApplicationException.class );
+		return delay( attempt, error == null ? null : error.getResponse() );
+	}
+
+	/**
+	 * @return nanoseconds to wait before repeating a request that was
+	 *         answered with {@code response}, or -1 if the response is final
+	 */
+	long delay( int attempt, Response response ) {
+		if ( attempt >= maxAttempts || response != null && !isTransient( response.getStatus() ) )
+			return -1;
+		long backoff = ( long ) Math.min( maxDelayNanos, initialDelayNanos * Math.pow( 2, attempt - 1 ) );
+		long delay = ThreadLocalRandom.current().nextLong( backoff + 1 );
+		long retryAfter = response == null ? 0 : retryAfter( response.getHeaderString( RETRY_AFTER ) );
+		if ( retryAfter > maxDelayNanos )
+			return -1;
+		return Math.max( delay, retryAfter );
+	}
+
+	/**
+	 * Failures of the connection are transient, failures of local files,
+	 * checksum mismatches and interruptions are not
+	 */
+	static boolean isTransient( Throwable failure ) {
+		for ( Throwable cause = failure; cause != null; cause = cause.getCause() ) {
+			if ( cause instanceof WebApplicationException ) {
+				Response response = ( ( WebApplicationException ) cause ).getResponse();
+				return response != null && isTransient( response.getStatus() );
+			}
+			if ( cause instanceof ChecksumMismatchException || cause instanceof FileSystemException || cause instanceof ClosedChannelException )
+				return false;
+			if ( cause instanceof SocketTimeoutException )
+				return true;
+			if ( cause instanceof InterruptedIOException )
+				return false;
+			if ( cause instanceof IOException )
+				return true;
+		}
+		return false;
+	}
+
+	static boolean isTransient( int status ) {
+		return status == 408 || status == 429 || status == 502 || status == 503 || status == 504;
+	}
+
+	/**
+	 * @return the delay requested by a {@code Retry-After} header in seconds
+	 *         or as an HTTP date, in nanoseconds; 0 if absent or invalid
+	 */
+	static long retryAfter( String value ) {
+		if ( value == null || value.trim().isEmpty() )
+			return 0;
+		value = value.trim();
+		try {
+			return TimeUnit.SECONDS.toNanos( Math.max( 0, Long.parseLong( value ) ) );
+		} catch ( NumberFormatException e ) {
+			// not a number of seconds
+		}
+		try {
+			long nanos = Duration.between( ZonedDateTime.now(), ZonedDateTime.parse( value, DateTimeFormatter.RFC_1123_DATE_TIME ) ).toNanos();
+			return Math.max( 0, nanos );
+		} catch ( DateTimeParseException | ArithmeticException e ) {
+			return 0;
+		}
+	}
+
+	private static < T > T find( Throwable failure, Class< T > type ) {
+		for ( Throwable cause = failure; cause != null; cause = cause.getCause() )
+			if ( type.isInstance( cause ) )
+				return type.cast( cause );
+		return null;
+	}
+}
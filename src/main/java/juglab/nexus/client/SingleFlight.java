@@ -0,0 +1,99 @@
+package juglab.nexus.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with equal keys: the first caller executes the
+ * call, and callers arriving while it is in flight wait for its result (or
+ * failure) instead of executing it again. Once the call completes, the next
+ * caller starts a new one, so results are never older than the call they
+ * joined.
+ * <p>
+ * Keys must not be modified while they are in use.
+ * </p>
+ */
+final class SingleFlight< K, V > {
+
+	interface Call< V > {
+
+		V call() throws NexusRestClientException;
+	}
+
+	private final ConcurrentHashMap< K, CompletableFuture< V > > inFlight = new ConcurrentHashMap< K, CompletableFuture< V > >();
+
+	/**
+	 * Executes the call on the calling thread, or waits for the equal call
+	 * in flight
+	 */
+	V run( K key, Call< V > call ) throws NexusRestClientException {
+		CompletableFuture< V > flight = new CompletableFuture< V >();
+		CompletableFuture< V > existing = inFlight.putIfAbsent( key, flight );
+		if ( existing != null )
+			return await( existing );
+		try {
+			V value = call.call();
+			inFlight.remove( key, flight );
+			flight.complete( value );
+			return value;
+		} catch ( NexusRestClientException | RuntimeException | Error e ) {
+			inFlight.remove( key, flight );
+			flight.completeExceptionally( e );
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts the call, or joins the equal call in flight. Each caller gets
+	 * its own dependent future, so cancelling it does not affect the others.
+	 */
+	CompletableFuture< V > runAsync( K key, Supplier< CompletableFuture< V > > call ) {
+		CompletableFuture< V > flight = new CompletableFuture< V >();
+		CompletableFuture< V > existing = inFlight.putIfAbsent( key, flight );
+		if ( existing != null )
+			return existing.thenApply( value -> value );
+		CompletableFuture< V > started;
+		try {
+			started = call.get();
+		} catch ( RuntimeException | Error e ) {
+			inFlight.remove( key, flight );
+			flight.completeExceptionally( e );
+			throw e;
+		}
+		started.whenComplete( ( value, failure ) -> {
+			inFlight.remove( key, flight );
+			if ( failure != null )
+				flight.completeExceptionally( failure );
+			else
+				flight.complete( value );
+		} );
+		return flight.thenApply( value -> value );
+	}
+
+	/**
+	 * @return number of calls in flight
+	 */
+	int size() {
+		return inFlight.size();
+	}
+
+	private static < V > V await( CompletableFuture< V > flight ) throws NexusRestClientException {
+		try {
+			return flight.get();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new NexusRestClientException( e );
+		} catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof NexusRestClientException )
+				throw ( NexusRestClientException ) cause;
+			if ( cause instanceof RuntimeException )
+				throw ( RuntimeException ) cause;
+			if ( cause instanceof Error )
+				throw ( Error ) cause;
+			throw new NexusRestClientException( cause );
+		}
+	}
+}
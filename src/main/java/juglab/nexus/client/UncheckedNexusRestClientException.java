@@ -0,0 +1,22 @@
+package juglab.nexus.client;
+
+import java.util.Objects;
+
+/**
+ * Wraps a {@link NexusRestClientException} thrown while consuming a lazily
+ * fetched {@link java.util.stream.Stream} or {@link java.util.Iterator}, where
+ * checked exceptions cannot be propagated.
+ */
+public class UncheckedNexusRestClientException extends RuntimeException {
+
+	private static final long serialVersionUID = -3581466219436830530L;
+
+	public UncheckedNexusRestClientException( NexusRestClientException cause ) {
+		super( Objects.requireNonNull( cause ) );
+	}
+
+	@Override
+	public NexusRestClientException getCause() {
+		return ( NexusRestClientException ) super.getCause();
+	}
+}
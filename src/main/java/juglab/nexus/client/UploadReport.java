@@ -0,0 +1,108 @@
+package juglab.nexus.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link NexusRestClient#uploadComponents(Collection)}: the outcome
+ * for every requested upload, in request order. A failing upload does not
+ * stop the others.
+ */
+public class UploadReport {
+
+	public enum Outcome {
+		UPLOADED,
+		/**
+		 * 400: the server refused the component, e.g. because the
+		 * repository does not allow redeploying it
+		 */
+		REJECTED,
+		/** 401 or 403: the user may not upload to the repository */
+		FORBIDDEN,
+		/** any other error, see {@link UploadReport#getFailure(ComponentUpload)} */
+		FAILED
+	}
+
+	private final Map< ComponentUpload, Outcome > outcomes = new LinkedHashMap< ComponentUpload, Outcome >();
+	private final Map< ComponentUpload, NexusRestClientException > failures = new HashMap< ComponentUpload, NexusRestClientException >();
+
+	UploadReport( Collection< ComponentUpload > uploads ) {
+		for ( ComponentUpload upload : uploads )
+			outcomes.put( upload, null );
+	}
+
+	synchronized void record( ComponentUpload upload, NexusRestClientException failure ) {
+		if ( failure == null ) {
+			outcomes.put( upload, Outcome.UPLOADED );
+			return;
+		}
+		failures.put( upload, failure );
+		switch ( failure.getHttpErrorCode() ) {
+		case 400:
+			outcomes.put( upload, Outcome.REJECTED );
+			break;
+		case 401:
+		case 403:
+			outcomes.put( upload, Outcome.FORBIDDEN );
+			break;
+		default:
+			outcomes.put( upload, Outcome.FAILED );
+		}
+	}
+
+	/**
+	 * @return the outcome of {@code upload}, or null if it was not part of
+	 *         the batch
+	 */
+	public synchronized Outcome getOutcome( ComponentUpload upload ) {
+		return outcomes.get( upload );
+	}
+
+	/**
+	 * @return the error for an upload that failed, or null
+	 */
+	public synchronized NexusRestClientException getFailure( ComponentUpload upload ) {
+		return failures.get( upload );
+	}
+
+	/**
+	 * @return the uploads with the given outcome, in request order, e.g. to
+	 *         repeat the failed ones
+	 */
+	public synchronized List< ComponentUpload > getUploads( Outcome outcome ) {
+		List< ComponentUpload > uploads = new ArrayList< ComponentUpload >();
+		for ( Map.Entry< ComponentUpload, Outcome > entry : outcomes.entrySet() )
+			if ( entry.getValue() == outcome )
+				uploads.add( entry.getKey() );
+		return uploads;
+	}
+
+	/**
+	 * @return the outcome of every upload, in request order
+	 */
+	public synchronized Map< ComponentUpload, Outcome > getOutcomes() {
+		return Collections.unmodifiableMap( new LinkedHashMap< ComponentUpload, Outcome >( outcomes ) );
+	}
+
+	/**
+	 * @return true if every component was uploaded
+	 */
+	public synchronized boolean isComplete() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		Map< Outcome, Integer > counts = new EnumMap< Outcome, Integer >( Outcome.class );
+		for ( Outcome outcome : outcomes.values() )
+			if ( outcome != null )
+				counts.merge( outcome, 1, Integer::sum );
+		return "UploadReport" + counts;
+	}
+}
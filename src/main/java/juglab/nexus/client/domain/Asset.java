@@ -1,9 +1,13 @@
 package juglab.nexus.client.domain;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-
 /**
  * Object representation of a Nexus asset
+ * <p>
+ * Listings can hold millions of assets, so they are kept compact: the
+ * repository and format are pooled, and a download URL that ends with the
+ * asset's path is held as the part before the path, shared by all assets of
+ * the repository, and rebuilt by {@link #getDownloadUrl()}.
+ * </p>
  * 
  * @author turek
  *
@@ -11,26 +15,27 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Asset {
 
-	@JsonProperty("downloadUrl")
+	/**
+	 * the download URL, or its part before {@link #path} if
+	 * {@link #urlPrefix} is set
+	 */
 	private String downloadUrl;
-	@JsonProperty("path")
+	private boolean urlPrefix;
 	private String path;
-	@JsonProperty("id")
 	private String id;
-	@JsonProperty("repository")
 	private String repository;
-	@JsonProperty("format")
 	private String format;
-	@JsonProperty("checksum")
 	private Checksum checksum;
 	
 	
 	public String getDownloadUrl() {
-		return downloadUrl;
+		return urlPrefix ? downloadUrl + path : downloadUrl;
 	}
 	
 	public void setDownloadUrl( String downloadUrl ) {
 		this.downloadUrl = downloadUrl;
+		this.urlPrefix = false;
+		shareUrlPrefix();
 	}
 	
 	public String getPath() {
@@ -38,7 +43,12 @@ public class Asset {
 	}
 	
 	public void setPath( String path ) {
+		if ( urlPrefix ) {
+			downloadUrl = downloadUrl + this.path;
+			urlPrefix = false;
+		}
 		this.path = path;
+		shareUrlPrefix();
 	}
 	
 	public String getId() {
@@ -54,7 +64,7 @@ public class Asset {
 	}
 	
 	public void setRepository( String repository ) {
-		this.repository = repository;
+		this.repository = StringPool.intern( repository );
 	}
 	
 	public String getFormat() {
@@ -62,7 +72,7 @@ public class Asset {
 	}
 	
 	public void setFormat( String format ) {
-		this.format = format;
+		this.format = StringPool.intern( format );
 	}
 	
 	public Checksum getChecksum() {
@@ -72,4 +82,16 @@ public class Asset {
 	public void setChecksum( Checksum checksum ) {
 		this.checksum = checksum;
 	}
+
+	/**
+	 * Both the URL and the path may be set first
+	 */
+	private void shareUrlPrefix() {
+		if ( urlPrefix || downloadUrl == null || path == null || path.isEmpty() )
+			return;
+		if ( downloadUrl.length() > path.length() && downloadUrl.endsWith( path ) ) {
+			downloadUrl = StringPool.intern( downloadUrl.substring( 0, downloadUrl.length() - path.length() ) );
+			urlPrefix = true;
+		}
+	}
 }
@@ -1,28 +1,264 @@
 package juglab.nexus.client.domain;
 
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 /**
- * 
+ * The digests Nexus reports for an asset. They are held in binary, the
+ * SHA-1 in two longs and an int and the MD5 in two longs, and converted
+ * from and to hex only when they are set or read as strings, so that
+ * comparing and hashing checksums does not touch any characters. Hex digits
+ * of either case are accepted, and read back in lowercase, so that digests
+ * differing only in case are equal. Values that are not hex of the expected
+ * length are kept as given.
+ *
  * @author turek
  *
  */
-
+@JsonDeserialize( using = ChecksumDeserializer.class )
 public class Checksum {
-	private String sha1;
-	private String md5;
-	
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final int SHA1_DIGITS = 40;
+	private static final int MD5_DIGITS = 32;
+	private static final byte SHA1 = 1;
+	private static final byte MD5 = 2;
+
+	private long sha1High;
+	private long sha1Middle;
+	private int sha1Low;
+	private long md5High;
+	private long md5Low;
+	/** which of the digests are held in binary */
+	private byte binary;
+	private String sha1Text;
+	private String md5Text;
+
+	/**
+	 * @return whether a SHA-1 is set, without formatting it
+	 */
+	public boolean hasSHA1() {
+		return ( binary & SHA1 ) != 0 || sha1Text != null;
+	}
+
+	/**
+	 * @param digest
+	 *            - e.g. from {@link java.security.MessageDigest#digest()}
+	 * @return whether the SHA-1 is set and equals {@code digest}, compared
+	 *         without converting either to hex
+	 */
+	public boolean sha1Matches( byte[] digest ) {
+		return ( binary & SHA1 ) != 0 && digest.length == SHA1_DIGITS / 2
+				&& sha1High == bytes( digest, 0, 8 ) && sha1Middle == bytes( digest, 8, 8 ) && sha1Low == ( int ) bytes( digest, 16, 4 );
+	}
+
 	public String getSHA1() {
-		return sha1;
+		if ( ( binary & SHA1 ) == 0 )
+			return sha1Text;
+		char[] chars = new char[ SHA1_DIGITS ];
+		format( sha1High, chars, 0, 16 );
+		format( sha1Middle, chars, 16, 16 );
+		format( sha1Low, chars, 32, 8 );
+		return new String( chars );
 	}
-	
+
 	public void setSHA1( String sha1 ) {
-		this.sha1 = sha1;
+		binary &= ~SHA1;
+		sha1High = sha1Middle = sha1Low = 0;
+		sha1Text = null;
+		if ( sha1 != null && !parseSHA1( sha1.toCharArray(), 0, sha1.length() ) )
+			sha1Text = sha1;
 	}
-	
+
+	/**
+	 * @return the SHA-1 as its 20 bytes, or null unless it is set and hex,
+	 *         e.g. to persist it without formatting it
+	 */
+	public byte[] getSHA1Bytes() {
+		if ( ( binary & SHA1 ) == 0 )
+			return null;
+		byte[] digest = new byte[ SHA1_DIGITS / 2 ];
+		put( sha1High, digest, 0, 8 );
+		put( sha1Middle, digest, 8, 8 );
+		put( sha1Low, digest, 16, 4 );
+		return digest;
+	}
+
+	/**
+	 * Sets the SHA-1 from its 20 bytes, as returned by
+	 * {@link #getSHA1Bytes()}, without parsing hex
+	 *
+	 * @throws IllegalArgumentException
+	 *             if {@code digest} is not 20 bytes
+	 */
+	public void setSHA1Bytes( byte[] digest ) {
+		if ( digest.length != SHA1_DIGITS / 2 )
+			throw new IllegalArgumentException( "a SHA-1 has " + SHA1_DIGITS / 2 + " bytes, not " + digest.length );
+		sha1High = bytes( digest, 0, 8 );
+		sha1Middle = bytes( digest, 8, 8 );
+		sha1Low = ( int ) bytes( digest, 16, 4 );
+		sha1Text = null;
+		binary |= SHA1;
+	}
+
+	/**
+	 * Like {@link #hasSHA1()}
+	 */
+	public boolean hasMD5() {
+		return ( binary & MD5 ) != 0 || md5Text != null;
+	}
+
+	/**
+	 * Like {@link #sha1Matches(byte[])}
+	 */
+	public boolean md5Matches( byte[] digest ) {
+		return ( binary & MD5 ) != 0 && digest.length == MD5_DIGITS / 2
+				&& md5High == bytes( digest, 0, 8 ) && md5Low == bytes( digest, 8, 8 );
+	}
+
 	public String getMD5() {
-		return md5;
+		if ( ( binary & MD5 ) == 0 )
+			return md5Text;
+		char[] chars = new char[ MD5_DIGITS ];
+		format( md5High, chars, 0, 16 );
+		format( md5Low, chars, 16, 16 );
+		return new String( chars );
 	}
-	
+
 	public void setMD5( String md5 ) {
-		this.md5 = md5;
+		binary &= ~MD5;
+		md5High = md5Low = 0;
+		md5Text = null;
+		if ( md5 != null && !parseMD5( md5.toCharArray(), 0, md5.length() ) )
+			md5Text = md5;
+	}
+
+	/**
+	 * Like {@link #getSHA1Bytes()}, 16 bytes
+	 */
+	public byte[] getMD5Bytes() {
+		if ( ( binary & MD5 ) == 0 )
+			return null;
+		byte[] digest = new byte[ MD5_DIGITS / 2 ];
+		put( md5High, digest, 0, 8 );
+		put( md5Low, digest, 8, 8 );
+		return digest;
+	}
+
+	/**
+	 * Like {@link #setSHA1Bytes(byte[])}, 16 bytes
+	 */
+	public void setMD5Bytes( byte[] digest ) {
+		if ( digest.length != MD5_DIGITS / 2 )
+			throw new IllegalArgumentException( "an MD5 has " + MD5_DIGITS / 2 + " bytes, not " + digest.length );
+		md5High = bytes( digest, 0, 8 );
+		md5Low = bytes( digest, 8, 8 );
+		md5Text = null;
+		binary |= MD5;
+	}
+
+	/**
+	 * Sets the SHA-1 from hex digits in a character buffer, e.g. that of a
+	 * JSON parser
+	 *
+	 * @return false, leaving the SHA-1 unchanged, unless the characters are
+	 *         a hex SHA-1, in either case
+	 */
+	boolean parseSHA1( char[] chars, int offset, int length ) {
+		if ( length != SHA1_DIGITS || !isHex( chars, offset, length ) )
+			return false;
+		sha1High = parse( chars, offset, 16 );
+		sha1Middle = parse( chars, offset + 16, 16 );
+		sha1Low = ( int ) parse( chars, offset + 32, 8 );
+		sha1Text = null;
+		binary |= SHA1;
+		return true;
+	}
+
+	/**
+	 * Like {@link #parseSHA1(char[], int, int)}
+	 */
+	boolean parseMD5( char[] chars, int offset, int length ) {
+		if ( length != MD5_DIGITS || !isHex( chars, offset, length ) )
+			return false;
+		md5High = parse( chars, offset, 16 );
+		md5Low = parse( chars, offset + 16, 16 );
+		md5Text = null;
+		binary |= MD5;
+		return true;
+	}
+
+	private static boolean isHex( char[] chars, int offset, int length ) {
+		for ( int i = offset; i < offset + length; i++ ) {
+			char c = chars[ i ];
+			if ( ( c < '0' || c > '9' ) && ( c < 'a' || c > 'f' ) && ( c < 'A' || c > 'F' ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Setting bit 5 maps an uppercase hex letter to its lowercase form
+	 */
+	private static long parse( char[] chars, int offset, int digits ) {
+		long value = 0;
+		for ( int i = offset; i < offset + digits; i++ ) {
+			char c = chars[ i ];
+			value = value << 4 | ( c <= '9' ? c - '0' : ( c | 0x20 ) - 'a' + 10 );
+		}
+		return value;
+	}
+
+	/**
+	 * @return {@code length} bytes from {@code offset}, big-endian
+	 */
+	private static long bytes( byte[] bytes, int offset, int length ) {
+		long value = 0;
+		for ( int i = offset; i < offset + length; i++ )
+			value = value << 8 | ( bytes[ i ] & 0xff );
+		return value;
+	}
+
+	/**
+	 * Stores the low {@code length} bytes of {@code value} at
+	 * {@code offset}, big-endian
+	 */
+	private static void put( long value, byte[] bytes, int offset, int length ) {
+		for ( int i = offset + length - 1; i >= offset; i-- ) {
+			bytes[ i ] = ( byte ) value;
+			value >>>= 8;
+		}
+	}
+
+	private static void format( long value, char[] chars, int offset, int digits ) {
+		for ( int i = offset + digits - 1; i >= offset; i-- ) {
+			chars[ i ] = HEX[ ( int ) value & 0xf ];
+			value >>>= 4;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = ( binary & SHA1 ) != 0 ? sha1High : ( binary & MD5 ) != 0 ? md5High : 0;
+		return ( int ) ( hash ^ hash >>> 32 ) * 31 + Objects.hashCode( sha1Text ) + Objects.hashCode( md5Text );
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof Checksum ) )
+			return false;
+		Checksum other = ( Checksum ) obj;
+		return binary == other.binary
+				&& sha1High == other.sha1High && sha1Middle == other.sha1Middle && sha1Low == other.sha1Low
+				&& md5High == other.md5High && md5Low == other.md5Low
+				&& Objects.equals( sha1Text, other.sha1Text ) && Objects.equals( md5Text, other.md5Text );
+	}
+
+	@Override
+	public String toString() {
+		return "Checksum [sha1=" + getSHA1() + ", md5=" + getMD5() + "]";
 	}
 }
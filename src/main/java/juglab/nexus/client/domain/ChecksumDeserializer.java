@@ -0,0 +1,47 @@
+package juglab.nexus.client.domain;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads a Nexus {@code checksum} object, decoding the hex digests straight
+ * from the parser's character buffer into a {@link Checksum} without
+ * creating a string for them. Other digests, e.g. {@code sha256}, are
+ * skipped.
+ */
+final class ChecksumDeserializer extends StdDeserializer< Checksum > {
+
+	private static final long serialVersionUID = 1L;
+
+	ChecksumDeserializer() {
+		super( Checksum.class );
+	}
+
+	@Override
+	public Checksum deserialize( JsonParser parser, DeserializationContext context ) throws IOException {
+		JsonToken token = parser.getCurrentToken();
+		if ( token == JsonToken.START_OBJECT )
+			token = parser.nextToken();
+		if ( token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT )
+			return ( Checksum ) context.handleUnexpectedToken( Checksum.class, parser );
+		Checksum checksum = new Checksum();
+		for ( ; token == JsonToken.FIELD_NAME; token = parser.nextToken() ) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ( value != JsonToken.VALUE_STRING ) {
+				parser.skipChildren();
+			} else if ( "sha1".equals( field ) ) {
+				if ( !checksum.parseSHA1( parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength() ) )
+					checksum.setSHA1( parser.getText() );
+			} else if ( "md5".equals( field ) ) {
+				if ( !checksum.parseMD5( parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength() ) )
+					checksum.setMD5( parser.getText() );
+			}
+		}
+		return checksum;
+	}
+}
@@ -1,9 +1,11 @@
 package juglab.nexus.client.domain;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Object representation of a Nexus component
+ * Object representation of a Nexus component. Like {@link Asset}, it pools
+ * its repository and format, which repeat across a listing.
  * 
  * @author turek
  *
@@ -31,7 +33,7 @@ public class Component {
 	}
 
 	public void setRepository( String repository ) {
-		this.repository = repository;
+		this.repository = StringPool.intern( repository );
 	}
 
 	public String getFormat() {
@@ -39,7 +41,7 @@ public class Component {
 	}
 
 	public void setFormat( String format ) {
-		this.format = format;
+		this.format = StringPool.intern( format );
 	}
 
 	public String getGroup() {
@@ -70,7 +72,12 @@ public class Component {
 		return assets;
 	}
 
+	/**
+	 * @param assets
+	 *            - copied into a list without spare capacity; the caller's
+	 *            list is left as it is
+	 */
 	public void setAssets( List<Asset> assets ) {
-		this.assets = assets;
+		this.assets = assets == null ? null : new ArrayList< Asset >( assets );
 	}
 }
@@ -1,5 +1,7 @@
 package juglab.nexus.client.domain;
 
+import java.util.Objects;
+
 import javax.validation.constraints.Null;
 
 /**
@@ -72,6 +74,16 @@ public class Query {
 		this.orderBy = orderBy;
 	}
 
+	/**
+	 * Copy of another query, e.g. to keep it as a key while the original
+	 * may still be modified
+	 * 
+	 * @param q
+	 */
+	public Query( Query q ) {
+		this( q.keyword, q.repository, q.format, q.group, q.name, q.version, q.mavenGroupId, q.mavenArtifactId, q.sortBy, q.orderBy );
+	}
+
 	public String getKeyword() {
 		return keyword;
 	}
@@ -163,4 +175,31 @@ public class Query {
 		this.orderBy = orderBy;
 	}
 
+	/**
+	 * Queries are equal if all their search parameters are equal
+	 */
+	@Override
+	public boolean equals( Object o ) {
+		if ( this == o )
+			return true;
+		if ( !( o instanceof Query ) )
+			return false;
+		Query q = ( Query ) o;
+		return Objects.equals( keyword, q.keyword )
+				&& Objects.equals( repository, q.repository )
+				&& Objects.equals( format, q.format )
+				&& Objects.equals( group, q.group )
+				&& Objects.equals( name, q.name )
+				&& Objects.equals( version, q.version )
+				&& Objects.equals( mavenGroupId, q.mavenGroupId )
+				&& Objects.equals( mavenArtifactId, q.mavenArtifactId )
+				&& sortBy == q.sortBy
+				&& orderBy == q.orderBy;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash( keyword, repository, format, group, name, version, mavenGroupId, mavenArtifactId, sortBy, orderBy );
+	}
+
 }
@@ -0,0 +1,38 @@
+package juglab.nexus.client.domain;
+
+/**
+ * Canonical instances of the few strings that repeat across millions of
+ * listed items (repositories, formats, download URL prefixes), so that each
+ * distinct value is mostly held once. The pool is a fixed table indexed by
+ * hash, in which a value replaces the one it collides with: it never grows,
+ * values seen once are soon evicted, and the values of a new listing take
+ * over from those of an earlier one. Fields with many distinct values, like
+ * groups, are not pooled.
+ */
+final class StringPool {
+
+	private static final int SLOTS = 1 << 12;
+	/**
+	 * Read and written without synchronization: strings are immutable, and a
+	 * lost update only costs a duplicate
+	 */
+	private static final String[] POOL = new String[ SLOTS ];
+
+	private StringPool() {}
+
+	/**
+	 * @return the pooled instance equal to {@code value}, or {@code value}
+	 *         itself, which is then pooled; null for null
+	 */
+	static String intern( String value ) {
+		if ( value == null )
+			return null;
+		int hash = value.hashCode();
+		int slot = ( hash ^ hash >>> 16 ) & ( SLOTS - 1 );
+		String pooled = POOL[ slot ];
+		if ( value.equals( pooled ) )
+			return pooled;
+		POOL[ slot ] = value;
+		return value;
+	}
+}
@@ -0,0 +1,61 @@
+package juglab.nexus.client.index;
+
+import juglab.nexus.client.domain.Asset;
+
+/**
+ * The group, name and version of the component an asset belongs to, which
+ * the assets endpoint does not return, derived from the asset's path the way
+ * Nexus lays out its repositories:
+ * <ul>
+ * <li>maven2: {@code org/example/lib/1.0/lib-1.0.jar} has group
+ * {@code org.example}, name {@code lib} and version {@code 1.0}; metadata at
+ * artifact level ({@code org/example/lib/maven-metadata.xml}) has no
+ * version</li>
+ * <li>other formats: the group is the directory with a leading slash and the
+ * name is the whole path, as for raw repositories</li>
+ * </ul>
+ */
+final class AssetCoordinates {
+
+	static final String MAVEN2 = "maven2";
+	private static final String MAVEN_METADATA = "maven-metadata.xml";
+
+	final String group;
+	final String name;
+	final String version;
+
+	private AssetCoordinates( String group, String name, String version ) {
+		this.group = group;
+		this.name = name;
+		this.version = version;
+	}
+
+	static AssetCoordinates of( Asset asset ) {
+		String path = asset.getPath();
+		if ( path == null )
+			return new AssetCoordinates( null, null, null );
+		if ( path.startsWith( "/" ) )
+			path = path.substring( 1 );
+		String[] segments = path.split( "/" );
+		int n = segments.length;
+		if ( MAVEN2.equals( asset.getFormat() ) ) {
+			String file = segments[ n - 1 ];
+			if ( n >= 4 && file.startsWith( segments[ n - 3 ] + "-" ) )
+				return new AssetCoordinates( join( segments, n - 3 ), segments[ n - 3 ], segments[ n - 2 ] );
+			if ( n >= 3 && file.startsWith( MAVEN_METADATA ) )
+				return new AssetCoordinates( join( segments, n - 2 ), segments[ n - 2 ], null );
+		}
+		int slash = path.lastIndexOf( '/' );
+		return new AssetCoordinates( slash < 0 ? "/" : "/" + path.substring( 0, slash ), path, null );
+	}
+
+	private static String join( String[] segments, int count ) {
+		StringBuilder group = new StringBuilder();
+		for ( int i = 0; i < count; i++ ) {
+			if ( i > 0 )
+				group.append( '.' );
+			group.append( segments[ i ] );
+		}
+		return group.toString();
+	}
+}
@@ -0,0 +1,613 @@
+package juglab.nexus.client.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.domain.Query;
+
+/**
+ * Read-only index of assets in a memory-mapped file, answering
+ * {@link Query}s locally instead of with paged search requests. The records,
+ * their strings and the sorted lookup tables all live in the mapped file, so
+ * the heap only holds the results of a search, however large the index is.
+ * <p>
+ * Queries match as described in {@link QueryMatch}. Repository, format,
+ * group, name and version (and the maven group and artifact id) are looked
+ * up by binary search, for a value or a prefix, in a table of record numbers
+ * sorted by that field; the most selective field is searched and the others
+ * are checked on its matches. Group, name and version are derived from the
+ * asset's path (see {@link AssetCoordinates}). A query that only has a
+ * keyword scans the whole index, looking for its words at the word starts of
+ * group, name, version and path; their lowercase forms are stored when the
+ * index is built, so that the scan compares bytes in place.
+ * Results are in the query's {@link Query.Sort sort} order, or in listing
+ * order if it has none.
+ * </p>
+ * Build an index with {@link #build(Path, Iterable)} from
+ * {@code listAssets}, or keep one up to date with
+ * {@link RefreshingAssetIndex}. Indexes are limited to 2GB.
+ */
+public final class AssetIndex {
+
+	private static final int MAGIC = 0x4e584149; // "NXAI"
+	private static final int FORMAT_VERSION = 3;
+	private static final int HEADER_BYTES = 32;
+	private static final int NULL = -1;
+	private static final byte BINARY_DIGEST = 1;
+	private static final byte TEXT_DIGEST = 2;
+
+	// fields of a record: offsets of their strings (digests: a flag and their
+	// raw bytes, or a flag and a string if not hex), or NULL
+	private static final int ID = 0;
+	private static final int REPOSITORY = 1;
+	private static final int FORMAT = 2;
+	private static final int PATH = 3;
+	private static final int DOWNLOAD_URL = 4;
+	private static final int SHA1 = 5;
+	private static final int MD5 = 6;
+	private static final int GROUP = 7;
+	private static final int NAME = 8;
+	private static final int VERSION = 9;
+	// lowercase forms, the same offset as the field if it is lowercase
+	private static final int LOWER_GROUP = 10;
+	private static final int LOWER_NAME = 11;
+	private static final int LOWER_VERSION = 12;
+	private static final int LOWER_PATH = 13;
+	private static final int FIELDS = 14;
+
+	/** fields with a sorted lookup table, in file order */
+	private static final int[] INDEXED = { REPOSITORY, FORMAT, GROUP, NAME, VERSION };
+	/** fields a keyword is searched in */
+	private static final int[] KEYWORD_FIELDS = { LOWER_GROUP, LOWER_NAME, LOWER_VERSION, LOWER_PATH };
+
+	private final Path file;
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int recordsOffset;
+	private final int tablesOffset;
+
+	private AssetIndex( Path file, ByteBuffer buffer ) throws IOException {
+		this.file = file;
+		this.buffer = buffer;
+		if ( buffer.capacity() < HEADER_BYTES || buffer.getInt( 0 ) != MAGIC )
+			throw new IOException( file + " is not an asset index" );
+		if ( buffer.getInt( 4 ) != FORMAT_VERSION )
+			throw new IOException( "unsupported asset index version " + buffer.getInt( 4 ) + " in " + file );
+		this.count = buffer.getInt( 8 );
+		this.recordsOffset = buffer.getInt( 12 );
+		this.tablesOffset = buffer.getInt( 16 );
+		if ( count < 0 || recordsOffset < HEADER_BYTES || ( long ) tablesOffset != recordsOffset + ( long ) count * FIELDS * 4
+				|| buffer.capacity() != tablesOffset + ( long ) count * INDEXED.length * 4 )
+			throw new IOException( "malformed asset index " + file );
+	}
+
+	/**
+	 * Maps an existing index file
+	 */
+	public static AssetIndex open( Path file ) throws IOException {
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			if ( channel.size() > Integer.MAX_VALUE )
+				throw new IOException( "malformed asset index " + file );
+			return new AssetIndex( file, channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+		}
+	}
+
+	/**
+	 * Writes an index of {@code assets} to {@code file}, replacing it
+	 * atomically, and maps it. The assets are streamed to disk, so only the
+	 * distinct repeated values and one int per asset are held in memory while
+	 * building.
+	 *
+	 * @param assets
+	 *            - e.g. the result of {@code listAssets}, or
+	 *            {@code listAssetsStream( repository )::iterator}
+	 */
+	public static AssetIndex build( Path file, Iterable< Asset > assets ) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories( dir );
+		String temp = "." + file.getFileName() + "." + UUID.randomUUID();
+		Path indexFile = dir.resolve( temp + ".tmp" );
+		Path recordsFile = dir.resolve( temp + ".records" );
+		try {
+			int count = 0;
+			int recordsOffset;
+			try ( DataOutputStream data = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( indexFile, StandardOpenOption.CREATE_NEW ), 1 << 16 ) );
+					DataOutputStream records = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( recordsFile, StandardOpenOption.CREATE_NEW ), 1 << 16 ) ) ) {
+				data.write( new byte[ HEADER_BYTES ] );
+				StringWriter strings = new StringWriter( data );
+				for ( Asset asset : assets ) {
+					AssetCoordinates coordinates = AssetCoordinates.of( asset );
+					Checksum checksum = asset.getChecksum();
+					records.writeInt( strings.write( asset.getId() ) );
+					records.writeInt( strings.writeShared( asset.getRepository() ) );
+					records.writeInt( strings.writeShared( asset.getFormat() ) );
+					int path = strings.write( asset.getPath() );
+					records.writeInt( path );
+					records.writeInt( strings.write( asset.getDownloadUrl() ) );
+					if ( checksum == null ) {
+						records.writeInt( NULL );
+						records.writeInt( NULL );
+					} else {
+						byte[] sha1 = checksum.getSHA1Bytes();
+						records.writeInt( strings.writeDigest( sha1, sha1 == null ? checksum.getSHA1() : null ) );
+						byte[] md5 = checksum.getMD5Bytes();
+						records.writeInt( strings.writeDigest( md5, md5 == null ? checksum.getMD5() : null ) );
+					}
+					int group = strings.writeShared( coordinates.group );
+					int name = strings.writeShared( coordinates.name );
+					int version = strings.writeShared( coordinates.version );
+					records.writeInt( group );
+					records.writeInt( name );
+					records.writeInt( version );
+					records.writeInt( strings.writeSharedLowerCase( coordinates.group, group ) );
+					records.writeInt( strings.writeSharedLowerCase( coordinates.name, name ) );
+					records.writeInt( strings.writeSharedLowerCase( coordinates.version, version ) );
+					records.writeInt( strings.writeLowerCase( asset.getPath(), path ) );
+					count++;
+				}
+				recordsOffset = strings.offset();
+			}
+			long tablesOffset = recordsOffset + ( long ) count * FIELDS * 4;
+			long size = tablesOffset + ( long ) count * INDEXED.length * 4;
+			if ( size > Integer.MAX_VALUE )
+				throw new IOException( "asset index exceeds 2GB" );
+			try ( FileChannel channel = FileChannel.open( indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE );
+					FileChannel recordsChannel = FileChannel.open( recordsFile, StandardOpenOption.READ ) ) {
+				for ( long done = 0; done < recordsChannel.size(); )
+					done += channel.transferFrom( recordsChannel, recordsOffset + done, recordsChannel.size() - done );
+				MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+				int[] order = new int[ count ];
+				int[] scratch = new int[ count ];
+				for ( int t = 0; t < INDEXED.length; t++ ) {
+					int field = INDEXED[ t ];
+					for ( int i = 0; i < count; i++ )
+						order[ i ] = i;
+					sort( order, scratch, 0, count, ( a, b ) -> compare( buffer, field( buffer, recordsOffset, a, field ), field( buffer, recordsOffset, b, field ) ) );
+					int table = ( int ) tablesOffset + t * count * 4;
+					for ( int i = 0; i < count; i++ )
+						buffer.putInt( table + i * 4, order[ i ] );
+				}
+				buffer.putInt( 0, MAGIC );
+				buffer.putInt( 4, FORMAT_VERSION );
+				buffer.putInt( 8, count );
+				buffer.putInt( 12, recordsOffset );
+				buffer.putInt( 16, ( int ) tablesOffset );
+				buffer.force();
+			}
+			try {
+				Files.move( indexFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move( indexFile, file, StandardCopyOption.REPLACE_EXISTING );
+			}
+		} finally {
+			Files.deleteIfExists( recordsFile );
+			Files.deleteIfExists( indexFile );
+		}
+		return open( file );
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return number of indexed assets
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Evaluates a query against the index
+	 *
+	 * @return the matching assets, in the query's sort order
+	 */
+	public List< Asset > search( Query q ) {
+		List< Term > terms = new ArrayList< Term >();
+		addTerm( terms, REPOSITORY, q.getRepository() );
+		addTerm( terms, FORMAT, q.getFormat() );
+		addTerm( terms, GROUP, q.getGroup() );
+		addTerm( terms, NAME, q.getName() );
+		addTerm( terms, VERSION, q.getVersion() );
+		if ( q.getMavenGroupId() != null || q.getMavenArtifactId() != null ) {
+			addTerm( terms, FORMAT, AssetCoordinates.MAVEN2 );
+			addTerm( terms, GROUP, q.getMavenGroupId() );
+			addTerm( terms, NAME, q.getMavenArtifactId() );
+		}
+		List< String > words = QueryMatch.words( q.getKeyword() );
+		byte[][] keyword = new byte[ words.size() ][];
+		for ( int i = 0; i < keyword.length; i++ )
+			keyword[ i ] = words.get( i ).getBytes( StandardCharsets.UTF_8 );
+		ByteBuffer view = buffer.duplicate();
+
+		int[] candidates;
+		int candidateCount;
+		Term narrowest = null;
+		for ( Term term : terms ) {
+			term.lookup();
+			if ( narrowest == null || term.to - term.from < narrowest.to - narrowest.from )
+				narrowest = term;
+		}
+		if ( narrowest != null ) {
+			candidateCount = narrowest.to - narrowest.from;
+			candidates = new int[ candidateCount ];
+			for ( int i = 0; i < candidateCount; i++ )
+				candidates[ i ] = buffer.getInt( narrowest.table + ( narrowest.from + i ) * 4 );
+			// back to listing order
+			Arrays.sort( candidates );
+		} else {
+			candidateCount = count;
+			candidates = null;
+		}
+
+		Term[] conditions = terms.toArray( new Term[ terms.size() ] );
+		List< Hit > hits = new ArrayList< Hit >();
+		for ( int i = 0; i < candidateCount; i++ ) {
+			int record = candidates == null ? i : candidates[ i ];
+			if ( matches( record, conditions, narrowest, keyword ) )
+				hits.add( new Hit( view, record ) );
+		}
+		Comparator< Hit > order = QueryOrder.of( q, hit -> hit.group, hit -> hit.name, hit -> hit.version, hit -> hit.asset.getRepository() );
+		if ( order != null )
+			hits.sort( order );
+		List< Asset > assets = new ArrayList< Asset >( hits.size() );
+		for ( Hit hit : hits )
+			assets.add( hit.asset );
+		return assets;
+	}
+
+	/**
+	 * Runs for every record a query scans, so it reads the mapped file in
+	 * place and allocates nothing
+	 *
+	 * @param keyword
+	 *            - the keyword's words, lowercase UTF-8
+	 */
+	private boolean matches( int record, Term[] terms, Term narrowest, byte[][] keyword ) {
+		for ( Term term : terms )
+			if ( term != narrowest && term.compare( field( buffer, recordsOffset, record, term.field ) ) != 0 )
+				return false;
+		words: for ( byte[] word : keyword ) {
+			for ( int field : KEYWORD_FIELDS )
+				if ( hasWord( buffer, field( buffer, recordsOffset, record, field ), word ) )
+					continue words;
+			return false;
+		}
+		return true;
+	}
+
+	private void addTerm( List< Term > terms, int field, String value ) {
+		if ( value != null )
+			terms.add( new Term( field, value ) );
+	}
+
+	/**
+	 * A condition on a field, its value or a prefix, and the range of its
+	 * matches in the field's sorted table
+	 */
+	private final class Term {
+
+		final int field;
+		final byte[] value;
+		final boolean prefix;
+		final int table;
+		int from;
+		int to;
+
+		Term( int field, String value ) {
+			this.field = field;
+			String prefix = QueryMatch.prefix( value );
+			this.prefix = prefix != null;
+			this.value = ( prefix != null ? prefix : value ).getBytes( StandardCharsets.UTF_8 );
+			int t = 0;
+			while ( INDEXED[ t ] != field )
+				t++;
+			this.table = tablesOffset + t * count * 4;
+		}
+
+		void lookup() {
+			from = bound( false );
+			to = bound( true );
+		}
+
+		/**
+		 * @return the first position whose value is greater than (or, if
+		 *         {@code !after}, at least) the term's value
+		 */
+		private int bound( boolean after ) {
+			int lo = 0, hi = count;
+			while ( lo < hi ) {
+				int mid = ( lo + hi ) >>> 1;
+				int c = compare( field( buffer, recordsOffset, buffer.getInt( table + mid * 4 ), field ) );
+				if ( c < 0 || ( after && c == 0 ) )
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		/**
+		 * @return how a string of the file orders against the matching
+		 *         values: 0 if it matches
+		 */
+		int compare( int offset ) {
+			return prefix ? comparePrefix( buffer, offset, value ) : AssetIndex.compare( buffer, offset, value );
+		}
+	}
+
+	/**
+	 * A matching record, decoded for the result
+	 */
+	private final class Hit {
+
+		final Asset asset = new Asset();
+		final String group;
+		final String name;
+		final String version;
+
+		Hit( ByteBuffer view, int record ) {
+			asset.setId( string( view, field( buffer, recordsOffset, record, ID ) ) );
+			asset.setRepository( string( view, field( buffer, recordsOffset, record, REPOSITORY ) ) );
+			asset.setFormat( string( view, field( buffer, recordsOffset, record, FORMAT ) ) );
+			asset.setPath( string( view, field( buffer, recordsOffset, record, PATH ) ) );
+			asset.setDownloadUrl( string( view, field( buffer, recordsOffset, record, DOWNLOAD_URL ) ) );
+			int sha1 = field( buffer, recordsOffset, record, SHA1 );
+			int md5 = field( buffer, recordsOffset, record, MD5 );
+			if ( sha1 != NULL || md5 != NULL ) {
+				Checksum checksum = new Checksum();
+				if ( sha1 != NULL && view.get( sha1 ) == BINARY_DIGEST )
+					checksum.setSHA1Bytes( bytes( view, sha1 + 1, 20 ) );
+				else if ( sha1 != NULL )
+					checksum.setSHA1( string( view, sha1 + 1 ) );
+				if ( md5 != NULL && view.get( md5 ) == BINARY_DIGEST )
+					checksum.setMD5Bytes( bytes( view, md5 + 1, 16 ) );
+				else if ( md5 != NULL )
+					checksum.setMD5( string( view, md5 + 1 ) );
+				asset.setChecksum( checksum );
+			}
+			group = string( view, field( buffer, recordsOffset, record, GROUP ) );
+			name = string( view, field( buffer, recordsOffset, record, NAME ) );
+			version = string( view, field( buffer, recordsOffset, record, VERSION ) );
+		}
+	}
+
+	private static int field( ByteBuffer buffer, int recordsOffset, int record, int field ) {
+		return buffer.getInt( recordsOffset + ( record * FIELDS + field ) * 4 );
+	}
+
+	/**
+	 * @param view
+	 *            - a duplicate of the buffer owned by the caller, so that
+	 *            concurrent searches do not share a position
+	 */
+	private static String string( ByteBuffer view, int offset ) {
+		if ( offset == NULL )
+			return null;
+		byte[] bytes = new byte[ view.getInt( offset ) ];
+		view.position( offset + 4 );
+		view.get( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Like {@link #string(ByteBuffer, int)}, for raw bytes
+	 */
+	private static byte[] bytes( ByteBuffer view, int offset, int length ) {
+		byte[] bytes = new byte[ length ];
+		view.position( offset );
+		view.get( bytes );
+		return bytes;
+	}
+
+	/**
+	 * Compares two strings of the file by their UTF-8 bytes; null first
+	 */
+	private static int compare( ByteBuffer buffer, int a, int b ) {
+		if ( a == b )
+			return 0;
+		if ( a == NULL )
+			return -1;
+		if ( b == NULL )
+			return 1;
+		int lengthA = buffer.getInt( a ), lengthB = buffer.getInt( b );
+		for ( int i = 0, n = Math.min( lengthA, lengthB ); i < n; i++ ) {
+			int c = ( buffer.get( a + 4 + i ) & 0xff ) - ( buffer.get( b + 4 + i ) & 0xff );
+			if ( c != 0 )
+				return c;
+		}
+		return lengthA - lengthB;
+	}
+
+	private static int compare( ByteBuffer buffer, int offset, byte[] value ) {
+		if ( offset == NULL )
+			return -1;
+		int length = buffer.getInt( offset );
+		for ( int i = 0, n = Math.min( length, value.length ); i < n; i++ ) {
+			int c = ( buffer.get( offset + 4 + i ) & 0xff ) - ( value[ i ] & 0xff );
+			if ( c != 0 )
+				return c;
+		}
+		return length - value.length;
+	}
+
+	/**
+	 * Like {@link #compare(ByteBuffer, int, byte[])}, but 0 for any string
+	 * starting with {@code prefix}
+	 */
+	private static int comparePrefix( ByteBuffer buffer, int offset, byte[] prefix ) {
+		if ( offset == NULL )
+			return -1;
+		int length = buffer.getInt( offset );
+		for ( int i = 0, n = Math.min( length, prefix.length ); i < n; i++ ) {
+			int c = ( buffer.get( offset + 4 + i ) & 0xff ) - ( prefix[ i ] & 0xff );
+			if ( c != 0 )
+				return c;
+		}
+		return length < prefix.length ? -1 : 0;
+	}
+
+	/**
+	 * @return whether a word of a string of the file starts with
+	 *         {@code word}, comparing UTF-8 bytes; bytes of non-ASCII
+	 *         characters count as letters
+	 */
+	private static boolean hasWord( ByteBuffer buffer, int offset, byte[] word ) {
+		if ( offset == NULL )
+			return false;
+		int start = offset + 4;
+		int last = start + buffer.getInt( offset ) - word.length;
+		outer: for ( int i = start; i <= last; i++ ) {
+			if ( !isWordByte( buffer.get( i ) ) || ( i > start && isWordByte( buffer.get( i - 1 ) ) ) )
+				continue;
+			for ( int j = 0; j < word.length; j++ )
+				if ( buffer.get( i + j ) != word[ j ] )
+					continue outer;
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean isWordByte( byte b ) {
+		return b < 0 || ( b >= '0' && b <= '9' ) || ( b >= 'a' && b <= 'z' ) || ( b >= 'A' && b <= 'Z' );
+	}
+
+	private interface IntComparator {
+
+		int compare( int a, int b );
+	}
+
+	/**
+	 * Stable merge sort of record numbers, avoiding boxed comparators
+	 */
+	private static void sort( int[] a, int[] scratch, int from, int to, IntComparator c ) {
+		if ( to - from < 16 ) {
+			for ( int i = from + 1; i < to; i++ ) {
+				int x = a[ i ];
+				int j = i - 1;
+				while ( j >= from && c.compare( a[ j ], x ) > 0 ) {
+					a[ j + 1 ] = a[ j ];
+					j--;
+				}
+				a[ j + 1 ] = x;
+			}
+			return;
+		}
+		int mid = ( from + to ) >>> 1;
+		sort( a, scratch, from, mid, c );
+		sort( a, scratch, mid, to, c );
+		if ( c.compare( a[ mid - 1 ], a[ mid ] ) <= 0 )
+			return;
+		System.arraycopy( a, from, scratch, from, to - from );
+		int i = from, j = mid, k = from;
+		while ( i < mid && j < to )
+			a[ k++ ] = c.compare( scratch[ j ], scratch[ i ] ) < 0 ? scratch[ j++ ] : scratch[ i++ ];
+		while ( i < mid )
+			a[ k++ ] = scratch[ i++ ];
+		while ( j < to )
+			a[ k++ ] = scratch[ j++ ];
+	}
+
+	/**
+	 * Appends strings as their UTF-8 length and bytes, writing each distinct
+	 * repeated value only once
+	 */
+	private static final class StringWriter {
+
+		private final DataOutputStream out;
+		private final Map< String, Integer > shared = new HashMap< String, Integer >();
+
+		StringWriter( DataOutputStream out ) {
+			this.out = out;
+		}
+
+		int offset() throws IOException {
+			int offset = out.size();
+			if ( offset < 0 || offset == Integer.MAX_VALUE )
+				throw new IOException( "asset index exceeds 2GB" );
+			return offset;
+		}
+
+		int write( String s ) throws IOException {
+			if ( s == null )
+				return NULL;
+			int offset = offset();
+			byte[] utf8 = s.getBytes( StandardCharsets.UTF_8 );
+			out.writeInt( utf8.length );
+			out.write( utf8 );
+			return offset;
+		}
+
+		/**
+		 * Writes a flag and {@code digest}, or if it is null a flag and
+		 * {@code text}
+		 */
+		int writeDigest( byte[] digest, String text ) throws IOException {
+			if ( digest == null && text == null )
+				return NULL;
+			int offset = offset();
+			if ( digest != null ) {
+				out.writeByte( BINARY_DIGEST );
+				out.write( digest );
+			} else {
+				out.writeByte( TEXT_DIGEST );
+				write( text );
+			}
+			return offset;
+		}
+
+		int writeShared( String s ) throws IOException {
+			if ( s == null )
+				return NULL;
+			Integer offset = shared.get( s );
+			if ( offset == null ) {
+				offset = write( s );
+				shared.put( s, offset );
+			}
+			return offset;
+		}
+
+		/**
+		 * @param offset
+		 *            - where {@code s} itself was written, which is reused
+		 *            if it is lowercase already
+		 */
+		int writeLowerCase( String s, int offset ) throws IOException {
+			if ( s == null )
+				return NULL;
+			String lower = s.toLowerCase( Locale.ROOT );
+			return lower.equals( s ) ? offset : write( lower );
+		}
+
+		/**
+		 * Like {@link #writeLowerCase(String, int)} for a repeated value
+		 */
+		int writeSharedLowerCase( String s, int offset ) throws IOException {
+			if ( s == null )
+				return NULL;
+			String lower = s.toLowerCase( Locale.ROOT );
+			return lower.equals( s ) ? offset : writeShared( lower );
+		}
+	}
+}
@@ -0,0 +1,446 @@
+package juglab.nexus.client.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import juglab.nexus.client.NexusRestClient;
+import juglab.nexus.client.NexusRestClientException;
+import juglab.nexus.client.UncheckedNexusRestClientException;
+import juglab.nexus.client.domain.Component;
+import juglab.nexus.client.domain.Query;
+
+/**
+ * In-heap search engine over components, answering {@link Query}s without a
+ * round trip to Nexus. Components are numbered in listing order, and every
+ * field has an inverted index from its distinct values (in sorted order) to
+ * the ascending numbers of the components having that value. Postings are
+ * plain int arrays, so an index of a few million components costs a few
+ * ints per component on top of the components themselves.
+ * <p>
+ * Queries match as described in {@link QueryMatch}: a prefix is a range of
+ * the sorted values, and each keyword word a range of the sorted words of
+ * group, name and version. Conditions are combined by intersecting their
+ * postings, smallest first. Results are in the query's
+ * {@link Query.Sort sort} order, or in listing order if it has none; sorting
+ * uses ranks computed when the index is built, so it costs no string
+ * comparisons.
+ * </p>
+ * An index is immutable and safe to search from several threads; to pick up
+ * changes, build a new one.
+ */
+public final class ComponentIndex {
+
+	private final Component[] components;
+
+	private final Field repositories;
+	private final Field formats;
+	private final Field groups;
+	private final Field names;
+	private final Field versions;
+	/** lower-case words of group, name and version */
+	private final Field keywords;
+
+	/** dense rank of each version term in {@link QueryOrder#VERSIONS} order */
+	private final int[] versionTermRanks;
+	/**
+	 * Position of each component in ascending group, name, version,
+	 * repository order, the tie-break of every sort, and its inverse
+	 */
+	private final int[] tieRanks;
+	private final int[] byTieRank;
+
+	private ComponentIndex( Component[] components ) {
+		this.components = components;
+		int n = components.length;
+		FieldBuilder repositories = new FieldBuilder();
+		FieldBuilder formats = new FieldBuilder();
+		FieldBuilder groups = new FieldBuilder();
+		FieldBuilder names = new FieldBuilder();
+		FieldBuilder versions = new FieldBuilder();
+		FieldBuilder keywords = new FieldBuilder();
+		for ( int i = 0; i < n; i++ ) {
+			Component c = components[ i ];
+			repositories.add( c.getRepository(), i );
+			formats.add( c.getFormat(), i );
+			groups.add( c.getGroup(), i );
+			names.add( c.getName(), i );
+			versions.add( c.getVersion(), i );
+			for ( String value : new String[] { c.getGroup(), c.getName(), c.getVersion() } )
+				for ( String word : QueryMatch.words( value ) )
+					keywords.add( word, i );
+		}
+		this.repositories = repositories.build( n );
+		this.formats = formats.build( n );
+		this.groups = groups.build( n );
+		this.names = names.build( n );
+		this.versions = versions.build( n );
+		this.keywords = keywords.build( -1 );
+
+		String[] versionTerms = this.versions.terms;
+		Integer[] byVersion = new Integer[ versionTerms.length ];
+		for ( int i = 0; i < byVersion.length; i++ )
+			byVersion[ i ] = i;
+		Arrays.sort( byVersion, ( a, b ) -> QueryOrder.VERSIONS.compare( versionTerms[ a ], versionTerms[ b ] ) );
+		this.versionTermRanks = new int[ versionTerms.length ];
+		for ( int i = 0, rank = -1; i < byVersion.length; i++ ) {
+			if ( i == 0 || QueryOrder.VERSIONS.compare( versionTerms[ byVersion[ i - 1 ] ], versionTerms[ byVersion[ i ] ] ) != 0 )
+				rank++;
+			versionTermRanks[ byVersion[ i ] ] = rank;
+		}
+
+		// stable counting sorts from the least significant key
+		int[] order = new int[ n ];
+		for ( int i = 0; i < n; i++ )
+			order[ i ] = i;
+		int[] scratch = new int[ n ];
+		countingSort( order, scratch, this.repositories.ids, this.repositories.terms.length, null );
+		countingSort( order, scratch, this.versions.ids, versionTerms.length, versionTermRanks );
+		countingSort( order, scratch, this.names.ids, this.names.terms.length, null );
+		countingSort( order, scratch, this.groups.ids, this.groups.terms.length, null );
+		this.tieRanks = scratch;
+		this.byTieRank = order;
+		for ( int rank = 0; rank < n; rank++ )
+			tieRanks[ order[ rank ] ] = rank;
+	}
+
+	/**
+	 * Indexes the given components; the index keeps references to them, so
+	 * they should not be modified afterwards
+	 */
+	public static ComponentIndex of( Iterable< Component > components ) {
+		List< Component > list = new ArrayList< Component >();
+		for ( Component component : components )
+			list.add( component );
+		return new ComponentIndex( list.toArray( new Component[ list.size() ] ) );
+	}
+
+	/**
+	 * Indexes the components of the given repositories
+	 */
+	public static ComponentIndex load( NexusRestClient client, String... repositories ) throws NexusRestClientException {
+		List< Component > list = new ArrayList< Component >();
+		for ( String repository : repositories ) {
+			try ( Stream< Component > stream = client.listComponentsStream( repository ) ) {
+				stream.forEach( list::add );
+			} catch ( UncheckedNexusRestClientException e ) {
+				throw e.getCause();
+			}
+		}
+		return new ComponentIndex( list.toArray( new Component[ list.size() ] ) );
+	}
+
+	/**
+	 * @return number of indexed components
+	 */
+	public int size() {
+		return components.length;
+	}
+
+	/**
+	 * Evaluates a query against the index
+	 *
+	 * @return the matching components, in the query's sort order
+	 */
+	public List< Component > search( Query q ) {
+		List< Condition > conditions = new ArrayList< Condition >();
+		addTerm( conditions, repositories, q.getRepository() );
+		addTerm( conditions, formats, q.getFormat() );
+		addTerm( conditions, groups, q.getGroup() );
+		addTerm( conditions, names, q.getName() );
+		addTerm( conditions, versions, q.getVersion() );
+		if ( q.getMavenGroupId() != null || q.getMavenArtifactId() != null ) {
+			addTerm( conditions, formats, AssetCoordinates.MAVEN2 );
+			addTerm( conditions, groups, q.getMavenGroupId() );
+			addTerm( conditions, names, q.getMavenArtifactId() );
+		}
+		if ( q.getKeyword() != null )
+			for ( String word : QueryMatch.words( q.getKeyword() ) )
+				conditions.add( new Condition( keywords, word ) );
+
+		Condition narrowest = null;
+		for ( Condition condition : conditions )
+			if ( narrowest == null || condition.size < narrowest.size )
+				narrowest = condition;
+		int[] matches;
+		int count;
+		if ( narrowest == null ) {
+			matches = new int[ components.length ];
+			for ( int i = 0; i < matches.length; i++ )
+				matches[ i ] = i;
+			count = matches.length;
+		} else {
+			matches = narrowest.matches();
+			count = 0;
+			candidates: for ( int doc : matches ) {
+				for ( Condition condition : conditions )
+					if ( condition != narrowest && !condition.test( doc ) )
+						continue candidates;
+				matches[ count++ ] = doc;
+			}
+		}
+
+		sort( q, matches, count );
+		List< Component > result = new ArrayList< Component >( count );
+		for ( int i = 0; i < count; i++ )
+			result.add( components[ matches[ i ] ] );
+		return result;
+	}
+
+	private void addTerm( List< Condition > conditions, Field field, String value ) {
+		if ( value == null )
+			return;
+		String prefix = QueryMatch.prefix( value );
+		if ( prefix != null ) {
+			conditions.add( new Condition( field, field.lower( prefix ), field.lower( prefix + Character.MAX_VALUE ), null ) );
+		} else {
+			int i = Arrays.binarySearch( field.terms, value );
+			conditions.add( i >= 0 ? new Condition( field, i, i + 1, null ) : new Condition( field, 0, 0, null ) );
+		}
+	}
+
+	/**
+	 * A condition on a field, satisfied by the terms in {@code [from, to)}
+	 */
+	private final class Condition {
+
+		final Field field;
+		final int from;
+		final int to;
+		/** for keywords, which are tested against the component itself */
+		final String word;
+		/** number of postings, at least the number of matches */
+		final long size;
+
+		Condition( Field keywords, String word ) {
+			this( keywords, keywords.lower( word ), keywords.lower( word + Character.MAX_VALUE ), word );
+		}
+
+		Condition( Field field, int from, int to, String word ) {
+			this.field = field;
+			this.from = from;
+			this.to = to;
+			this.word = word;
+			long size = 0;
+			for ( int t = from; t < to; t++ )
+				size += field.postings[ t ].length;
+			this.size = size;
+		}
+
+		boolean test( int doc ) {
+			if ( word == null ) {
+				int id = field.ids[ doc ];
+				return id >= from && id < to;
+			}
+			Component c = components[ doc ];
+			return hasWord( c.getGroup(), word ) || hasWord( c.getName(), word ) || hasWord( c.getVersion(), word );
+		}
+
+		/**
+		 * @return the ascending numbers of the matching components, in a new
+		 *         array
+		 */
+		int[] matches() {
+			int n = components.length;
+			if ( to - from == 1 )
+				return field.postings[ from ].clone();
+			if ( field.ids != null && size > n / 16 ) {
+				// cheaper to scan than to merge many postings
+				int[] matches = new int[ ( int ) size ];
+				int count = 0;
+				for ( int doc = 0; doc < n; doc++ ) {
+					int id = field.ids[ doc ];
+					if ( id >= from && id < to )
+						matches[ count++ ] = doc;
+				}
+				return matches;
+			}
+			if ( size > n / 64 ) {
+				long[] bits = new long[ ( n + 63 ) >>> 6 ];
+				for ( int t = from; t < to; t++ )
+					for ( int doc : field.postings[ t ] )
+						bits[ doc >>> 6 ] |= 1L << doc;
+				int count = 0;
+				for ( long word : bits )
+					count += Long.bitCount( word );
+				int[] matches = new int[ count ];
+				for ( int w = 0, i = 0; w < bits.length; w++ )
+					for ( long word = bits[ w ]; word != 0; word &= word - 1 )
+						matches[ i++ ] = w << 6 | Long.numberOfTrailingZeros( word );
+				return matches;
+			}
+			int[] union = new int[ ( int ) size ];
+			int count = 0;
+			for ( int t = from; t < to; t++ ) {
+				System.arraycopy( field.postings[ t ], 0, union, count, field.postings[ t ].length );
+				count += field.postings[ t ].length;
+			}
+			Arrays.sort( union );
+			// a component can have several words with the prefix
+			int distinct = 0;
+			for ( int i = 0; i < count; i++ )
+				if ( distinct == 0 || union[ distinct - 1 ] != union[ i ] )
+					union[ distinct++ ] = union[ i ];
+			return distinct == count ? union : Arrays.copyOf( union, distinct );
+		}
+	}
+
+	/**
+	 * Orders matches the way {@link QueryOrder} does, by packing the rank of
+	 * the sort field and the tie-break rank into one long per match
+	 */
+	private void sort( Query q, int[] matches, int count ) {
+		if ( q.getSortBy() == null )
+			return;
+		Query.Sort sort = Query.Sort.valueOf( q.getSortBy().toUpperCase( Locale.ROOT ) );
+		boolean descending = q.getOrderBy() == null ? sort == Query.Sort.VERSION : Query.Order.valueOf( q.getOrderBy().toUpperCase( Locale.ROOT ) ) == Query.Order.DESC;
+		Field field;
+		switch ( sort ) {
+		case GROUP:
+			field = groups;
+			break;
+		case NAME:
+			field = names;
+			break;
+		case VERSION:
+			field = versions;
+			break;
+		default:
+			field = repositories;
+		}
+		long[] keys = new long[ count ];
+		for ( int i = 0; i < count; i++ ) {
+			int doc = matches[ i ];
+			int id = field.ids[ doc ];
+			// null sorts first
+			long rank = id < 0 ? 0 : 1 + ( field == versions ? versionTermRanks[ id ] : id );
+			if ( descending )
+				rank = Integer.MAX_VALUE - rank;
+			keys[ i ] = rank << 32 | tieRanks[ doc ];
+		}
+		Arrays.sort( keys );
+		for ( int i = 0; i < count; i++ )
+			matches[ i ] = byTieRank[ ( int ) keys[ i ] ];
+	}
+
+	/**
+	 * Stable sort of {@code order} by the (optionally re-ranked) term id of
+	 * each component, null first
+	 */
+	private static void countingSort( int[] order, int[] scratch, int[] ids, int terms, int[] termRanks ) {
+		int[] counts = new int[ terms + 2 ];
+		for ( int doc : order )
+			counts[ key( ids[ doc ], termRanks ) + 1 ]++;
+		for ( int k = 1; k < counts.length; k++ )
+			counts[ k ] += counts[ k - 1 ];
+		for ( int doc : order )
+			scratch[ counts[ key( ids[ doc ], termRanks ) ]++ ] = doc;
+		System.arraycopy( scratch, 0, order, 0, order.length );
+	}
+
+	private static int key( int id, int[] termRanks ) {
+		return id < 0 ? 0 : 1 + ( termRanks == null ? id : termRanks[ id ] );
+	}
+
+	/**
+	 * @return whether a word of {@code value} starts with {@code prefix},
+	 *         ignoring case
+	 */
+	private static boolean hasWord( String value, String prefix ) {
+		if ( value == null )
+			return false;
+		for ( int i = 0; i <= value.length() - prefix.length(); i++ )
+			if ( Character.isLetterOrDigit( value.charAt( i ) ) && ( i == 0 || !Character.isLetterOrDigit( value.charAt( i - 1 ) ) )
+					&& value.regionMatches( true, i, prefix, 0, prefix.length() ) )
+				return true;
+		return false;
+	}
+
+	/**
+	 * Inverted index of one field: its distinct values in ascending order
+	 * and, for each, the ascending numbers of the components having it. For
+	 * fields with one value per component, also the position of each
+	 * component's value in the terms, or -1 for null.
+	 */
+	private static final class Field {
+
+		final String[] terms;
+		final int[][] postings;
+		final int[] ids;
+
+		Field( String[] terms, int[][] postings, int[] ids ) {
+			this.terms = terms;
+			this.postings = postings;
+			this.ids = ids;
+		}
+
+		/**
+		 * @return the position of the first term not less than {@code value}
+		 */
+		int lower( String value ) {
+			int i = Arrays.binarySearch( terms, value );
+			return i >= 0 ? i : -i - 1;
+		}
+	}
+
+	private static final class FieldBuilder {
+
+		private final Map< String, IntList > postings = new HashMap< String, IntList >();
+
+		void add( String value, int doc ) {
+			if ( value == null )
+				return;
+			IntList list = postings.get( value );
+			if ( list == null ) {
+				list = new IntList();
+				postings.put( value, list );
+			}
+			// a word can occur in several fields of the same component
+			if ( list.size == 0 || list.values[ list.size - 1 ] != doc )
+				list.add( doc );
+		}
+
+		/**
+		 * @param n
+		 *            - number of components, or -1 if they can have several
+		 *            values of the field
+		 */
+		Field build( int n ) {
+			String[] terms = postings.keySet().toArray( new String[ postings.size() ] );
+			Arrays.sort( terms );
+			int[][] lists = new int[ terms.length ][];
+			for ( int i = 0; i < terms.length; i++ )
+				lists[ i ] = postings.get( terms[ i ] ).toArray();
+			int[] ids = null;
+			if ( n >= 0 ) {
+				ids = new int[ n ];
+				Arrays.fill( ids, -1 );
+				for ( int t = 0; t < lists.length; t++ )
+					for ( int doc : lists[ t ] )
+						ids[ doc ] = t;
+			}
+			return new Field( terms, lists, ids );
+		}
+	}
+
+	private static final class IntList {
+
+		int[] values = new int[ 2 ];
+		int size;
+
+		void add( int value ) {
+			if ( size == values.length )
+				values = Arrays.copyOf( values, size + ( size >> 1 ) + 1 );
+			values[ size++ ] = value;
+		}
+
+		int[] toArray() {
+			return size == values.length ? values : Arrays.copyOf( values, size );
+		}
+	}
+}
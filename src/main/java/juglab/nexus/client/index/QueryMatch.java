@@ -0,0 +1,54 @@
+package juglab.nexus.client.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import juglab.nexus.client.domain.Query;
+
+/**
+ * Which items a {@link Query} matches, as Nexus's search does, shared by the
+ * local indexes. Repository, format, group, name and version (and the maven
+ * group and artifact id) match exactly, or by prefix if the value ends with
+ * {@code *}. The keyword is split into words at anything that is not a
+ * letter or digit, and each word must be a case-insensitive prefix of a word
+ * of the item's group, name or version, or of an asset's path. All
+ * conditions of a query must hold.
+ */
+final class QueryMatch {
+
+	static final String WILDCARD = "*";
+
+	private QueryMatch() {}
+
+	/**
+	 * @return the prefix a field value of a query matches, or null if it
+	 *         matches exactly
+	 */
+	static String prefix( String value ) {
+		return value.endsWith( WILDCARD ) ? value.substring( 0, value.length() - WILDCARD.length() ) : null;
+	}
+
+	/**
+	 * @return the lower-case words of a value, split at anything that is not
+	 *         a letter or digit
+	 */
+	static List< String > words( String value ) {
+		if ( value == null )
+			return Collections.emptyList();
+		List< String > words = new ArrayList< String >( 4 );
+		String lower = value.toLowerCase( Locale.ROOT );
+		int start = -1;
+		for ( int i = 0; i <= lower.length(); i++ ) {
+			boolean letter = i < lower.length() && Character.isLetterOrDigit( lower.charAt( i ) );
+			if ( letter && start < 0 )
+				start = i;
+			else if ( !letter && start >= 0 ) {
+				words.add( lower.substring( start, i ) );
+				start = -1;
+			}
+		}
+		return words;
+	}
+}
@@ -0,0 +1,95 @@
+package juglab.nexus.client.index;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+
+import juglab.nexus.client.domain.Query;
+
+/**
+ * Result order of a {@link Query} as Nexus applies it: by the sort field,
+ * ascending unless {@link Query.Order#DESC} is given, except for versions,
+ * which sort newest first by default. Ties are broken by group, name,
+ * version and repository in ascending order. Versions compare numerically
+ * segment by segment, so {@code 1.10} sorts after {@code 1.9}.
+ */
+final class QueryOrder {
+
+	/**
+	 * Natural order of version strings: runs of digits compare as numbers,
+	 * everything else character by character. Null sorts first.
+	 */
+	static final Comparator< String > VERSIONS = Comparator.nullsFirst( QueryOrder::compareVersions );
+
+	private static final Comparator< String > STRINGS = Comparator.nullsFirst( Comparator.< String >naturalOrder() );
+
+	private QueryOrder() {}
+
+	/**
+	 * @return the comparator for the query's sort, or null if the query is
+	 *         not sorted
+	 */
+	static < T > Comparator< T > of( Query q, Function< T, String > group, Function< T, String > name, Function< T, String > version, Function< T, String > repository ) {
+		if ( q.getSortBy() == null )
+			return null;
+		Query.Sort sort = Query.Sort.valueOf( q.getSortBy().toUpperCase( Locale.ROOT ) );
+		boolean descending = q.getOrderBy() == null ? sort == Query.Sort.VERSION : Query.Order.valueOf( q.getOrderBy().toUpperCase( Locale.ROOT ) ) == Query.Order.DESC;
+		Comparator< T > primary;
+		switch ( sort ) {
+		case GROUP:
+			primary = Comparator.comparing( group, STRINGS );
+			break;
+		case NAME:
+			primary = Comparator.comparing( name, STRINGS );
+			break;
+		case VERSION:
+			primary = Comparator.comparing( version, VERSIONS );
+			break;
+		default:
+			primary = Comparator.comparing( repository, STRINGS );
+		}
+		if ( descending )
+			primary = primary.reversed();
+		return primary
+				.thenComparing( group, STRINGS )
+				.thenComparing( name, STRINGS )
+				.thenComparing( version, VERSIONS )
+				.thenComparing( repository, STRINGS );
+	}
+
+	private static int compareVersions( String a, String b ) {
+		int i = 0, j = 0;
+		while ( i < a.length() && j < b.length() ) {
+			char ca = a.charAt( i ), cb = b.charAt( j );
+			if ( Character.isDigit( ca ) && Character.isDigit( cb ) ) {
+				int startA = i, startB = j;
+				while ( i < a.length() && Character.isDigit( a.charAt( i ) ) )
+					i++;
+				while ( j < b.length() && Character.isDigit( b.charAt( j ) ) )
+					j++;
+				int c = compareNumbers( a.substring( startA, i ), b.substring( startB, j ) );
+				if ( c != 0 )
+					return c;
+			} else {
+				if ( ca != cb )
+					return Character.compare( ca, cb );
+				i++;
+				j++;
+			}
+		}
+		return Integer.compare( a.length() - i, b.length() - j );
+	}
+
+	/**
+	 * Compares digit strings of any length by value
+	 */
+	private static int compareNumbers( String a, String b ) {
+		int startA = 0, startB = 0;
+		while ( startA < a.length() - 1 && a.charAt( startA ) == '0' )
+			startA++;
+		while ( startB < b.length() - 1 && b.charAt( startB ) == '0' )
+			startB++;
+		int c = Integer.compare( a.length() - startA, b.length() - startB );
+		return c != 0 ? c : a.substring( startA ).compareTo( b.substring( startB ) );
+	}
+}
@@ -0,0 +1,210 @@
+package juglab.nexus.client.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import juglab.nexus.client.NexusRestClient;
+import juglab.nexus.client.NexusRestClientException;
+import juglab.nexus.client.UncheckedNexusRestClientException;
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Query;
+
+/**
+ * An {@link AssetIndex} of some repositories, kept in a directory and rebuilt
+ * from their listings on {@link #refresh()} or periodically in the
+ * background. Each refresh writes a new index file and swaps it in once it is
+ * complete, so searches never block on a refresh and never see a partial
+ * index. An index left in the directory by a previous run is used until the
+ * first refresh.
+ */
+public class RefreshingAssetIndex implements AutoCloseable {
+
+	private static final String PREFIX = "assets-";
+	private static final String SUFFIX = ".idx";
+
+	private final NexusRestClient client;
+	private final Path directory;
+	private final List< String > repositories;
+	private final Object refreshLock = new Object();
+
+	private volatile AssetIndex index;
+	private volatile Exception lastRefreshFailure;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param directory
+	 *            - where index files are kept; should not be shared with
+	 *            another index
+	 * @param repositories
+	 *            - the repositories to index
+	 */
+	public RefreshingAssetIndex( NexusRestClient client, Path directory, String... repositories ) throws IOException {
+		this.client = client;
+		this.directory = directory;
+		this.repositories = Collections.unmodifiableList( new ArrayList< String >( Arrays.asList( repositories ) ) );
+		Files.createDirectories( directory );
+		Path latest = null;
+		try ( DirectoryStream< Path > files = Files.newDirectoryStream( directory, PREFIX + "*" + SUFFIX ) ) {
+			for ( Path file : files )
+				if ( latest == null || file.getFileName().toString().compareTo( latest.getFileName().toString() ) > 0 )
+					latest = file;
+		}
+		if ( latest != null ) {
+			try {
+				index = AssetIndex.open( latest );
+			} catch ( IOException e ) {
+				// unreadable leftover, rebuilt on refresh
+				Files.deleteIfExists( latest );
+			}
+		}
+	}
+
+	public List< String > getRepositories() {
+		return repositories;
+	}
+
+	/**
+	 * @return the current index, or null if there is none yet
+	 */
+	public AssetIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the failure of the last refresh, or null if it succeeded
+	 */
+	public Exception getLastRefreshFailure() {
+		return lastRefreshFailure;
+	}
+
+	/**
+	 * Evaluates a query against the current index
+	 *
+	 * @throws IllegalStateException
+	 *             if no index has been built yet
+	 */
+	public List< Asset > search( Query q ) {
+		AssetIndex current = index;
+		if ( current == null )
+			throw new IllegalStateException( "asset index has not been built yet" );
+		return current.search( q );
+	}
+
+	/**
+	 * Rebuilds the index from the repositories' listings. Concurrent calls
+	 * are serialized; searches continue against the previous index until the
+	 * new one is complete.
+	 */
+	public void refresh() throws NexusRestClientException, IOException {
+		synchronized ( refreshLock ) {
+			try {
+				Path file = directory.resolve( String.format( "%s%020d%s", PREFIX, System.currentTimeMillis(), SUFFIX ) );
+				AssetIndex previous = index;
+				if ( previous != null && previous.getFile().getFileName().equals( file.getFileName() ) )
+					file = directory.resolve( String.format( "%s%020d%s", PREFIX, System.currentTimeMillis() + 1, SUFFIX ) );
+				Listing listing = new Listing();
+				try {
+					index = AssetIndex.build( file, () -> listing );
+				} catch ( UncheckedNexusRestClientException e ) {
+					throw e.getCause();
+				} finally {
+					// a listing that failed part way still holds its stream
+					listing.close();
+				}
+				// the mapping of the previous index stays valid for searches still using it
+				if ( previous != null )
+					Files.deleteIfExists( previous.getFile() );
+				lastRefreshFailure = null;
+			} catch ( NexusRestClientException | IOException | RuntimeException e ) {
+				lastRefreshFailure = e;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the index every {@code period} on a background thread,
+	 * starting immediately. Failures are available from
+	 * {@link #getLastRefreshFailure()}; the previous index stays in use.
+	 */
+	public synchronized void start( long period, TimeUnit unit ) {
+		if ( scheduler != null )
+			throw new IllegalStateException( "already started" );
+		scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+			Thread thread = new Thread( r, "nexus-asset-index" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		scheduler.scheduleWithFixedDelay( () -> {
+			try {
+				refresh();
+			} catch ( NexusRestClientException | IOException | RuntimeException e ) {
+				// recorded in lastRefreshFailure
+			}
+		}, 0, period, unit );
+	}
+
+	/**
+	 * Stops background refreshes. The index files are kept for the next run.
+	 */
+	@Override
+	public synchronized void close() {
+		if ( scheduler != null ) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * The assets of all repositories, one listing at a time
+	 */
+	private final class Listing implements Iterator< Asset >, Closeable {
+
+		private final Iterator< String > remaining = repositories.iterator();
+		private Stream< Asset > stream;
+		private Iterator< Asset > current = Collections.emptyIterator();
+
+		@Override
+		public boolean hasNext() {
+			while ( !current.hasNext() ) {
+				close();
+				if ( !remaining.hasNext() )
+					return false;
+				stream = client.listAssetsStream( remaining.next() );
+				current = stream.iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public Asset next() {
+			if ( !hasNext() )
+				throw new NoSuchElementException();
+			return current.next();
+		}
+
+		/**
+		 * Closes the listing in progress, if any
+		 */
+		@Override
+		public void close() {
+			if ( stream != null ) {
+				stream.close();
+				stream = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package juglab.nexus.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (typically nanoseconds) with a relative
+ * error below 1.6% over the whole {@code long} range, in the style of
+ * HdrHistogram: values below 128 are counted exactly, larger values in 64
+ * linear sub-buckets per power of two. Recording is lock-free and does not
+ * allocate, so it can be called on every request; reading is for export and
+ * only consistent when no values are being recorded concurrently.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = ( 63 - SUB_BUCKET_BITS ) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value; negative values are recorded as 0
+	 */
+	public void record( long value ) {
+		if ( value < 0 )
+			value = 0;
+		counts.incrementAndGet( index( value ) );
+		count.increment();
+		sum.add( value );
+		long current;
+		while ( value > ( current = max.get() ) && !max.compareAndSet( current, value ) ) {}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the exact largest recorded value, or 0 if there is none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the exact mean of the recorded values, or 0 if there is none
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : ( double ) sum.sum() / n;
+	}
+
+	/**
+	 * @param percentile
+	 *            - between 0 and 100, e.g. 99.9
+	 * @return the upper bound of the bucket holding the value at the given
+	 *         percentile (never above {@link #getMax()}), or 0 if there are
+	 *         no values
+	 */
+	public long getValueAtPercentile( double percentile ) {
+		long total = 0;
+		for ( int i = 0; i < BUCKETS; i++ )
+			total += counts.get( i );
+		if ( total == 0 )
+			return 0;
+		long rank = Math.max( 1, ( long ) Math.ceil( Math.min( percentile, 100 ) / 100 * total ) );
+		long seen = 0;
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			seen += counts.get( i );
+			if ( seen >= rank )
+				return Math.min( upperBound( i ), getMax() );
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clears all recorded values
+	 */
+	public void reset() {
+		for ( int i = 0; i < BUCKETS; i++ )
+			counts.set( i, 0 );
+		count.reset();
+		sum.reset();
+		max.set( 0 );
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "count=%d, mean=%.0f, p50=%d, p99=%d, p99.9=%d, max=%d",
+				getCount(), getMean(), getValueAtPercentile( 50 ), getValueAtPercentile( 99 ), getValueAtPercentile( 99.9 ), getMax() );
+	}
+
+	static int index( long value ) {
+		int shift = Math.max( 0, 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS );
+		return shift * SUB_BUCKETS + ( int ) ( value >>> shift );
+	}
+
+	static long upperBound( int index ) {
+		if ( index < 2 * SUB_BUCKETS )
+			return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index - shift * SUB_BUCKETS;
+		long upper = ( ( subBucket + 1 ) << shift ) - 1;
+		return upper < 0 ? Long.MAX_VALUE : upper;
+	}
+}
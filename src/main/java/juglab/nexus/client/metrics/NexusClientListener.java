@@ -0,0 +1,128 @@
+package juglab.nexus.client.metrics;
+
+import java.net.URL;
+
+/**
+ * Receives timing and outcome events from a
+ * {@link juglab.nexus.client.NexusRestClient}. Events are delivered
+ * synchronously on the thread that made the call (for the {@code *Async}
+ * methods, one of the HTTP engine's I/O threads), so implementations must be
+ * thread-safe, fast and must not throw. All methods do nothing by default.
+ *
+ * @see NexusClientMetrics
+ */
+public interface NexusClientListener {
+
+	/**
+	 * Listener that ignores all events
+	 */
+	NexusClientListener NONE = new NexusClientListener() {};
+
+	/**
+	 * A REST call has completed or failed
+	 *
+	 * @param endpoint
+	 *            - name of the {@link juglab.nexus.client.NexusRestClientProxy}
+	 *            method, e.g. {@code searchAssets}
+	 * @param nanos
+	 *            - time from sending the request to receiving the response
+	 *            body
+	 * @param status
+	 *            - HTTP status of the response, or 0 if none was received.
+	 *            Successful calls whose status the client does not see are
+	 *            reported as 200 (204 for calls without a result).
+	 */
+	default void requestCompleted( String endpoint, long nanos, int status ) {}
+
+	/**
+	 * A REST call failed transiently and will be repeated. The failed attempt
+	 * has been reported to {@link #requestCompleted(String, long, int)}.
+	 *
+	 * @param attempt
+	 *            - number of the attempt that failed, starting at 1
+	 * @param delayNanos
+	 *            - time until the next attempt
+	 */
+	default void requestRetried( String endpoint, int attempt, long delayNanos ) {}
+
+	/**
+	 * A read has not been answered within the hedging delay and was sent to
+	 * a second node. Both requests are reported to
+	 * {@link #requestCompleted(String, long, int)}.
+	 *
+	 * @param delayNanos
+	 *            - time waited for the first node
+	 */
+	default void requestHedged( String endpoint, long delayNanos ) {}
+
+	/**
+	 * A page of a listing or search has been decoded
+	 *
+	 * @param endpoint
+	 *            - name of the proxy method that returned the page
+	 * @param items
+	 *            - number of items on the page
+	 * @param waitNanos
+	 *            - time the consumer waited for the page; less than the
+	 *            request latency if the page was prefetched
+	 * @param decodeNanos
+	 *            - time spent parsing the page's JSON
+	 */
+	default void pageDecoded( String endpoint, int items, long waitNanos, long decodeNanos ) {}
+
+	/**
+	 * A listing or search has been read up to its last page. Not reported for
+	 * listings that fail or are abandoned.
+	 *
+	 * @param pages
+	 *            - number of pages requested
+	 * @param items
+	 *            - total number of items
+	 * @param nanos
+	 *            - time from the first request to decoding the last page
+	 */
+	default void listingCompleted( String endpoint, int pages, long items, long nanos ) {}
+
+	/**
+	 * A download has completed or failed
+	 *
+	 * @param url
+	 *            - the asset's download URL
+	 * @param bytes
+	 *            - number of bytes read from the network by this download,
+	 *            over all its attempts and segments; a resumed download
+	 *            counts only what it received, and a download that used an
+	 *            unchanged or cached copy 0
+	 * @param nanos
+	 *            - total time of the download, including checksum
+	 *            verification
+	 * @param failure
+	 *            - why the download failed, or null
+	 */
+	default void downloadCompleted( URL url, long bytes, long nanos, Throwable failure ) {}
+
+	/**
+	 * A download, or one of its segments, failed transiently and will
+	 * continue from the bytes already received
+	 *
+	 * @param attempt
+	 *            - number of the attempt that failed, starting at 1
+	 * @param delayNanos
+	 *            - time until the next attempt
+	 */
+	default void downloadRetried( URL url, int attempt, long delayNanos ) {}
+
+	/**
+	 * An upload has completed or failed
+	 *
+	 * @param repository
+	 *            - the repository the component was uploaded to
+	 * @param bytes
+	 *            - size of the request body
+	 * @param nanos
+	 *            - time from sending the request to receiving the answer
+	 * @param failure
+	 *            - why the upload failed, or null
+	 */
+	default void uploadCompleted( String repository, long bytes, long nanos, Throwable failure ) {}
+}
@@ -0,0 +1,288 @@
+package juglab.nexus.client.metrics;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link NexusClientListener} keeping latency histograms and counters
+ * per endpoint and for downloads and uploads, for export into a monitoring system. After
+ * the first event of an endpoint, recording does not allocate.
+ *
+ * <pre>
+ * NexusClientMetrics metrics = new NexusClientMetrics();
+ * client.setListener( metrics );
+ * ...
+ * metrics.getEndpoint( "searchAssets" ).getLatency().getValueAtPercentile( 99 );
+ * </pre>
+ */
+public class NexusClientMetrics implements NexusClientListener {
+
+	private final ConcurrentHashMap< String, Endpoint > endpoints = new ConcurrentHashMap< String, Endpoint >();
+	private final LatencyHistogram downloadLatency = new LatencyHistogram();
+	private final LatencyHistogram downloadThroughput = new LatencyHistogram();
+	private final LongAdder downloadBytes = new LongAdder();
+	private final LongAdder downloadsSkipped = new LongAdder();
+	private final LongAdder downloadFailures = new LongAdder();
+	private final LongAdder downloadRetries = new LongAdder();
+	private final LatencyHistogram uploadLatency = new LatencyHistogram();
+	private final LongAdder uploadBytes = new LongAdder();
+	private final LongAdder uploadFailures = new LongAdder();
+
+	/**
+	 * Metrics of one endpoint
+	 */
+	public static final class Endpoint {
+
+		private static final int STATUSES = 600;
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final AtomicLongArray statuses = new AtomicLongArray( STATUSES );
+		private final LatencyHistogram decodeTime = new LatencyHistogram();
+		private final LongAdder items = new LongAdder();
+		private final LatencyHistogram pagesPerListing = new LatencyHistogram();
+		private final LatencyHistogram listingTime = new LatencyHistogram();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder hedges = new LongAdder();
+
+		private Endpoint() {}
+
+		/**
+		 * @return latency of all requests, successful or not, in nanoseconds
+		 */
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @param status
+		 *            - HTTP status, or 0 for requests without a response
+		 * @return number of requests that completed with the status
+		 */
+		public long getStatusCount( int status ) {
+			return status >= 0 && status < STATUSES ? statuses.get( status ) : 0;
+		}
+
+		/**
+		 * @return number of requests per status, for the statuses that
+		 *         occurred
+		 */
+		public Map< Integer, Long > getStatusCounts() {
+			Map< Integer, Long > counts = new TreeMap< Integer, Long >();
+			for ( int status = 0; status < STATUSES; status++ )
+				if ( statuses.get( status ) > 0 )
+					counts.put( status, statuses.get( status ) );
+			return counts;
+		}
+
+		/**
+		 * @return number of requests without a response or with a status of
+		 *         400 or above
+		 */
+		public long getErrorCount() {
+			long errors = statuses.get( 0 );
+			for ( int status = 400; status < STATUSES; status++ )
+				errors += statuses.get( status );
+			return errors;
+		}
+
+		/**
+		 * @return time spent parsing each page, in nanoseconds
+		 */
+		public LatencyHistogram getDecodeTime() {
+			return decodeTime;
+		}
+
+		/**
+		 * @return total number of items decoded from pages
+		 */
+		public long getItems() {
+			return items.sum();
+		}
+
+		/**
+		 * @return number of pages of each completed listing or search
+		 */
+		public LatencyHistogram getPagesPerListing() {
+			return pagesPerListing;
+		}
+
+		/**
+		 * @return duration of each completed listing or search, in
+		 *         nanoseconds
+		 */
+		public LatencyHistogram getListingTime() {
+			return listingTime;
+		}
+
+		/**
+		 * @return number of failed requests that were repeated
+		 */
+		public long getRetries() {
+			return retries.sum();
+		}
+
+		/**
+		 * @return number of reads that were also sent to a second node
+		 */
+		public long getHedges() {
+			return hedges.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "latency[" + latency + "], statuses=" + getStatusCounts() + ", retries=" + getRetries() + ", hedges=" + getHedges() + ", decode[" + decodeTime + "], items=" + getItems() + ", pages[" + pagesPerListing + "]";
+		}
+	}
+
+	@Override
+	public void requestCompleted( String endpoint, long nanos, int status ) {
+		Endpoint metrics = endpoint( endpoint );
+		metrics.latency.record( nanos );
+		metrics.statuses.incrementAndGet( status >= 0 && status < Endpoint.STATUSES ? status : 0 );
+	}
+
+	@Override
+	public void requestRetried( String endpoint, int attempt, long delayNanos ) {
+		endpoint( endpoint ).retries.increment();
+	}
+
+	@Override
+	public void requestHedged( String endpoint, long delayNanos ) {
+		endpoint( endpoint ).hedges.increment();
+	}
+
+	@Override
+	public void pageDecoded( String endpoint, int items, long waitNanos, long decodeNanos ) {
+		Endpoint metrics = endpoint( endpoint );
+		metrics.decodeTime.record( decodeNanos );
+		metrics.items.add( items );
+	}
+
+	@Override
+	public void listingCompleted( String endpoint, int pages, long items, long nanos ) {
+		Endpoint metrics = endpoint( endpoint );
+		metrics.pagesPerListing.record( pages );
+		metrics.listingTime.record( nanos );
+	}
+
+	@Override
+	public void downloadCompleted( URL url, long bytes, long nanos, Throwable failure ) {
+		if ( failure != null ) {
+			downloadFailures.increment();
+			return;
+		}
+		if ( bytes == 0 ) {
+			downloadsSkipped.increment();
+			return;
+		}
+		downloadLatency.record( nanos );
+		downloadBytes.add( bytes );
+		downloadThroughput.record( ( long ) ( bytes * 1e9 / Math.max( 1, nanos ) ) );
+	}
+
+	@Override
+	public void downloadRetried( URL url, int attempt, long delayNanos ) {
+		downloadRetries.increment();
+	}
+
+	@Override
+	public void uploadCompleted( String repository, long bytes, long nanos, Throwable failure ) {
+		if ( failure != null ) {
+			uploadFailures.increment();
+			return;
+		}
+		uploadLatency.record( nanos );
+		uploadBytes.add( bytes );
+	}
+
+	/**
+	 * @return the metrics of an endpoint, created empty if it has not been
+	 *         called yet
+	 */
+	public Endpoint getEndpoint( String endpoint ) {
+		return endpoint( endpoint );
+	}
+
+	/**
+	 * @return the names of the endpoints called so far
+	 */
+	public Set< String > getEndpoints() {
+		return Collections.unmodifiableSet( endpoints.keySet() );
+	}
+
+	/**
+	 * @return duration of the downloads that transferred content, in
+	 *         nanoseconds
+	 */
+	public LatencyHistogram getDownloadLatency() {
+		return downloadLatency;
+	}
+
+	/**
+	 * @return throughput of the downloads that transferred content, in bytes
+	 *         per second
+	 */
+	public LatencyHistogram getDownloadThroughput() {
+		return downloadThroughput;
+	}
+
+	public long getDownloadBytes() {
+		return downloadBytes.sum();
+	}
+
+	/**
+	 * @return number of downloads satisfied by an unchanged or cached copy
+	 */
+	public long getDownloadsSkipped() {
+		return downloadsSkipped.sum();
+	}
+
+	public long getDownloadFailures() {
+		return downloadFailures.sum();
+	}
+
+	/**
+	 * @return number of failed transfers of downloads and segments that were
+	 *         resumed
+	 */
+	public long getDownloadRetries() {
+		return downloadRetries.sum();
+	}
+
+	/**
+	 * @return duration of the successful uploads, in nanoseconds
+	 */
+	public LatencyHistogram getUploadLatency() {
+		return uploadLatency;
+	}
+
+	public long getUploadBytes() {
+		return uploadBytes.sum();
+	}
+
+	public long getUploadFailures() {
+		return uploadFailures.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		new TreeMap< String, Endpoint >( endpoints ).forEach( ( name, metrics ) -> s.append( name ).append( ": " ).append( metrics ).append( '\n' ) );
+		return s.append( "downloads: latency[" ).append( downloadLatency ).append( "], throughput[" ).append( downloadThroughput )
+				.append( "], bytes=" ).append( getDownloadBytes() ).append( ", skipped=" ).append( getDownloadsSkipped() )
+				.append( ", failures=" ).append( getDownloadFailures() ).append( ", retries=" ).append( getDownloadRetries() )
+				.append( "\nuploads: latency[" ).append( uploadLatency ).append( "], bytes=" ).append( getUploadBytes() )
+				.append( ", failures=" ).append( getUploadFailures() ).toString();
+	}
+
+	private Endpoint endpoint( String endpoint ) {
+		Endpoint metrics = endpoints.get( endpoint );
+		return metrics != null ? metrics : endpoints.computeIfAbsent( endpoint, name -> new Endpoint() );
+	}
+}
@@ -0,0 +1,127 @@
+package juglab.nexus.client.snapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+
+/**
+ * Differences between two listings of a repository, matched by id: what was
+ * added, what was removed, and what kept its id but changed. An asset has
+ * changed if any of its fields or its checksum differ; a component has
+ * changed if any of its fields differ or any of its assets were added,
+ * removed or changed.
+ *
+ * @param <T>
+ *            {@link Asset} or {@link Component}
+ */
+public final class ListingDiff< T > {
+
+	private final List< T > added;
+	private final List< T > removed;
+	private final List< T > changed;
+
+	private ListingDiff( List< T > added, List< T > removed, List< T > changed ) {
+		this.added = Collections.unmodifiableList( added );
+		this.removed = Collections.unmodifiableList( removed );
+		this.changed = Collections.unmodifiableList( changed );
+	}
+
+	public static ListingDiff< Asset > ofAssets( Collection< Asset > before, Collection< Asset > after ) {
+		return diff( before, after, Asset::getId, ListingDiff::sameAsset );
+	}
+
+	public static ListingDiff< Component > ofComponents( Collection< Component > before, Collection< Component > after ) {
+		return diff( before, after, Component::getId, ListingDiff::sameComponent );
+	}
+
+	/**
+	 * @return items of the new listing whose id is not in the old one, in
+	 *         the order of the new listing
+	 */
+	public List< T > getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return items of the old listing whose id is not in the new one, in
+	 *         the order of the old listing
+	 */
+	public List< T > getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return the new version of items whose id is in both listings but
+	 *         whose content differs, in the order of the new listing
+	 */
+	public List< T > getChanged() {
+		return changed;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + added.size() + ", removed=" + removed.size() + ", changed=" + changed.size();
+	}
+
+	private static < T > ListingDiff< T > diff( Collection< T > before, Collection< T > after, Function< T, String > id, BiPredicate< T, T > same ) {
+		Map< String, T > old = new LinkedHashMap< String, T >( before.size() * 4 / 3 + 1 );
+		for ( T item : before )
+			old.put( id.apply( item ), item );
+		List< T > added = new ArrayList< T >();
+		List< T > changed = new ArrayList< T >();
+		for ( T item : after ) {
+			T previous = old.remove( id.apply( item ) );
+			if ( previous == null )
+				added.add( item );
+			else if ( !same.test( previous, item ) )
+				changed.add( item );
+		}
+		return new ListingDiff< T >( added, new ArrayList< T >( old.values() ), changed );
+	}
+
+	static boolean sameAsset( Asset a, Asset b ) {
+		return Objects.equals( a.getId(), b.getId() )
+				&& Objects.equals( a.getRepository(), b.getRepository() )
+				&& Objects.equals( a.getFormat(), b.getFormat() )
+				&& Objects.equals( a.getPath(), b.getPath() )
+				&& Objects.equals( a.getDownloadUrl(), b.getDownloadUrl() )
+				&& Objects.equals( a.getChecksum(), b.getChecksum() );
+	}
+
+	static boolean sameComponent( Component a, Component b ) {
+		if ( !( Objects.equals( a.getId(), b.getId() )
+				&& Objects.equals( a.getRepository(), b.getRepository() )
+				&& Objects.equals( a.getFormat(), b.getFormat() )
+				&& Objects.equals( a.getGroup(), b.getGroup() )
+				&& Objects.equals( a.getName(), b.getName() )
+				&& Objects.equals( a.getVersion(), b.getVersion() ) ) )
+			return false;
+		List< Asset > assets = a.getAssets() == null ? Collections.< Asset >emptyList() : a.getAssets();
+		List< Asset > otherAssets = b.getAssets() == null ? Collections.< Asset >emptyList() : b.getAssets();
+		if ( assets.size() != otherAssets.size() )
+			return false;
+		Map< String, Asset > byId = new HashMap< String, Asset >();
+		for ( Asset asset : assets )
+			byId.put( asset.getId(), asset );
+		for ( Asset asset : otherAssets ) {
+			Asset previous = byId.get( asset.getId() );
+			if ( previous == null || !sameAsset( previous, asset ) )
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,475 @@
+package juglab.nexus.client.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.domain.Component;
+
+/**
+ * The result of a {@code listAssets} or {@code listComponents} call, persisted
+ * to a compact binary file so that a restarted process can reload it instead
+ * of listing the repository again, and diff later listings against it.
+ *
+ * <pre>
+ * ListingSnapshot.ofComponents( "maven-releases", client.listComponents( "maven-releases" ) ).write( file );
+ * ...
+ * ListingSnapshot snapshot = ListingSnapshot.read( file );
+ * ListingDiff< Component > diff = snapshot.diffComponents( client.listComponents( "maven-releases" ) );
+ * </pre>
+ * <p>
+ * Values that repeat across the listing (repository, format, group, name,
+ * version) are stored once in a string table and reloaded as a single
+ * shared instance. The file is written to a temporary name and moved into
+ * place, so readers never see a partial snapshot.
+ * </p>
+ */
+public final class ListingSnapshot {
+
+	public enum Kind {
+		ASSETS, COMPONENTS
+	}
+
+	private static final int MAGIC = 0x4e58534e; // "NXSN"
+	private static final int VERSION = 2;
+	private static final int NULL = 0;
+	private static final int INLINE_URL = 1;
+	private static final int BINARY_DIGEST = 1;
+	private static final int TEXT_DIGEST = 2;
+
+	private final Kind kind;
+	private final String repository;
+	private final long createdAt;
+	private final List< Asset > assets;
+	private final List< Component > components;
+
+	private ListingSnapshot( Kind kind, String repository, long createdAt, List< Asset > assets, List< Component > components ) {
+		this.kind = kind;
+		this.repository = repository;
+		this.createdAt = createdAt;
+		this.assets = assets;
+		this.components = components;
+	}
+
+	/**
+	 * @param repository
+	 *            - the listed repository
+	 * @param assets
+	 *            - the result of {@code listAssets( repository )}
+	 */
+	public static ListingSnapshot ofAssets( String repository, List< Asset > assets ) {
+		return new ListingSnapshot( Kind.ASSETS, repository, System.currentTimeMillis(), Collections.unmodifiableList( new ArrayList< Asset >( assets ) ), null );
+	}
+
+	/**
+	 * @param repository
+	 *            - the listed repository
+	 * @param components
+	 *            - the result of {@code listComponents( repository )}
+	 */
+	public static ListingSnapshot ofComponents( String repository, List< Component > components ) {
+		return new ListingSnapshot( Kind.COMPONENTS, repository, System.currentTimeMillis(), null, Collections.unmodifiableList( new ArrayList< Component >( components ) ) );
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getRepository() {
+		return repository;
+	}
+
+	/**
+	 * @return when the listing was taken, in milliseconds since the epoch
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * @return the listed assets, or for a component snapshot the assets of
+	 *         all components
+	 */
+	public List< Asset > getAssets() {
+		if ( kind == Kind.ASSETS )
+			return assets;
+		List< Asset > all = new ArrayList< Asset >();
+		for ( Component component : components )
+			if ( component.getAssets() != null )
+				all.addAll( component.getAssets() );
+		return all;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             for an asset snapshot
+	 */
+	public List< Component > getComponents() {
+		if ( kind != Kind.COMPONENTS )
+			throw new IllegalStateException( "not a component snapshot" );
+		return components;
+	}
+
+	/**
+	 * Compares a fresh {@code listAssets} result with this snapshot
+	 */
+	public ListingDiff< Asset > diffAssets( List< Asset > fresh ) {
+		return ListingDiff.ofAssets( getAssets(), fresh );
+	}
+
+	/**
+	 * Compares a fresh {@code listComponents} result with this snapshot
+	 *
+	 * @throws IllegalStateException
+	 *             for an asset snapshot
+	 */
+	public ListingDiff< Component > diffComponents( List< Component > fresh ) {
+		return ListingDiff.ofComponents( getComponents(), fresh );
+	}
+
+	/**
+	 * Writes the snapshot to {@code file}, replacing it atomically
+	 */
+	public void write( Path file ) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories( dir );
+		Path temp = dir.resolve( "." + file.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+		try {
+			try ( OutputStream out = Files.newOutputStream( temp ) ) {
+				write( new DataOutputStream( new BufferedOutputStream( out, 1 << 16 ) ) );
+			}
+			try {
+				Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+			}
+		} finally {
+			Files.deleteIfExists( temp );
+		}
+	}
+
+	/**
+	 * Layout: header, records, string table, and the offset of the string
+	 * table as the last 8 bytes. Fields that repeat across records
+	 * (repository, format, group, name, version) are written as indices into
+	 * the string table, which is collected while the records are written;
+	 * fields that are unique per record (ids, paths, checksums) are written
+	 * inline. A download URL that ends with the asset's path is stored as a
+	 * shared prefix. Hex digests are stored as their raw bytes after a flag,
+	 * other digest values as strings. Strings are UTF-8 prefixed with their length; counts,
+	 * lengths and indices are variable-length ints.
+	 */
+	private void write( DataOutputStream out ) throws IOException {
+		StringTable strings = new StringTable();
+		out.writeInt( MAGIC );
+		out.writeInt( VERSION );
+		out.writeByte( kind.ordinal() );
+		out.writeLong( createdAt );
+		writeString( out, repository );
+		if ( kind == Kind.ASSETS ) {
+			writeVarInt( out, assets.size() );
+			for ( Asset asset : assets )
+				writeAsset( out, strings, asset );
+		} else {
+			writeVarInt( out, components.size() );
+			for ( Component component : components ) {
+				writeString( out, component.getId() );
+				writeVarInt( out, strings.index( component.getRepository() ) );
+				writeVarInt( out, strings.index( component.getFormat() ) );
+				writeVarInt( out, strings.index( component.getGroup() ) );
+				writeVarInt( out, strings.index( component.getName() ) );
+				writeVarInt( out, strings.index( component.getVersion() ) );
+				List< Asset > componentAssets = component.getAssets();
+				// count + 1, so that 0 restores a null list
+				writeVarInt( out, componentAssets == null ? 0 : componentAssets.size() + 1 );
+				if ( componentAssets != null )
+					for ( Asset asset : componentAssets )
+						writeAsset( out, strings, asset );
+			}
+		}
+		long tableOffset = out.size() & 0xffffffffL;
+		writeVarInt( out, strings.strings.size() );
+		for ( String string : strings.strings )
+			writeString( out, string );
+		out.writeLong( tableOffset );
+		out.flush();
+	}
+
+	private static void writeAsset( DataOutputStream out, StringTable strings, Asset asset ) throws IOException {
+		writeString( out, asset.getId() );
+		writeVarInt( out, strings.index( asset.getRepository() ) );
+		writeVarInt( out, strings.index( asset.getFormat() ) );
+		writeString( out, asset.getPath() );
+		String url = asset.getDownloadUrl();
+		String path = asset.getPath();
+		if ( url == null ) {
+			writeVarInt( out, NULL );
+		} else if ( path != null && !path.isEmpty() && url.length() > path.length() && url.endsWith( path ) ) {
+			writeVarInt( out, strings.index( url.substring( 0, url.length() - path.length() ) ) + 1 );
+		} else {
+			writeVarInt( out, INLINE_URL );
+			writeString( out, url );
+		}
+		Checksum checksum = asset.getChecksum();
+		out.writeBoolean( checksum != null );
+		if ( checksum != null ) {
+			byte[] sha1 = checksum.getSHA1Bytes();
+			writeDigest( out, sha1, sha1 == null ? checksum.getSHA1() : null );
+			byte[] md5 = checksum.getMD5Bytes();
+			writeDigest( out, md5, md5 == null ? checksum.getMD5() : null );
+		}
+	}
+
+	/**
+	 * Writes a flag, and the digest's bytes or, if it is not hex, its text
+	 */
+	private static void writeDigest( DataOutputStream out, byte[] digest, String text ) throws IOException {
+		if ( digest != null ) {
+			out.writeByte( BINARY_DIGEST );
+			out.write( digest );
+		} else if ( text != null ) {
+			out.writeByte( TEXT_DIGEST );
+			writeString( out, text );
+		} else {
+			out.writeByte( NULL );
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #write(Path)}
+	 *
+	 * @throws IOException
+	 *             if the file is not a snapshot or is truncated
+	 */
+	public static ListingSnapshot read( Path file ) throws IOException {
+		Reader in = new Reader( Files.readAllBytes( file ) );
+		if ( in.readInt() != MAGIC )
+			throw new IOException( file + " is not a listing snapshot" );
+		int version = in.readInt();
+		if ( version != VERSION )
+			throw new IOException( "unsupported snapshot version " + version + " in " + file );
+		int kindOrdinal = in.readByte();
+		if ( kindOrdinal < 0 || kindOrdinal >= Kind.values().length )
+			throw new IOException( "unknown snapshot kind " + kindOrdinal + " in " + file );
+		Kind kind = Kind.values()[ kindOrdinal ];
+		long createdAt = in.readLong();
+		String repository = in.readString();
+		in.readStringTable();
+		int count = in.readCount( 0 );
+		if ( kind == Kind.ASSETS ) {
+			List< Asset > assets = new ArrayList< Asset >( count );
+			for ( int i = 0; i < count; i++ )
+				assets.add( readAsset( in ) );
+			return new ListingSnapshot( kind, repository, createdAt, Collections.unmodifiableList( assets ), null );
+		}
+		List< Component > components = new ArrayList< Component >( count );
+		for ( int i = 0; i < count; i++ ) {
+			Component component = new Component();
+			component.setId( in.readString() );
+			component.setRepository( in.string( in.readVarInt() ) );
+			component.setFormat( in.string( in.readVarInt() ) );
+			component.setGroup( in.string( in.readVarInt() ) );
+			component.setName( in.string( in.readVarInt() ) );
+			component.setVersion( in.string( in.readVarInt() ) );
+			// count + 1, or 0 for a null list
+			int assetCount = in.readCount( 1 );
+			if ( assetCount > 0 ) {
+				List< Asset > componentAssets = new ArrayList< Asset >( assetCount - 1 );
+				for ( int j = 1; j < assetCount; j++ )
+					componentAssets.add( readAsset( in ) );
+				component.setAssets( componentAssets );
+			}
+			components.add( component );
+		}
+		return new ListingSnapshot( kind, repository, createdAt, null, Collections.unmodifiableList( components ) );
+	}
+
+	private static Asset readAsset( Reader in ) throws IOException {
+		Asset asset = new Asset();
+		asset.setId( in.readString() );
+		asset.setRepository( in.string( in.readVarInt() ) );
+		asset.setFormat( in.string( in.readVarInt() ) );
+		asset.setPath( in.readString() );
+		int url = in.readVarInt();
+		if ( url == INLINE_URL )
+			asset.setDownloadUrl( in.readString() );
+		else if ( url != NULL )
+			asset.setDownloadUrl( in.string( url - 1 ) + asset.getPath() );
+		if ( in.readByte() != 0 ) {
+			Checksum checksum = new Checksum();
+			int sha1 = in.readByte();
+			if ( sha1 == BINARY_DIGEST )
+				checksum.setSHA1Bytes( in.readBytes( 20 ) );
+			else if ( sha1 == TEXT_DIGEST )
+				checksum.setSHA1( in.readString() );
+			int md5 = in.readByte();
+			if ( md5 == BINARY_DIGEST )
+				checksum.setMD5Bytes( in.readBytes( 16 ) );
+			else if ( md5 == TEXT_DIGEST )
+				checksum.setMD5( in.readString() );
+			asset.setChecksum( checksum );
+		}
+		return asset;
+	}
+
+	/**
+	 * Writes the string's length + 1 (0 for null) and its UTF-8 bytes
+	 */
+	private static void writeString( DataOutputStream out, String s ) throws IOException {
+		if ( s == null ) {
+			writeVarInt( out, 0 );
+			return;
+		}
+		byte[] utf8 = s.getBytes( StandardCharsets.UTF_8 );
+		writeVarInt( out, utf8.length + 1 );
+		out.write( utf8 );
+	}
+
+	private static void writeVarInt( DataOutputStream out, int value ) throws IOException {
+		while ( ( value & ~0x7f ) != 0 ) {
+			out.writeByte( ( value & 0x7f ) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte( value );
+	}
+
+	/**
+	 * Assigns indices to distinct strings in order of first appearance,
+	 * starting at 1
+	 */
+	private static final class StringTable {
+
+		final List< String > strings = new ArrayList< String >();
+		final Map< String, Integer > indices = new HashMap< String, Integer >();
+
+		int index( String s ) {
+			if ( s == null )
+				return NULL;
+			Integer index = indices.get( s );
+			if ( index == null ) {
+				strings.add( s );
+				index = strings.size();
+				indices.put( s, index );
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Decodes the file content in memory, checking every read against its
+	 * length
+	 */
+	private static final class Reader {
+
+		private final byte[] bytes;
+		private int position;
+		private String[] strings;
+
+		Reader( byte[] bytes ) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Reads the string table from the end of the file and returns to the
+		 * current position
+		 */
+		void readStringTable() throws IOException {
+			int records = position;
+			if ( bytes.length - position < 8 )
+				throw new IOException( "truncated snapshot" );
+			position = bytes.length - 8;
+			long offset = readLong();
+			if ( offset < records || offset > bytes.length - 8 )
+				throw new IOException( "malformed snapshot: string table offset " + offset );
+			position = ( int ) offset;
+			strings = new String[ readCount( 0 ) + 1 ];
+			for ( int i = 1; i < strings.length; i++ )
+				strings[ i ] = readString();
+			position = records;
+		}
+
+		private void require( int n ) throws IOException {
+			if ( n < 0 || bytes.length - position < n )
+				throw new IOException( "truncated snapshot" );
+		}
+
+		int readByte() throws IOException {
+			require( 1 );
+			return bytes[ position++ ];
+		}
+
+		int readInt() throws IOException {
+			require( 4 );
+			int value = ( bytes[ position ] & 0xff ) << 24 | ( bytes[ position + 1 ] & 0xff ) << 16 | ( bytes[ position + 2 ] & 0xff ) << 8 | ( bytes[ position + 3 ] & 0xff );
+			position += 4;
+			return value;
+		}
+
+		long readLong() throws IOException {
+			return ( ( long ) readInt() << 32 ) | ( readInt() & 0xffffffffL );
+		}
+
+		int readVarInt() throws IOException {
+			int value = 0;
+			for ( int shift = 0; shift < 35; shift += 7 ) {
+				int b = readByte();
+				value |= ( b & 0x7f ) << shift;
+				if ( ( b & 0x80 ) == 0 )
+					return value;
+			}
+			throw new IOException( "malformed snapshot: variable-length int too long" );
+		}
+
+		/**
+		 * Reads a count of entries that take at least a byte each, so that a
+		 * corrupt count fails before anything is allocated for it
+		 *
+		 * @param bias
+		 *            - what is added to the count when it is written
+		 */
+		int readCount( int bias ) throws IOException {
+			int count = readVarInt();
+			if ( count < 0 || count - bias > bytes.length - position )
+				throw new IOException( "truncated snapshot" );
+			return count;
+		}
+
+		byte[] readBytes( int length ) throws IOException {
+			require( length );
+			byte[] value = Arrays.copyOfRange( bytes, position, position + length );
+			position += length;
+			return value;
+		}
+
+		String readString() throws IOException {
+			int length = readVarInt() - 1;
+			if ( length < 0 )
+				return null;
+			require( length );
+			String s = new String( bytes, position, length, StandardCharsets.UTF_8 );
+			position += length;
+			return s;
+		}
+
+		String string( int index ) throws IOException {
+			if ( index < 0 || index >= strings.length )
+				throw new IOException( "malformed snapshot: string index " + index + " out of range" );
+			return strings[ index ];
+		}
+	}
+}
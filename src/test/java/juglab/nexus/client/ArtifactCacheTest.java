@@ -0,0 +1,107 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ */
+public class ArtifactCacheTest {
+
+	private static final String A = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+	private static final String B = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+	private static final String C = "cccccccccccccccccccccccccccccccccccccccc";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List< String > loaded = new ArrayList< String >();
+
+	private boolean install( ArtifactCache cache, String key, Path target ) throws IOException {
+		return cache.install( key, target, entry -> {
+			loaded.add( key );
+			Files.write( entry, new byte[ 100 ] );
+		} );
+	}
+
+	@Test
+	public void testKeysMustBeSHA1() throws IOException {
+		Path dir = folder.newFolder( "cache" ).toPath();
+		ArtifactCache cache = new ArtifactCache( dir, 1000 );
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		for ( String key : new String[] { "../../x", "../../" + A.substring( 6 ), A.substring( 1 ), A + "a", A.substring( 1 ) + "g", "" } ) {
+			try {
+				install( cache, key, target );
+				fail( key );
+			} catch ( IllegalArgumentException e ) {
+				// rejected before it is resolved
+			}
+		}
+		assertTrue( loaded.isEmpty() );
+		assertEquals( 1, folder.getRoot().list().length );
+		assertTrue( ArtifactCache.isKey( A.toUpperCase() ) );
+		assertTrue( install( cache, A.toUpperCase(), target ) );
+		assertTrue( install( cache, A, target ) );
+		assertEquals( 1, loaded.size() );
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws IOException {
+		ArtifactCache cache = new ArtifactCache( folder.newFolder( "cache" ).toPath(), 250 );
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		install( cache, A, target );
+		install( cache, B, target );
+		install( cache, A, target );
+		install( cache, C, target );
+		loaded.clear();
+		install( cache, A, target );
+		install( cache, C, target );
+		assertTrue( loaded.isEmpty() );
+		install( cache, B, target );
+		assertEquals( 1, loaded.size() );
+	}
+
+	@Test
+	public void testUseDoesNotTouchLinkedFiles() throws IOException {
+		ArtifactCache cache = new ArtifactCache( folder.newFolder( "cache" ).toPath(), 1000 );
+		Path first = folder.getRoot().toPath().resolve( "first.jar" );
+		install( cache, A, first );
+		FileTime old = FileTime.fromMillis( 1000000000000L );
+		Files.setLastModifiedTime( first, old );
+		install( cache, A, folder.getRoot().toPath().resolve( "second.jar" ) );
+		assertEquals( old, Files.getLastModifiedTime( first ) );
+		assertArrayEquals( new byte[ 100 ], Files.readAllBytes( first ) );
+	}
+
+	@Test
+	public void testRecencySurvivesRestart() throws IOException, InterruptedException {
+		Path dir = folder.newFolder( "cache" ).toPath();
+		ArtifactCache cache = new ArtifactCache( dir, 250 );
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		install( cache, A, target );
+		Thread.sleep( 20 );
+		install( cache, B, target );
+		Thread.sleep( 20 );
+		install( cache, A, target );
+		loaded.clear();
+		cache = new ArtifactCache( dir, 250 );
+		install( cache, C, target );
+		assertFalse( Files.exists( dir.resolve( "bb" ).resolve( B ) ) );
+		assertFalse( Files.exists( dir.resolve( "bb" ).resolve( "." + B + ".used" ) ) );
+		install( cache, A, target );
+		assertEquals( 1, loaded.size() );
+	}
+}
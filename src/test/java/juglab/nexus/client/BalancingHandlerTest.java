@@ -0,0 +1,79 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.load.FakeNexusServer;
+
+/**
+ */
+public class BalancingHandlerTest {
+
+	/** 40 assets in pages of 7 */
+	private static final int PAGES = 6;
+
+	private FakeNexusServer first;
+	private FakeNexusServer second;
+
+	@Before
+	public void start() throws IOException {
+		first = FakeNexusServer.builder().components( 20 ).pageSize( 7 ).start();
+		second = FakeNexusServer.builder().components( 20 ).pageSize( 7 ).start();
+	}
+
+	@After
+	public void stop() {
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void testPagesComeFromOneNode() throws NexusRestClientException {
+		try ( NexusRestClient client = client( 0 ) ) {
+			assertEquals( 40, client.listAssets( "maven-releases" ).size() );
+			assertOneNode();
+			assertEquals( 40, client.listAssets( "maven-releases" ).size() );
+			// the next listing may start on the other node
+			assertEquals( 2 * PAGES, first.getRequestCount() + second.getRequestCount() );
+		}
+	}
+
+	@Test
+	public void testPrefetchedPagesComeFromOneNode() throws NexusRestClientException {
+		try ( NexusRestClient client = client( 2 ); Stream< Asset > assets = client.listAssetsStream( "maven-releases" ) ) {
+			List< String > paths = assets.map( Asset::getPath ).collect( Collectors.toList() );
+			assertEquals( 40, paths.size() );
+			assertOneNode();
+		}
+	}
+
+	@Test
+	public void testAsyncPagesComeFromOneNode() throws Exception {
+		try ( NexusRestClient client = client( 0 ) ) {
+			assertEquals( 40, client.listAssetsAsync( "maven-releases" ).get( 10, TimeUnit.SECONDS ).size() );
+			assertOneNode();
+		}
+	}
+
+	private NexusRestClient client( int prefetchDepth ) throws NexusRestClientException {
+		return NexusRestClient.builder( Arrays.asList( first.getBaseURL(), second.getBaseURL() ) )
+				.prefetchDepth( prefetchDepth )
+				.build();
+	}
+
+	private void assertOneNode() {
+		assertEquals( PAGES, Math.max( first.getRequestCount(), second.getRequestCount() ) );
+		assertEquals( 0, Math.min( first.getRequestCount(), second.getRequestCount() ) );
+	}
+}
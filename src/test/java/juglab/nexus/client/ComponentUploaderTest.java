@@ -0,0 +1,128 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ */
+public class ComponentUploaderTest {
+
+	/** far larger than the socket buffers */
+	private static final int ERROR_LENGTH = 64 << 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool( NexusRestClient.daemonThreads( "test-upload" ) );
+	private final AtomicLong writtenBytes = new AtomicLong();
+	private CloseableHttpClient http;
+	private ComponentUploader uploader;
+
+	@Before
+	public void start() throws IOException {
+		server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+		server.setExecutor( executor );
+		server.createContext( "/", this::handle );
+		server.start();
+		http = HttpClients.createDefault();
+		NodePool nodes = new NodePool( Arrays.asList( "http://127.0.0.1:" + server.getAddress().getPort() ) );
+		uploader = new ComponentUploader( http, nodes, null, () -> null, () -> NexusClientListener.NONE );
+	}
+
+	@After
+	public void stop() throws IOException, InterruptedException {
+		http.close();
+		server.stop( 0 );
+		executor.shutdownNow();
+		executor.awaitTermination( 10, TimeUnit.SECONDS );
+	}
+
+	@Test
+	public void testStatusesMapToPublicExceptions() throws IOException {
+		assertEquals( 400, upload( "status-400", BadRequestException.class ).getResponse().getStatus() );
+		assertEquals( 403, upload( "status-403", ForbiddenException.class ).getResponse().getStatus() );
+		assertEquals( 409, upload( "status-409", ClientErrorException.class ).getResponse().getStatus() );
+		assertEquals( 503, upload( "status-503", ServiceUnavailableException.class ).getResponse().getStatus() );
+		assertEquals( "status-400 refused", upload( "status-400", BadRequestException.class ).getResponse().readEntity( String.class ) );
+	}
+
+	@Test
+	public void testLongErrorIsNotReadToTheEnd() throws IOException, InterruptedException {
+		String message = upload( "long-400", BadRequestException.class ).getResponse().readEntity( String.class );
+		assertEquals( 4096, message.length() );
+		assertTrue( message.chars().allMatch( c -> c == 'x' ) );
+		executor.shutdown();
+		executor.awaitTermination( 10, TimeUnit.SECONDS );
+		assertTrue( writtenBytes.get() < ERROR_LENGTH );
+	}
+
+	private WebApplicationException upload( String repository, Class< ? extends WebApplicationException > type ) throws IOException {
+		File file = folder.newFile();
+		Files.write( file.toPath(), new byte[ 1000 ] );
+		try {
+			uploader.upload( ComponentUpload.raw( repository, "docs" ).rawAsset( file, null ) );
+			fail();
+			return null;
+		} catch ( WebApplicationException e ) {
+			assertEquals( type, e.getClass() );
+			return e;
+		}
+	}
+
+	/**
+	 * Answers with the status at the end of the repository name
+	 */
+	private void handle( HttpExchange exchange ) throws IOException {
+		String repository = exchange.getRequestURI().getQuery().replaceFirst( ".*repository=", "" );
+		int status = Integer.parseInt( repository.substring( repository.indexOf( '-' ) + 1 ) );
+		try ( OutputStream out = exchange.getResponseBody() ) {
+			if ( !repository.startsWith( "long" ) ) {
+				byte[] body = ( repository + " refused" ).getBytes( "UTF-8" );
+				exchange.sendResponseHeaders( status, body.length );
+				out.write( body );
+				return;
+			}
+			exchange.sendResponseHeaders( status, ERROR_LENGTH );
+			byte[] block = new byte[ 1 << 16 ];
+			Arrays.fill( block, ( byte ) 'x' );
+			for ( int i = 0; i < ERROR_LENGTH; i += block.length ) {
+				out.write( block );
+				writtenBytes.addAndGet( block.length );
+			}
+		} catch ( IOException e ) {
+			// the client closed the connection
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.ServiceUnavailableException;
+
+import org.junit.Test;
+
+import juglab.nexus.client.DeleteReport.Outcome;
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.load.FakeNexusServer;
+
+/**
+ */
+public class DeleteReportTest {
+
+	@Test
+	public void testOutcomesInRequestOrder() {
+		DeleteReport report = new DeleteReport( Arrays.asList( "c", "a", "b", "d" ) );
+		report.record( "a", null );
+		report.record( "b", new NexusRestClientException( new ForbiddenException() ) );
+		report.record( "c", new NexusRestClientException( new ServiceUnavailableException() ) );
+		assertEquals( Arrays.asList( "c", "a", "b", "d" ), new ArrayList< String >( report.getOutcomes().keySet() ) );
+		assertEquals( Arrays.asList( Outcome.FAILED, Outcome.DELETED, Outcome.FORBIDDEN, null ), new ArrayList< Outcome >( report.getOutcomes().values() ) );
+		assertEquals( Collections.singletonList( "a" ), report.getIds( Outcome.DELETED ) );
+		assertNull( report.getFailure( "a" ) );
+		assertEquals( 503, report.getFailure( "c" ).getHttpErrorCode() );
+		assertNull( report.getOutcome( "x" ) );
+		assertFalse( report.isComplete() );
+		assertEquals( "DeleteReport{DELETED=1, FORBIDDEN=1, FAILED=1}", report.toString() );
+	}
+
+	@Test
+	public void testBatchAgainstServer() throws IOException, NexusRestClientException {
+		try ( FakeNexusServer server = FakeNexusServer.builder().components( 10 ).start();
+				NexusRestClient client = NexusRestClient.builder( server.getBaseURL() ).deleteParallelism( 3 ).build() ) {
+			List< String > ids = client.listAssets( "maven-releases" ).stream().map( Asset::getId ).limit( 5 ).collect( Collectors.toList() );
+			List< String > batch = new ArrayList< String >( ids );
+			batch.add( "unknown" );
+			batch.add( ids.get( 0 ) );
+			DeleteReport report = client.deleteAssets( batch );
+			assertEquals( ids, report.getIds( Outcome.DELETED ) );
+			assertEquals( Collections.singletonList( "unknown" ), report.getIds( Outcome.NOT_FOUND ) );
+			assertEquals( 404, report.getFailure( "unknown" ).getHttpErrorCode() );
+			assertEquals( 15, client.listAssets( "maven-releases" ).size() );
+			assertTrue( client.deleteAssets( Collections.< String > emptyList() ).isComplete() );
+		}
+	}
+}
@@ -0,0 +1,456 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.ws.rs.NotFoundException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ */
+public class FileDownloaderTest {
+
+	static {
+		System.setProperty( "sun.net.httpserver.nodelay", "true" );
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ContentServer server;
+	private ResteasyClient transport;
+	private FileDownloader downloader;
+
+	@Before
+	public void start() throws IOException {
+		server = new ContentServer( 1 << 20 );
+		transport = new NexusRestClientBuilder( server.url ).buildTransport();
+		downloader = new FileDownloader( transport::target, () -> NexusClientListener.NONE );
+	}
+
+	@After
+	public void stop() {
+		downloader.shutdown();
+		transport.close();
+		server.close();
+	}
+
+	@Test
+	public void testDownloadIsPublishedAtomically() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "sub/dir/lib.jar" );
+		File file = downloader.download( server.file(), target, null );
+		assertEquals( target.toFile(), file );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( server.content.length, server.servedBytes.get() );
+		assertEquals( Collections.singletonList( target ), files( target.getParent() ) );
+		// an existing file is replaced
+		Files.write( target, new byte[] { 1, 2, 3 } );
+		downloader.download( new URL( server.url + "/redirect" ), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( Collections.singletonList( target ), files( target.getParent() ) );
+	}
+
+	@Test
+	public void testShortTransferIsDiscarded() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		server.cutAfter = 1000;
+		try {
+			downloader.download( server.file(), target, null );
+			fail();
+		} catch ( IOException e ) {
+			// the connection ended early
+		}
+		assertTrue( files( folder.getRoot().toPath() ).isEmpty() );
+	}
+
+	@Test
+	public void testErrorStatus() throws IOException {
+		try {
+			downloader.download( new URL( server.url + "/missing" ), folder.getRoot().toPath().resolve( "lib.jar" ), null );
+			fail();
+		} catch ( NotFoundException e ) {
+			assertEquals( 404, e.getResponse().getStatus() );
+		}
+		assertTrue( files( folder.getRoot().toPath() ).isEmpty() );
+	}
+
+	@Test
+	public void testChecksumIsVerifiedWhileDownloading() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		downloader.download( server.file(), target, checksum( server.content, "MD5" ) );
+		Files.write( target, new byte[] { 1, 2, 3 } );
+		try {
+			downloader.download( server.file(), target, checksum( new byte[ 1 ], "SHA-1" ) );
+			fail();
+		} catch ( ChecksumMismatchException e ) {
+			assertEquals( "SHA-1", e.getAlgorithm() );
+			assertEquals( hex( server.content, "SHA-1" ), e.getActual() );
+		}
+		// the corrupt download neither replaced the target nor was left behind
+		assertArrayEquals( new byte[] { 1, 2, 3 }, Files.readAllBytes( target ) );
+		assertEquals( Collections.singletonList( target ), files( folder.getRoot().toPath() ) );
+	}
+
+	@Test
+	public void testUnchangedFileIsSkipped() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		Checksum checksum = checksum( server.content, "SHA-1" );
+		downloader.setSkipUnchanged( true );
+		downloader.download( server.file(), target, checksum );
+		long served = server.servedBytes.get();
+		downloader.download( server.file(), target, checksum );
+		assertEquals( served, server.servedBytes.get() );
+		// a changed file is downloaded again
+		Files.write( target, new byte[] { 1, 2, 3 } );
+		downloader.download( server.file(), target, checksum );
+		assertEquals( 2 * served, server.servedBytes.get() );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+	}
+
+	@Test
+	public void testCacheIsSkippedWithoutSHA1() throws IOException {
+		downloader.setCache( new ArtifactCache( folder.newFolder( "cache" ).toPath(), 10 << 20 ) );
+		Path target = folder.newFolder( "downloads" ).toPath().resolve( "lib.jar" );
+		downloader.download( server.file(), target, null );
+		downloader.download( server.file(), target, checksum( server.content, "MD5" ) );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( 2 * server.content.length, server.servedBytes.get() );
+		assertTrue( files( folder.getRoot().toPath().resolve( "cache" ) ).isEmpty() );
+	}
+
+	@Test
+	public void testCachedArtifactIsNotDownloadedAgain() throws IOException {
+		downloader.setCache( new ArtifactCache( folder.newFolder( "cache" ).toPath(), 10 << 20 ) );
+		Path downloads = folder.newFolder( "downloads" ).toPath();
+		Checksum checksum = checksum( server.content, "SHA-1" );
+		downloader.download( server.file(), downloads.resolve( "a.jar" ), checksum );
+		downloader.download( server.file(), downloads.resolve( "b.jar" ), checksum );
+		assertEquals( server.content.length, server.servedBytes.get() );
+		assertArrayEquals( server.content, Files.readAllBytes( downloads.resolve( "b.jar" ) ) );
+	}
+
+	@Test
+	public void testInterruptedDownloadIsResumed() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		Path part = folder.getRoot().toPath().resolve( ".lib.jar.part" );
+		downloader.setResumable( true );
+		server.cutAfter = 300000;
+		try {
+			downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+			fail();
+		} catch ( IOException e ) {
+			// the part file is kept
+		}
+		assertEquals( Collections.singletonList( part ), files( folder.getRoot().toPath() ) );
+		long received = Files.size( part );
+		assertTrue( received > 0 );
+		downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+		assertEquals( Collections.singletonList( "bytes=" + received + "-" ), server.ranges );
+		assertEquals( 300000 + server.content.length - received, server.servedBytes.get() );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( Collections.singletonList( target ), files( folder.getRoot().toPath() ) );
+	}
+
+	@Test
+	public void testCompletionReportsReceivedBytes() throws IOException {
+		List< Long > reported = new CopyOnWriteArrayList< Long >();
+		downloader = new FileDownloader( transport::target, () -> new NexusClientListener() {
+
+			@Override
+			public void downloadCompleted( URL url, long bytes, long nanos, Throwable failure ) {
+				reported.add( bytes );
+			}
+		} );
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		Path part = folder.getRoot().toPath().resolve( ".lib.jar.part" );
+		downloader.setResumable( true );
+		downloader.setSkipUnchanged( true );
+		server.cutAfter = 300000;
+		try {
+			downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+			fail();
+		} catch ( IOException e ) {
+			// the part file is kept
+		}
+		long received = Files.size( part );
+		downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+		downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+		// the resumed download only counts the rest, the unchanged file nothing
+		assertEquals( Arrays.asList( received, server.content.length - received, 0L ), reported );
+	}
+
+	@Test
+	public void testRetriesContinueFromReceivedBytes() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		downloader.setRetries( new RetryPolicy( 2, 0, 0 ) );
+		server.cutAfter = 300000;
+		downloader.download( server.file(), target, checksum( server.content, "MD5" ) );
+		assertEquals( 1, server.ranges.size() );
+		assertTrue( server.servedBytes.get() < server.content.length + 300000 );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+	}
+
+	@Test
+	public void testResumeWithoutRangeSupportRestarts() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		downloader.setResumable( true );
+		server.acceptRanges = false;
+		Files.write( folder.getRoot().toPath().resolve( ".lib.jar.part" ), new byte[ 1000 ] );
+		downloader.download( server.file(), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		// a part file as long as the content is answered with 416
+		server.acceptRanges = true;
+		Files.write( folder.getRoot().toPath().resolve( ".lib.jar.part" ), new byte[ server.content.length ] );
+		downloader.download( server.file(), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( Collections.singletonList( target ), files( folder.getRoot().toPath() ) );
+	}
+
+	@Test
+	public void testRangeAtOtherOffsetRestarts() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		Path part = folder.getRoot().toPath().resolve( ".lib.jar.part" );
+		downloader.setResumable( true );
+		Files.write( part, server.range( 0, 1000 ) );
+		// the server answers bytes=1000- with content from 500 on
+		server.rangeShift = -500;
+		downloader.download( server.file(), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( Collections.singletonList( target ), files( folder.getRoot().toPath() ) );
+		// or from 1500 on
+		server.rangeShift = 500;
+		Files.write( part, server.range( 0, 1000 ) );
+		downloader.download( server.file(), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( Arrays.asList( "bytes=1000-", "bytes=1000-" ), server.ranges );
+	}
+
+	@Test
+	public void testSegmentsAreFetchedWithOwnRanges() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		downloader.setSegmented( 4, 1000 );
+		downloader.download( server.file(), target, checksum( server.content, "SHA-1" ) );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		// no connection transferred more than its range
+		assertEquals( server.content.length, server.servedBytes.get() );
+		assertEquals( Arrays.asList( "HEAD", "GET", "GET", "GET", "GET" ), server.methods );
+		assertEquals( Arrays.asList( "bytes=0-262143", "bytes=262144-524287", "bytes=524288-786431", "bytes=786432-1048575" ), sorted( server.ranges ) );
+		assertEquals( Collections.singletonList( target ), files( folder.getRoot().toPath() ) );
+	}
+
+	@Test
+	public void testSmallOrUnrangedContentIsNotSegmented() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		downloader.setSegmented( 4, server.content.length + 1 );
+		downloader.download( server.file(), target, null );
+		downloader.setSegmented( 4, 1000 );
+		server.acceptRanges = false;
+		downloader.download( server.file(), target, null );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+		assertEquals( 2 * server.content.length, server.servedBytes.get() );
+		assertEquals( Arrays.asList( "HEAD", "GET", "HEAD", "GET" ), server.methods );
+		assertTrue( server.ranges.isEmpty() );
+	}
+
+	@Test
+	public void testFailedSegmentIsNotResumed() throws IOException {
+		Path target = folder.getRoot().toPath().resolve( "lib.jar" );
+		Path part = folder.getRoot().toPath().resolve( ".lib.jar.part" );
+		downloader.setSegmented( 4, 1000 );
+		downloader.setResumable( true );
+		server.cutAfter = 1000;
+		try {
+			downloader.download( server.file(), target, null );
+			fail();
+		} catch ( IOException e ) {
+			// one segment ended early
+		}
+		assertFalse( Files.exists( target ) );
+		assertEquals( 0, Files.size( part ) );
+		downloader.download( server.file(), target, checksum( server.content, "MD5" ) );
+		assertArrayEquals( server.content, Files.readAllBytes( target ) );
+	}
+
+	private static List< String > sorted( List< String > values ) {
+		List< String > sorted = new ArrayList< String >( values );
+		Collections.sort( sorted );
+		return sorted;
+	}
+
+	static Checksum checksum( byte[] content, String algorithm ) {
+		Checksum checksum = new Checksum();
+		if ( "SHA-1".equals( algorithm ) )
+			checksum.setSHA1( hex( content, algorithm ) );
+		else
+			checksum.setMD5( hex( content, algorithm ) );
+		return checksum;
+	}
+
+	static String hex( byte[] content, String algorithm ) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for ( byte b : MessageDigest.getInstance( algorithm ).digest( content ) )
+				hex.append( String.format( "%02x", b ) );
+			return hex.toString();
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static List< Path > files( Path dir ) throws IOException {
+		try ( Stream< Path > files = Files.list( dir ) ) {
+			return files.sorted().collect( Collectors.toList() );
+		}
+	}
+
+	/**
+	 * Serves random content at {@code /file}, honouring byte ranges, and
+	 * counts the bytes it sends. It can be told to misbehave: to end the next
+	 * transfer early, to ignore ranges, or to answer a range with content
+	 * starting elsewhere.
+	 */
+	static final class ContentServer implements AutoCloseable {
+
+		private static final Pattern RANGE = Pattern.compile( "bytes=(\\d+)-(\\d*)" );
+
+		final byte[] content;
+		final String url;
+		final AtomicLong servedBytes = new AtomicLong();
+		final List< String > methods = new CopyOnWriteArrayList< String >();
+		final List< String > ranges = new CopyOnWriteArrayList< String >();
+		/** bytes after which the next transfer is cut off, or -1 */
+		volatile int cutAfter = -1;
+		volatile boolean acceptRanges = true;
+		/** added to the start of the content sent for a range request */
+		volatile long rangeShift;
+		private final HttpServer server;
+		private final ExecutorService executor = Executors.newCachedThreadPool( NexusRestClient.daemonThreads( "test-content" ) );
+
+		ContentServer( int length ) throws IOException {
+			content = new byte[ length ];
+			new Random( length ).nextBytes( content );
+			server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+			server.setExecutor( executor );
+			server.createContext( "/", this::handle );
+			server.start();
+			url = "http://127.0.0.1:" + server.getAddress().getPort();
+		}
+
+		URL file() throws IOException {
+			return new URL( url + "/file" );
+		}
+
+		private static void sendEmpty( HttpExchange exchange, int status ) throws IOException {
+			// the JDK server closes the connection after a response without a body
+			exchange.getResponseHeaders().add( "Connection", "close" );
+			exchange.sendResponseHeaders( status, -1 );
+		}
+
+		private void handle( HttpExchange exchange ) throws IOException {
+			try {
+				String path = exchange.getRequestURI().getPath();
+				if ( path.equals( "/redirect" ) ) {
+					exchange.getResponseHeaders().add( "Location", "/file" );
+					sendEmpty( exchange, 302 );
+					return;
+				}
+				if ( !path.equals( "/file" ) ) {
+					sendEmpty( exchange, 404 );
+					return;
+				}
+				methods.add( exchange.getRequestMethod() );
+				String range = exchange.getRequestHeaders().getFirst( "Range" );
+				if ( range != null )
+					ranges.add( range );
+				Matcher m = range == null || !acceptRanges ? null : RANGE.matcher( range );
+				long from = 0, to = content.length - 1;
+				int status = 200;
+				if ( m != null && m.matches() ) {
+					from = Long.parseLong( m.group( 1 ) );
+					if ( !m.group( 2 ).isEmpty() )
+						to = Math.min( to, Long.parseLong( m.group( 2 ) ) );
+					if ( from > to ) {
+						exchange.getResponseHeaders().add( "Content-Range", "bytes */" + content.length );
+						sendEmpty( exchange, 416 );
+						return;
+					}
+					from = Math.max( 0, from + rangeShift );
+					status = 206;
+					exchange.getResponseHeaders().add( "Content-Range", "bytes " + from + "-" + to + "/" + content.length );
+				}
+				if ( acceptRanges )
+					exchange.getResponseHeaders().add( "Accept-Ranges", "bytes" );
+				long count = to - from + 1;
+				if ( "HEAD".equals( exchange.getRequestMethod() ) ) {
+					exchange.getResponseHeaders().add( "Content-Length", String.valueOf( count ) );
+					sendEmpty( exchange, status );
+					return;
+				}
+				exchange.sendResponseHeaders( status, count );
+				int cut = cutAfter;
+				cutAfter = -1;
+				long end = cut < 0 ? to + 1 : Math.min( to + 1, from + cut );
+				OutputStream out = exchange.getResponseBody();
+				for ( long position = from; position < end; ) {
+					int n = ( int ) Math.min( 64 << 10, end - position );
+					out.write( content, ( int ) position, n );
+					servedBytes.addAndGet( n );
+					position += n;
+				}
+				out.flush();
+			} finally {
+				exchange.close();
+			}
+		}
+
+		byte[] range( int from, int to ) {
+			return Arrays.copyOfRange( content, from, to );
+		}
+
+		@Override
+		public void close() {
+			server.stop( 0 );
+			executor.shutdownNow();
+		}
+	}
+}
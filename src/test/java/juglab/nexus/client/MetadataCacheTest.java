@@ -0,0 +1,100 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Repository;
+import juglab.nexus.client.load.FakeNexusServer;
+
+/**
+ */
+public class MetadataCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FakeNexusServer server;
+	private NexusRestClient client;
+	private List< Asset > assets;
+
+	@Before
+	public void start() throws IOException, NexusRestClientException {
+		server = FakeNexusServer.builder().components( 5 ).assetSize( 100 ).start();
+		client = NexusRestClient.builder( server.getBaseURL() ).metadataCache( 2 ).build();
+		assets = client.listAssets( "maven-releases" );
+	}
+
+	@After
+	public void stop() {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testFreshEntryIsServedWithoutRequest() throws NexusRestClientException {
+		long requests = server.getRequestCount();
+		List< Repository > repositories = client.listRepositories();
+		assertSame( repositories, client.listRepositories() );
+		assertEquals( requests + 1, server.getRequestCount() );
+		assertStats( 1, 1, 0, 0, 1 );
+	}
+
+	@Test
+	public void testStaleEntryIsRevalidated() throws NexusRestClientException {
+		client.setMetadataCacheTtl( MetadataCache.Endpoint.ASSET, 0, TimeUnit.SECONDS );
+		String dir = folder.getRoot().getPath();
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		// the fake answers If-None-Match with 304
+		assertStats( 0, 1, 2, 2, 1 );
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws NexusRestClientException {
+		String dir = folder.getRoot().getPath();
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		client.getAsset( assets.get( 1 ).getId(), dir );
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		client.getAsset( assets.get( 2 ).getId(), dir );
+		client.getAsset( assets.get( 0 ).getId(), dir );
+		client.getAsset( assets.get( 1 ).getId(), dir );
+		assertStats( 2, 4, 0, 0, 2 );
+	}
+
+	@Test
+	public void testDeleteInvalidates() throws NexusRestClientException {
+		String id = assets.get( 0 ).getId();
+		client.getAsset( id, folder.getRoot().getPath() );
+		client.deleteAsset( id );
+		assertStats( 0, 1, 0, 0, 0 );
+		try {
+			client.getAsset( id, folder.getRoot().getPath() );
+			fail();
+		} catch ( NexusRestClientException e ) {
+			assertEquals( 404, e.getHttpErrorCode() );
+		}
+		assertStats( 0, 2, 0, 0, 0 );
+	}
+
+	private void assertStats( long hits, long misses, long revalidations, long notModified, int size ) {
+		MetadataCache.Stats stats = client.getMetadataCacheStats();
+		assertEquals( stats.toString(), hits, stats.getHits() );
+		assertEquals( stats.toString(), misses, stats.getMisses() );
+		assertEquals( stats.toString(), revalidations, stats.getRevalidations() );
+		assertEquals( stats.toString(), notModified, stats.getNotModified() );
+		assertEquals( stats.toString(), size, stats.getSize() );
+	}
+}
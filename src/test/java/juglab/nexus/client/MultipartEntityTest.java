@@ -0,0 +1,60 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ */
+public class MultipartEntityTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBodyMatchesAnnouncedLength() throws IOException {
+		File jar = folder.newFile( "lib-1.0.jar" );
+		Files.write( jar.toPath(), new byte[ 100000 ] );
+		ComponentUpload upload = ComponentUpload.maven2( "releases", "org.example", "lib", "1.0" )
+				.mavenAsset( jar, "jar", null )
+				.generatePom( "jar" );
+		MultipartEntity entity = new MultipartEntity( upload );
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		entity.writeTo( body );
+		assertEquals( entity.getContentLength(), body.size() );
+		String boundary = entity.getContentType().getValue().replaceFirst( ".*boundary=", "" );
+		String text = new String( body.toByteArray(), StandardCharsets.ISO_8859_1 );
+		assertTrue( text.startsWith( "--" + boundary + "\r\nContent-Disposition: form-data; name=\"maven2.groupId\"\r\n\r\norg.example\r\n" ) );
+		assertTrue( text.contains( "name=\"maven2.asset1\"; filename=\"lib-1.0.jar\"\r\nContent-Type: application/octet-stream\r\n\r\n" ) );
+		assertTrue( text.contains( "name=\"maven2.asset1.extension\"\r\n\r\njar\r\n" ) );
+		assertTrue( !text.contains( "maven2.asset1.classifier" ) );
+		assertTrue( text.endsWith( "\r\n--" + boundary + "--\r\n" ) );
+		// repeatable
+		body.reset();
+		entity.writeTo( body );
+		assertEquals( entity.getContentLength(), body.size() );
+	}
+
+	@Test( expected = IOException.class )
+	public void testShrunkFileFails() throws IOException {
+		File file = folder.newFile( "notes.txt" );
+		Files.write( file.toPath(), new byte[ 1000 ] );
+		MultipartEntity entity = new MultipartEntity( ComponentUpload.raw( "files", "docs" ).rawAsset( file, null ) );
+		Files.write( file.toPath(), new byte[ 10 ] );
+		entity.writeTo( new ByteArrayOutputStream() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testAssetOfOtherFormat() {
+		ComponentUpload.raw( "files", "docs" ).mavenAsset( new File( "a.jar" ), "jar", null );
+	}
+}
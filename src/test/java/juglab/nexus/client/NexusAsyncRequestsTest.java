@@ -0,0 +1,82 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.load.FakeNexusServer;
+
+/**
+ */
+public class NexusAsyncRequestsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FakeNexusServer server;
+	private NexusRestClient client;
+
+	@Before
+	public void start() throws IOException, NexusRestClientException {
+		server = FakeNexusServer.builder().components( 20 ).pageSize( 7 ).assetSize( 1000 ).start();
+		client = NexusRestClient.builder( server.getBaseURL() ).build();
+	}
+
+	@After
+	public void stop() {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testPagesAndDownloads() throws Exception {
+		List< Asset > assets = client.listAssetsAsync( "maven-releases" ).get( 10, TimeUnit.SECONDS );
+		assertEquals( 40, assets.size() );
+		File file = client.getAssetAsync( assets.get( 3 ).getId(), folder.getRoot().getPath() ).get( 10, TimeUnit.SECONDS );
+		assertEquals( 1000, file.length() );
+	}
+
+	@Test
+	public void testErrorStatusFailsTheFuture() throws Exception {
+		assertFailure( client.deleteAssetAsync( "unknown" ), 404 );
+		assertFailure( client.listAssetsAsync( "unknown" ), 404 );
+	}
+
+	@Test
+	public void testRequestThatCannotBeBuiltFailsTheFuture() throws Exception {
+		long requests = server.getRequestCount();
+		assertFailure( client.deleteAssetAsync( null ), -1 );
+		assertFailure( client.getAssetAsync( null, folder.getRoot().getPath() ), -1 );
+		assertEquals( requests, server.getRequestCount() );
+		// the node taken for the failed requests was released
+		assertEquals( 40, client.listAssetsAsync( "maven-releases" ).get( 10, TimeUnit.SECONDS ).size() );
+	}
+
+	private static void assertFailure( CompletableFuture< ? > future, int status ) throws InterruptedException {
+		try {
+			future.get( 10, TimeUnit.SECONDS );
+			fail();
+		} catch ( ExecutionException e ) {
+			assertTrue( e.getCause() instanceof NexusRestClientException );
+			if ( status > 0 )
+				assertEquals( status, ( ( NexusRestClientException ) e.getCause() ).getHttpErrorCode() );
+		} catch ( TimeoutException e ) {
+			fail( "not completed" );
+		}
+	}
+}
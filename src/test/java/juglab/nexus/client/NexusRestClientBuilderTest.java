@@ -0,0 +1,74 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class NexusRestClientBuilderTest {
+
+	private ServerSocket server;
+	private final List< String > requests = new CopyOnWriteArrayList< String >();
+
+	/**
+	 * Reads the request line of every connection and closes it without an
+	 * answer
+	 */
+	@Before
+	public void start() throws IOException {
+		server = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+		Thread acceptor = new Thread( () -> {
+			while ( !server.isClosed() ) {
+				try ( Socket socket = server.accept() ) {
+					requests.add( new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.ISO_8859_1 ) ).readLine() );
+				} catch ( IOException e ) {
+					// closed
+				}
+			}
+		}, "test-no-response" );
+		acceptor.setDaemon( true );
+		acceptor.start();
+	}
+
+	@After
+	public void stop() throws IOException {
+		server.close();
+	}
+
+	@Test
+	public void testDeleteWithoutResponseIsSentOnce() throws NexusRestClientException {
+		try ( NexusRestClient client = NexusRestClient.builder( "http://127.0.0.1:" + server.getLocalPort() ).build() ) {
+			client.deleteAsset( "a1" );
+			fail();
+		} catch ( NexusRestClientException e ) {
+			assertEquals( 1, requests.size() );
+			assertEquals( "DELETE /service/rest/v1/assets/a1 HTTP/1.1", requests.get( 0 ) );
+		}
+	}
+
+	@Test
+	public void testReadIsOnlyRetriedByTheRetryPolicy() throws NexusRestClientException {
+		try ( NexusRestClient client = NexusRestClient.builder( "http://127.0.0.1:" + server.getLocalPort() )
+				.retries( 2, 1, 1, TimeUnit.MILLISECONDS ).build() ) {
+			client.listRepositories();
+			fail();
+		} catch ( NexusRestClientException e ) {
+			assertEquals( 2, requests.size() );
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.load.FakeNexusServer;
+
+/**
+ */
+public class NexusRestClientDownloadExceptionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FakeNexusServer server;
+	private NexusRestClient client;
+
+	@Before
+	public void start() throws IOException, NexusRestClientException {
+		server = FakeNexusServer.builder().components( 4 ).assetSize( 1000 ).start();
+		client = NexusRestClient.builder( server.getBaseURL() ).downloadThreads( 4 ).build();
+	}
+
+	@After
+	public void stop() {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testFilesAreInRequestOrder() throws NexusRestClientException {
+		List< Asset > assets = client.listAssets( "maven-releases" );
+		List< File > files = client.downloadAssets( assets, folder.getRoot().getPath() );
+		assertEquals( assets.size(), files.size() );
+		for ( int i = 0; i < assets.size(); i++ )
+			assertTrue( assets.get( i ).getDownloadUrl().endsWith( "/" + files.get( i ).getName() ) );
+	}
+
+	@Test
+	public void testEveryFailureIsReportedByPosition() throws NexusRestClientException {
+		List< Asset > listed = client.listAssets( "maven-releases" );
+		// failing assets without an id and with the same id
+		List< Asset > assets = new ArrayList< Asset >( Arrays.asList( missing( null, 0 ), listed.get( 0 ), missing( "dup", 1 ),
+				listed.get( 1 ), missing( "dup", 2 ), missing( null, 3 ), listed.get( 2 ) ) );
+		try {
+			client.downloadAssets( assets, folder.getRoot().getPath() );
+			fail();
+		} catch ( NexusRestClientDownloadException e ) {
+			assertEquals( Arrays.asList( 0, 2, 4, 5 ), new ArrayList< Integer >( e.getFailures().keySet() ) );
+			for ( NexusRestClientException failure : e.getFailures().values() )
+				assertEquals( 404, failure.getHttpErrorCode() );
+			assertEquals( 404, e.getHttpErrorCode() );
+			assertEquals( 4, e.getSuppressed().length );
+			List< File > files = e.getFiles();
+			assertEquals( assets.size(), files.size() );
+			for ( int i = 0; i < assets.size(); i++ ) {
+				if ( e.getFailures().containsKey( i ) )
+					assertNull( files.get( i ) );
+				else
+					assertEquals( 1000, files.get( i ).length() );
+			}
+			assertTrue( e.getMessage(), e.getMessage().startsWith( "4 of 7 downloads failed: #0 null #2 dup #4 dup #5 null" ) );
+		}
+	}
+
+	private Asset missing( String id, int number ) {
+		Asset asset = new Asset();
+		asset.setId( id );
+		asset.setPath( "missing-" + number + ".jar" );
+		asset.setDownloadUrl( server.getBaseURL() + "/missing/missing-" + number + ".jar" );
+		return asset;
+	}
+}
@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -91,12 +94,44 @@ public class NexusRestClientTest {
 		assertTrue( testmaven );
 	};
 
+	@Test
+	public void testListRepositoriesWithPooledClient() throws Exception {
+		try ( NexusRestClient pooled = NexusRestClient.builder( BASE_URL )
+				.maxConnections( 4 )
+				.readTimeout( 30, TimeUnit.SECONDS )
+				.build() ) {
+			assertTrue( pooled.listRepositories().size() > 0 );
+		}
+	};
+
+	@Test
+	public void testListRepositoriesAsync() throws Exception {
+		List< Repository > repos = client.listRepositoriesAsync().get( 30, TimeUnit.SECONDS );
+		assertTrue( repos.size() > 0 );
+	};
+
+	@Test
+	public void testListRepositoriesCached() throws Exception {
+		try ( NexusRestClient cached = NexusRestClient.builder( BASE_URL ).metadataCache( 16 ).build() ) {
+			List< Repository > repos = cached.listRepositories();
+			assertEquals( repos, cached.listRepositories() );
+			assertEquals( 1, cached.getMetadataCacheStats().getMisses() );
+			assertEquals( 1, cached.getMetadataCacheStats().getHits() );
+		}
+	};
+
 	@Test
 	public void testListAssets() throws Exception {
 		List< Asset > assets = client.listAssets( ASSET_REPO );
 		assertTrue( assets.size() > 0 );
 	};
 
+	@Test
+	public void testListAssetsStreamFindFirst() throws Exception {
+		Asset first = client.listAssetsStream( ASSET_REPO ).findFirst().get();
+		assertEquals( ASSET_REPO, first.getRepository() );
+	};
+
 	@Test
 	public void testListAssetsForUnknownRepo() {
 		try {
@@ -133,6 +168,22 @@ public class NexusRestClientTest {
 		}
 	};
 
+	@Test
+	public void testAnonCannotDeleteAssetAsync() throws Exception {
+		try {
+			client.deleteAssetAsync( ASSET_ID ).get( 30, TimeUnit.SECONDS );
+		} catch ( ExecutionException e ) {
+			assertEquals( 403, ( ( NexusRestClientException ) e.getCause() ).getHttpErrorCode() );
+		}
+	};
+
+	@Test
+	public void testAnonCannotDeleteComponents() throws Exception {
+		DeleteReport report = client.deleteComponents( Arrays.asList( COMPONENT_ID, "xkxkxk" ) );
+		assertEquals( DeleteReport.Outcome.FORBIDDEN, report.getOutcome( COMPONENT_ID ) );
+		assertTrue( !report.isComplete() );
+	};
+
 	@Test
 	public void testDeleteAssetWrongAuth() {
 		try {
@@ -0,0 +1,80 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ */
+public class NodePoolTest {
+
+	private static final NodePool.Node NONE = null;
+
+	@Test
+	public void testRoundRobin() {
+		NodePool pool = new NodePool( Arrays.asList( "http://a", "http://b", "http://c" ) );
+		Set< String > chosen = new HashSet< String >();
+		for ( int i = 0; i < 3; i++ ) {
+			NodePool.Node node = pool.acquire( NONE );
+			chosen.add( node.baseURL );
+			pool.release( node, false );
+		}
+		assertEquals( 3, chosen.size() );
+		assertSame( pool.getNodes().get( 0 ), pool.acquirePrimary() );
+	}
+
+	@Test
+	public void testLeastOutstanding() {
+		NodePool pool = new NodePool( Arrays.asList( "http://a", "http://b" ) );
+		pool.setPolicy( LoadBalancing.LEAST_OUTSTANDING );
+		NodePool.Node busy = pool.acquire( NONE );
+		for ( int i = 0; i < 10; i++ ) {
+			NodePool.Node node = pool.acquire( NONE );
+			assertNotSame( busy, node );
+			pool.release( node, false );
+		}
+		assertEquals( 1, busy.getOutstanding() );
+	}
+
+	@Test
+	public void testEjection() {
+		NodePool pool = new NodePool( Arrays.asList( "http://a", "http://b" ) );
+		pool.setEjection( 2, TimeUnit.HOURS.toNanos( 1 ) );
+		NodePool.Node failing = pool.getNodes().get( 0 );
+		for ( int i = 0; i < 2; i++ )
+			pool.release( pool.acquirePrimary(), true );
+		for ( int i = 0; i < 10; i++ ) {
+			NodePool.Node node = pool.acquire( NONE );
+			assertNotSame( failing, node );
+			pool.release( node, false );
+		}
+		// a hedge rather goes to the same node than to an ejected one
+		NodePool.Node other = pool.getNodes().get( 1 );
+		assertSame( other, pool.acquire( other ) );
+		pool.release( other, false );
+		// writes still reach the primary, and a success ends its ejection
+		pool.release( pool.acquirePrimary(), false );
+		assertSame( failing, pool.acquire( other ) );
+	}
+
+	@Test
+	public void testPinnedListingStaysOnItsNode() {
+		NodePool pool = new NodePool( Arrays.asList( "http://a", "http://b", "http://c" ) );
+		NodePool.Pin pin = new NodePool.Pin();
+		NodePool.Node first = pool.acquirePinned( pin );
+		pool.release( first, false );
+		for ( int i = 0; i < 5; i++ ) {
+			pool.release( pool.acquire( NONE ), false );
+			NodePool.Node node = pool.acquirePinned( pin );
+			assertSame( first, node );
+			pool.release( node, false );
+		}
+	}
+}
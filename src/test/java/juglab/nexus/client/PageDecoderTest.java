@@ -0,0 +1,53 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Component;
+
+/**
+ */
+public class PageDecoderTest {
+
+	@Test
+	public void testItemsAndTokenInOnePass() throws IOException {
+		Page< Component > page = PageDecoder.COMPONENTS.decode( "{\"items\":[{\"id\":\"c1\",\"group\":\"org.example\",\"name\":\"lib\",\"version\":\"1.0\","
+				+ "\"assets\":[{\"path\":\"org/example/lib/1.0/lib-1.0.jar\",\"checksum\":{\"sha1\":\"da39a3ee5e6b4b0d3255bfef95601890afd80709\"}}]},"
+				+ "{\"id\":\"c2\",\"extra\":{\"nested\":[1,2,{\"x\":null}]}}],"
+				+ "\"continuationToken\":\"88491cd1d185dd13\"}" );
+		assertEquals( 2, page.getItems().size() );
+		Component first = page.getItems().get( 0 );
+		assertEquals( "org.example", first.getGroup() );
+		assertEquals( "da39a3ee5e6b4b0d3255bfef95601890afd80709", first.getAssets().get( 0 ).getChecksum().getSHA1() );
+		assertEquals( "c2", page.getItems().get( 1 ).getId() );
+		assertEquals( "88491cd1d185dd13", page.getContinuationToken() );
+	}
+
+	@Test
+	public void testFieldOrderAndEmptyPages() throws IOException {
+		Page< Asset > page = PageDecoder.ASSETS.decode( "{\"continuationToken\":null,\"unknown\":{\"items\":[1]},\"items\":[{\"path\":\"a\"}]}" );
+		assertEquals( 1, page.getItems().size() );
+		assertEquals( "a", page.getItems().get( 0 ).getPath() );
+		assertNull( page.getContinuationToken() );
+		page = PageDecoder.ASSETS.decode( "{\"items\":null,\"continuationToken\":\"next\"}" );
+		assertTrue( page.getItems().isEmpty() );
+		assertEquals( "next", page.getContinuationToken() );
+		assertTrue( PageDecoder.ASSETS.decode( "{}" ).getItems().isEmpty() );
+	}
+
+	@Test( expected = IOException.class )
+	public void testNotAnObject() throws IOException {
+		PageDecoder.ASSETS.decode( "[{\"path\":\"a\"}]" );
+	}
+
+	@Test( expected = IOException.class )
+	public void testItemsNotAnArray() throws IOException {
+		PageDecoder.ASSETS.decode( "{\"items\":{\"path\":\"a\"}}" );
+	}
+}
@@ -0,0 +1,116 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ */
+public class PageIteratorTest {
+
+	/**
+	 * Serves {@code pages} pages of {@code perPage} assets whose paths are
+	 * their numbers; the continuation token is the number of the next page
+	 */
+	static Function< String, String > pages( int pages, int perPage, AtomicInteger requests ) {
+		return token -> {
+			requests.incrementAndGet();
+			int page = token == null ? 0 : Integer.parseInt( token );
+			StringBuilder json = new StringBuilder( "{\"items\":[" );
+			for ( int i = 0; i < perPage; i++ )
+				json.append( i > 0 ? "," : "" ).append( "{\"path\":\"" ).append( page * perPage + i ).append( "\",\"unknown\":[1,{\"a\":2}]}" );
+			return json.append( "],\"continuationToken\":" ).append( page + 1 < pages ? "\"" + ( page + 1 ) + "\"" : "null" ).append( '}' ).toString();
+		};
+	}
+
+	static List< String > paths( PageIterator< Asset > iterator ) {
+		List< String > paths = new ArrayList< String >();
+		while ( iterator.hasNext() )
+			paths.add( iterator.next().getPath() );
+		return paths;
+	}
+
+	static void assertNumbered( List< String > paths, int count ) {
+		assertEquals( count, paths.size() );
+		for ( int i = 0; i < count; i++ )
+			assertEquals( String.valueOf( i ), paths.get( i ) );
+	}
+
+	@Test
+	public void testWalksAllPagesLazily() {
+		AtomicInteger requests = new AtomicInteger();
+		AtomicInteger decoded = new AtomicInteger();
+		AtomicInteger completed = new AtomicInteger();
+		NexusClientListener listener = new NexusClientListener() {
+
+			@Override
+			public void pageDecoded( String endpoint, int items, long waitNanos, long decodeNanos ) {
+				assertEquals( 10, items );
+				decoded.incrementAndGet();
+			}
+
+			@Override
+			public void listingCompleted( String endpoint, int pages, long items, long nanos ) {
+				assertEquals( 3, pages );
+				assertEquals( 30, items );
+				completed.incrementAndGet();
+			}
+		};
+		PageIterator< Asset > iterator = new PageIterator< Asset >( "listAssets", () -> listener, pages( 3, 10, requests ), PageDecoder.ASSETS );
+		assertEquals( 0, requests.get() );
+		assertEquals( "0", iterator.next().getPath() );
+		assertEquals( 1, requests.get() );
+		List< String > paths = paths( iterator );
+		paths.add( 0, "0" );
+		assertNumbered( paths, 30 );
+		assertEquals( 3, requests.get() );
+		assertEquals( 3, decoded.get() );
+		assertEquals( 1, completed.get() );
+		assertFalse( iterator.hasNext() );
+	}
+
+	@Test
+	public void testEmptyPagesAreSkipped() {
+		PageIterator< Asset > iterator = new PageIterator< Asset >( "listAssets", () -> NexusClientListener.NONE,
+				token -> token == null ? "{\"items\":null,\"continuationToken\":\"x\"}" : "{\"continuationToken\":null,\"items\":[{\"path\":\"0\"}]}",
+				PageDecoder.ASSETS );
+		assertNumbered( paths( iterator ), 1 );
+	}
+
+	@Test
+	public void testFailuresAreUnchecked() {
+		AtomicInteger requests = new AtomicInteger();
+		Function< String, String > pages = pages( 3, 10, requests );
+		PageIterator< Asset > failing = new PageIterator< Asset >( "listAssets", () -> NexusClientListener.NONE, token -> {
+			if ( token != null )
+				throw new IllegalStateException( "page " + token );
+			return pages.apply( token );
+		}, PageDecoder.ASSETS );
+		for ( int i = 0; i < 10; i++ )
+			failing.next();
+		try {
+			failing.hasNext();
+			fail();
+		} catch ( UncheckedNexusRestClientException e ) {
+			assertTrue( e.getCause().getCause() instanceof IllegalStateException );
+		}
+		PageIterator< Asset > malformed = new PageIterator< Asset >( "listAssets", () -> NexusClientListener.NONE, token -> "[]", PageDecoder.ASSETS );
+		try {
+			malformed.hasNext();
+			fail();
+		} catch ( UncheckedNexusRestClientException e ) {
+			assertTrue( e.getCause().getMessage().contains( "malformed page" ) );
+		}
+	}
+}
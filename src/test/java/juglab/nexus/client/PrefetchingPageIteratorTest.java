@@ -0,0 +1,123 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.metrics.NexusClientListener;
+
+/**
+ */
+public class PrefetchingPageIteratorTest {
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor( NexusRestClient.daemonThreads( "test-prefetch" ) );
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private PrefetchingPageIterator< Asset > iterator( Function< String, String > pages, int depth ) {
+		return new PrefetchingPageIterator< Asset >( "listAssets", () -> NexusClientListener.NONE, pages, PageDecoder.ASSETS, depth, executor );
+	}
+
+	@Test
+	public void testPagesAreFetchedInTheBackground() {
+		AtomicInteger requests = new AtomicInteger();
+		Set< Thread > fetching = ConcurrentHashMap.newKeySet();
+		Function< String, String > pages = PageIteratorTest.pages( 5, 10, requests );
+		PrefetchingPageIterator< Asset > iterator = iterator( token -> {
+			fetching.add( Thread.currentThread() );
+			return pages.apply( token );
+		}, 2 );
+		PageIteratorTest.assertNumbered( PageIteratorTest.paths( iterator ), 50 );
+		assertEquals( 5, requests.get() );
+		assertEquals( 1, fetching.size() );
+		assertTrue( !fetching.contains( Thread.currentThread() ) );
+	}
+
+	@Test
+	public void testPrefetchIsBoundedByDepth() throws InterruptedException {
+		AtomicInteger requests = new AtomicInteger();
+		PrefetchingPageIterator< Asset > iterator = iterator( PageIteratorTest.pages( 100, 10, requests ), 2 );
+		iterator.next();
+		// one page consumed, two queued and one waiting for room in the queue
+		Thread.sleep( 200 );
+		assertTrue( String.valueOf( requests.get() ), requests.get() <= 4 );
+		iterator.close();
+	}
+
+	@Test
+	public void testFailureIsDeliveredAfterEarlierPages() {
+		AtomicInteger requests = new AtomicInteger();
+		Function< String, String > pages = PageIteratorTest.pages( 5, 10, requests );
+		PrefetchingPageIterator< Asset > iterator = iterator( token -> {
+			if ( "2".equals( token ) )
+				throw new IllegalStateException( "page 2" );
+			return pages.apply( token );
+		}, 4 );
+		for ( int i = 0; i < 20; i++ )
+			assertEquals( String.valueOf( i ), iterator.next().getPath() );
+		try {
+			iterator.hasNext();
+			fail();
+		} catch ( UncheckedNexusRestClientException e ) {
+			assertTrue( e.getCause().getCause() instanceof IllegalStateException );
+		}
+		assertEquals( 2, requests.get() );
+
+		PrefetchingPageIterator< Asset > malformed = iterator( token -> "{\"items\":{}}", 1 );
+		try {
+			malformed.hasNext();
+			fail();
+		} catch ( UncheckedNexusRestClientException e ) {
+			assertTrue( e.getCause().getMessage().contains( "malformed page" ) );
+		}
+	}
+
+	@Test
+	public void testCloseStopsTheProducer() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		PrefetchingPageIterator< Asset > iterator = iterator( PageIteratorTest.pages( 1000, 10, requests ), 1 );
+		iterator.next();
+		iterator.close();
+		// the single producer thread is free again
+		executor.submit( () -> null ).get( 5, TimeUnit.SECONDS );
+		int stopped = requests.get();
+		Thread.sleep( 100 );
+		assertEquals( stopped, requests.get() );
+		assertTrue( stopped < 1000 );
+	}
+
+	@Test
+	public void testAbandonedIterationStopsTheProducer() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		iterator( PageIteratorTest.pages( 1000, 10, requests ), 1 ).next();
+		Future< ? > next = executor.submit( () -> null );
+		for ( int i = 0; i < 30; i++ ) {
+			System.gc();
+			try {
+				next.get( 500, TimeUnit.MILLISECONDS );
+				assertTrue( requests.get() < 1000 );
+				return;
+			} catch ( TimeoutException e ) {
+				// the producer has not noticed yet
+			}
+		}
+		fail( "producer still running after its iterator was collected" );
+	}
+}
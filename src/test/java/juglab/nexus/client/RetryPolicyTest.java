@@ -0,0 +1,62 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+/**
+ */
+public class RetryPolicyTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+	@Test
+	public void testTransientFailures() {
+		assertTrue( RetryPolicy.isTransient( new ProcessingException( new EOFException() ) ) );
+		assertTrue( RetryPolicy.isTransient( new NexusRestClientException( new SocketTimeoutException() ) ) );
+		assertTrue( RetryPolicy.isTransient( new ServiceUnavailableException() ) );
+		assertTrue( RetryPolicy.isTransient( new ProcessingException( new ServiceUnavailableException() ) ) );
+		assertFalse( RetryPolicy.isTransient( new NotFoundException() ) );
+		assertFalse( RetryPolicy.isTransient( new ChecksumMismatchException( "https://nexus.example.org/a.jar", "SHA-1", "00", "11" ) ) );
+		assertFalse( RetryPolicy.isTransient( new AccessDeniedException( "/tmp/x" ) ) );
+		assertFalse( RetryPolicy.isTransient( new IllegalStateException() ) );
+	}
+
+	@Test
+	public void testBackoffIsBoundedAndAttemptsAreLimited() {
+		RetryPolicy policy = new RetryPolicy( 4, SECOND, 3 * SECOND );
+		Throwable failure = new ProcessingException( new EOFException() );
+		for ( int i = 0; i < 100; i++ ) {
+			assertTrue( policy.delay( 1, failure ) <= SECOND );
+			assertTrue( policy.delay( 2, failure ) <= 2 * SECOND );
+			assertTrue( policy.delay( 3, failure ) <= 3 * SECOND );
+		}
+		assertEquals( -1, policy.delay( 4, failure ) );
+		assertEquals( -1, policy.delay( 1, new NotFoundException() ) );
+		assertEquals( -1, RetryPolicy.NONE.delay( 1, failure ) );
+	}
+
+	@Test
+	public void testRetryAfter() {
+		RetryPolicy policy = new RetryPolicy( 3, 0, 10 * SECOND );
+		Response busy = Response.status( 429 ).header( "Retry-After", "2" ).build();
+		assertEquals( 2 * SECOND, policy.delay( 1, busy ) );
+		assertEquals( 2 * SECOND, policy.delay( 1, new ServiceUnavailableException( Response.status( 503 ).header( "Retry-After", "2" ).build() ) ) );
+		assertEquals( -1, policy.delay( 1, Response.status( 503 ).header( "Retry-After", "60" ).build() ) );
+		assertEquals( -1, policy.delay( 1, Response.ok().build() ) );
+		assertEquals( 0, RetryPolicy.retryAfter( "Wed, 21 Oct 2015 07:28:00 GMT" ) );
+		assertEquals( 0, RetryPolicy.retryAfter( "soon" ) );
+	}
+}
@@ -0,0 +1,131 @@
+package juglab.nexus.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ */
+public class SingleFlightTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool( NexusRestClient.daemonThreads( "test-single-flight" ) );
+	private final SingleFlight< String, String > flights = new SingleFlight< String, String >();
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallsShareOneExecution() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		Future< String > first = executor.submit( () -> flights.run( "q", () -> {
+			calls.incrementAndGet();
+			started.countDown();
+			await( release );
+			return "result";
+		} ) );
+		started.await();
+		AtomicReference< Thread > joiner = new AtomicReference< Thread >();
+		Future< String > joined = executor.submit( () -> {
+			joiner.set( Thread.currentThread() );
+			return flights.run( "q", () -> "not executed" );
+		} );
+		assertEquals( "other", flights.run( "other", () -> "other" ) );
+		while ( joiner.get() == null || joiner.get().getState() != Thread.State.WAITING )
+			Thread.sleep( 1 );
+		release.countDown();
+		assertEquals( "result", first.get( 5, TimeUnit.SECONDS ) );
+		assertEquals( "result", joined.get( 5, TimeUnit.SECONDS ) );
+		assertEquals( 1, calls.get() );
+		assertEquals( 0, flights.size() );
+		// a completed call is not reused
+		assertEquals( "again", flights.run( "q", () -> "again" ) );
+	}
+
+	@Test
+	public void testFailureReachesJoinedCallers() throws Exception {
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		Future< String > first = executor.submit( () -> flights.run( "q", () -> {
+			started.countDown();
+			await( release );
+			throw new NexusRestClientException( "failed" );
+		} ) );
+		started.await();
+		CompletableFuture< String > joined = flights.runAsync( "q", () -> CompletableFuture.completedFuture( "not executed" ) );
+		release.countDown();
+		try {
+			first.get( 5, TimeUnit.SECONDS );
+			fail();
+		} catch ( ExecutionException e ) {
+			assertEquals( "failed", e.getCause().getMessage() );
+		}
+		try {
+			joined.get( 5, TimeUnit.SECONDS );
+			fail();
+		} catch ( ExecutionException e ) {
+			assertEquals( "failed", e.getCause().getMessage() );
+		}
+		assertEquals( 0, flights.size() );
+	}
+
+	@Test
+	public void testAsyncCallersAreIndependent() throws Exception {
+		CompletableFuture< String > call = new CompletableFuture< String >();
+		AtomicInteger calls = new AtomicInteger();
+		CompletableFuture< String > first = flights.runAsync( "q", () -> {
+			calls.incrementAndGet();
+			return call;
+		} );
+		CompletableFuture< String > second = flights.runAsync( "q", () -> {
+			calls.incrementAndGet();
+			return call;
+		} );
+		assertFalse( first == second );
+		first.cancel( true );
+		call.complete( "result" );
+		assertSame( "result", second.get( 5, TimeUnit.SECONDS ) );
+		assertTrue( first.isCancelled() );
+		assertEquals( 1, calls.get() );
+		assertEquals( 0, flights.size() );
+	}
+
+	@Test
+	public void testAsyncCallThatThrowsIsRemoved() {
+		try {
+			flights.runAsync( "q", () -> {
+				throw new IllegalStateException();
+			} );
+			fail();
+		} catch ( IllegalStateException e ) {
+			// thrown to the caller that started it
+		}
+		assertEquals( 0, flights.size() );
+	}
+
+	private static void await( CountDownLatch latch ) {
+		try {
+			latch.await();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
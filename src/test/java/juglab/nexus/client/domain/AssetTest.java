@@ -0,0 +1,78 @@
+package juglab.nexus.client.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ */
+public class AssetTest {
+
+	private static final String BASE = "https://nexus.example.org/repository/releases/";
+	private static final String PATH = "org/example/lib/1.0/lib-1.0.jar";
+
+	@Test
+	public void testDownloadUrlIsDerivedFromSharedPrefix() {
+		Asset urlFirst = new Asset();
+		urlFirst.setDownloadUrl( BASE + PATH );
+		urlFirst.setPath( PATH );
+		Asset pathFirst = new Asset();
+		pathFirst.setPath( "org/example/lib/1.1/lib-1.1.jar" );
+		pathFirst.setDownloadUrl( new String( BASE + "org/example/lib/1.1/lib-1.1.jar" ) );
+		assertEquals( BASE + PATH, urlFirst.getDownloadUrl() );
+		assertEquals( BASE + "org/example/lib/1.1/lib-1.1.jar", pathFirst.getDownloadUrl() );
+
+		// a new path keeps the URL it had
+		urlFirst.setPath( "other.jar" );
+		assertEquals( BASE + PATH, urlFirst.getDownloadUrl() );
+		// URLs that do not end with the path are kept whole
+		Asset encoded = new Asset();
+		encoded.setPath( "docs/read me.txt" );
+		encoded.setDownloadUrl( BASE + "docs/read%20me.txt" );
+		assertEquals( BASE + "docs/read%20me.txt", encoded.getDownloadUrl() );
+		encoded.setDownloadUrl( null );
+		assertNull( encoded.getDownloadUrl() );
+	}
+
+	@Test
+	public void testRepeatedFieldsArePooled() {
+		Asset a = new Asset();
+		Asset b = new Asset();
+		a.setRepository( new String( "releases" ) );
+		b.setRepository( new String( "releases" ) );
+		a.setFormat( new String( "maven2" ) );
+		b.setFormat( new String( "maven2" ) );
+		assertSame( a.getRepository(), b.getRepository() );
+		assertSame( a.getFormat(), b.getFormat() );
+		// groups are too many to pool
+		String group = new String( "org.example" );
+		Component c = new Component();
+		c.setGroup( group );
+		assertSame( group, c.getGroup() );
+	}
+
+	@Test
+	public void testPoolEvictsOldValues() {
+		for ( int i = 0; i < 100000; i++ )
+			StringPool.intern( "repository-" + i );
+		String fresh = StringPool.intern( new String( "fresh" ) );
+		assertSame( fresh, StringPool.intern( new String( "fresh" ) ) );
+	}
+
+	@Test
+	public void testAssetListIsCopied() {
+		List< Asset > assets = new ArrayList< Asset >( 10 );
+		assets.add( new Asset() );
+		Component c = new Component();
+		c.setAssets( assets );
+		assets.add( new Asset() );
+		assertEquals( 1, c.getAssets().size() );
+		c.setAssets( null );
+		assertNull( c.getAssets() );
+	}
+}
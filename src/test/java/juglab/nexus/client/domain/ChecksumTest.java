@@ -0,0 +1,99 @@
+package juglab.nexus.client.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+/**
+ */
+public class ChecksumTest {
+
+	private static final String SHA1 = "0123456789abcdef0123456789abcdeffedcba98";
+	private static final String MD5 = "ffeeddccbbaa99887766554433221100";
+
+	@Test
+	public void testHexRoundTripAndEquality() {
+		Checksum a = checksum( SHA1, MD5 );
+		Checksum b = checksum( new String( SHA1 ), new String( MD5 ) );
+		assertEquals( SHA1, a.getSHA1() );
+		assertEquals( MD5, a.getMD5() );
+		assertEquals( a, b );
+		assertEquals( a.hashCode(), b.hashCode() );
+		assertNotEquals( a, checksum( SHA1.replace( '8', '9' ), MD5 ) );
+		assertNotEquals( a, checksum( SHA1, null ) );
+		// values that are not hex digests are kept as they are
+		Checksum odd = checksum( SHA1.replace( 'a', 'g' ), "aa" );
+		assertEquals( SHA1.replace( 'a', 'g' ), odd.getSHA1() );
+		assertEquals( "aa", odd.getMD5() );
+		assertNotEquals( a, odd );
+		// replacing a digest forgets the previous one
+		a.setSHA1( null );
+		assertNull( a.getSHA1() );
+		assertEquals( checksum( null, MD5 ), a );
+	}
+
+	@Test
+	public void testUppercaseHexEqualsLowercase() throws IOException {
+		Checksum upper = checksum( SHA1.toUpperCase(), MD5.toUpperCase() );
+		assertEquals( SHA1, upper.getSHA1() );
+		assertEquals( MD5, upper.getMD5() );
+		assertEquals( checksum( SHA1, MD5 ), upper );
+		assertEquals( checksum( SHA1, MD5 ).hashCode(), upper.hashCode() );
+		Checksum decoded = new ObjectMapper().readValue( "{\"sha1\":\"" + SHA1.toUpperCase() + "\",\"md5\":\"" + MD5.toUpperCase() + "\"}", Checksum.class );
+		assertEquals( checksum( SHA1, MD5 ), decoded );
+	}
+
+	@Test
+	public void testDigestsAreComparedInBinary() throws NoSuchAlgorithmException {
+		byte[] content = "content".getBytes( StandardCharsets.UTF_8 );
+		byte[] sha1 = MessageDigest.getInstance( "SHA-1" ).digest( content );
+		byte[] md5 = MessageDigest.getInstance( "MD5" ).digest( content );
+		Checksum checksum = checksum( hex( sha1 ), hex( md5 ).toUpperCase() );
+		assertTrue( checksum.sha1Matches( sha1 ) );
+		assertTrue( checksum.md5Matches( md5 ) );
+		assertFalse( checksum.sha1Matches( md5 ) );
+		sha1[ 19 ] ^= 1;
+		assertFalse( checksum.sha1Matches( sha1 ) );
+		// a value that is not hex matches nothing, but is still set
+		Checksum odd = checksum( "AB", null );
+		assertTrue( odd.hasSHA1() );
+		assertFalse( odd.hasMD5() );
+		assertFalse( odd.sha1Matches( sha1 ) );
+	}
+
+	@Test
+	public void testJsonDecoding() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Checksum checksum = mapper.readValue( "{\"sha256\":\"00\",\"sha1\":\"" + SHA1 + "\",\"md5\":\"" + MD5 + "\",\"extra\":{\"x\":[1]}}", Checksum.class );
+		assertEquals( checksum( SHA1, MD5 ), checksum );
+		Asset asset = mapper.readValue( "{\"id\":\"a\",\"checksum\":{\"sha1\":\"AB\",\"md5\":null}}", Asset.class );
+		assertEquals( "AB", asset.getChecksum().getSHA1() );
+		assertNull( asset.getChecksum().getMD5() );
+		assertNull( mapper.readValue( "{\"id\":\"a\",\"checksum\":null}", Asset.class ).getChecksum() );
+	}
+
+	private static String hex( byte[] bytes ) {
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : bytes )
+			hex.append( String.format( "%02x", b ) );
+		return hex.toString();
+	}
+
+	private static Checksum checksum( String sha1, String md5 ) {
+		Checksum checksum = new Checksum();
+		checksum.setSHA1( sha1 );
+		checksum.setMD5( md5 );
+		return checksum;
+	}
+}
@@ -0,0 +1,28 @@
+package juglab.nexus.client.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ */
+public class QueryTest {
+
+	@Test
+	public void testEqualsAndHashCode() {
+		Query q = new Query( "lib", "releases", "maven2", null, null, "1.0", "org.example", "lib", Query.Sort.VERSION, Query.Order.DESC );
+		Query copy = new Query( q );
+		assertEquals( q, copy );
+		assertEquals( q.hashCode(), copy.hashCode() );
+		assertEquals( new Query(), new Query() );
+
+		copy.setOrderBy( Query.Order.ASC );
+		assertNotEquals( q, copy );
+		copy.setOrderBy( Query.Order.DESC );
+		copy.setKeyword( null );
+		assertNotEquals( q, copy );
+		// a copy does not follow changes of the original
+		assertEquals( "lib", new Query( q ).getKeyword() );
+	}
+}
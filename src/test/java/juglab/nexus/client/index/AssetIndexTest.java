@@ -0,0 +1,163 @@
+package juglab.nexus.client.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.domain.Query;
+
+/**
+ */
+public class AssetIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Asset asset( String repository, String format, String path ) {
+		Asset asset = new Asset();
+		asset.setId( repository + ":" + path );
+		asset.setRepository( repository );
+		asset.setFormat( format );
+		asset.setPath( path );
+		asset.setDownloadUrl( "https://nexus.example.org/repository/" + repository + "/" + path );
+		Checksum checksum = new Checksum();
+		checksum.setSHA1( Integer.toHexString( path.hashCode() ) );
+		asset.setChecksum( checksum );
+		return asset;
+	}
+
+	private static List< String > paths( List< Asset > assets ) {
+		List< String > paths = new ArrayList< String >();
+		for ( Asset asset : assets )
+			paths.add( asset.getPath() );
+		return paths;
+	}
+
+	private AssetIndex index() throws Exception {
+		Path file = folder.getRoot().toPath().resolve( "assets.idx" );
+		AssetIndex.build( file, Arrays.asList(
+				asset( "releases", "maven2", "org/example/lib/1.9/lib-1.9.jar" ),
+				asset( "releases", "maven2", "org/example/lib/1.10/lib-1.10.jar" ),
+				asset( "releases", "maven2", "org/example/lib/1.10/lib-1.10.pom" ),
+				asset( "releases", "maven2", "org/example/lib/maven-metadata.xml" ),
+				asset( "releases", "maven2", "org/example/app/2.0/app-2.0.jar" ),
+				asset( "files", "raw", "docs/Readme.txt" ) ) );
+		return AssetIndex.open( file );
+	}
+
+	@Test
+	public void testHexDigestsRoundTripInBinary() throws Exception {
+		Asset asset = asset( "releases", "maven2", "org/example/lib/1.0/lib-1.0.jar" );
+		asset.getChecksum().setSHA1( "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709" );
+		asset.getChecksum().setMD5( "d41d8cd98f00b204e9800998ecf8427e" );
+		Path file = folder.getRoot().toPath().resolve( "digests.idx" );
+		AssetIndex index = AssetIndex.build( file, Arrays.asList( asset, asset( "releases", "maven2", "org/example/lib/1.0/lib-1.0.pom" ) ) );
+
+		List< Asset > assets = index.search( new Query() );
+		assertEquals( asset.getChecksum(), assets.get( 0 ).getChecksum() );
+		assertEquals( "da39a3ee5e6b4b0d3255bfef95601890afd80709", assets.get( 0 ).getChecksum().getSHA1() );
+		assertEquals( Integer.toHexString( "org/example/lib/1.0/lib-1.0.pom".hashCode() ), assets.get( 1 ).getChecksum().getSHA1() );
+		assertNull( assets.get( 1 ).getChecksum().getMD5() );
+	}
+
+	@Test
+	public void testSearchByCoordinates() throws Exception {
+		AssetIndex index = index();
+		assertEquals( 6, index.size() );
+
+		Query q = new Query();
+		q.setMavenGroupId( "org.example" );
+		q.setMavenArtifactId( "lib" );
+		q.setVersion( "1.10" );
+		List< Asset > assets = index.search( q );
+		assertEquals( Arrays.asList( "org/example/lib/1.10/lib-1.10.jar", "org/example/lib/1.10/lib-1.10.pom" ), paths( assets ) );
+		Asset jar = assets.get( 0 );
+		assertEquals( "releases:org/example/lib/1.10/lib-1.10.jar", jar.getId() );
+		assertEquals( "https://nexus.example.org/repository/releases/org/example/lib/1.10/lib-1.10.jar", jar.getDownloadUrl() );
+		assertEquals( Integer.toHexString( jar.getPath().hashCode() ), jar.getChecksum().getSHA1() );
+		assertNull( jar.getChecksum().getMD5() );
+
+		q = new Query();
+		q.setRepository( "files" );
+		assertEquals( Arrays.asList( "docs/Readme.txt" ), paths( index.search( q ) ) );
+
+		q = new Query();
+		q.setRepository( "missing" );
+		assertTrue( index.search( q ).isEmpty() );
+	}
+
+	@Test
+	public void testSearchSortedByVersion() throws Exception {
+		Query q = new Query();
+		q.setName( "lib" );
+		q.setSortBy( Query.Sort.VERSION );
+		// newest first by default, metadata without a version last
+		assertEquals( Arrays.asList(
+				"org/example/lib/1.10/lib-1.10.jar",
+				"org/example/lib/1.10/lib-1.10.pom",
+				"org/example/lib/1.9/lib-1.9.jar",
+				"org/example/lib/maven-metadata.xml" ), paths( index().search( q ) ) );
+	}
+
+	@Test
+	public void testSearchByKeyword() throws Exception {
+		Query q = new Query();
+		q.setKeyword( "README" );
+		assertEquals( Arrays.asList( "docs/Readme.txt" ), paths( index().search( q ) ) );
+	}
+
+	@Test
+	public void testSearchByPrefix() throws Exception {
+		AssetIndex index = index();
+		Query q = new Query();
+		q.setName( "lib" );
+		q.setVersion( "1.1*" );
+		assertEquals( Arrays.asList( "org/example/lib/1.10/lib-1.10.jar", "org/example/lib/1.10/lib-1.10.pom" ), paths( index.search( q ) ) );
+		q.setVersion( "1.1" );
+		assertTrue( index.search( q ).isEmpty() );
+		q = new Query();
+		q.setRepository( "*" );
+		assertEquals( 6, index.search( q ).size() );
+	}
+
+	@Test
+	public void testKeywordMatchesWordPrefixes() throws Exception {
+		AssetIndex index = index();
+		Query q = new Query();
+		q.setKeyword( "app 2" );
+		assertEquals( Arrays.asList( "org/example/app/2.0/app-2.0.jar" ), paths( index.search( q ) ) );
+		// not at the start of a word
+		q.setKeyword( "xample" );
+		assertTrue( index.search( q ).isEmpty() );
+		q.setKeyword( "maven-meta" );
+		assertEquals( Arrays.asList( "org/example/lib/maven-metadata.xml" ), paths( index.search( q ) ) );
+	}
+
+	@Test
+	public void testKeywordMatchesAnyCase() throws Exception {
+		AssetIndex index = AssetIndex.build( folder.getRoot().toPath().resolve( "mixed.idx" ), Arrays.asList(
+				asset( "files", "raw", "Docs/\u00dcbersicht/Guide.PDF" ),
+				asset( "releases", "maven2", "Org/Example/Lib/1.0-RC/Lib-1.0-RC.jar" ) ) );
+		Query q = new Query();
+		q.setKeyword( "\u00fcbersicht/guide.pdf" );
+		assertEquals( Arrays.asList( "Docs/\u00dcbersicht/Guide.PDF" ), paths( index.search( q ) ) );
+		q.setKeyword( "1.0-rc" );
+		assertEquals( Arrays.asList( "Org/Example/Lib/1.0-RC/Lib-1.0-RC.jar" ), paths( index.search( q ) ) );
+		// the group is only in the derived coordinates
+		q.setKeyword( "ORG.EXAMPLE" );
+		assertEquals( 1, index.search( q ).size() );
+		q.setKeyword( "guide.pdf.txt" );
+		assertEquals( 0, index.search( q ).size() );
+	}
+}
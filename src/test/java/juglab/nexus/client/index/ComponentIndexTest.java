@@ -0,0 +1,89 @@
+package juglab.nexus.client.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import juglab.nexus.client.domain.Component;
+import juglab.nexus.client.domain.Query;
+
+/**
+ */
+public class ComponentIndexTest {
+
+	private static Component component( String repository, String group, String name, String version ) {
+		Component component = new Component();
+		component.setId( repository + ":" + group + ":" + name + ":" + version );
+		component.setRepository( repository );
+		component.setFormat( "maven2" );
+		component.setGroup( group );
+		component.setName( name );
+		component.setVersion( version );
+		return component;
+	}
+
+	private static final ComponentIndex INDEX = ComponentIndex.of( Arrays.asList(
+			component( "releases", "org.example", "lib", "1.9" ),
+			component( "releases", "org.example", "lib", "1.10" ),
+			component( "snapshots", "org.example", "lib", "1.11-SNAPSHOT" ),
+			component( "releases", "org.example", "app", "2.0" ),
+			component( "releases", "com.acme", "Widget-Core", "0.1" ) ) );
+
+	private static List< String > ids( List< Component > components ) {
+		List< String > ids = new ArrayList< String >();
+		for ( Component component : components )
+			ids.add( component.getRepository() + ":" + component.getName() + ":" + component.getVersion() );
+		return ids;
+	}
+
+	@Test
+	public void testExactAndPrefixTerms() {
+		Query q = new Query();
+		q.setMavenGroupId( "org.example" );
+		q.setMavenArtifactId( "lib" );
+		q.setRepository( "releases" );
+		assertEquals( Arrays.asList( "releases:lib:1.9", "releases:lib:1.10" ), ids( INDEX.search( q ) ) );
+
+		q = new Query();
+		q.setVersion( "1.1*" );
+		assertEquals( Arrays.asList( "releases:lib:1.10", "snapshots:lib:1.11-SNAPSHOT" ), ids( INDEX.search( q ) ) );
+
+		q = new Query();
+		q.setName( "nothing" );
+		assertTrue( INDEX.search( q ).isEmpty() );
+	}
+
+	@Test
+	public void testKeyword() {
+		Query q = new Query();
+		q.setKeyword( "widget co" );
+		assertEquals( Arrays.asList( "releases:Widget-Core:0.1" ), ids( INDEX.search( q ) ) );
+
+		q = new Query();
+		q.setKeyword( "snapshot" );
+		assertEquals( Arrays.asList( "snapshots:lib:1.11-SNAPSHOT" ), ids( INDEX.search( q ) ) );
+	}
+
+	@Test
+	public void testSortOrder() {
+		Query q = new Query();
+		q.setName( "lib" );
+		q.setSortBy( Query.Sort.VERSION );
+		assertEquals( Arrays.asList( "snapshots:lib:1.11-SNAPSHOT", "releases:lib:1.10", "releases:lib:1.9" ), ids( INDEX.search( q ) ) );
+
+		q.setOrderBy( Query.Order.ASC );
+		assertEquals( Arrays.asList( "releases:lib:1.9", "releases:lib:1.10", "snapshots:lib:1.11-SNAPSHOT" ), ids( INDEX.search( q ) ) );
+
+		q = new Query();
+		q.setSortBy( Query.Sort.NAME );
+		q.setOrderBy( Query.Order.DESC );
+		// ties in ascending group, name, version, repository order
+		assertEquals( Arrays.asList( "releases:lib:1.9", "releases:lib:1.10", "snapshots:lib:1.11-SNAPSHOT", "releases:app:2.0", "releases:Widget-Core:0.1" ),
+				ids( INDEX.search( q ) ) );
+	}
+}
@@ -0,0 +1,633 @@
+package juglab.nexus.client.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the {@code /service/rest/v1/*} endpoints of
+ * {@link juglab.nexus.client.NexusRestClientProxy} and the
+ * {@code /repository/*} downloads, for load tests that must not depend on a
+ * real server. Serves a generated catalogue of maven2 components with a jar
+ * and a pom each, listings and searches with continuation tokens, redirects
+ * for {@code search/assets/download}, deletes, uploads whose body is read
+ * and discarded, and downloads with byte ranges and {@code HEAD}.
+ * <p>
+ * The catalogue and the content of every asset are derived from the seed,
+ * so runs are repeatable. Latency is added before every response, a
+ * fraction of requests fails with 503, and downloads can be throttled to a
+ * bandwidth. Searches filter on all query parameters of {@link
+ * juglab.nexus.client.domain.Query} plus {@code maven.extension}, ignore the
+ * sort order and return results in catalogue order. Items answer
+ * {@code If-None-Match} with 304.
+ * </p>
+ */
+public final class FakeNexusServer implements AutoCloseable {
+
+	private static final String API = "/service/rest/v1/";
+	private static final String DOWNLOADS = "/repository/";
+	private static final String FORMAT = "maven2";
+	private static final String[] EXTENSIONS = { "jar", "pom" };
+	private static final int VERSIONS = 5;
+	private static final int GROUPS = 50;
+	private static final int CHUNK = 64 << 10;
+	private static final Pattern RANGE = Pattern.compile( "bytes=(\\d+)-(\\d*)" );
+
+	static {
+		// without it, small responses wait for the client's delayed ACK and
+		// every call takes ~40ms; read once, when the first server starts
+		if ( System.getProperty( "sun.net.httpserver.nodelay" ) == null )
+			System.setProperty( "sun.net.httpserver.nodelay", "true" );
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final String baseURL;
+	private final List< String > repositories;
+	private final int components;
+	private final int pageSize;
+	private final long latencyNanos;
+	private final double errorRate;
+	private final long bandwidth;
+	private final long seed;
+	private final byte[] block;
+	private final MessageDigest sha1;
+	private final MessageDigest md5;
+	private final Map< String, Integer > assetsByPath = new HashMap< String, Integer >();
+	private final Set< Integer > deletedComponents = ConcurrentHashMap.newKeySet();
+	private final Set< Integer > deletedAssets = ConcurrentHashMap.newKeySet();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong injectedErrors = new AtomicLong();
+	private final AtomicLong uploadedBytes = new AtomicLong();
+
+	public static final class Builder {
+
+		private int port;
+		private List< String > repositories = Collections.singletonList( "maven-releases" );
+		private int components = 1000;
+		private int pageSize = 100;
+		private long latencyNanos;
+		private double errorRate;
+		private long bandwidth;
+		private int assetSize = 64 << 10;
+		private long seed = 42;
+		private int threads = 64;
+
+		private Builder() {}
+
+		/**
+		 * @param port
+		 *            - 0 (the default) picks a free port
+		 */
+		public Builder port( int port ) {
+			this.port = port;
+			return this;
+		}
+
+		public Builder repositories( String... repositories ) {
+			this.repositories = Arrays.asList( repositories );
+			return this;
+		}
+
+		/**
+		 * @param perRepository
+		 *            - number of components in each repository, each with
+		 *            two assets
+		 */
+		public Builder components( int perRepository ) {
+			this.components = perRepository;
+			return this;
+		}
+
+		public Builder pageSize( int items ) {
+			this.pageSize = items;
+			return this;
+		}
+
+		/**
+		 * Delay before every response
+		 */
+		public Builder latency( long latency, TimeUnit unit ) {
+			this.latencyNanos = unit.toNanos( latency );
+			return this;
+		}
+
+		/**
+		 * @param rate
+		 *            - fraction of requests answered with 503, between 0 and 1
+		 */
+		public Builder errorRate( double rate ) {
+			this.errorRate = rate;
+			return this;
+		}
+
+		/**
+		 * @param bytesPerSecond
+		 *            - throughput of each download; 0 (the default) does not
+		 *            throttle
+		 */
+		public Builder bandwidth( long bytesPerSecond ) {
+			this.bandwidth = bytesPerSecond;
+			return this;
+		}
+
+		public Builder assetSize( int bytes ) {
+			this.assetSize = bytes;
+			return this;
+		}
+
+		public Builder seed( long seed ) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * @param threads
+		 *            - number of requests served concurrently
+		 */
+		public Builder threads( int threads ) {
+			this.threads = threads;
+			return this;
+		}
+
+		public FakeNexusServer start() throws IOException {
+			return new FakeNexusServer( this );
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private FakeNexusServer( Builder builder ) throws IOException {
+		this.repositories = new ArrayList< String >( builder.repositories );
+		this.components = builder.components;
+		this.pageSize = builder.pageSize;
+		this.latencyNanos = builder.latencyNanos;
+		this.errorRate = builder.errorRate;
+		this.bandwidth = builder.bandwidth;
+		this.seed = builder.seed;
+		this.block = new byte[ Math.max( 0, builder.assetSize - Long.BYTES ) ];
+		new Random( seed ).nextBytes( block );
+		try {
+			this.sha1 = MessageDigest.getInstance( "SHA-1" );
+			this.md5 = MessageDigest.getInstance( "MD5" );
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+		sha1.update( block );
+		md5.update( block );
+		for ( int asset = 0; asset < repositories.size() * components * EXTENSIONS.length; asset++ )
+			assetsByPath.put( repositoryOf( asset / EXTENSIONS.length ) + "/" + path( asset ), asset );
+
+		this.server = HttpServer.create( new InetSocketAddress( "127.0.0.1", builder.port ), 0 );
+		this.executor = Executors.newFixedThreadPool( builder.threads, runnable -> {
+			Thread thread = new Thread( runnable, "fake-nexus" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		server.setExecutor( executor );
+		server.createContext( "/", this::handle );
+		server.start();
+		this.baseURL = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	public String getBaseURL() {
+		return baseURL;
+	}
+
+	public List< String > getRepositories() {
+		return Collections.unmodifiableList( repositories );
+	}
+
+	/**
+	 * @return number of requests received, including injected failures
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	public long getInjectedErrorCount() {
+		return injectedErrors.get();
+	}
+
+	/**
+	 * @return size of the request bodies of all uploads
+	 */
+	public long getUploadedBytes() {
+		return uploadedBytes.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop( 0 );
+		executor.shutdownNow();
+	}
+
+	private void handle( HttpExchange exchange ) throws IOException {
+		try ( InputStream body = exchange.getRequestBody() ) {
+			byte[] buffer = new byte[ CHUNK ];
+			for ( int read; ( read = body.read( buffer ) ) >= 0; )
+				if ( "POST".equals( exchange.getRequestMethod() ) )
+					uploadedBytes.addAndGet( read );
+			long request = requests.incrementAndGet();
+			if ( latencyNanos > 0 )
+				TimeUnit.NANOSECONDS.sleep( latencyNanos );
+			if ( errorRate > 0 && new Random( seed ^ request * 0x9E3779B97F4A7C15L ).nextDouble() < errorRate ) {
+				injectedErrors.incrementAndGet();
+				send( exchange, 503, "text/plain", "injected failure" );
+				return;
+			}
+			String path = exchange.getRequestURI().getRawPath();
+			if ( path.startsWith( DOWNLOADS ) )
+				download( exchange, decode( path.substring( DOWNLOADS.length() ) ) );
+			else if ( path.startsWith( API ) )
+				api( exchange, path.substring( API.length() ), parameters( exchange.getRequestURI().getRawQuery() ) );
+			else
+				send( exchange, 404, "text/plain", "not found" );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		} catch ( RuntimeException e ) {
+			send( exchange, 500, "text/plain", String.valueOf( e ) );
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void api( HttpExchange exchange, String path, Map< String, String > query ) throws IOException {
+		String method = exchange.getRequestMethod();
+		String[] segments = path.split( "/" );
+		switch ( segments[ 0 ] ) {
+		case "repositories":
+			send( exchange, 200, repositoriesJson() );
+			return;
+		case "assets":
+			if ( segments.length == 1 ) {
+				int repository = repositories.indexOf( query.get( "repository" ) );
+				if ( repository < 0 ) {
+					send( exchange, 404, "text/plain", "no such repository" );
+					return;
+				}
+				int first = repository * components * EXTENSIONS.length;
+				page( exchange, query, first, first + components * EXTENSIONS.length, this::searchable, this::assetJson );
+			} else {
+				item( exchange, method, id( segments[ 1 ], 'A' ), repositories.size() * components * EXTENSIONS.length, this::searchable, deletedAssets, this::assetJson );
+			}
+			return;
+		case "components":
+			if ( segments.length == 1 && "POST".equals( method ) ) {
+				if ( repositories.contains( query.get( "repository" ) ) )
+					send( exchange, 204, null, null );
+				else
+					send( exchange, 404, "text/plain", "no such repository" );
+			} else if ( segments.length == 1 ) {
+				int repository = repositories.indexOf( query.get( "repository" ) );
+				if ( repository < 0 ) {
+					send( exchange, 404, "text/plain", "no such repository" );
+					return;
+				}
+				page( exchange, query, repository * components, ( repository + 1 ) * components, c -> !deletedComponents.contains( c ), this::componentJson );
+			} else {
+				item( exchange, method, id( segments[ 1 ], 'C' ), repositories.size() * components, c -> !deletedComponents.contains( c ), deletedComponents, this::componentJson );
+			}
+			return;
+		case "search":
+			IntPredicate matches = matcher( query );
+			String extension = query.get( "maven.extension" );
+			IntPredicate assetMatches = a -> searchable( a ) && matches.test( a / EXTENSIONS.length )
+					&& ( extension == null || extension.equals( EXTENSIONS[ a % EXTENSIONS.length ] ) );
+			if ( segments.length == 1 ) {
+				page( exchange, query, 0, repositories.size() * components, c -> !deletedComponents.contains( c ) && matches.test( c ), this::componentJson );
+			} else if ( segments.length == 2 && "assets".equals( segments[ 1 ] ) ) {
+				page( exchange, query, 0, repositories.size() * components * EXTENSIONS.length, assetMatches, this::assetJson );
+			} else if ( "download".equals( segments[ segments.length - 1 ] ) ) {
+				redirect( exchange, assetMatches );
+			} else {
+				send( exchange, 404, "text/plain", "not found" );
+			}
+			return;
+		default:
+			send( exchange, 404, "text/plain", "not found" );
+		}
+	}
+
+	private boolean searchable( int asset ) {
+		return !deletedAssets.contains( asset ) && !deletedComponents.contains( asset / EXTENSIONS.length );
+	}
+
+	/**
+	 * Sends the items in {@code [from, to)} that pass the filter, one page
+	 * at a time; the continuation token is the number of the next item to
+	 * look at
+	 */
+	private void page( HttpExchange exchange, Map< String, String > query, int from, int to, IntPredicate filter, ItemWriter writer ) throws IOException {
+		String token = query.get( "continuationToken" );
+		int next = token == null ? from : Integer.parseInt( token, 16 );
+		StringBuilder json = new StringBuilder( pageSize * 400 ).append( "{\"items\":[" );
+		int items = 0;
+		for ( ; next < to && items < pageSize; next++ ) {
+			if ( !filter.test( next ) )
+				continue;
+			if ( items++ > 0 )
+				json.append( ',' );
+			writer.write( json, next );
+		}
+		while ( next < to && !filter.test( next ) )
+			next++;
+		json.append( "],\"continuationToken\":" ).append( next < to ? "\"" + Integer.toHexString( next ) + "\"" : "null" ).append( '}' );
+		send( exchange, 200, json.toString() );
+	}
+
+	private void item( HttpExchange exchange, String method, int number, int count, IntPredicate exists, Set< Integer > deleted, ItemWriter writer ) throws IOException {
+		if ( number < 0 || number >= count || !exists.test( number ) ) {
+			send( exchange, 404, "text/plain", "not found" );
+		} else if ( "DELETE".equals( method ) ) {
+			deleted.add( number );
+			send( exchange, 204, null, null );
+		} else {
+			StringBuilder json = new StringBuilder();
+			writer.write( json, number );
+			String etag = "\"" + Integer.toHexString( json.toString().hashCode() ) + "\"";
+			exchange.getResponseHeaders().add( "ETag", etag );
+			if ( etag.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) )
+				send( exchange, 304, null, null );
+			else
+				send( exchange, 200, json.toString() );
+		}
+	}
+
+	private void redirect( HttpExchange exchange, IntPredicate matches ) throws IOException {
+		int found = -1;
+		for ( int a = 0; a < repositories.size() * components * EXTENSIONS.length; a++ ) {
+			if ( !matches.test( a ) )
+				continue;
+			if ( found >= 0 ) {
+				send( exchange, 400, "text/plain", "Search returned multiple assets" );
+				return;
+			}
+			found = a;
+		}
+		if ( found < 0 ) {
+			send( exchange, 404, "text/plain", "Asset search returned no results" );
+			return;
+		}
+		exchange.getResponseHeaders().add( "Location", downloadUrl( found ) );
+		send( exchange, 302, null, null );
+	}
+
+	private void download( HttpExchange exchange, String path ) throws IOException, InterruptedException {
+		Integer asset = assetsByPath.get( path );
+		if ( asset == null || !searchable( asset ) ) {
+			send( exchange, 404, "text/plain", "not found" );
+			return;
+		}
+		long length = block.length + Long.BYTES;
+		long from = 0, to = length - 1;
+		String range = exchange.getRequestHeaders().getFirst( "Range" );
+		Matcher m = range == null ? null : RANGE.matcher( range );
+		int status = 200;
+		if ( m != null && m.matches() ) {
+			from = Long.parseLong( m.group( 1 ) );
+			if ( !m.group( 2 ).isEmpty() )
+				to = Math.min( to, Long.parseLong( m.group( 2 ) ) );
+			if ( from > to ) {
+				exchange.getResponseHeaders().add( "Content-Range", "bytes */" + length );
+				send( exchange, 416, "text/plain", "range not satisfiable" );
+				return;
+			}
+			status = 206;
+			exchange.getResponseHeaders().add( "Content-Range", "bytes " + from + "-" + to + "/" + length );
+		}
+		exchange.getResponseHeaders().add( "Accept-Ranges", "bytes" );
+		exchange.getResponseHeaders().add( "Content-Type", "application/java-archive" );
+		if ( "HEAD".equals( exchange.getRequestMethod() ) ) {
+			exchange.getResponseHeaders().add( "Content-Length", String.valueOf( to - from + 1 ) );
+			// the JDK server closes the connection after a response without a body
+			exchange.getResponseHeaders().add( "Connection", "close" );
+			exchange.sendResponseHeaders( status, -1 );
+			return;
+		}
+		exchange.sendResponseHeaders( status, to - from + 1 );
+		byte[] suffix = ByteBuffer.allocate( Long.BYTES ).putLong( asset ).array();
+		long start = System.nanoTime();
+		long written = 0;
+		try ( OutputStream out = exchange.getResponseBody() ) {
+			for ( long position = from; position <= to; ) {
+				int n = ( int ) Math.min( CHUNK, to - position + 1 );
+				if ( position < block.length ) {
+					n = ( int ) Math.min( n, block.length - position );
+					out.write( block, ( int ) position, n );
+				} else {
+					out.write( suffix, ( int ) ( position - block.length ), n );
+				}
+				position += n;
+				written += n;
+				if ( bandwidth > 0 ) {
+					long due = written * 1_000_000_000L / bandwidth - ( System.nanoTime() - start );
+					if ( due > 0 )
+						TimeUnit.NANOSECONDS.sleep( due );
+				}
+			}
+		}
+	}
+
+	private interface ItemWriter {
+
+		void write( StringBuilder json, int number );
+	}
+
+	private String repositoryOf( int component ) {
+		return repositories.get( component / components );
+	}
+
+	private String group( int component ) {
+		return "org.example.group" + ( component % components / VERSIONS % GROUPS );
+	}
+
+	private String name( int component ) {
+		return "artifact-" + ( component % components / VERSIONS );
+	}
+
+	private String version( int component ) {
+		return "1." + ( component % VERSIONS ) + ".0";
+	}
+
+	private String path( int asset ) {
+		int component = asset / EXTENSIONS.length;
+		String name = name( component );
+		String version = version( component );
+		return group( component ).replace( '.', '/' ) + "/" + name + "/" + version + "/" + name + "-" + version + "." + EXTENSIONS[ asset % EXTENSIONS.length ];
+	}
+
+	private String downloadUrl( int asset ) {
+		return baseURL + DOWNLOADS + repositoryOf( asset / EXTENSIONS.length ) + "/" + path( asset );
+	}
+
+	/**
+	 * Ids look like Nexus ids: the base64 of the repository and a key
+	 */
+	private String id( int number, char kind ) {
+		int component = kind == 'A' ? number / EXTENSIONS.length : number;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString( ( repositoryOf( component ) + ":" + kind + Integer.toHexString( number ) ).getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	private int id( String id, char kind ) {
+		try {
+			String decoded = new String( Base64.getUrlDecoder().decode( id ), StandardCharsets.UTF_8 );
+			int colon = decoded.lastIndexOf( ':' );
+			if ( colon < 0 || decoded.length() < colon + 3 || decoded.charAt( colon + 1 ) != kind )
+				return -1;
+			return Integer.parseInt( decoded.substring( colon + 2 ), 16 );
+		} catch ( IllegalArgumentException e ) {
+			return -1;
+		}
+	}
+
+	private void assetJson( StringBuilder json, int asset ) {
+		byte[] suffix = ByteBuffer.allocate( Long.BYTES ).putLong( asset ).array();
+		json.append( "{\"downloadUrl\":\"" ).append( downloadUrl( asset ) )
+				.append( "\",\"path\":\"" ).append( path( asset ) )
+				.append( "\",\"id\":\"" ).append( id( asset, 'A' ) )
+				.append( "\",\"repository\":\"" ).append( repositoryOf( asset / EXTENSIONS.length ) )
+				.append( "\",\"format\":\"" ).append( FORMAT )
+				.append( "\",\"checksum\":{\"sha1\":\"" ).append( digest( sha1, suffix ) )
+				.append( "\",\"md5\":\"" ).append( digest( md5, suffix ) ).append( "\"}}" );
+	}
+
+	private void componentJson( StringBuilder json, int component ) {
+		json.append( "{\"id\":\"" ).append( id( component, 'C' ) )
+				.append( "\",\"repository\":\"" ).append( repositoryOf( component ) )
+				.append( "\",\"format\":\"" ).append( FORMAT )
+				.append( "\",\"group\":\"" ).append( group( component ) )
+				.append( "\",\"name\":\"" ).append( name( component ) )
+				.append( "\",\"version\":\"" ).append( version( component ) )
+				.append( "\",\"assets\":[" );
+		boolean first = true;
+		for ( int a = component * EXTENSIONS.length; a < ( component + 1 ) * EXTENSIONS.length; a++ ) {
+			if ( deletedAssets.contains( a ) )
+				continue;
+			if ( !first )
+				json.append( ',' );
+			first = false;
+			assetJson( json, a );
+		}
+		json.append( "]}" );
+	}
+
+	private String repositoriesJson() {
+		StringBuilder json = new StringBuilder( "[" );
+		for ( int i = 0; i < repositories.size(); i++ ) {
+			if ( i > 0 )
+				json.append( ',' );
+			json.append( "{\"name\":\"" ).append( repositories.get( i ) )
+					.append( "\",\"format\":\"" ).append( FORMAT )
+					.append( "\",\"type\":\"hosted\",\"url\":\"" ).append( baseURL ).append( DOWNLOADS ).append( repositories.get( i ) ).append( "\"}" );
+		}
+		return json.append( ']' ).toString();
+	}
+
+	/**
+	 * The digest of an asset's content: the shared block, whose digest state
+	 * is cloned, followed by the asset's number
+	 */
+	private static String digest( MessageDigest prefix, byte[] suffix ) {
+		MessageDigest digest;
+		try {
+			digest = ( MessageDigest ) prefix.clone();
+		} catch ( CloneNotSupportedException e ) {
+			throw new IllegalStateException( e );
+		}
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest( suffix ) )
+			hex.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+		return hex.toString();
+	}
+
+	/**
+	 * @return a filter on component numbers for the search parameters
+	 */
+	private IntPredicate matcher( Map< String, String > query ) {
+		String repository = query.get( "repository" );
+		String format = query.get( "format" );
+		String group = first( query.get( "group" ), query.get( "maven.groupId" ) );
+		String name = first( query.get( "name" ), query.get( "maven.artifactId" ) );
+		String version = query.get( "version" );
+		String keyword = query.get( "q" ) == null ? null : query.get( "q" ).toLowerCase();
+		return c -> ( repository == null || repository.equals( repositoryOf( c ) ) )
+				&& ( format == null || format.equals( FORMAT ) )
+				&& ( group == null || group.equals( group( c ) ) )
+				&& ( name == null || name.equals( name( c ) ) )
+				&& ( version == null || version.equals( version( c ) ) )
+				&& ( keyword == null || group( c ).contains( keyword ) || name( c ).contains( keyword ) || version( c ).contains( keyword ) );
+	}
+
+	private static String first( String a, String b ) {
+		return a != null ? a : b;
+	}
+
+	private static Map< String, String > parameters( String rawQuery ) {
+		Map< String, String > parameters = new HashMap< String, String >();
+		if ( rawQuery == null )
+			return parameters;
+		for ( String pair : rawQuery.split( "&" ) ) {
+			int equals = pair.indexOf( '=' );
+			if ( equals > 0 )
+				parameters.put( decode( pair.substring( 0, equals ) ), decode( pair.substring( equals + 1 ) ) );
+		}
+		return parameters;
+	}
+
+	private static String decode( String s ) {
+		try {
+			return URLDecoder.decode( s, "UTF-8" );
+		} catch ( UnsupportedEncodingException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static void send( HttpExchange exchange, int status, String json ) throws IOException {
+		send( exchange, status, "application/json", json );
+	}
+
+	private static void send( HttpExchange exchange, int status, String contentType, String body ) throws IOException {
+		byte[] bytes = body == null ? new byte[ 0 ] : body.getBytes( StandardCharsets.UTF_8 );
+		if ( contentType != null )
+			exchange.getResponseHeaders().add( "Content-Type", contentType );
+		if ( bytes.length == 0 )
+			// the JDK server closes the connection after a response without a body
+			exchange.getResponseHeaders().add( "Connection", "close" );
+		exchange.sendResponseHeaders( status, bytes.length == 0 ? -1 : bytes.length );
+		if ( bytes.length > 0 ) {
+			try ( OutputStream out = exchange.getResponseBody() ) {
+				out.write( bytes );
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package juglab.nexus.client.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for ( long value = 1; value <= 100_000; value++ )
+			histogram.record( value * 1000 );
+		assertEquals( 100_000, histogram.getCount() );
+		assertEquals( 100_000_000, histogram.getMax() );
+		assertEquals( 50_000_500, histogram.getMean(), 0.5 );
+		for ( double percentile : new double[] { 50, 90, 99, 99.9 } ) {
+			double expected = percentile * 1_000_000;
+			assertTrue( percentile + "%", Math.abs( histogram.getValueAtPercentile( percentile ) - expected ) <= expected / 64 );
+		}
+		assertEquals( histogram.getMax(), histogram.getValueAtPercentile( 100 ) );
+	}
+
+	@Test
+	public void testSmallAndExtremeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record( 3 );
+		assertEquals( 3, histogram.getValueAtPercentile( 50 ) );
+		histogram.record( Long.MAX_VALUE );
+		assertEquals( Long.MAX_VALUE, histogram.getValueAtPercentile( 100 ) );
+		histogram.reset();
+		assertEquals( 0, histogram.getCount() );
+		assertEquals( 0, histogram.getValueAtPercentile( 99 ) );
+	}
+}
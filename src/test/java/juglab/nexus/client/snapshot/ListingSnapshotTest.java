@@ -0,0 +1,138 @@
+package juglab.nexus.client.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import juglab.nexus.client.domain.Asset;
+import juglab.nexus.client.domain.Checksum;
+import juglab.nexus.client.domain.Component;
+
+/**
+ */
+public class ListingSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Asset asset( String id, String sha1 ) {
+		Asset asset = new Asset();
+		asset.setId( id );
+		asset.setRepository( "maven-releases" );
+		asset.setFormat( "maven2" );
+		asset.setPath( "org/example/" + id + ".jar" );
+		asset.setDownloadUrl( "https://nexus.example.org/repository/maven-releases/org/example/" + id + ".jar" );
+		if ( sha1 != null ) {
+			Checksum checksum = new Checksum();
+			checksum.setSHA1( sha1 );
+			asset.setChecksum( checksum );
+		}
+		return asset;
+	}
+
+	private static Component component( String id, String version, Asset... assets ) {
+		Component component = new Component();
+		component.setId( id );
+		component.setRepository( "maven-releases" );
+		component.setFormat( "maven2" );
+		component.setGroup( "org.example" );
+		component.setName( "example" );
+		component.setVersion( version );
+		component.setAssets( assets.length == 0 ? null : new ArrayList< Asset >( Arrays.asList( assets ) ) );
+		return component;
+	}
+
+	@Test
+	public void testComponentSnapshotRoundTrip() throws Exception {
+		List< Component > components = Arrays.asList(
+				component( "c1", "1.0", asset( "a1", "aa" ), asset( "a2", null ) ),
+				component( "c2", "1.1" ) );
+		Path file = folder.getRoot().toPath().resolve( "snapshot.bin" );
+		ListingSnapshot.ofComponents( "maven-releases", components ).write( file );
+
+		ListingSnapshot snapshot = ListingSnapshot.read( file );
+		assertEquals( ListingSnapshot.Kind.COMPONENTS, snapshot.getKind() );
+		assertEquals( "maven-releases", snapshot.getRepository() );
+		assertEquals( 2, snapshot.getComponents().size() );
+		Component c1 = snapshot.getComponents().get( 0 );
+		assertEquals( "1.0", c1.getVersion() );
+		assertEquals( "aa", c1.getAssets().get( 0 ).getChecksum().getSHA1() );
+		assertNull( c1.getAssets().get( 0 ).getChecksum().getMD5() );
+		assertNull( c1.getAssets().get( 1 ).getChecksum() );
+		assertNull( snapshot.getComponents().get( 1 ).getAssets() );
+		// repeated values are shared through the string table
+		assertSame( c1.getGroup(), snapshot.getComponents().get( 1 ).getGroup() );
+		assertTrue( snapshot.diffComponents( components ).isEmpty() );
+		assertEquals( 1, Files.list( folder.getRoot().toPath() ).count() );
+	}
+
+	@Test
+	public void testAssetSnapshotDiff() throws Exception {
+		Path file = folder.getRoot().toPath().resolve( "assets.bin" );
+		ListingSnapshot.ofAssets( "maven-releases", Arrays.asList( asset( "a1", "aa" ), asset( "a2", "bb" ), asset( "a3", "cc" ) ) ).write( file );
+
+		ListingDiff< Asset > diff = ListingSnapshot.read( file ).diffAssets( Arrays.asList( asset( "a1", "aa" ), asset( "a3", "cd" ), asset( "a4", "dd" ) ) );
+		assertEquals( "a4", diff.getAdded().get( 0 ).getId() );
+		assertEquals( "a2", diff.getRemoved().get( 0 ).getId() );
+		assertEquals( "a3", diff.getChanged().get( 0 ).getId() );
+		assertEquals( "added=1, removed=1, changed=1", diff.toString() );
+	}
+
+	@Test
+	public void testHexDigestsRoundTripInBinary() throws Exception {
+		Asset asset = asset( "a1", "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709" );
+		asset.getChecksum().setMD5( "d41d8cd98f00b204e9800998ecf8427e" );
+		Path file = folder.getRoot().toPath().resolve( "assets.bin" );
+		ListingSnapshot.ofAssets( "maven-releases", Arrays.asList( asset, asset( "a2", "not-hex" ) ) ).write( file );
+
+		List< Asset > assets = ListingSnapshot.read( file ).getAssets();
+		assertEquals( asset.getChecksum(), assets.get( 0 ).getChecksum() );
+		assertEquals( "da39a3ee5e6b4b0d3255bfef95601890afd80709", assets.get( 0 ).getChecksum().getSHA1() );
+		assertEquals( "d41d8cd98f00b204e9800998ecf8427e", assets.get( 0 ).getChecksum().getMD5() );
+		assertEquals( "not-hex", assets.get( 1 ).getChecksum().getSHA1() );
+		assertNull( assets.get( 1 ).getChecksum().getMD5() );
+	}
+
+	@Test
+	public void testCorruptCountIsTruncated() throws Exception {
+		Path file = folder.getRoot().toPath().resolve( "corrupt.bin" );
+		try ( DataOutputStream out = new DataOutputStream( Files.newOutputStream( file ) ) ) {
+			out.writeInt( 0x4e58534e );
+			out.writeInt( 2 );
+			out.writeByte( ListingSnapshot.Kind.ASSETS.ordinal() );
+			out.writeLong( 0 );
+			out.writeByte( 0 );
+			// an asset count of Integer.MAX_VALUE
+			out.write( new byte[] { ( byte ) 0xff, ( byte ) 0xff, ( byte ) 0xff, ( byte ) 0xff, 0x07 } );
+			out.writeByte( 0 );
+			out.writeLong( 23 );
+		}
+		try {
+			ListingSnapshot.read( file );
+			fail();
+		} catch ( IOException e ) {
+			assertEquals( "truncated snapshot", e.getMessage() );
+		}
+	}
+
+	@Test
+	public void testComponentChangedWhenAssetChanges() {
+		List< Component > before = Arrays.asList( component( "c1", "1.0", asset( "a1", "aa" ) ) );
+		List< Component > after = Arrays.asList( component( "c1", "1.0", asset( "a1", "ab" ) ) );
+		assertEquals( 1, ListingDiff.ofComponents( before, after ).getChanged().size() );
+	}
+}